@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.PayloadCodec;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle of a running state machine execution started by {@link StateMachineEngine#start}.
+ */
+public final class Execution {
+
+    private final String id;
+    private final PayloadCodec codec;
+    private final CompletableFuture<Payload> result = new CompletableFuture<Payload>();
+    private volatile ExecutionStatus status = ExecutionStatus.RUNNING;
+    private ScheduledFuture<?> timeout;
+
+    Execution(String id, PayloadCodec codec) {
+        this.id = id;
+        this.codec = codec;
+    }
+
+    /**
+     * @return Unique id of the execution, also the key of its history.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public ExecutionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return True if the execution succeeded or failed.
+     */
+    public boolean isDone() {
+        return status != ExecutionStatus.RUNNING;
+    }
+
+    /**
+     * @return Future completed with the output of the execution, or exceptionally with a {@link StatesException}.
+     */
+    public CompletableFuture<Payload> getResult() {
+        return result;
+    }
+
+    /**
+     * Waits for the execution to finish.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return Output of the execution.
+     * @throws StatesException      If the execution failed.
+     * @throws TimeoutException     If the execution did not finish in time.
+     * @throws InterruptedException If the current thread was interrupted while waiting.
+     */
+    public JsonNode getOutput(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        return getOutputPayload(timeout, unit).toJsonNode();
+    }
+
+    /**
+     * Waits for the execution to finish. Unlike {@link #getOutput(long, TimeUnit)} this does not parse an output that
+     * is still in its raw form, e.g. passed through from the input untouched.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return Output of the execution.
+     * @throws StatesException      If the execution failed.
+     * @throws TimeoutException     If the execution did not finish in time.
+     * @throws InterruptedException If the current thread was interrupted while waiting.
+     */
+    public Payload getOutputPayload(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        try {
+            return result.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw StatesException.wrap(e.getCause());
+        }
+    }
+
+    /**
+     * @return Codec the stored payloads of the execution are compressed with, null if they are not compressed.
+     */
+    PayloadCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Moves the execution out of {@link ExecutionStatus#RUNNING}. The result is completed separately so that the final
+     * history event can be recorded before anyone waiting on the execution is released.
+     *
+     * @param status Final status.
+     * @return False if the execution had already finished, e.g. because it timed out.
+     */
+    synchronized boolean finish(ExecutionStatus status) {
+        if (isDone()) {
+            return false;
+        }
+        this.status = status;
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        return true;
+    }
+
+    /**
+     * @param timeout Scheduled TimeoutSeconds of the execution, cancelled once the execution finishes.
+     */
+    synchronized void setTimeout(ScheduledFuture<?> timeout) {
+        if (isDone()) {
+            timeout.cancel(false);
+        } else {
+            this.timeout = timeout;
+        }
+    }
+}
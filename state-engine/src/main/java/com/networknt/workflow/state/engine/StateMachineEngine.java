@@ -0,0 +1,1190 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.history.HistoryEvent;
+import com.networknt.workflow.state.engine.history.HistoryStore;
+import com.networknt.workflow.state.engine.history.InMemoryHistoryStore;
+import com.networknt.workflow.state.engine.payload.CodecRegistry;
+import com.networknt.workflow.state.engine.payload.ItemFile;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.PayloadCodec;
+import com.networknt.workflow.state.engine.payload.PayloadList;
+import com.networknt.workflow.state.engine.payload.PayloadStore;
+import com.networknt.workflow.state.engine.payload.ResultFile;
+import com.networknt.workflow.state.engine.payload.SpillStore;
+import com.networknt.workflow.state.engine.plan.Batching;
+import com.networknt.workflow.state.engine.plan.ChoiceNode;
+import com.networknt.workflow.state.engine.plan.DataFlow;
+import com.networknt.workflow.state.engine.plan.DefinitionOptimizer;
+import com.networknt.workflow.state.engine.plan.ExecutionPlan;
+import com.networknt.workflow.state.engine.plan.FailNode;
+import com.networknt.workflow.state.engine.plan.FaultHandler;
+import com.networknt.workflow.state.engine.plan.MapNode;
+import com.networknt.workflow.state.engine.plan.NodeVisitor;
+import com.networknt.workflow.state.engine.plan.ParallelNode;
+import com.networknt.workflow.state.engine.plan.PassNode;
+import com.networknt.workflow.state.engine.plan.PlanCompiler;
+import com.networknt.workflow.state.engine.plan.StateNode;
+import com.networknt.workflow.state.engine.plan.SucceedNode;
+import com.networknt.workflow.state.engine.plan.TaskNode;
+import com.networknt.workflow.state.engine.plan.WaitNode;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes state machines. Every state transition is queued on the engine's executor so a single engine can interleave a
+ * large number of executions on a small thread pool, and every transition is recorded in the {@link HistoryStore}.
+ *
+ * <p>State machines are compiled into an {@link ExecutionPlan} on their first execution and the plan is reused by all
+ * following executions.</p>
+ */
+public class StateMachineEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateMachineEngine.class);
+
+    /**
+     * Maximum number of executions routed by a Choice state in one batch, more are left to the next batch.
+     */
+    private static final int MAX_CHOICE_BATCH = 4096;
+
+    private final TaskRegistry taskRegistry;
+    private final ScheduledExecutorService executor;
+    private final HistoryStore historyStore;
+    private final PayloadStore payloadStore;
+    private final SpillStore spillStore;
+    private final CodecRegistry codecRegistry;
+    private final int itemChunkSize;
+    private final Path itemDirectory;
+    private final boolean choiceBatching;
+    private final boolean optimizeDefinitions;
+    private final boolean passFusion;
+    private final boolean recordFusedStates;
+
+    /**
+     * Choice states waiting to route the executions that reached them, only used with batch routing. Weak so the entry
+     * goes away with the plan.
+     */
+    private final Map<ChoiceNode, ChoiceBatch> choiceBatches =
+            Collections.synchronizedMap(new WeakHashMap<ChoiceNode, ChoiceBatch>());
+
+    /**
+     * Creates an engine with a daemon thread pool sized to the number of processors and an in-memory history.
+     *
+     * @param taskRegistry Handlers for the task resources used by the state machines.
+     */
+    public StateMachineEngine(TaskRegistry taskRegistry) {
+        this(taskRegistry, defaultExecutor(), new InMemoryHistoryStore());
+    }
+
+    /**
+     * @param taskRegistry Handlers for the task resources used by the state machines.
+     * @param executor     Executor that runs the states and schedules waits and retries.
+     * @param historyStore Store for the history of the executions.
+     */
+    public StateMachineEngine(TaskRegistry taskRegistry, ScheduledExecutorService executor, HistoryStore historyStore) {
+        this(taskRegistry, executor, historyStore, null);
+    }
+
+    /**
+     * @param taskRegistry Handlers for the task resources used by the state machines.
+     * @param executor     Executor that runs the states and schedules waits and retries.
+     * @param historyStore Store for the history of the executions.
+     * @param payloadStore Store large state inputs and outputs are moved to, null to keep all of them in memory.
+     */
+    public StateMachineEngine(TaskRegistry taskRegistry, ScheduledExecutorService executor, HistoryStore historyStore,
+                              PayloadStore payloadStore) {
+        this(taskRegistry, executor, historyStore, payloadStore, null, null, ItemFile.DEFAULT_CHUNK_SIZE, null, false,
+             false, false, false);
+    }
+
+    private StateMachineEngine(TaskRegistry taskRegistry, ScheduledExecutorService executor, HistoryStore historyStore,
+                               PayloadStore payloadStore, SpillStore spillStore, CodecRegistry codecRegistry,
+                               int itemChunkSize, Path itemDirectory, boolean choiceBatching,
+                               boolean optimizeDefinitions, boolean passFusion, boolean recordFusedStates) {
+        this.taskRegistry = taskRegistry;
+        this.executor = executor;
+        this.historyStore = historyStore;
+        this.payloadStore = payloadStore;
+        this.spillStore = spillStore;
+        this.codecRegistry = codecRegistry;
+        this.itemChunkSize = itemChunkSize;
+        this.itemDirectory = itemDirectory;
+        this.choiceBatching = choiceBatching;
+        this.optimizeDefinitions = optimizeDefinitions;
+        this.passFusion = passFusion;
+        this.recordFusedStates = recordFusedStates;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link StateMachineEngine}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts a new execution of the state machine. The method returns as soon as the first state has been queued.
+     *
+     * @param stateMachine State machine to execute.
+     * @param input        Input of the execution.
+     * @return Handle of the execution.
+     */
+    public Execution start(StateMachine stateMachine, JsonNode input) {
+        return start(stateMachine, Payload.of(input));
+    }
+
+    /**
+     * Starts a new execution of the state machine with an input that may still be in its raw form, see
+     * {@link Payload#of(byte[])}.
+     *
+     * @param stateMachine State machine to execute.
+     * @param input        Input of the execution.
+     * @return Handle of the execution.
+     */
+    public Execution start(StateMachine stateMachine, Payload input) {
+        final ExecutionPlan plan = PlanCompiler.compile(
+                optimizeDefinitions ? DefinitionOptimizer.optimize(stateMachine) : stateMachine);
+        PayloadCodec codec = codecRegistry == null ? null : codecRegistry.codecFor(stateMachine, input);
+        final Execution execution = new Execution(UUID.randomUUID().toString(), codec);
+        input = offload(execution, input);
+        record(execution, HistoryEvent.Type.EXECUTION_STARTED, null, input);
+        if (plan.getTimeoutSeconds() != null) {
+            execution.setTimeout(executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    failExecution(execution, new StatesException(ErrorCodes.TIMEOUT, "Execution timed out."));
+                }
+            }, plan.getTimeoutSeconds(), TimeUnit.SECONDS));
+        }
+        new Run(execution, plan, null, null, new Completion() {
+            @Override
+            public void succeeded(Payload output) {
+                if (execution.finish(ExecutionStatus.SUCCEEDED)) {
+                    record(execution, HistoryEvent.Type.EXECUTION_SUCCEEDED, null, output);
+                    execution.getResult().complete(output);
+                }
+            }
+
+            @Override
+            public void failed(StatesException error) {
+                failExecution(execution, error);
+            }
+        }).start(input);
+        return execution;
+    }
+
+    /**
+     * @param executionId Id of an execution started by this engine.
+     * @return History of the execution.
+     */
+    public List<HistoryEvent> getHistory(String executionId) {
+        return historyStore.getEvents(executionId);
+    }
+
+    /**
+     * Drops the history of an execution, and with it the references the history holds on its payloads.
+     *
+     * @param executionId Id of an execution started by this engine.
+     */
+    public void deleteHistory(String executionId) {
+        historyStore.remove(executionId);
+    }
+
+    /**
+     * Stops the executor. Running executions do not make progress afterwards.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void failExecution(Execution execution, StatesException error) {
+        if (execution.finish(ExecutionStatus.FAILED)) {
+            record(execution, HistoryEvent.Type.EXECUTION_FAILED, null, Payload.of(errorOutput(error)));
+            execution.getResult().completeExceptionally(error);
+        }
+    }
+
+    /**
+     * @return The payload or, if it is large, a reference to it in the payload store.
+     */
+    private Payload offload(Execution execution, Payload payload) {
+        return payloadStore == null ? payload : payloadStore.offload(payload, execution.getCodec());
+    }
+
+    private void record(Execution execution, HistoryEvent.Type type, String stateName, Payload data) {
+        historyStore.append(execution.getId(), new HistoryEvent(type, stateName, System.currentTimeMillis(), data),
+                            codecRegistry, execution.getCodec());
+    }
+
+    /**
+     * @param error Error raised by a state.
+     * @return Error output as passed to a catcher, see
+     *     <a href="https://states-language.net/spec.html#error-output">https://states-language.net/spec.html#error-output</a>
+     */
+    public static ObjectNode errorOutput(StatesException error) {
+        ObjectNode output = JsonNodeFactory.instance.objectNode();
+        output.put("Error", error.getError());
+        output.put("Cause", error.getMessage());
+        return output;
+    }
+
+    /**
+     * Receives the outcome of a {@link Run}.
+     */
+    private interface Completion {
+
+        void succeeded(Payload output);
+
+        void failed(StatesException error);
+    }
+
+    /**
+     * A single thread of control through a plan, either the top level state machine, a branch of a Parallel state or an
+     * iteration of a Map state.
+     */
+    private final class Run {
+
+        private final Execution execution;
+        private final ExecutionPlan plan;
+        private final Run parent;
+        private final AtomicBoolean aborted;
+        private final Completion completion;
+
+        /**
+         * @param parent  Run of the Parallel or Map state this run is a branch or iteration of, null for the top level run.
+         * @param aborted Set when a sibling branch or iteration failed and this run must stop, null for the top level run.
+         */
+        private Run(Execution execution, ExecutionPlan plan, Run parent, AtomicBoolean aborted, Completion completion) {
+            this.execution = execution;
+            this.plan = plan;
+            this.parent = parent;
+            this.aborted = aborted;
+            this.completion = completion;
+        }
+
+        void start(Payload input) {
+            submit(plan.getStartNode(), input, null, 0L);
+        }
+
+        private boolean isCancelled() {
+            return execution.isDone() || (aborted != null && aborted.get()) || (parent != null && parent.isCancelled());
+        }
+
+        private void submit(final StateNode node, final Payload input, final int[] attempts, long delayMillis) {
+            Runnable step = new Runnable() {
+                @Override
+                public void run() {
+                    step(node, input, attempts);
+                }
+            };
+            if (delayMillis > 0) {
+                executor.schedule(step, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(step);
+            }
+        }
+
+        private void step(StateNode node, Payload input, int[] attempts) {
+            if (isCancelled()) {
+                return;
+            }
+            if (attempts == null) {
+                record(execution, HistoryEvent.Type.STATE_ENTERED, node.getName(), input);
+            }
+            try {
+                node.accept(new StepVisitor(input, attempts));
+            } catch (RuntimeException e) {
+                handleError(node, input, attempts, StatesException.wrap(e));
+            }
+        }
+
+        /**
+         * Applies the retriers and catchers of the node, if any, to an error raised while executing it.
+         */
+        private void handleError(StateNode node, Payload input, int[] attempts, StatesException error) {
+            if (isCancelled()) {
+                return;
+            }
+            FaultHandler faultHandler = faultHandler(node);
+            record(execution, HistoryEvent.Type.STATE_FAILED, node.getName(), Payload.of(errorOutput(error)));
+            int[] counters = attempts == null ? new int[faultHandler.getRetrierCount()] : attempts;
+            long delay = faultHandler.nextRetryDelayMillis(error, counters);
+            if (delay >= 0) {
+                logger.debug("Retrying state {} of execution {} in {}ms", node.getName(), execution.getId(), delay);
+                record(execution, HistoryEvent.Type.STATE_RETRIED, node.getName(), input);
+                submit(node, input, counters, delay);
+                return;
+            }
+            FaultHandler.CatchClause catcher = faultHandler.findCatcher(error);
+            if (catcher == null) {
+                completion.failed(error);
+                return;
+            }
+            try {
+                transition(node, catcher.getNext(),
+                           Payload.of(catcher.getResultPath().write(input.toJsonNode(), errorOutput(error))));
+            } catch (RuntimeException e) {
+                completion.failed(StatesException.wrap(e));
+            }
+        }
+
+        private FaultHandler faultHandler(StateNode node) {
+            if (node instanceof TaskNode) {
+                return ((TaskNode) node).getFaultHandler();
+            } else if (node instanceof ParallelNode) {
+                return ((ParallelNode) node).getFaultHandler();
+            } else if (node instanceof MapNode) {
+                return ((MapNode) node).getFaultHandler();
+            }
+            return FaultHandler.NONE;
+        }
+
+        /**
+         * Records the output of the node and moves on to the next state, or completes the run if there is none.
+         */
+        private void transition(StateNode node, String next, Payload output) {
+            output = offload(execution, output);
+            record(execution, HistoryEvent.Type.STATE_EXITED, node.getName(), output);
+            if (next == null) {
+                completion.succeeded(output);
+            } else {
+                submit(plan.getNode(next), output, null, 0L);
+            }
+        }
+
+        /**
+         * Moves on from a Choice state routed in a batch.
+         */
+        private void routed(ChoiceNode choiceNode, Payload input, Payload effectiveInput, String next) {
+            try {
+                if (next == null) {
+                    throw new StatesException(ErrorCodes.NO_CHOICE_MATCHED,
+                                              "No choice rule matched in state " + choiceNode.getName());
+                }
+                transition(choiceNode, next, choiceNode.getDataFlow().applyOutputPath(effectiveInput));
+            } catch (RuntimeException e) {
+                handleError(choiceNode, input, null, StatesException.wrap(e));
+            }
+        }
+
+        private final class StepVisitor extends NodeVisitor<Void> {
+
+            private final Payload input;
+            private final int[] attempts;
+
+            private StepVisitor(Payload input, int[] attempts) {
+                this.input = input;
+                this.attempts = attempts;
+            }
+
+            @Override
+            public Void visit(PassNode passNode) {
+                Payload output = passNode.apply(input);
+                if (!passFusion || passNode.getFusedNext() == null) {
+                    transition(passNode, passNode.getNext(), output);
+                    return null;
+                }
+                // The whole chain runs as one step, without a hop through the executor between the states.
+                PassNode last = passNode;
+                for (PassNode successor = passNode.getFusedNext(); successor != null;
+                     successor = successor.getFusedNext()) {
+                    if (recordFusedStates) {
+                        output = offload(execution, output);
+                        record(execution, HistoryEvent.Type.STATE_EXITED, last.getName(), output);
+                        record(execution, HistoryEvent.Type.STATE_ENTERED, successor.getName(), output);
+                    }
+                    Payload successorInput = output;
+                    try {
+                        output = successor.apply(successorInput);
+                    } catch (RuntimeException e) {
+                        handleError(recordFusedStates ? successor : passNode, successorInput, null,
+                                    StatesException.wrap(e));
+                        return null;
+                    }
+                    last = successor;
+                }
+                transition(recordFusedStates ? last : passNode, last.getNext(), output);
+                return null;
+            }
+
+            @Override
+            public Void visit(TaskNode taskNode) {
+                DataFlow dataFlow = taskNode.getDataFlow();
+                PayloadTaskHandler handler = taskRegistry.getHandler(taskNode.getResource());
+                if (handler == null) {
+                    throw new StatesException(ErrorCodes.TASK_FAILED,
+                                              "No task handler registered for resource " + taskNode.getResource());
+                }
+                Payload result;
+                try {
+                    result = handler.execute(dataFlow.applyParameters(dataFlow.applyInputPath(input)));
+                } catch (Exception e) {
+                    throw StatesException.wrap(e);
+                }
+                result = dataFlow.applyResultSelector(result);
+                transition(taskNode, taskNode.getNext(), dataFlow.applyOutputPath(dataFlow.applyResultPath(input, result)));
+                return null;
+            }
+
+            @Override
+            public Void visit(ChoiceNode choiceNode) {
+                DataFlow dataFlow = choiceNode.getDataFlow();
+                Payload effectiveInput = dataFlow.applyInputPath(input);
+                if (choiceBatching) {
+                    choiceBatch(choiceNode).add(choiceNode, new ChoiceArrival(Run.this, input, effectiveInput));
+                    return null;
+                }
+                String next = choiceNode.choose(effectiveInput);
+                if (next == null) {
+                    throw new StatesException(ErrorCodes.NO_CHOICE_MATCHED,
+                                              "No choice rule matched in state " + choiceNode.getName());
+                }
+                transition(choiceNode, next, dataFlow.applyOutputPath(effectiveInput));
+                return null;
+            }
+
+            @Override
+            public Void visit(final WaitNode waitNode) {
+                DataFlow dataFlow = waitNode.getDataFlow();
+                Payload effectiveInput = dataFlow.applyInputPath(input);
+                long delay = waitNode.delayMillis(effectiveInput, System.currentTimeMillis());
+                final Payload output = offload(execution, dataFlow.applyOutputPath(effectiveInput));
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCancelled()) {
+                            transition(waitNode, waitNode.getNext(), output);
+                        }
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+                return null;
+            }
+
+            @Override
+            public Void visit(SucceedNode succeedNode) {
+                DataFlow dataFlow = succeedNode.getDataFlow();
+                transition(succeedNode, null, dataFlow.applyOutputPath(dataFlow.applyInputPath(input)));
+                return null;
+            }
+
+            @Override
+            public Void visit(FailNode failNode) {
+                StatesException error = new StatesException(failNode.getError(), failNode.getCause());
+                record(execution, HistoryEvent.Type.STATE_FAILED, failNode.getName(), Payload.of(errorOutput(error)));
+                completion.failed(error);
+                return null;
+            }
+
+            @Override
+            public Void visit(final ParallelNode parallelNode) {
+                final DataFlow dataFlow = parallelNode.getDataFlow();
+                final List<ExecutionPlan> branches = parallelNode.getBranches();
+                final Payload effectiveInput =
+                        offload(execution, dataFlow.applyParameters(dataFlow.applyInputPath(input)));
+                final Payload[] outputs = new Payload[branches.size()];
+                final SpillStore.Budget budget = spillStore == null ? null : spillStore.newBudget();
+                final AtomicInteger remaining = new AtomicInteger(branches.size());
+                final AtomicBoolean failed = new AtomicBoolean();
+                for (int i = 0; i < branches.size(); i++) {
+                    final int index = i;
+                    new Run(execution, branches.get(i), Run.this, failed, new Completion() {
+                        @Override
+                        public void succeeded(Payload output) {
+                            try {
+                                outputs[index] = budget == null ? output : budget.admit(output);
+                            } catch (StatesException e) {
+                                failed(e);
+                                return;
+                            }
+                            if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                                join(parallelNode, outputs);
+                            }
+                        }
+
+                        @Override
+                        public void failed(StatesException error) {
+                            if (failed.compareAndSet(false, true)) {
+                                handleError(parallelNode, input, attempts, error);
+                            }
+                        }
+                    }).start(effectiveInput);
+                }
+                return null;
+            }
+
+            @Override
+            public Void visit(MapNode mapNode) {
+                DataFlow dataFlow = mapNode.getDataFlow();
+                Payload effectiveInput = dataFlow.applyInputPath(input);
+                if (mapNode.getFileItems() != null) {
+                    if (itemDirectory == null) {
+                        throw new StatesException(ErrorCodes.RUNTIME,
+                                                  String.format("State %s reads its items from a file but the engine "
+                                                                + "has no item directory.", mapNode.getName()));
+                    }
+                    ResultFile results = mapNode.getFileItems().create(itemDirectory, effectiveInput);
+                    ItemFile items;
+                    try {
+                        items = mapNode.getFileItems().open(itemDirectory, effectiveInput, itemChunkSize);
+                    } catch (IOException e) {
+                        throw new StatesException(ErrorCodes.RUNTIME,
+                                                  String.format("Unable to read the items of state %s: %s",
+                                                                mapNode.getName(), e.getMessage()), e);
+                    }
+                    new FileIterations(mapNode, input, effectiveInput, attempts, items, results).launch();
+                    return null;
+                }
+                Payload items = effectiveInput.select(mapNode.getItemsPath());
+                Iterator<Payload> elements = items == null ? null : items.elements();
+                if (elements == null) {
+                    throw new StatesException(ErrorCodes.RUNTIME,
+                                              String.format("ItemsPath '%s' does not select an array in state %s.",
+                                                            mapNode.getItemsPath().getPath(), mapNode.getName()));
+                }
+                if (mapNode.getBatching() != null) {
+                    elements = mapNode.getBatching().batches(effectiveInput, elements);
+                }
+                new Iterations(mapNode, input, attempts, elements).launch();
+                return null;
+            }
+
+            private void join(ParallelNode parallelNode, Payload[] outputs) {
+                try {
+                    // the branches wrote straight into the slots, the array is streamed from them when serialized
+                    DataFlow dataFlow = parallelNode.getDataFlow();
+                    Payload result = dataFlow.applyResultSelector(Payload.array(outputs));
+                    transition(parallelNode, parallelNode.getNext(),
+                               dataFlow.applyOutputPath(dataFlow.applyResultPath(input, result)));
+                } catch (RuntimeException e) {
+                    handleError(parallelNode, input, attempts, StatesException.wrap(e));
+                }
+            }
+        }
+
+        /**
+         * The iterations of a Map state. Items are pulled from the array one at a time and an iteration is only started
+         * when fewer than MaxConcurrency are running, so neither the items nor the iterations are all materialized up
+         * front. Each iteration writes its output into its own slot, which keeps the outputs in the order of the items.
+         */
+        private final class Iterations {
+
+            private final MapNode mapNode;
+            private final Payload input;
+            private final int[] attempts;
+            private final Iterator<Payload> items;
+            private final PayloadList outputs = new PayloadList();
+            private final SpillStore.Budget budget = spillStore == null ? null : spillStore.newBudget();
+            private final AtomicBoolean failed = new AtomicBoolean();
+            private int running;
+            private boolean joined;
+
+            private Iterations(MapNode mapNode, Payload input, int[] attempts, Iterator<Payload> items) {
+                this.mapNode = mapNode;
+                this.input = input;
+                this.attempts = attempts;
+                this.items = items;
+            }
+
+            /**
+             * Starts iterations until the concurrency limit is reached, and joins once the items are exhausted and the
+             * last iteration finished.
+             */
+            private void launch() {
+                boolean join = false;
+                StatesException error = null;
+                synchronized (this) {
+                    int max = mapNode.getMaxConcurrency();
+                    try {
+                        while (!failed.get() && (max == 0 || running < max) && items.hasNext()) {
+                            start(outputs.addSlot(), items.next());
+                            running++;
+                        }
+                        if (running == 0 && !failed.get() && !joined && !items.hasNext()) {
+                            joined = true;
+                            join = true;
+                        }
+                    } catch (StatesException e) {
+                        // the items could not be read, e.g. the array is malformed
+                        error = e;
+                    }
+                }
+                if (error != null) {
+                    fail(error);
+                } else if (join) {
+                    join();
+                }
+            }
+
+            private void start(final int index, Payload item) {
+                new Run(execution, mapNode.getIterator(), Run.this, failed, new Completion() {
+                    @Override
+                    public void succeeded(Payload output) {
+                        try {
+                            outputs.set(index, budget == null ? output : budget.admit(output));
+                        } catch (StatesException e) {
+                            failed(e);
+                            return;
+                        }
+                        synchronized (Iterations.this) {
+                            running--;
+                        }
+                        launch();
+                    }
+
+                    @Override
+                    public void failed(StatesException error) {
+                        fail(error);
+                    }
+                }).start(item);
+            }
+
+            private void fail(StatesException error) {
+                if (failed.compareAndSet(false, true)) {
+                    handleError(mapNode, input, attempts, error);
+                }
+            }
+
+            private void join() {
+                try {
+                    DataFlow dataFlow = mapNode.getDataFlow();
+                    Payload result = dataFlow.applyResultSelector(Payload.array(outputs));
+                    transition(mapNode, mapNode.getNext(),
+                               dataFlow.applyOutputPath(dataFlow.applyResultPath(input, result)));
+                } catch (RuntimeException e) {
+                    handleError(mapNode, input, attempts, StatesException.wrap(e));
+                }
+            }
+        }
+
+        /**
+         * The iterations of a Map state reading its items from a file. The file is cut into chunks and every chunk is
+         * processed by a child run per item, or per batch of items, one after the other, with at most MaxConcurrency
+         * chunks in flight. The outputs of a chunk are appended to a part of the result file rather than kept in
+         * memory, so the heap used does not depend on the number of items.
+         */
+        private final class FileIterations {
+
+            private final MapNode mapNode;
+            private final Payload input;
+            private final Payload effectiveInput;
+            private final int[] attempts;
+            private final ItemFile items;
+            private final ResultFile results;
+            private final AtomicBoolean failed = new AtomicBoolean();
+            private int running;
+            private boolean joined;
+
+            private FileIterations(MapNode mapNode, Payload input, Payload effectiveInput, int[] attempts, ItemFile items,
+                                   ResultFile results) {
+                this.mapNode = mapNode;
+                this.input = input;
+                this.effectiveInput = effectiveInput;
+                this.attempts = attempts;
+                this.items = items;
+                this.results = results;
+            }
+
+            /**
+             * Cuts chunks until the concurrency limit is reached, and joins once the file is exhausted and the last
+             * chunk finished. Chunks and their result parts are created under the lock so the parts are in file order.
+             */
+            private void launch() {
+                List<ItemFile.Chunk> chunks = new ArrayList<ItemFile.Chunk>();
+                List<ResultFile.Part> parts = new ArrayList<ResultFile.Part>();
+                boolean join = false;
+                StatesException error = null;
+                synchronized (this) {
+                    int max = mapNode.getMaxConcurrency();
+                    try {
+                        ItemFile.Chunk chunk;
+                        while (!failed.get() && (max == 0 || running < max) && (chunk = items.nextChunk()) != null) {
+                            chunks.add(chunk);
+                            parts.add(results.newPart());
+                            running++;
+                        }
+                        if (running == 0 && !failed.get() && !joined) {
+                            joined = true;
+                            join = true;
+                        }
+                    } catch (IOException e) {
+                        error = new StatesException(ErrorCodes.RUNTIME,
+                                                    String.format("Unable to read the items of state %s: %s",
+                                                                  mapNode.getName(), e.getMessage()), e);
+                    }
+                }
+                if (error != null) {
+                    fail(error);
+                    return;
+                }
+                Batching batching = mapNode.getBatching();
+                for (int i = 0; i < chunks.size(); i++) {
+                    Iterator<Payload> chunk = chunks.get(i);
+                    next(batching == null ? chunk : batching.batches(effectiveInput, chunk), parts.get(i));
+                }
+                if (join) {
+                    join();
+                }
+            }
+
+            /**
+             * Starts the iteration of the next item, or batch, of the chunk, or releases the chunk if it has none left.
+             */
+            private void next(final Iterator<Payload> chunk, final ResultFile.Part part) {
+                if (failed.get()) {
+                    return;
+                }
+                Payload item;
+                try {
+                    if (!chunk.hasNext()) {
+                        part.close();
+                        synchronized (this) {
+                            running--;
+                        }
+                        launch();
+                        return;
+                    }
+                    item = chunk.next();
+                } catch (IOException e) {
+                    fail(writeError(e));
+                    return;
+                } catch (StatesException e) {
+                    fail(e);
+                    return;
+                }
+                new Run(execution, mapNode.getIterator(), Run.this, failed, new Completion() {
+                    @Override
+                    public void succeeded(Payload output) {
+                        try {
+                            part.write(output);
+                        } catch (IOException e) {
+                            failed(writeError(e));
+                            return;
+                        }
+                        next(chunk, part);
+                    }
+
+                    @Override
+                    public void failed(StatesException error) {
+                        fail(error);
+                    }
+                }).start(item);
+            }
+
+            private StatesException writeError(IOException e) {
+                return new StatesException(ErrorCodes.RUNTIME,
+                                           String.format("Unable to write the results of state %s: %s",
+                                                         mapNode.getName(), e.getMessage()), e);
+            }
+
+            private void fail(StatesException error) {
+                if (failed.compareAndSet(false, true)) {
+                    closeItems();
+                    results.close();
+                    handleError(mapNode, input, attempts, error);
+                }
+            }
+
+            private void closeItems() {
+                try {
+                    items.close();
+                } catch (IOException e) {
+                    logger.warn("Unable to close the items of state {}", mapNode.getName(), e);
+                }
+            }
+
+            /**
+             * The result of the state describes the result file, the outputs themselves are not loaded.
+             */
+            private void join() {
+                closeItems();
+                try {
+                    long count;
+                    try {
+                        count = results.commit();
+                    } catch (IOException e) {
+                        throw writeError(e);
+                    }
+                    ObjectNode details = JsonNodeFactory.instance.objectNode();
+                    details.put("Path", results.getPath().toString());
+                    details.put("ItemCount", count);
+                    ObjectNode result = JsonNodeFactory.instance.objectNode();
+                    result.set("ResultWriterDetails", details);
+                    DataFlow dataFlow = mapNode.getDataFlow();
+                    Payload selected = dataFlow.applyResultSelector(Payload.of(result));
+                    transition(mapNode, mapNode.getNext(),
+                               dataFlow.applyOutputPath(dataFlow.applyResultPath(input, selected)));
+                } catch (RuntimeException e) {
+                    results.close();
+                    handleError(mapNode, input, attempts, StatesException.wrap(e));
+                }
+            }
+        }
+    }
+
+    private ChoiceBatch choiceBatch(ChoiceNode choiceNode) {
+        synchronized (choiceBatches) {
+            ChoiceBatch batch = choiceBatches.get(choiceNode);
+            if (batch == null) {
+                batch = new ChoiceBatch();
+                choiceBatches.put(choiceNode, batch);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * A run that reached a Choice state and waits to be routed.
+     */
+    private static final class ChoiceArrival {
+
+        private final Run run;
+        private final Payload input;
+        private final Payload effectiveInput;
+
+        private ChoiceArrival(Run run, Payload input, Payload effectiveInput) {
+            this.run = run;
+            this.input = input;
+            this.effectiveInput = effectiveInput;
+        }
+    }
+
+    /**
+     * Runs that reached the same Choice state. The first arrival schedules a drain on the executor, every run that
+     * arrives until the drain gets its turn is routed in the same batch. The batch does not reference its Choice state
+     * so it does not keep the weak entry alive.
+     */
+    private final class ChoiceBatch {
+
+        private final ConcurrentLinkedQueue<ChoiceArrival> arrivals = new ConcurrentLinkedQueue<ChoiceArrival>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void add(ChoiceNode choiceNode, ChoiceArrival arrival) {
+            arrivals.add(arrival);
+            schedule(choiceNode);
+        }
+
+        private void schedule(final ChoiceNode choiceNode) {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain(choiceNode);
+                    }
+                });
+            }
+        }
+
+        private void drain(ChoiceNode choiceNode) {
+            List<ChoiceArrival> batch = new ArrayList<ChoiceArrival>();
+            ChoiceArrival arrival;
+            while (batch.size() < MAX_CHOICE_BATCH && (arrival = arrivals.poll()) != null) {
+                if (!arrival.run.isCancelled()) {
+                    batch.add(arrival);
+                }
+            }
+            scheduled.set(false);
+            if (!arrivals.isEmpty()) {
+                schedule(choiceNode);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            Payload[] inputs = new Payload[batch.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = batch.get(i).effectiveInput;
+            }
+            String[] next;
+            StatesException[] errors = new StatesException[inputs.length];
+            try {
+                next = choiceNode.chooseAll(inputs, errors);
+            } catch (RuntimeException e) {
+                for (ChoiceArrival failed : batch) {
+                    failed.run.handleError(choiceNode, failed.input, null, StatesException.wrap(e));
+                }
+                return;
+            }
+            logger.debug("Routed {} executions through choice state {}", inputs.length, choiceNode.getName());
+            for (int i = 0; i < inputs.length; i++) {
+                ChoiceArrival routed = batch.get(i);
+                if (errors[i] != null) {
+                    routed.run.handleError(choiceNode, routed.input, null, errors[i]);
+                } else {
+                    routed.run.routed(choiceNode, routed.input, routed.effectiveInput, next[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for a {@link StateMachineEngine}.
+     */
+    public static final class Builder {
+
+        private TaskRegistry taskRegistry;
+        private ScheduledExecutorService executor;
+        private HistoryStore historyStore;
+        private boolean deduplicateHistory;
+        private PayloadStore payloadStore;
+        private SpillStore spillStore;
+        private CodecRegistry codecRegistry;
+        private int itemChunkSize = ItemFile.DEFAULT_CHUNK_SIZE;
+        private Path itemDirectory;
+        private boolean choiceBatching;
+        private boolean optimizeDefinitions;
+        private boolean passFusion;
+        private boolean recordFusedStates = true;
+
+        private Builder() {
+        }
+
+        /**
+         * REQUIRED. Handlers for the task resources used by the state machines.
+         *
+         * @param taskRegistry Task registry.
+         * @return This object for method chaining.
+         */
+        public Builder taskRegistry(TaskRegistry taskRegistry) {
+            this.taskRegistry = taskRegistry;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Executor that runs the states and schedules waits and retries. Defaults to a daemon thread pool sized
+         * to the number of processors.
+         *
+         * @param executor Executor.
+         * @return This object for method chaining.
+         */
+        public Builder executor(ScheduledExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Store for the history of the executions. Defaults to an {@link InMemoryHistoryStore} connected to the
+         * payload store.
+         *
+         * @param historyStore History store.
+         * @return This object for method chaining.
+         */
+        public Builder historyStore(HistoryStore historyStore) {
+            this.historyStore = historyStore;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Whether the default {@link InMemoryHistoryStore} digests every recorded payload so that identical
+         * payloads are kept once. Digesting serializes and hashes each payload on every transition, so it only pays off
+         * when many executions record the same documents. Defaults to false, which still deduplicates offloaded and
+         * compressed payloads. Ignored if a {@link #historyStore(HistoryStore)} is set.
+         *
+         * @param deduplicateHistory True to deduplicate all payloads.
+         * @return This object for method chaining.
+         */
+        public Builder deduplicateHistory(boolean deduplicateHistory) {
+            this.deduplicateHistory = deduplicateHistory;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Store large state inputs and outputs are moved to. By default all payloads stay in memory.
+         *
+         * @param payloadStore Payload store.
+         * @return This object for method chaining.
+         */
+        public Builder payloadStore(PayloadStore payloadStore) {
+            this.payloadStore = payloadStore;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Enables spilling the outputs of Parallel branches to disk once they exceed the memory budget of the
+         * store. By default branch outputs stay in memory.
+         *
+         * @param spillStore Spill store.
+         * @return This object for method chaining.
+         */
+        public Builder spillStore(SpillStore spillStore) {
+            this.spillStore = spillStore;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Enables compression of the payloads kept for a long time: the data of history events and, if the
+         * payload store supports it, offloaded payloads. Each state machine gets a codec with a dictionary trained from
+         * its first inputs. By default payloads are not compressed.
+         *
+         * @param codecRegistry Codec registry.
+         * @return This object for method chaining.
+         */
+        public Builder codecRegistry(CodecRegistry codecRegistry) {
+            this.codecRegistry = codecRegistry;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Size in bytes of the chunks the item files of Map states with an ItemReader are cut into. A chunk is
+         * the unit of concurrency, at most MaxConcurrency chunks are processed at the same time. Defaults to
+         * {@link ItemFile#DEFAULT_CHUNK_SIZE}.
+         *
+         * @param itemChunkSize Chunk size, must be positive.
+         * @return This object for method chaining.
+         */
+        public Builder itemChunkSize(int itemChunkSize) {
+            if (itemChunkSize <= 0) {
+                throw new IllegalArgumentException("Item chunk size must be positive");
+            }
+            this.itemChunkSize = itemChunkSize;
+            return this;
+        }
+
+        /**
+         * REQUIRED for Map states with an ItemReader. Directory the Path of ItemReaders and ResultWriters is resolved
+         * against. The paths come from the execution input, a path that resolves to a file outside the directory fails
+         * the state, so executions can only read and write files below it. Without a directory such Map states fail.
+         *
+         * @param itemDirectory Directory holding the item and result files.
+         * @return This object for method chaining.
+         */
+        public Builder itemDirectory(Path itemDirectory) {
+            this.itemDirectory = itemDirectory.toAbsolutePath().normalize();
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Enables batch routing of Choice states: executions of the same state machine that reach the same
+         * Choice state before it gets its turn on the executor are routed together, each rule evaluated once over
+         * columns of the values of its Variables. This pays off when many executions run in lockstep, e.g. the
+         * iterations of a Map state, at the cost of a hop through the executor for every Choice state. Disabled by
+         * default.
+         *
+         * @param choiceBatching True to route Choice states in batches.
+         * @return This object for method chaining.
+         */
+        public Builder choiceBatching(boolean choiceBatching) {
+            this.choiceBatching = choiceBatching;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Runs the state machines through the {@link DefinitionOptimizer} before they are compiled: Choice
+         * rules that can never hold are dropped, Choice states decided by the constant Result of a Pass state are
+         * skipped and unreachable states removed. Skipped states do not show up in the history. Disabled by default.
+         *
+         * @param optimizeDefinitions True to optimize the state machines.
+         * @return This object for method chaining.
+         */
+        public Builder optimizeDefinitions(boolean optimizeDefinitions) {
+            this.optimizeDefinitions = optimizeDefinitions;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Runs a chain of consecutive Pass states as a single step: the data flow of one state is applied
+         * straight to the output of the one before, without a hop through the executor. The output of the chain is
+         * the same as without fusion. Disabled by default.
+         *
+         * @param passFusion True to fuse chains of Pass states.
+         * @return This object for method chaining.
+         */
+        public Builder passFusion(boolean passFusion) {
+            this.passFusion = passFusion;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Whether the history records the states inside a fused chain of Pass states, see
+         * {@link #passFusion(boolean)}. If not, the whole chain shows up as the first state of it, entered with the
+         * input of the chain and exited with its output. Defaults to true.
+         *
+         * @param recordFusedStates False to record a fused chain as a single state.
+         * @return This object for method chaining.
+         */
+        public Builder recordFusedStates(boolean recordFusedStates) {
+            this.recordFusedStates = recordFusedStates;
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link StateMachineEngine} object.
+         */
+        public StateMachineEngine build() {
+            if (taskRegistry == null) {
+                throw new IllegalStateException("TaskRegistry is required");
+            }
+            return new StateMachineEngine(
+                    taskRegistry,
+                    executor == null ? defaultExecutor() : executor,
+                    historyStore == null ? new InMemoryHistoryStore(payloadStore, deduplicateHistory) : historyStore,
+                    payloadStore,
+                    spillStore,
+                    codecRegistry,
+                    itemChunkSize,
+                    itemDirectory,
+                    choiceBatching,
+                    optimizeDefinitions,
+                    passFusion,
+                    recordFusedStates);
+        }
+    }
+
+    /**
+     * @return Executor used when none is configured. Cancelled timeouts are removed from its queue right away so that
+     *     they do not keep finished executions reachable until they would have fired.
+     */
+    private static ScheduledExecutorService defaultExecutor() {
+        ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), new EngineThreadFactory());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static final class EngineThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "state-engine-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
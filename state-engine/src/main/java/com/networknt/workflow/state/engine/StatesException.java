@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.networknt.workflow.state.model.ErrorCodes;
+
+/**
+ * Named error raised while executing a state machine. The error name is what {@link
+ * com.networknt.workflow.state.model.states.Retrier}s and {@link com.networknt.workflow.state.model.states.Catcher}s match
+ * against, and the message is reported as the cause.
+ *
+ * @see ErrorCodes
+ */
+public class StatesException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String error;
+
+    public StatesException(String error, String cause) {
+        super(cause);
+        this.error = error;
+    }
+
+    public StatesException(String error, String cause, Throwable throwable) {
+        super(cause, throwable);
+        this.error = error;
+    }
+
+    /**
+     * Converts an arbitrary exception thrown by a task into a named error. The error name of an unknown exception is its
+     * class name so that retriers and catchers can match on it.
+     *
+     * @param throwable Exception thrown while executing a state.
+     * @return The exception itself if it is already a {@link StatesException}, otherwise a wrapping one.
+     */
+    public static StatesException wrap(Throwable throwable) {
+        if (throwable instanceof StatesException) {
+            return (StatesException) throwable;
+        }
+        return new StatesException(throwable.getClass().getName(), String.valueOf(throwable.getMessage()), throwable);
+    }
+
+    /**
+     * @return Name of the error, either one of {@link ErrorCodes} or a user defined error name.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @param errorEquals Error names of a retrier or catcher.
+     * @return True if this error is matched by the given error names.
+     */
+    public boolean matches(Iterable<String> errorEquals) {
+        for (String errorName : errorEquals) {
+            if (ErrorCodes.ALL.equals(errorName) || errorName.equals(error)) {
+                return true;
+            }
+            // States.TaskFailed matches any error except a timeout
+            if (ErrorCodes.TASK_FAILED.equals(errorName) && !ErrorCodes.TIMEOUT.equals(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
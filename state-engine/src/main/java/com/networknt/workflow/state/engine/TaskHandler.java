@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Executes the work identified by the Resource of a {@link com.networknt.workflow.state.model.states.TaskState}. Handlers
+ * are registered in a {@link TaskRegistry} by resource URI.
+ *
+ * <p>Handlers must not modify their input, it may be shared with other states of the same execution.</p>
+ */
+public interface TaskHandler {
+
+    /**
+     * @param input Effective input of the task, i.e. after InputPath has been applied.
+     * @return Result of the task which is combined with the raw input as prescribed by ResultPath.
+     * @throws Exception Any exception fails the task. Throw a {@link StatesException} to control the error name that
+     *                   retriers and catchers match against, otherwise the exception class name is used.
+     */
+    JsonNode execute(JsonNode input) throws Exception;
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.networknt.workflow.state.engine.payload.Payload;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the Resource URI of task states to the handler that executes them.
+ */
+public class TaskRegistry {
+
+    private final Map<String, PayloadTaskHandler> handlers = new ConcurrentHashMap<String, PayloadTaskHandler>();
+
+    /**
+     * @param resource Resource URI as used in the state machine definition.
+     * @param handler  Handler executing the resource.
+     * @return This object for method chaining.
+     */
+    public TaskRegistry register(String resource, final TaskHandler handler) {
+        handlers.put(resource, new PayloadTaskHandler() {
+            @Override
+            public Payload execute(Payload input) throws Exception {
+                return Payload.of(handler.execute(input.toJsonNode()));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Registers a handler that receives its input as a {@link Payload}, typically to pass it on without parsing it.
+     *
+     * @param resource Resource URI as used in the state machine definition.
+     * @param handler  Handler executing the resource.
+     * @return This object for method chaining.
+     */
+    public TaskRegistry registerPayloadHandler(String resource, PayloadTaskHandler handler) {
+        handlers.put(resource, handler);
+        return this;
+    }
+
+    /**
+     * @param resource Resource URI as used in the state machine definition.
+     * @return Registered handler or null if none.
+     */
+    public PayloadTaskHandler getHandler(String resource) {
+        return handlers.get(resource);
+    }
+}
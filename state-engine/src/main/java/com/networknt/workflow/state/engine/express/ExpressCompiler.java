@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.networknt.workflow.state.engine.PayloadTaskHandler;
+import com.networknt.workflow.state.engine.StateMachineEngine;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.plan.ChoiceNode;
+import com.networknt.workflow.state.engine.plan.DataFlow;
+import com.networknt.workflow.state.engine.plan.ExecutionPlan;
+import com.networknt.workflow.state.engine.plan.FailNode;
+import com.networknt.workflow.state.engine.plan.FaultHandler;
+import com.networknt.workflow.state.engine.plan.MapNode;
+import com.networknt.workflow.state.engine.plan.NodeVisitor;
+import com.networknt.workflow.state.engine.plan.ParallelNode;
+import com.networknt.workflow.state.engine.plan.PassNode;
+import com.networknt.workflow.state.engine.plan.PlanCompiler;
+import com.networknt.workflow.state.engine.plan.StateNode;
+import com.networknt.workflow.state.engine.plan.SucceedNode;
+import com.networknt.workflow.state.engine.plan.TaskNode;
+import com.networknt.workflow.state.engine.plan.WaitNode;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a {@link StateMachine} into an {@link ExpressProgram}, a graph of closures that runs an execution on the
+ * calling thread. Every state becomes a step specialized for what the state does, e.g. a Pass state with a constant
+ * Result and no paths only swaps the payload, and every transition a direct reference to the next step. Choice rules
+ * are the closures of the {@link com.networknt.workflow.state.engine.plan.ConditionCompiler}, one class per kind of
+ * comparison, and Task handlers are resolved once. The call sites stay monomorphic for a given program so the JIT can
+ * inline across states.
+ *
+ * <p>Supported are Pass, Choice, Task, Succeed and Fail states. Wait, Parallel and Map states need the scheduling of
+ * the {@link com.networknt.workflow.state.engine.StateMachineEngine} and are rejected. Retriers of a Task state block
+ * the calling thread for their interval, Catchers move on to their state like in the engine. The TimeoutSeconds of a
+ * Task state is not enforced.</p>
+ */
+public final class ExpressCompiler {
+
+    private ExpressCompiler() {
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @param taskRegistry Handlers for the task resources, looked up once while compiling.
+     * @return Compiled program.
+     * @throws IllegalArgumentException If the state machine uses a state or field the express backend does not support.
+     */
+    public static ExpressProgram compile(StateMachine stateMachine, TaskRegistry taskRegistry) {
+        ExecutionPlan plan = PlanCompiler.compile(stateMachine);
+        Map<String, Step> steps = new HashMap<String, Step>();
+        StepCompiler stepCompiler = new StepCompiler(taskRegistry);
+        for (StateNode node : plan.getNodes().values()) {
+            steps.put(node.getName(), node.accept(stepCompiler));
+        }
+        for (Step step : steps.values()) {
+            step.link(steps);
+        }
+        return new ExpressProgram(steps.get(plan.getStartNode().getName()), steps.size(), stepCompiler.blocking,
+                                  plan.getTimeoutSeconds());
+    }
+
+    private static Step target(Map<String, Step> steps, String name) {
+        return name == null ? null : steps.get(name);
+    }
+
+    private static boolean isIdentity(DataFlow dataFlow) {
+        return dataFlow.getInputPath().isRoot() && dataFlow.getParameters() == null
+                && dataFlow.getResultSelector() == null && dataFlow.getResultPath().isRoot()
+                && dataFlow.getOutputPath().isRoot();
+    }
+
+    private static IllegalArgumentException unsupported(StateNode node, String what) {
+        return new IllegalArgumentException(
+                String.format("State '%s' uses %s, which the express backend does not support", node.getName(), what));
+    }
+
+    private static final class StepCompiler extends NodeVisitor<Step> {
+
+        private final TaskRegistry taskRegistry;
+        private boolean blocking;
+
+        private StepCompiler(TaskRegistry taskRegistry) {
+            this.taskRegistry = taskRegistry;
+        }
+
+        @Override
+        public Step visit(PassNode passNode) {
+            if (passNode.getResult() != null && isIdentity(passNode.getDataFlow())) {
+                return new ConstantPassStep(passNode);
+            }
+            return new PassStep(passNode);
+        }
+
+        @Override
+        public Step visit(ChoiceNode choiceNode) {
+            return new ChoiceStep(choiceNode);
+        }
+
+        @Override
+        public Step visit(TaskNode taskNode) {
+            blocking = true;
+            TaskStep taskStep = new TaskStep(taskNode, taskRegistry);
+            if (taskNode.getFaultHandler() != FaultHandler.NONE) {
+                return new FaultHandlingStep(taskStep, taskNode.getFaultHandler());
+            }
+            return taskStep;
+        }
+
+        @Override
+        public Step visit(SucceedNode succeedNode) {
+            return new SucceedStep(succeedNode);
+        }
+
+        @Override
+        public Step visit(FailNode failNode) {
+            return new FailStep(failNode);
+        }
+
+        @Override
+        public Step visit(WaitNode waitNode) {
+            throw unsupported(waitNode, "a Wait state");
+        }
+
+        @Override
+        public Step visit(ParallelNode parallelNode) {
+            throw unsupported(parallelNode, "a Parallel state");
+        }
+
+        @Override
+        public Step visit(MapNode mapNode) {
+            throw unsupported(mapNode, "a Map state");
+        }
+    }
+
+    private static final class PassStep extends Step {
+        private final PassNode node;
+        private Step next;
+
+        PassStep(PassNode node) {
+            super(node.getName());
+            this.node = node;
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+            next = target(steps, node.getNext());
+        }
+
+        @Override
+        Step run(Frame frame) {
+            frame.payload = node.apply(frame.payload);
+            return next;
+        }
+    }
+
+    /**
+     * Pass state whose output is its Result whatever the input.
+     */
+    private static final class ConstantPassStep extends Step {
+        private final PassNode node;
+        private final String nextName;
+        private Step next;
+
+        ConstantPassStep(PassNode node) {
+            super(node.getName());
+            this.node = node;
+            this.nextName = node.getNext();
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+            next = target(steps, nextName);
+        }
+
+        @Override
+        Step run(Frame frame) {
+            frame.payload = node.getResult();
+            return next;
+        }
+    }
+
+    private static final class ChoiceStep extends Step {
+        private final ChoiceNode node;
+        private final DataFlow dataFlow;
+        private Step[] targets;
+        private Step defaultStep;
+
+        ChoiceStep(ChoiceNode node) {
+            super(node.getName());
+            this.node = node;
+            this.dataFlow = node.getDataFlow();
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+            List<ChoiceNode.Rule> rules = node.getRules();
+            targets = new Step[rules.size()];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = target(steps, rules.get(i).getNext());
+            }
+            defaultStep = target(steps, node.getDefaultStateName());
+        }
+
+        @Override
+        Step run(Frame frame) {
+            Payload effectiveInput = dataFlow.applyInputPath(frame.payload);
+            int rule = node.chooseRule(effectiveInput);
+            Step next = rule < 0 ? defaultStep : targets[rule];
+            if (next == null) {
+                throw new StatesException(ErrorCodes.NO_CHOICE_MATCHED, "No choice rule matched in state " + getName());
+            }
+            frame.payload = dataFlow.applyOutputPath(effectiveInput);
+            return next;
+        }
+    }
+
+    private static final class TaskStep extends Step {
+        private final TaskNode node;
+        private final DataFlow dataFlow;
+        private final TaskRegistry taskRegistry;
+        private final PayloadTaskHandler handler;
+        private Step next;
+
+        TaskStep(TaskNode node, TaskRegistry taskRegistry) {
+            super(node.getName());
+            this.node = node;
+            this.dataFlow = node.getDataFlow();
+            this.taskRegistry = taskRegistry;
+            this.handler = taskRegistry.getHandler(node.getResource());
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+            next = target(steps, node.getNext());
+        }
+
+        @Override
+        Step run(Frame frame) {
+            // a handler registered after compiling is still picked up
+            PayloadTaskHandler handler = this.handler == null ? taskRegistry.getHandler(node.getResource()) : this.handler;
+            if (handler == null) {
+                throw new StatesException(ErrorCodes.TASK_FAILED,
+                                          "No task handler registered for resource " + node.getResource());
+            }
+            Payload input = frame.payload;
+            Payload result;
+            try {
+                result = handler.execute(dataFlow.applyParameters(dataFlow.applyInputPath(input)));
+            } catch (Exception e) {
+                throw StatesException.wrap(e);
+            }
+            result = dataFlow.applyResultSelector(result);
+            frame.payload = dataFlow.applyOutputPath(dataFlow.applyResultPath(input, result));
+            return next;
+        }
+    }
+
+    /**
+     * Applies the Retriers and Catchers of a state to the errors raised by the wrapped step.
+     */
+    private static final class FaultHandlingStep extends Step {
+        private final Step step;
+        private final FaultHandler faultHandler;
+        private Map<String, Step> steps;
+
+        FaultHandlingStep(Step step, FaultHandler faultHandler) {
+            super(step.getName());
+            this.step = step;
+            this.faultHandler = faultHandler;
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+            step.link(steps);
+            this.steps = steps;
+        }
+
+        @Override
+        Step run(Frame frame) {
+            Payload input = frame.payload;
+            int[] attempts = null;
+            while (true) {
+                StatesException error;
+                try {
+                    return step.run(frame);
+                } catch (RuntimeException e) {
+                    error = StatesException.wrap(e);
+                }
+                frame.payload = input;
+                if (attempts == null) {
+                    attempts = new int[faultHandler.getRetrierCount()];
+                }
+                long delay = faultHandler.nextRetryDelayMillis(error, attempts);
+                if (delay >= 0 && frame.sleep(delay)) {
+                    continue;
+                }
+                FaultHandler.CatchClause catcher = faultHandler.findCatcher(error);
+                if (catcher == null) {
+                    throw error;
+                }
+                frame.payload = Payload.of(catcher.getResultPath().write(input.toJsonNode(),
+                                                                         StateMachineEngine.errorOutput(error)));
+                return steps.get(catcher.getNext());
+            }
+        }
+    }
+
+    private static final class SucceedStep extends Step {
+        private final DataFlow dataFlow;
+
+        SucceedStep(SucceedNode node) {
+            super(node.getName());
+            this.dataFlow = node.getDataFlow();
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+        }
+
+        @Override
+        Step run(Frame frame) {
+            frame.payload = dataFlow.applyOutputPath(dataFlow.applyInputPath(frame.payload));
+            return null;
+        }
+    }
+
+    private static final class FailStep extends Step {
+        private final String error;
+        private final String cause;
+
+        FailStep(FailNode node) {
+            super(node.getName());
+            this.error = node.getError();
+            this.cause = node.getCause();
+        }
+
+        @Override
+        void link(Map<String, Step> steps) {
+        }
+
+        @Override
+        Step run(Frame frame) {
+            throw new StatesException(error, cause);
+        }
+    }
+}
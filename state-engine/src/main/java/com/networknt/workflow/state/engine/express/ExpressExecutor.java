@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.StateMachine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Runs short state machines synchronously on the calling thread, e.g. inside a request handler. Unlike the
+ * {@link com.networknt.workflow.state.engine.StateMachineEngine} an execution records no history, is not queued on an
+ * executor and has no id, it is just a call that returns the output or throws a {@link StatesException}. Retriers and
+ * Catchers behave as in the engine, a retry blocks the calling thread for its interval.
+ *
+ * <p>Each {@link StateMachine} is compiled by the {@link ExpressCompiler} once and cached for as long as the instance
+ * is in use. Only Pass, Choice, Task, Succeed and Fail states are supported.</p>
+ */
+public final class ExpressExecutor {
+
+    private final TaskRegistry taskRegistry;
+    private final Map<StateMachine, ExpressProgram> programs =
+            Collections.synchronizedMap(new WeakHashMap<StateMachine, ExpressProgram>());
+
+    /**
+     * @param taskRegistry Handlers for the task resources.
+     */
+    public ExpressExecutor(TaskRegistry taskRegistry) {
+        this.taskRegistry = taskRegistry;
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @param input        Input of the execution.
+     * @return Output of the execution.
+     * @throws StatesException          If the execution failed.
+     * @throws IllegalArgumentException If the state machine uses a state the express backend does not support.
+     */
+    public JsonNode execute(StateMachine stateMachine, JsonNode input) {
+        return compile(stateMachine).run(input);
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @param input        Input of the execution, e.g. the raw bytes of a request.
+     * @return Output of the execution.
+     * @throws StatesException          If the execution failed.
+     * @throws IllegalArgumentException If the state machine uses a state the express backend does not support.
+     */
+    public Payload execute(StateMachine stateMachine, Payload input) {
+        return compile(stateMachine).run(input);
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @return The compiled program, cached per state machine instance.
+     * @throws IllegalArgumentException If the state machine uses a state the express backend does not support.
+     */
+    public ExpressProgram compile(StateMachine stateMachine) {
+        ExpressProgram program = programs.get(stateMachine);
+        if (program == null) {
+            program = ExpressCompiler.compile(stateMachine, taskRegistry);
+            programs.put(stateMachine, program);
+        }
+        return program;
+    }
+}
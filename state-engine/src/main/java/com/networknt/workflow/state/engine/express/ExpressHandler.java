@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.networknt.workflow.state.engine.StateMachineEngine;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import io.undertow.io.Receiver;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Undertow handler that runs a state machine inline, so that a simple orchestration needs no hop to a workflow service.
+ * The state machine is picked by the relative path of the request, the request body is its input and the output is
+ * sent back as the response body. A failed execution is answered with status 500 and the error output, i.e.
+ * {@code {"Error": ..., "Cause": ...}}, a request body that is not a single JSON value with status 400.
+ *
+ * <p>The body is received without blocking, checked with a streaming parse that builds no tree and handed to the
+ * execution as raw bytes, only the parts the states read are parsed into nodes. A state machine of Pass, Choice,
+ * Succeed and Fail states runs right on the IO thread, one with Task states is dispatched to a worker thread as its
+ * handlers may block. An output the states did not modify, e.g. the input passed through, is sent back from the
+ * request bytes without being serialized.</p>
+ */
+public final class ExpressHandler implements HttpHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpressHandler.class);
+
+    private static final String APPLICATION_JSON = "application/json";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Map<String, ExpressProgram> routes;
+    private final HttpHandler next;
+
+    private ExpressHandler(Map<String, ExpressProgram> routes, HttpHandler next) {
+        this.routes = routes;
+        this.next = next;
+    }
+
+    /**
+     * @return Builder instance to construct an {@link ExpressHandler}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        final ExpressProgram program = routes.get(exchange.getRelativePath());
+        if (program == null) {
+            next.handleRequest(exchange);
+            return;
+        }
+        exchange.getRequestReceiver().receiveFullBytes(new Receiver.FullBytesCallback() {
+            @Override
+            public void handle(final HttpServerExchange exchange, final byte[] body) {
+                if (program.isBlocking() && exchange.isInIoThread()) {
+                    exchange.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            execute(exchange, program, body);
+                        }
+                    });
+                } else {
+                    execute(exchange, program, body);
+                }
+            }
+        });
+    }
+
+    private static void execute(HttpServerExchange exchange, ExpressProgram program, byte[] body) {
+        Payload input;
+        if (body.length == 0) {
+            input = Payload.of(JsonNodeFactory.instance.objectNode());
+        } else {
+            try {
+                validate(body);
+            } catch (IOException e) {
+                StatesException error = new StatesException(ErrorCodes.RUNTIME, "Request body is not valid JSON", e);
+                send(exchange, StatusCodes.BAD_REQUEST, Payload.of(StateMachineEngine.errorOutput(error)));
+                return;
+            }
+            input = Payload.of(body);
+        }
+        Payload output;
+        try {
+            output = program.run(input);
+        } catch (RuntimeException e) {
+            StatesException error = StatesException.wrap(e);
+            logger.debug("Execution for {} failed with {}", exchange.getRelativePath(), error.getError(), error);
+            send(exchange, StatusCodes.INTERNAL_SERVER_ERROR, Payload.of(StateMachineEngine.errorOutput(error)));
+            return;
+        }
+        send(exchange, StatusCodes.OK, output);
+    }
+
+    /**
+     * Reads through the body token by token, so that a body no state reads is still rejected if it is not JSON.
+     *
+     * @param body Request body.
+     * @throws IOException If the body is not exactly one JSON value.
+     */
+    private static void validate(byte[] body) throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(body);
+        try {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException(parser, "No JSON value in request body");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the JSON value in request body");
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static void send(HttpServerExchange exchange, int statusCode, Payload body) {
+        exchange.setStatusCode(statusCode);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, APPLICATION_JSON);
+        exchange.getResponseSender().send(ByteBuffer.wrap(body.toBytes()));
+    }
+
+    /**
+     * Builder for an {@link ExpressHandler}.
+     */
+    public static final class Builder {
+
+        private final Map<String, StateMachine> stateMachines = new HashMap<String, StateMachine>();
+        private ExpressExecutor executor;
+        private HttpHandler next = ResponseCodeHandler.HANDLE_404;
+
+        private Builder() {
+        }
+
+        /**
+         * REQUIRED. Compiles the state machines and holds the handlers for their task resources.
+         *
+         * @param executor Executor the state machines are compiled with.
+         * @return This object for method chaining.
+         */
+        public Builder executor(ExpressExecutor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * REQUIRED. Runs a state machine for the requests to a path, at least one route must be added.
+         *
+         * @param path         Relative path of the request, e.g. {@code /v1/quote}.
+         * @param stateMachine Validated state machine of Pass, Choice, Task, Succeed and Fail states.
+         * @return This object for method chaining.
+         */
+        public Builder route(String path, StateMachine stateMachine) {
+            this.stateMachines.put(path, stateMachine);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Handler for the requests to any other path. Defaults to responding with status 404.
+         *
+         * @param next Next handler in the chain.
+         * @return This object for method chaining.
+         */
+        public Builder next(HttpHandler next) {
+            this.next = next;
+            return this;
+        }
+
+        /**
+         * Compiles the state machine of every route.
+         *
+         * @return An immutable {@link ExpressHandler} object.
+         * @throws IllegalArgumentException If a state machine uses a state the express backend does not support.
+         */
+        public ExpressHandler build() {
+            if (executor == null) {
+                throw new IllegalStateException("ExpressExecutor is required");
+            }
+            if (stateMachines.isEmpty()) {
+                throw new IllegalStateException("At least one route is required");
+            }
+            Map<String, ExpressProgram> routes = new HashMap<String, ExpressProgram>();
+            for (Map.Entry<String, StateMachine> route : stateMachines.entrySet()) {
+                routes.put(route.getKey(), executor.compile(route.getValue()));
+            }
+            return new ExpressHandler(Collections.unmodifiableMap(routes), next);
+        }
+    }
+}
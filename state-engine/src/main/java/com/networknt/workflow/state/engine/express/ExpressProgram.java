@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A state machine compiled by {@link ExpressCompiler}. Runs an execution start to finish on the calling thread,
+ * without history, executor or timers. A program is immutable and can be run by any number of threads at once.
+ *
+ * <p>The TimeoutSeconds of the state machine is checked between states and bounds the wait before a retry, a Task
+ * handler that blocks is not interrupted.</p>
+ */
+public final class ExpressProgram {
+
+    private final Step start;
+    private final int stateCount;
+    private final boolean blocking;
+    private final long timeoutNanos;
+
+    ExpressProgram(Step start, int stateCount, boolean blocking, Integer timeoutSeconds) {
+        this.start = start;
+        this.stateCount = stateCount;
+        this.blocking = blocking;
+        this.timeoutNanos = timeoutSeconds == null ? 0 : TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    }
+
+    /**
+     * @return Number of states compiled into the program.
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * @return True if the program runs Task handlers, which may block, or waits before retrying them. Such a program
+     *     must not run on a non-blocking IO thread.
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * @param input Input of the execution.
+     * @return Output of the execution.
+     * @throws StatesException If the execution failed.
+     */
+    public Payload run(Payload input) {
+        long deadlineNanos = 0;
+        if (timeoutNanos != 0) {
+            // 0 is reserved for no deadline
+            deadlineNanos = (System.nanoTime() + timeoutNanos) | 1;
+        }
+        Step.Frame frame = new Step.Frame(input, deadlineNanos);
+        Step step = start;
+        while (step != null) {
+            frame.checkDeadline();
+            step = step.run(frame);
+        }
+        return frame.payload;
+    }
+
+    /**
+     * @param input Input of the execution.
+     * @return Output of the execution.
+     * @throws StatesException If the execution failed.
+     */
+    public JsonNode run(JsonNode input) {
+        return run(Payload.of(input)).toJsonNode();
+    }
+}
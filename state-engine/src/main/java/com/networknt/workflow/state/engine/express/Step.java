@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A state compiled into a closure. Steps reference the steps they transition to directly, so running a program is a
+ * loop of {@link #run(Frame)} calls without any lookup by state name.
+ */
+abstract class Step {
+
+    private final String name;
+
+    Step(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return Name of the state the step was compiled from.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Resolves the names of the states this step transitions to, called once all steps of a scope exist.
+     *
+     * @param steps Steps of the scope by state name.
+     */
+    abstract void link(Map<String, Step> steps);
+
+    /**
+     * @param frame Holds the raw input of the state, replaced by its output.
+     * @return The step to run next or null if the program is complete.
+     */
+    abstract Step run(Frame frame);
+
+    /**
+     * The value flowing from one step to the next and the deadline of the execution.
+     */
+    static final class Frame {
+
+        private final long deadlineNanos;
+        Payload payload;
+
+        /**
+         * @param payload       Input of the execution.
+         * @param deadlineNanos {@link System#nanoTime()} at which the execution times out, 0 if it never does.
+         */
+        Frame(Payload payload, long deadlineNanos) {
+            this.payload = payload;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @throws StatesException {@link ErrorCodes#TIMEOUT} if the deadline of the execution has passed.
+         */
+        void checkDeadline() {
+            if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0) {
+                throw new StatesException(ErrorCodes.TIMEOUT, "Execution timed out.");
+            }
+        }
+
+        /**
+         * Blocks the calling thread before a retry, at most until the deadline of the execution.
+         *
+         * @param millis Delay of the retry.
+         * @return False if the thread was interrupted, its interrupt status is restored.
+         * @throws StatesException {@link ErrorCodes#TIMEOUT} if the deadline passes while waiting.
+         */
+        boolean sleep(long millis) {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            if (deadlineNanos != 0) {
+                nanos = Math.min(nanos, Math.max(0, deadlineNanos - System.nanoTime()));
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            checkDeadline();
+            return true;
+        }
+    }
+}
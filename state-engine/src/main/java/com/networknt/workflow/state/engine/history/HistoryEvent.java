@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.history;
+
+import com.networknt.workflow.state.engine.payload.Payload;
+
+/**
+ * A single event in the history of an execution.
+ */
+public final class HistoryEvent {
+
+    /**
+     * Type of a {@link HistoryEvent}.
+     */
+    public enum Type {
+        EXECUTION_STARTED,
+        STATE_ENTERED,
+        STATE_RETRIED,
+        STATE_FAILED,
+        STATE_EXITED,
+        EXECUTION_SUCCEEDED,
+        EXECUTION_FAILED
+    }
+
+    private final Type type;
+    private final String stateName;
+    private final long timestamp;
+    private final Payload data;
+
+    /**
+     * @param type      Type of the event.
+     * @param stateName Name of the state the event belongs to or null for execution level events.
+     * @param timestamp Epoch millis when the event occurred.
+     * @param data      Input, output or error document of the event, may be null.
+     */
+    public HistoryEvent(Type type, String stateName, long timestamp, Payload data) {
+        this.type = type;
+        this.stateName = stateName;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getStateName() {
+        return stateName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Payload getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return type + (stateName == null ? "" : "[" + stateName + "]");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.history;
+
+import com.networknt.workflow.state.engine.payload.CodecRegistry;
+import com.networknt.workflow.state.engine.payload.PayloadCodec;
+
+import java.util.List;
+
+/**
+ * Stores the history of executions. Implementations must be thread safe as the states of an execution, and the branches of
+ * a Parallel state in particular, are executed on different threads.
+ */
+public interface HistoryStore {
+
+    /**
+     * @param executionId Id of the execution.
+     * @param event       Event to append to the history of the execution.
+     */
+    void append(String executionId, HistoryEvent event);
+
+    /**
+     * Like {@link #append(String, HistoryEvent)} but keeps the event data compressed. Stores that deduplicate payloads
+     * should only compress those they do not hold yet, the default compresses every payload.
+     *
+     * @param executionId   Id of the execution.
+     * @param event         Event to append to the history of the execution.
+     * @param codecRegistry Registry deciding which payloads are worth compressing, null to store the data as is.
+     * @param codec         Codec for the payloads of the execution, null to store the data as is.
+     */
+    default void append(String executionId, HistoryEvent event, CodecRegistry codecRegistry, PayloadCodec codec) {
+        if (codecRegistry != null && event.getData() != null) {
+            event = new HistoryEvent(event.getType(), event.getStateName(), event.getTimestamp(),
+                                     codecRegistry.compress(event.getData(), codec));
+        }
+        append(executionId, event);
+    }
+
+    /**
+     * @param executionId Id of the execution.
+     * @return Events of the execution in the order they were appended, empty if the execution is unknown.
+     */
+    List<HistoryEvent> getEvents(String executionId);
+
+    /**
+     * Drops the history of a finished execution.
+     *
+     * @param executionId Id of the execution.
+     */
+    void remove(String executionId);
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.history;
+
+import com.networknt.workflow.state.engine.payload.CodecRegistry;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.PayloadCodec;
+import com.networknt.workflow.state.engine.payload.PayloadStore;
+import com.networknt.workflow.state.engine.payload.ReferencePayload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link HistoryStore} that keeps all events on the heap. Suitable for tests and short lived executions.
+ *
+ * <p>Event data is deduplicated by {@link Payload#digest()}: executions started with the same input, or Parallel
+ * branches receiving the same document, share a single payload instance. As computing a digest means serializing and
+ * hashing the whole document, only payloads whose digest is known already, such as offloaded or compressed payloads,
+ * are deduplicated unless the store is created to deduplicate all of them. Payloads are reference counted and dropped
+ * with the last history referring to them. References to an offloaded payload are reported to the
+ * {@link PayloadStore} so that it can reclaim the payload once no history refers to it. The history keeps a reference
+ * of its own, so a document loaded by a state is not held on the heap for as long as the history.</p>
+ */
+public class InMemoryHistoryStore implements HistoryStore {
+
+    private final ConcurrentMap<String, List<HistoryEvent>> histories = new ConcurrentHashMap<String, List<HistoryEvent>>();
+    private final ConcurrentMap<String, Blob> blobs = new ConcurrentHashMap<String, Blob>();
+    private final PayloadStore payloadStore;
+    private final boolean deduplicate;
+
+    public InMemoryHistoryStore() {
+        this(null);
+    }
+
+    /**
+     * @param payloadStore Store the engine offloads payloads to, may be null.
+     */
+    public InMemoryHistoryStore(PayloadStore payloadStore) {
+        this(payloadStore, false);
+    }
+
+    /**
+     * @param payloadStore Store the engine offloads payloads to, may be null.
+     * @param deduplicate  True to digest every payload so that all identical payloads are stored once, false to only
+     *                     deduplicate payloads whose digest is known already.
+     */
+    public InMemoryHistoryStore(PayloadStore payloadStore, boolean deduplicate) {
+        this.payloadStore = payloadStore;
+        this.deduplicate = deduplicate;
+    }
+
+    @Override
+    public void append(String executionId, HistoryEvent event) {
+        append(executionId, event, null, null);
+    }
+
+    /**
+     * Compresses the event data only if no identical payload is held yet, a duplicate refers to the stored copy.
+     */
+    @Override
+    public void append(String executionId, HistoryEvent event, CodecRegistry codecRegistry, PayloadCodec codec) {
+        List<HistoryEvent> events = histories.get(executionId);
+        if (events == null) {
+            List<HistoryEvent> created = Collections.synchronizedList(new ArrayList<HistoryEvent>());
+            events = histories.putIfAbsent(executionId, created);
+            if (events == null) {
+                events = created;
+            }
+        }
+        events.add(intern(event, codecRegistry, codec));
+    }
+
+    @Override
+    public List<HistoryEvent> getEvents(String executionId) {
+        List<HistoryEvent> events = histories.get(executionId);
+        if (events == null) {
+            return Collections.emptyList();
+        }
+        synchronized (events) {
+            return new ArrayList<HistoryEvent>(events);
+        }
+    }
+
+    @Override
+    public void remove(String executionId) {
+        List<HistoryEvent> events = histories.remove(executionId);
+        if (events != null) {
+            synchronized (events) {
+                for (HistoryEvent event : events) {
+                    if (event.getData() != null && event.getData().hasDigest()) {
+                        release(event.getData());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of distinct payloads referred to by the histories.
+     */
+    public int getPayloadCount() {
+        return blobs.size();
+    }
+
+    /**
+     * @return The event, or a copy of it referring to an identical payload already in the store.
+     */
+    private HistoryEvent intern(HistoryEvent event, CodecRegistry codecRegistry, PayloadCodec codec) {
+        Payload data = event.getData();
+        if (data == null) {
+            return event;
+        }
+        if (!deduplicate && !data.hasDigest()) {
+            Payload stored = codecRegistry == null ? data : codecRegistry.compress(data, codec);
+            return stored == data ? event
+                   : new HistoryEvent(event.getType(), event.getStateName(), event.getTimestamp(), stored);
+        }
+        String digest = data.digest();
+        while (true) {
+            Blob blob = blobs.get(digest);
+            if (blob == null) {
+                Payload stored = codecRegistry == null ? data : codecRegistry.compress(data, codec);
+                if (stored instanceof ReferencePayload) {
+                    stored = ((ReferencePayload) stored).unresolved();
+                }
+                Blob created = new Blob(stored);
+                blob = blobs.putIfAbsent(digest, created);
+                if (blob == null) {
+                    if (payloadStore != null && stored instanceof ReferencePayload) {
+                        payloadStore.retain(digest);
+                    }
+                    return stored == data ? event
+                           : new HistoryEvent(event.getType(), event.getStateName(), event.getTimestamp(), stored);
+                }
+            }
+            synchronized (blob) {
+                if (blob.references > 0) {
+                    blob.references++;
+                    return blob.payload == data ? event
+                           : new HistoryEvent(event.getType(), event.getStateName(), event.getTimestamp(), blob.payload);
+                }
+            }
+            // released concurrently, retry with a new blob
+        }
+    }
+
+    /**
+     * @param data Event data, released only if it is the interned payload.
+     */
+    private void release(Payload data) {
+        String digest = data.digest();
+        Blob blob = blobs.get(digest);
+        if (blob == null || blob.payload != data) {
+            return;
+        }
+        synchronized (blob) {
+            if (--blob.references > 0) {
+                return;
+            }
+            blobs.remove(digest, blob);
+        }
+        if (payloadStore != null && blob.payload instanceof ReferencePayload) {
+            payloadStore.release(digest);
+        }
+    }
+
+    private static final class Blob {
+        private final Payload payload;
+        private int references = 1;
+
+        Blob(Payload payload) {
+            this.payload = payload;
+        }
+    }
+}
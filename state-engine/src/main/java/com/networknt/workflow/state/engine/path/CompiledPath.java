@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A JsonPath expression that has been parsed once and can be evaluated many times against Jackson documents.
+ *
+ * <p>Implementations are immutable and thread safe.</p>
+ */
+public interface CompiledPath {
+
+    /**
+     * @return The original path expression.
+     */
+    String getPath();
+
+    /**
+     * @return True if the path selects at most a single node, see
+     *     {@link com.jayway.jsonpath.JsonPath#isPathDefinite(String)}.
+     */
+    boolean isDefinite();
+
+    /**
+     * @return True if the path is "$" and selects the whole document.
+     */
+    boolean isRoot();
+
+    /**
+     * Evaluates the path against the document. Definite paths return the selected node and indefinite paths return an array
+     * of all matches.
+     *
+     * @param document Document to evaluate against.
+     * @return Selected node or null if a definite path does not resolve.
+     */
+    JsonNode read(JsonNode document);
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A definite path (only field names and array indexes) that is evaluated by walking the Jackson tree directly. Definite
+ * paths are by far the most common in state machine definitions and are also the only paths allowed as reference paths,
+ * so they can be written to as well as read.
+ */
+public final class DefinitePath implements CompiledPath {
+
+    private final String path;
+
+    /**
+     * Each segment is either a {@link String} field name or an {@link Integer} array index.
+     */
+    private final Object[] segments;
+
+    private DefinitePath(String path, Object[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Parses a definite path into segments.
+     *
+     * @param path Path expression, for example {@code $.order['line items'][0].sku}.
+     * @return Compiled path or null if the expression is not in the definite subset understood by this class.
+     */
+    static DefinitePath parse(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '$') {
+            return null;
+        }
+        final List<Object> segments = new ArrayList<Object>();
+        final int length = path.length();
+        int i = 1;
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                int start = ++i;
+                while (i < length && path.charAt(i) != '.' && path.charAt(i) != '[') {
+                    i++;
+                }
+                if (i == start) {
+                    return null;
+                }
+                String name = path.substring(start, i);
+                // A name with '(' is a function call such as length(), which json-path counts as definite.
+                if ("*".equals(name) || name.indexOf('(') >= 0) {
+                    return null;
+                }
+                segments.add(name);
+            } else if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close < 0) {
+                    return null;
+                }
+                String inner = path.substring(i + 1, close).trim();
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"')
+                        && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+                    String name = inner.substring(1, inner.length() - 1);
+                    if (name.indexOf('\'') >= 0 || name.indexOf('"') >= 0) {
+                        return null;
+                    }
+                    segments.add(name);
+                } else {
+                    try {
+                        segments.add(Integer.valueOf(inner));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                i = close + 1;
+            } else {
+                return null;
+            }
+        }
+        return new DefinitePath(path, segments.toArray());
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean isDefinite() {
+        return true;
+    }
+
+    @Override
+    public boolean isRoot() {
+        return segments.length == 0;
+    }
+
+    /**
+     * @return Number of segments, 0 for the root path.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * @param index Position of the segment, from 0 to {@link #getSegmentCount()} exclusive.
+     * @return A {@link String} field name or an {@link Integer} array index, negative indexes count from the end.
+     */
+    public Object getSegment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * @param from Number of leading segments to drop.
+     * @return Path made of the remaining segments, relative to the node the dropped segments lead to.
+     */
+    public DefinitePath subPath(int from) {
+        if (from == 0) {
+            return this;
+        }
+        StringBuilder subPath = new StringBuilder("$");
+        for (int i = from; i < segments.length; i++) {
+            if (segments[i] instanceof Integer) {
+                subPath.append('[').append(segments[i]).append(']');
+            } else {
+                subPath.append("['").append(segments[i]).append("']");
+            }
+        }
+        return new DefinitePath(subPath.toString(), Arrays.copyOfRange(segments, from, segments.length));
+    }
+
+    @Override
+    public JsonNode read(JsonNode document) {
+        JsonNode current = document;
+        for (Object segment : segments) {
+            current = step(current, segment);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a document with the value placed at this path, creating intermediate objects as needed. The original
+     * document is never modified.
+     *
+     * <p>Only the containers on the way from the root to the written value are copied, and only shallowly. Every other
+     * subtree is shared between the original and the returned document, so the cost of a write depends on the depth of
+     * the path and the width of the containers along it rather than on the size of the document. This relies on the
+     * engine never mutating a document once it has been handed to a state.</p>
+     *
+     * @param document Document to write into.
+     * @param value    Value to place at this path.
+     * @return New document containing the value.
+     * @throws StatesException with {@link ErrorCodes#RESULT_PATH_MATCH_FAILURE} if the path cannot be applied.
+     */
+    public JsonNode write(JsonNode document, JsonNode value) {
+        if (segments.length == 0) {
+            return value;
+        }
+        if (document == null || !document.isObject()) {
+            throw matchFailure();
+        }
+        return write(document, 0, value == null ? NullNode.getInstance() : value);
+    }
+
+    private JsonNode write(JsonNode node, int depth, JsonNode value) {
+        final Object segment = segments[depth];
+        final boolean last = depth == segments.length - 1;
+        if (segment instanceof String && node.isObject()) {
+            JsonNode child = value;
+            if (!last) {
+                JsonNode existing = node.get((String) segment);
+                child = write(existing == null ? JsonNodeFactory.instance.objectNode() : existing, depth + 1, value);
+            }
+            ObjectNode copy = JsonNodeFactory.instance.objectNode();
+            copy.setAll((ObjectNode) node);
+            copy.set((String) segment, child);
+            return copy;
+        }
+        if (segment instanceof Integer && node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            int index = index(array, (Integer) segment);
+            if (index < 0 || index >= array.size()) {
+                throw matchFailure();
+            }
+            JsonNode child = last ? value : write(array.get(index), depth + 1, value);
+            ArrayNode copy = JsonNodeFactory.instance.arrayNode(array.size());
+            copy.addAll(array);
+            copy.set(index, child);
+            return copy;
+        }
+        throw matchFailure();
+    }
+
+    private StatesException matchFailure() {
+        return new StatesException(ErrorCodes.RESULT_PATH_MATCH_FAILURE,
+                                   String.format("Unable to apply ResultPath '%s' to the state input.", path));
+    }
+
+    static JsonNode step(JsonNode node, Object segment) {
+        if (segment instanceof String) {
+            return node.isObject() ? node.get((String) segment) : null;
+        }
+        if (node.isArray()) {
+            int index = index(node, (Integer) segment);
+            return index < 0 ? null : node.get(index);
+        }
+        return null;
+    }
+
+    private static int index(JsonNode array, int index) {
+        return index < 0 ? array.size() + index : index;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+/**
+ * Path evaluated by the json-path library. Used for expressions outside of the definite subset handled by
+ * {@link DefinitePath}, e.g. wildcards, slices and filters.
+ */
+final class JaywayPath implements CompiledPath {
+
+    /**
+     * json-smart is excluded from the json-path dependency so the Jackson tree provider must always be configured.
+     */
+    private static final JacksonJsonNodeJsonProvider JSON_PROVIDER = new JacksonJsonNodeJsonProvider();
+
+    private static final Configuration CONFIGURATION = Configuration.builder()
+            .jsonProvider(JSON_PROVIDER)
+            .mappingProvider(new JacksonMappingProvider())
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    private final String path;
+    private final JsonPath jsonPath;
+
+    JaywayPath(String path, JsonPath jsonPath) {
+        this.path = path;
+        this.jsonPath = jsonPath;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean isDefinite() {
+        return jsonPath.isDefinite();
+    }
+
+    @Override
+    public boolean isRoot() {
+        return false;
+    }
+
+    @Override
+    public JsonNode read(JsonNode document) {
+        Object result = jsonPath.read(document, CONFIGURATION);
+        // Functions such as length() return plain Java values rather than nodes.
+        return result == null || result instanceof JsonNode
+               ? (JsonNode) result : JSON_PROVIDER.getObjectMapper().<JsonNode>valueToTree(result);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Compiles path expressions found in a state machine definition into {@link CompiledPath}s. Expressions are always
+ * validated by the json-path library, but definite paths and the common indefinite subset (wildcards and simple filters)
+ * are evaluated directly over the Jackson tree by {@link DefinitePath} and {@link TreePath}. Everything else is delegated
+ * to json-path.
+ */
+public final class PathCompiler {
+
+    /**
+     * The "$" path that selects the whole document. Used when a path is not provided.
+     */
+    public static final DefinitePath ROOT = DefinitePath.parse("$");
+
+    private PathCompiler() {
+    }
+
+    /**
+     * @param path Path expression, may be null in which case {@link #ROOT} is returned.
+     * @return Compiled path.
+     * @throws IllegalArgumentException If the expression is not a valid JsonPath.
+     */
+    public static CompiledPath compile(String path) {
+        if (path == null) {
+            return ROOT;
+        }
+        try {
+            if (JsonPath.isPathDefinite(path)) {
+                DefinitePath definitePath = DefinitePath.parse(path);
+                if (definitePath != null) {
+                    return definitePath;
+                }
+            }
+            JsonPath jsonPath = JsonPath.compile(path);
+            TreePath treePath = TreePath.parse(path);
+            if (treePath != null) {
+                return treePath;
+            }
+            return new JaywayPath(path, jsonPath);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException(String.format("'%s' is not a valid JsonPath. %s", path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Compiles a reference path, i.e. a definite path that can be used to write into a document such as ResultPath.
+     *
+     * @param path Path expression, may be null in which case {@link #ROOT} is returned.
+     * @return Compiled path.
+     * @throws IllegalArgumentException If the expression is not a valid definite path.
+     */
+    public static DefinitePath compileReferencePath(String path) {
+        if (path == null) {
+            return ROOT;
+        }
+        CompiledPath compiled = compile(path);
+        if (!(compiled instanceof DefinitePath)) {
+            throw new IllegalArgumentException(String.format("'%s' is not a definite reference path.", path));
+        }
+        return (DefinitePath) compiled;
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An indefinite path evaluated by walking the Jackson tree directly, without going through the json-path
+ * {@code JsonProvider} adapter. Covers the subset of JsonPath used by state machine definitions:
+ * <ul>
+ *     <li>{@code $}, dotted and bracketed field names and array indexes</li>
+ *     <li>{@code .*} and {@code [*]} wildcards</li>
+ *     <li>filters such as {@code [?(@.price < 10 && @.category == 'fiction')]} comparing a relative definite path
+ *     with a string, number, boolean or null literal, existence checks like {@code [?(@.isbn)]}, {@code &&},
+ *     {@code ||} and parentheses</li>
+ * </ul>
+ * Anything else (deep scan, slices, unions, functions, regular expressions...) is left to the json-path library.
+ */
+public final class TreePath implements CompiledPath {
+
+    private final String path;
+    private final Segment[] segments;
+
+    private TreePath(String path, Segment[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * @param path Path expression, for example {@code $.orders[?(@.total > 100)].id}.
+     * @return Compiled path or null if the expression is not in the subset understood by this class.
+     */
+    static TreePath parse(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '$') {
+            return null;
+        }
+        Parser parser = new Parser(path);
+        List<Segment> segments = parser.parseSegments();
+        return segments == null ? null : new TreePath(path, segments.toArray(new Segment[segments.size()]));
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean isDefinite() {
+        return false;
+    }
+
+    @Override
+    public boolean isRoot() {
+        return false;
+    }
+
+    /**
+     * @param document Document to evaluate against.
+     * @return Array of all nodes selected by the path, empty if nothing matches.
+     */
+    @Override
+    public JsonNode read(JsonNode document) {
+        ArrayNode matches = JsonNodeFactory.instance.arrayNode();
+        if (document != null) {
+            collect(document, 0, matches);
+        }
+        return matches;
+    }
+
+    private void collect(JsonNode node, int index, ArrayNode matches) {
+        if (index == segments.length) {
+            matches.add(node);
+        } else {
+            segments[index].select(node, this, index + 1, matches);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private abstract static class Segment {
+        abstract void select(JsonNode node, TreePath path, int next, ArrayNode matches);
+    }
+
+    /**
+     * A field name or array index, see {@link DefinitePath#step(JsonNode, Object)}.
+     */
+    private static final class Step extends Segment {
+        private final Object segment;
+
+        Step(Object segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        void select(JsonNode node, TreePath path, int next, ArrayNode matches) {
+            JsonNode child = DefinitePath.step(node, segment);
+            if (child != null) {
+                path.collect(child, next, matches);
+            }
+        }
+    }
+
+    private static final class Wildcard extends Segment {
+        @Override
+        void select(JsonNode node, TreePath path, int next, ArrayNode matches) {
+            if (node.isContainerNode()) {
+                for (Iterator<JsonNode> it = node.elements(); it.hasNext(); ) {
+                    path.collect(it.next(), next, matches);
+                }
+            }
+        }
+    }
+
+    /**
+     * Like json-path, a filter applied to an array tests each element and a filter applied to an object tests the object
+     * itself.
+     */
+    private static final class Filter extends Segment {
+        private final Predicate predicate;
+
+        Filter(Predicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        void select(JsonNode node, TreePath path, int next, ArrayNode matches) {
+            if (node.isArray()) {
+                for (JsonNode element : node) {
+                    if (predicate.test(element)) {
+                        path.collect(element, next, matches);
+                    }
+                }
+            } else if (node.isObject() && predicate.test(node)) {
+                path.collect(node, next, matches);
+            }
+        }
+    }
+
+    private abstract static class Predicate {
+        abstract boolean test(JsonNode current);
+    }
+
+    /**
+     * Operand of a filter comparison, either a literal or a definite path relative to the current node ({@code @}).
+     */
+    private abstract static class Operand {
+        abstract JsonNode value(JsonNode current);
+    }
+
+    private static final class Literal extends Operand {
+        private final JsonNode value;
+
+        Literal(JsonNode value) {
+            this.value = value;
+        }
+
+        @Override
+        JsonNode value(JsonNode current) {
+            return value;
+        }
+    }
+
+    private static final class Relative extends Operand {
+        private final DefinitePath path;
+
+        Relative(DefinitePath path) {
+            this.path = path;
+        }
+
+        @Override
+        JsonNode value(JsonNode current) {
+            return path.read(current);
+        }
+    }
+
+    private enum Operator {
+        EQ("=="), NE("!="), LTE("<="), GTE(">="), LT("<"), GT(">");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(JsonNode left, JsonNode right) {
+            if (left == null || right == null) {
+                return false;
+            }
+            if (left.isNumber() && right.isNumber()) {
+                return test(compareNumbers(left, right));
+            }
+            if (left.isTextual() && right.isTextual()) {
+                return test(left.textValue().compareTo(right.textValue()));
+            }
+            if (this == EQ) {
+                return left.equals(right);
+            }
+            return this == NE && !left.equals(right);
+        }
+
+        private boolean test(int comparison) {
+            switch (this) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LTE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        private static int compareNumbers(JsonNode left, JsonNode right) {
+            if (left.canConvertToExactIntegral() && right.canConvertToExactIntegral()
+                    && left.canConvertToLong() && right.canConvertToLong()) {
+                long l = left.longValue();
+                long r = right.longValue();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+            if (left.isBigDecimal() || right.isBigDecimal()) {
+                return left.decimalValue().compareTo(right.decimalValue());
+            }
+            double l = left.doubleValue();
+            double r = right.doubleValue();
+            return l < r ? -1 : (l == r ? 0 : 1);
+        }
+    }
+
+    /**
+     * Recursive descent parser over the path expression. Every method returns null as soon as it meets a construct
+     * outside of the supported subset.
+     */
+    private static final class Parser {
+        private final String path;
+        private int pos = 1;
+
+        Parser(String path) {
+            this.path = path;
+        }
+
+        List<Segment> parseSegments() {
+            List<Segment> segments = new ArrayList<Segment>();
+            while (pos < path.length()) {
+                Segment segment;
+                char c = path.charAt(pos++);
+                if (c == '.') {
+                    segment = parseDotted();
+                } else if (c == '[') {
+                    segment = parseBracket();
+                } else {
+                    return null;
+                }
+                if (segment == null) {
+                    return null;
+                }
+                segments.add(segment);
+            }
+            return segments;
+        }
+
+        private Segment parseDotted() {
+            int start = pos;
+            while (pos < path.length() && path.charAt(pos) != '.' && path.charAt(pos) != '[') {
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+            String name = path.substring(start, pos);
+            if (name.indexOf('(') >= 0) {
+                return null;
+            }
+            return "*".equals(name) ? new Wildcard() : new Step(name);
+        }
+
+        private Segment parseBracket() {
+            skipWhitespace();
+            Segment segment;
+            if (consume("*")) {
+                segment = new Wildcard();
+            } else if (consume("?")) {
+                skipWhitespace();
+                if (!consume("(")) {
+                    return null;
+                }
+                Predicate predicate = parseOr();
+                skipWhitespace();
+                if (predicate == null || !consume(")")) {
+                    return null;
+                }
+                segment = new Filter(predicate);
+            } else if (peek() == '\'' || peek() == '"') {
+                String name = parseQuoted();
+                segment = name == null ? null : new Step(name);
+            } else {
+                int close = path.indexOf(']', pos);
+                if (close < 0) {
+                    return null;
+                }
+                try {
+                    segment = new Step(Integer.valueOf(path.substring(pos, close).trim()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                pos = close;
+            }
+            skipWhitespace();
+            return consume("]") ? segment : null;
+        }
+
+        private Predicate parseOr() {
+            Predicate left = parseAnd();
+            while (left != null && consumeOperator("||")) {
+                final Predicate first = left;
+                final Predicate second = parseAnd();
+                if (second == null) {
+                    return null;
+                }
+                left = new Predicate() {
+                    @Override
+                    boolean test(JsonNode current) {
+                        return first.test(current) || second.test(current);
+                    }
+                };
+            }
+            return left;
+        }
+
+        private Predicate parseAnd() {
+            Predicate left = parsePrimary();
+            while (left != null && consumeOperator("&&")) {
+                final Predicate first = left;
+                final Predicate second = parsePrimary();
+                if (second == null) {
+                    return null;
+                }
+                left = new Predicate() {
+                    @Override
+                    boolean test(JsonNode current) {
+                        return first.test(current) && second.test(current);
+                    }
+                };
+            }
+            return left;
+        }
+
+        private Predicate parsePrimary() {
+            skipWhitespace();
+            if (consume("(")) {
+                Predicate grouped = parseOr();
+                skipWhitespace();
+                return consume(")") ? grouped : null;
+            }
+            final Operand left = parseOperand();
+            if (left == null) {
+                return null;
+            }
+            skipWhitespace();
+            Operator matched = null;
+            for (Operator operator : Operator.values()) {
+                if (consume(operator.symbol)) {
+                    matched = operator;
+                    break;
+                }
+            }
+            if (matched == null) {
+                if (!(left instanceof Relative)) {
+                    return null;
+                }
+                return new Predicate() {
+                    @Override
+                    boolean test(JsonNode current) {
+                        return left.value(current) != null;
+                    }
+                };
+            }
+            skipWhitespace();
+            final Operator operator = matched;
+            final Operand right = parseOperand();
+            if (right == null) {
+                return null;
+            }
+            return new Predicate() {
+                @Override
+                boolean test(JsonNode current) {
+                    return operator.test(left.value(current), right.value(current));
+                }
+            };
+        }
+
+        private Operand parseOperand() {
+            char c = peek();
+            if (c == '@') {
+                int start = ++pos;
+                while (pos < path.length()) {
+                    c = path.charAt(pos);
+                    if (c == '[') {
+                        int close = path.indexOf(']', pos);
+                        if (close < 0) {
+                            return null;
+                        }
+                        pos = close + 1;
+                    } else if (Character.isWhitespace(c) || "()=!<>&|".indexOf(c) >= 0) {
+                        break;
+                    } else {
+                        pos++;
+                    }
+                }
+                DefinitePath relative = DefinitePath.parse("$" + path.substring(start, pos));
+                return relative == null ? null : new Relative(relative);
+            }
+            if (c == '\'' || c == '"') {
+                String text = parseQuoted();
+                return text == null ? null : new Literal(TextNode.valueOf(text));
+            }
+            if (consumeKeyword("true")) {
+                return new Literal(BooleanNode.TRUE);
+            }
+            if (consumeKeyword("false")) {
+                return new Literal(BooleanNode.FALSE);
+            }
+            if (consumeKeyword("null")) {
+                return new Literal(NullNode.getInstance());
+            }
+            int start = pos;
+            while (pos < path.length() && "0123456789+-.eE".indexOf(path.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+            try {
+                BigDecimal number = new BigDecimal(path.substring(start, pos));
+                try {
+                    return new Literal(LongNode.valueOf(number.longValueExact()));
+                } catch (ArithmeticException e) {
+                    return new Literal(DecimalNode.valueOf(number));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Escape sequences are not supported and leave the path to the json-path library.
+         */
+        private String parseQuoted() {
+            char quote = path.charAt(pos);
+            int close = path.indexOf(quote, pos + 1);
+            if (close < 0) {
+                return null;
+            }
+            String text = path.substring(pos + 1, close);
+            if (text.indexOf('\\') >= 0) {
+                return null;
+            }
+            pos = close + 1;
+            return text;
+        }
+
+        private char peek() {
+            return pos < path.length() ? path.charAt(pos) : 0;
+        }
+
+        private boolean consume(String token) {
+            if (path.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consumeOperator(String token) {
+            skipWhitespace();
+            return consume(token);
+        }
+
+        private boolean consumeKeyword(String keyword) {
+            int end = pos + keyword.length();
+            if (path.startsWith(keyword, pos) && (end == path.length() || !Character.isLetterOrDigit(path.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (pos < path.length() && Character.isWhitespace(path.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
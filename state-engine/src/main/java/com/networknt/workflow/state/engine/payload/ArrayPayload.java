@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.DefinitePath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A JSON array assembled from other payloads, such as the output of a Parallel state made of the outputs of its
+ * branches. The elements are kept as they are: the array is written out by streaming each element in turn, and a path
+ * starting with an index only touches the element it selects. A tree is only built if one is asked for.
+ */
+final class ArrayPayload extends Payload {
+
+    private final List<Payload> elements;
+    private volatile JsonNode tree;
+
+    ArrayPayload(List<Payload> elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        JsonNode built = tree;
+        if (built == null) {
+            ArrayNode array = JsonNodeFactory.instance.arrayNode(elements.size());
+            for (Payload element : elements) {
+                array.add(element.toJsonNode());
+            }
+            built = array;
+            tree = built;
+        }
+        return built;
+    }
+
+    @Override
+    public JsonNode read(CompiledPath path) {
+        if (tree == null && path instanceof DefinitePath && !path.isRoot()) {
+            DefinitePath definitePath = (DefinitePath) path;
+            Payload element = element(definitePath.getSegment(0));
+            return element == null ? null : element.read(definitePath.subPath(1));
+        }
+        return path.isRoot() ? toJsonNode() : path.read(toJsonNode());
+    }
+
+    @Override
+    public Payload select(CompiledPath path) {
+        if (path.isRoot()) {
+            return this;
+        }
+        if (tree == null && path instanceof DefinitePath) {
+            DefinitePath definitePath = (DefinitePath) path;
+            Payload element = element(definitePath.getSegment(0));
+            return element == null ? null : element.select(definitePath.subPath(1));
+        }
+        JsonNode selected = path.read(toJsonNode());
+        return selected == null ? null : Payload.of(selected);
+    }
+
+    /**
+     * @param segment First segment of a definite path.
+     * @return Element selected by the segment or null if it is a field name or an index out of bounds.
+     */
+    private Payload element(Object segment) {
+        if (!(segment instanceof Integer)) {
+            return null;
+        }
+        int index = (Integer) segment;
+        if (index < 0) {
+            index += elements.size();
+        }
+        return index < 0 || index >= elements.size() ? null : elements.get(index);
+    }
+
+    @Override
+    public Iterator<Payload> elements() {
+        return elements.iterator();
+    }
+
+    @Override
+    public long size() {
+        long size = elements.isEmpty() ? 2 : elements.size() + 1;
+        for (Payload element : elements) {
+            size += element.size();
+        }
+        return size;
+    }
+
+    @Override
+    long knownSize() {
+        long size = elements.isEmpty() ? 2 : elements.size() + 1;
+        for (Payload element : elements) {
+            long elementSize = element.knownSize();
+            if (elementSize < 0) {
+                return -1;
+            }
+            size += elementSize;
+        }
+        return size;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        // only the sizes known already, finding out the others would serialize those elements before writing them
+        long capacity = elements.isEmpty() ? 2 : elements.size() + 1;
+        for (Payload element : elements) {
+            capacity += Math.max(0, element.knownSize());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Payload element : elements) {
+            if (!first) {
+                out.write(',');
+            }
+            element.writeTo(out);
+            first = false;
+        }
+        out.write(']');
+    }
+}
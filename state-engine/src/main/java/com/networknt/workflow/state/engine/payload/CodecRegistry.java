@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+
+/**
+ * Chooses the {@link PayloadCodec} for the payloads of each state machine and keeps every codec that was handed out, so
+ * that data compressed with it can be read back.
+ *
+ * <p>Each state machine definition starts with a codec without dictionary. The inputs of its first executions are
+ * collected as samples and once there are enough of them a dictionary is trained from them, see
+ * {@link DictionaryTrainer}, and used for all later payloads of the state machine. Codecs trained by an earlier process
+ * are recreated from their dictionary with {@link #restore(String, byte[])}.</p>
+ */
+public class CodecRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodecRegistry.class);
+
+    public static final int DEFAULT_TRAINING_SAMPLES = 16;
+    public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+    public static final int DEFAULT_MIN_SIZE = 128;
+
+    /**
+     * Larger inputs are not kept as samples, they would hold on to too much memory while training is pending.
+     */
+    static final long MAX_SAMPLE_SIZE = 1024 * 1024;
+
+    private final PayloadCodec.Factory factory;
+    private final int trainingSamples;
+    private final int dictionarySize;
+    private final long minSize;
+    private final PayloadCodec untrained;
+    private final ConcurrentMap<String, PayloadCodec.Factory> factories =
+            new ConcurrentHashMap<String, PayloadCodec.Factory>();
+    private final ConcurrentMap<String, PayloadCodec> codecs = new ConcurrentHashMap<String, PayloadCodec>();
+    private final Map<StateMachine, Training> trainings =
+            Collections.synchronizedMap(new WeakHashMap<StateMachine, Training>());
+
+    /**
+     * Creates a registry of fast deflate codecs with the default training parameters.
+     */
+    public CodecRegistry() {
+        this(DeflateCodec.factory(Deflater.BEST_SPEED), DEFAULT_TRAINING_SAMPLES, DEFAULT_DICTIONARY_SIZE,
+             DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * @param factory         Creates the codecs handed out.
+     * @param trainingSamples Number of inputs of a state machine its dictionary is trained from, 0 to never train.
+     * @param dictionarySize  Maximum size of the dictionaries in bytes.
+     * @param minSize         Payloads smaller than this many bytes are not compressed by {@link #compress}.
+     */
+    public CodecRegistry(PayloadCodec.Factory factory, int trainingSamples, int dictionarySize, long minSize) {
+        this.factory = factory;
+        this.trainingSamples = trainingSamples;
+        this.dictionarySize = dictionarySize;
+        this.minSize = minSize;
+        registerFactory(factory);
+        this.untrained = register(factory.create(null));
+    }
+
+    /**
+     * Makes the codecs of another family known, so that their data can be read back.
+     *
+     * @param factory Factory of the family.
+     */
+    public void registerFactory(PayloadCodec.Factory factory) {
+        factories.put(factory.getFamily(), factory);
+    }
+
+    /**
+     * @param codec Codec to make known.
+     * @return The codec registered under its name, which is the given one unless a codec of the same name was known.
+     */
+    public PayloadCodec register(PayloadCodec codec) {
+        PayloadCodec existing = codecs.putIfAbsent(codec.getName(), codec);
+        return existing == null ? codec : existing;
+    }
+
+    /**
+     * @param name Name of a codec, see {@link PayloadCodec#getName()}.
+     * @return The codec or null if it is not known.
+     */
+    public PayloadCodec getCodec(String name) {
+        return codecs.get(name);
+    }
+
+    /**
+     * Recreates a codec, e.g. one trained by an earlier process whose dictionary was persisted.
+     *
+     * @param name       Name of the codec.
+     * @param dictionary Dictionary of the codec, null if it has none.
+     * @return The codec.
+     * @throws StatesException with {@link ErrorCodes#RUNTIME} if the family of the codec is not known or the dictionary
+     *     does not match the name.
+     */
+    public PayloadCodec restore(String name, byte[] dictionary) {
+        PayloadCodec codec = codecs.get(name);
+        if (codec != null) {
+            return codec;
+        }
+        int dash = name.indexOf('-');
+        PayloadCodec.Factory family = factories.get(dash < 0 ? name : name.substring(0, dash));
+        if (family == null) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Unknown payload codec " + name);
+        }
+        codec = family.create(dictionary);
+        if (!codec.getName().equals(name)) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Dictionary does not match payload codec " + name);
+        }
+        return register(codec);
+    }
+
+    /**
+     * @param stateMachine State machine about to be executed.
+     * @param input        Input of the execution, kept as a training sample until the dictionary of the state
+     *                     machine is trained.
+     * @return Codec for the payloads of the execution.
+     */
+    public PayloadCodec codecFor(StateMachine stateMachine, Payload input) {
+        if (trainingSamples <= 0) {
+            return untrained;
+        }
+        Training training;
+        synchronized (trainings) {
+            training = trainings.get(stateMachine);
+            if (training == null) {
+                training = new Training(untrained);
+                trainings.put(stateMachine, training);
+            }
+        }
+        PayloadCodec codec = training.codec;
+        if (codec != untrained || input instanceof ReferencePayload || input.size() > MAX_SAMPLE_SIZE) {
+            return codec;
+        }
+        List<Payload> samples = null;
+        synchronized (training) {
+            if (training.samples != null) {
+                training.samples.add(input);
+                if (training.samples.size() >= trainingSamples) {
+                    samples = training.samples;
+                    training.samples = null;
+                }
+            }
+        }
+        if (samples != null) {
+            codec = train(samples);
+            training.codec = codec;
+            logger.debug("Trained payload codec {} from {} samples", codec.getName(), samples.size());
+        }
+        return codec;
+    }
+
+    /**
+     * Trains a codec from samples right away.
+     *
+     * @param samples Sample payloads.
+     * @return Codec primed with a dictionary trained from the samples.
+     */
+    public PayloadCodec train(List<Payload> samples) {
+        return register(factory.create(DictionaryTrainer.train(samples, dictionarySize)));
+    }
+
+    /**
+     * @param payload Payload to keep for a long time, may be null.
+     * @param codec   Codec to compress with, may be null.
+     * @return Compressed copy of the payload, or the payload itself if there is no codec or the payload is too small to
+     *     be worth compressing, already compressed or a reference.
+     */
+    public Payload compress(Payload payload, PayloadCodec codec) {
+        if (codec == null || payload == null || payload instanceof ReferencePayload
+                || payload instanceof CompressedPayload || payload.size() < minSize) {
+            return payload;
+        }
+        return CompressedPayload.compress(codec, payload);
+    }
+
+    private static final class Training {
+        private volatile PayloadCodec codec;
+        private List<Payload> samples = new ArrayList<Payload>();
+
+        Training(PayloadCodec codec) {
+            this.codec = codec;
+        }
+    }
+}
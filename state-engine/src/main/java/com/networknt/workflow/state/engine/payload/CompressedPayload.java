@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * A payload kept in compressed form, e.g. the data of a history event. The document is decompressed whenever it is
+ * looked at and never cached, keeping it small is the point.
+ */
+public final class CompressedPayload extends Payload {
+
+    private final PayloadCodec codec;
+    private final byte[] data;
+    private final int size;
+    private final String digest;
+
+    private CompressedPayload(PayloadCodec codec, byte[] data, int size, String digest) {
+        this.codec = codec;
+        this.data = data;
+        this.size = size;
+        this.digest = digest;
+    }
+
+    /**
+     * @param codec   Codec to compress with.
+     * @param payload Payload to compress, at most 2 GB.
+     * @return Compressed copy of the payload.
+     */
+    public static CompressedPayload compress(PayloadCodec codec, Payload payload) {
+        long size = payload.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Payload of " + size + " bytes is too large to be compressed in memory");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(size / 4 + 64, 64 * 1024));
+        try {
+            codec.compress(payload, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to compress payload", e);
+        }
+        return new CompressedPayload(codec, out.toByteArray(), (int) size, payload.digest());
+    }
+
+    /**
+     * @return Codec the payload was compressed with.
+     */
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return Size of the compressed document in bytes.
+     */
+    public int getCompressedSize() {
+        return data.length;
+    }
+
+    private Payload decompress() {
+        try {
+            return Payload.of(codec.decompress(data, 0, data.length, size));
+        } catch (IOException e) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Unable to decompress payload: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Digest of the original document, taken when it was compressed.
+     */
+    @Override
+    public String digest() {
+        return digest;
+    }
+
+    @Override
+    public boolean hasDigest() {
+        return true;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        return decompress().toJsonNode();
+    }
+
+    @Override
+    public JsonNode read(CompiledPath path) {
+        return decompress().read(path);
+    }
+
+    @Override
+    public Payload select(CompiledPath path) {
+        return path.isRoot() ? this : decompress().select(path);
+    }
+
+    @Override
+    public Iterator<Payload> elements() {
+        return decompress().elements();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return decompress().toBytes();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        decompress().writeTo(out);
+    }
+}
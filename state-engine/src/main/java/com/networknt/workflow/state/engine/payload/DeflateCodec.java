@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * {@link PayloadCodec} based on the deflate implementation of the JDK. The preset dictionary of deflate is up to 32 KB
+ * of data the compressor may refer back to as if it preceded every document, which is where the field names and
+ * common values of a state machine's payloads go, see {@link DictionaryTrainer}.
+ *
+ * <p>Deflaters and inflaters are expensive to create, each thread keeps one of each per codec and resets it between
+ * documents.</p>
+ */
+public final class DeflateCodec implements PayloadCodec {
+
+    public static final String FAMILY = "deflate";
+
+    /**
+     * Window of deflate, longer dictionaries are truncated to their end.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int level;
+    private final byte[] dictionary;
+    private final String name;
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>();
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>();
+
+    /**
+     * @param level      Compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}. Only
+     *                   affects compression, data is read back the same way at any level.
+     * @param dictionary Dictionary to prime the codec with, null for none.
+     */
+    public DeflateCodec(int level, byte[] dictionary) {
+        if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE) {
+            byte[] truncated = new byte[MAX_DICTIONARY_SIZE];
+            System.arraycopy(dictionary, dictionary.length - MAX_DICTIONARY_SIZE, truncated, 0, MAX_DICTIONARY_SIZE);
+            dictionary = truncated;
+        }
+        this.level = level;
+        this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+        this.name = this.dictionary == null ? FAMILY : FAMILY + "-" + dictionaryId(this.dictionary);
+    }
+
+    /**
+     * @param level Compression level of the codecs created.
+     * @return Factory of deflate codecs.
+     */
+    public static PayloadCodec.Factory factory(final int level) {
+        return new PayloadCodec.Factory() {
+            @Override
+            public String getFamily() {
+                return FAMILY;
+            }
+
+            @Override
+            public PayloadCodec create(byte[] dictionary) {
+                return new DeflateCodec(level, dictionary);
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void compress(Payload payload, OutputStream out) throws IOException {
+        Deflater deflater = deflaters.get();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+            deflaters.set(deflater);
+        } else {
+            deflater.reset();
+        }
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater, 8192);
+        payload.writeTo(stream);
+        stream.finish();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+        Inflater inflater = inflaters.get();
+        if (inflater == null) {
+            inflater = new Inflater();
+            inflaters.set(inflater);
+        } else {
+            inflater.reset();
+        }
+        inflater.setInput(data, offset, length);
+        byte[] document = new byte[size];
+        int position = 0;
+        try {
+            while (position < size) {
+                int inflated = inflater.inflate(document, position, size - position);
+                if (inflated > 0) {
+                    position += inflated;
+                } else if (inflater.needsDictionary()) {
+                    if (dictionary == null) {
+                        throw new IOException("Data was compressed with a dictionary, codec " + name + " has none");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (inflater.finished() || inflater.needsInput()) {
+                    throw new IOException("Compressed document is shorter than " + size + " bytes");
+                }
+            }
+            // consumes the checksum at the end of the stream
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                throw new IOException("Compressed document is longer than " + size + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed data: " + e.getMessage(), e);
+        }
+        return document;
+    }
+
+    /**
+     * @return First 64 bits of the SHA-256 digest of the dictionary, hex encoded.
+     */
+    private static String dictionaryId(byte[] dictionary) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(dictionary);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        char[] hex = new char[16];
+        for (int i = 0; i < 8; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateCodec{name=" + name + ", level=" + level + "}";
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a compression dictionary from sample payloads. The payloads of one state machine repeat the same field names
+ * and many of the same short string values, e.g. status codes or enumerations, so the dictionary is made of the
+ * fragments {@code "name":} and {@code "value"} that occur at least twice in the samples.
+ *
+ * <p>Fragments are ranked by the bytes they would save, occurrences times length. Deflate encodes references to the end
+ * of the dictionary most cheaply, the best fragments are placed last.</p>
+ */
+public final class DictionaryTrainer {
+
+    /**
+     * Longest string value taken into the dictionary, longer values rarely repeat.
+     */
+    static final int MAX_VALUE_LENGTH = 64;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @param samples Sample payloads.
+     * @param maxSize Maximum size of the dictionary in bytes.
+     * @return The dictionary, empty if the samples do not have anything in common.
+     */
+    public static byte[] train(List<Payload> samples, int maxSize) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Payload sample : samples) {
+            count(sample, counts);
+        }
+        List<Map.Entry<String, Integer>> fragments = new ArrayList<Map.Entry<String, Integer>>();
+        for (Map.Entry<String, Integer> fragment : counts.entrySet()) {
+            if (fragment.getValue() > 1) {
+                fragments.add(fragment);
+            }
+        }
+        Collections.sort(fragments, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                long scoreA = (long) a.getValue() * a.getKey().length();
+                long scoreB = (long) b.getValue() * b.getKey().length();
+                if (scoreA != scoreB) {
+                    return scoreA > scoreB ? -1 : 1;
+                }
+                return a.getKey().compareTo(b.getKey());
+            }
+        });
+        List<byte[]> selected = new ArrayList<byte[]>();
+        int size = 0;
+        for (Map.Entry<String, Integer> fragment : fragments) {
+            byte[] bytes = fragment.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length <= maxSize) {
+                selected.add(bytes);
+                size += bytes.length;
+            }
+        }
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.write(selected.get(i), 0, selected.get(i).length);
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static void count(Payload sample, Map<String, Integer> counts) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        try (JsonParser parser = Payload.MAPPER.getFactory().createParser(sample.toBytes())) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                String fragment;
+                if (token == JsonToken.FIELD_NAME) {
+                    fragment = '"' + new String(encoder.quoteAsString(parser.currentName())) + "\":";
+                } else if (token == JsonToken.VALUE_STRING && parser.getTextLength() <= MAX_VALUE_LENGTH) {
+                    fragment = '"' + new String(encoder.quoteAsString(parser.getText())) + '"';
+                } else {
+                    continue;
+                }
+                Integer count = counts.get(fragment);
+                counts.put(fragment, count == null ? 1 : count + 1);
+            }
+        } catch (IOException e) {
+            // a sample that is not valid JSON contributes what was read up to the error
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link PayloadStore} that moves payloads above a size threshold to files in a local directory. Files are named after
+ * the SHA-256 digest of their content, so storing the same document twice writes it only once, and are memory mapped
+ * when read back. Payloads below the threshold are left alone.
+ *
+ * <p>Holders are counted per payload. {@link #collectGarbage(long)} deletes the files that have had no holder for a
+ * grace period, which covers the time between a payload being offloaded and retained by the history. Only payloads
+ * this instance has offloaded or counted holders for are ever deleted, other files in the directory are left alone.</p>
+ *
+ * <p>Payloads offloaded with a codec are stored compressed, behind a header naming the codec and the size of the
+ * document. Compressed files are read into the heap rather than mapped. The dictionaries of the codecs are kept in the
+ * {@code dictionaries} subdirectory, so that another process can read the files back.</p>
+ */
+public class FilePayloadStore implements PayloadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilePayloadStore.class);
+
+    /**
+     * First byte of a compressed file, JSON never starts with it.
+     */
+    private static final byte COMPRESSED = 0;
+
+    private final Path directory;
+    private final long threshold;
+    private final CodecRegistry codecs;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final Set<String> savedDictionaries = ConcurrentHashMap.<String>newKeySet();
+
+    /**
+     * @param directory Directory the payload files are kept in, created if it does not exist.
+     * @param threshold Minimum size in bytes of the payloads that are offloaded.
+     * @throws IOException If the directory cannot be created.
+     */
+    public FilePayloadStore(Path directory, long threshold) throws IOException {
+        this(directory, threshold, new CodecRegistry());
+    }
+
+    /**
+     * @param directory Directory the payload files are kept in, created if it does not exist.
+     * @param threshold Minimum size in bytes of the payloads that are offloaded.
+     * @param codecs    Codecs to read compressed files with, codecs used to offload payloads are added to it.
+     * @throws IOException If the directory cannot be created.
+     */
+    public FilePayloadStore(Path directory, long threshold, CodecRegistry codecs) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.threshold = threshold;
+        this.codecs = codecs;
+    }
+
+    @Override
+    public Payload offload(Payload payload) {
+        return offload(payload, null);
+    }
+
+    @Override
+    public Payload offload(Payload payload, PayloadCodec codec) {
+        if (payload instanceof ReferencePayload || payload.size() < threshold) {
+            return payload;
+        }
+        try {
+            String key = payload.digest();
+            Path file = file(key);
+            Entry entry = entry(key);
+            synchronized (entry) {
+                if (!Files.exists(file)) {
+                    write(payload, codec, file);
+                    logger.debug("Offloaded payload {} of {} bytes", key, payload.size());
+                }
+                entry.lastUsed = System.currentTimeMillis();
+            }
+            return new ReferencePayload(key, payload.size(), this);
+        } catch (IOException e) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Unable to offload payload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Payload load(String key) {
+        if (!isKey(key)) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Invalid payload key " + key);
+        }
+        try (FileChannel channel = FileChannel.open(file(key), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() > 0 && buffer.get(0) == COMPRESSED) {
+                return decompress(buffer);
+            }
+            return Payload.of(buffer);
+        } catch (IOException e) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Unable to load payload " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void retain(String key) {
+        Entry entry = entry(key);
+        synchronized (entry) {
+            entry.references++;
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.references--;
+                entry.lastUsed = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Deletes the payloads without holders. Meant to be called periodically, e.g. from a scheduled executor.
+     *
+     * @param gracePeriodMillis Minimum time since a payload was last offloaded or released before it is deleted. Must
+     *                          be longer than any state takes to run, otherwise a payload could be deleted before the
+     *                          history retains it.
+     * @return Number of payloads deleted.
+     */
+    public int collectGarbage(long gracePeriodMillis) {
+        long cutoff = System.currentTimeMillis() - gracePeriodMillis;
+        int deleted = 0;
+        for (Map.Entry<String, Entry> mapping : entries.entrySet()) {
+            Entry entry = mapping.getValue();
+            synchronized (entry) {
+                if (entry.references > 0 || entry.lastUsed > cutoff) {
+                    continue;
+                }
+                entries.remove(mapping.getKey(), entry);
+                try {
+                    if (Files.deleteIfExists(file(mapping.getKey()))) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Unable to delete payload " + mapping.getKey(), e);
+                }
+            }
+        }
+        logger.debug("Deleted {} unreferenced payloads", deleted);
+        return deleted;
+    }
+
+    /**
+     * @param key Key of a payload.
+     * @return Number of holders of the payload, 0 if it is unknown to this instance.
+     */
+    public int getReferenceCount(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (entry) {
+            return entry.references;
+        }
+    }
+
+    /**
+     * An entry removed by {@link #collectGarbage(long)} is never used again: callers synchronize on it and re-check it is
+     * still mapped, so an offload racing with the deletion writes the file anew under a fresh entry.
+     */
+    private Entry entry(String key) {
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                Entry created = new Entry();
+                entry = entries.putIfAbsent(key, created);
+                if (entry == null) {
+                    return created;
+                }
+            }
+            synchronized (entry) {
+                if (entries.get(key) == entry) {
+                    return entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key Key of a stored payload.
+     * @return File holding the payload. Files are spread over subdirectories named after the first two characters of
+     *     the key to keep directories small.
+     */
+    protected Path file(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    /**
+     * @param name Name of a codec.
+     * @return File holding the dictionary of the codec.
+     */
+    protected Path dictionaryFile(String name) {
+        return directory.resolve("dictionaries").resolve(name + ".dict");
+    }
+
+    /**
+     * Writes to a temporary file first so that readers never see a partially written payload.
+     */
+    private void write(Payload payload, PayloadCodec codec, Path file) throws IOException {
+        if (codec != null) {
+            saveDictionary(codecs.register(codec));
+        }
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "payload", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                if (codec == null) {
+                    payload.writeTo(out);
+                } else {
+                    byte[] name = codec.getName().getBytes(StandardCharsets.US_ASCII);
+                    DataOutputStream header = new DataOutputStream(out);
+                    header.writeByte(COMPRESSED);
+                    header.writeByte(name.length);
+                    header.write(name);
+                    header.writeLong(payload.size());
+                    codec.compress(payload, out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently by another execution, the content is the same
+            logger.trace("Payload {} already stored", file);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void saveDictionary(PayloadCodec codec) throws IOException {
+        if (codec.getDictionary() == null || savedDictionaries.contains(codec.getName())) {
+            return;
+        }
+        Path file = dictionaryFile(codec.getName());
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "dictionary", ".tmp");
+            try {
+                Files.write(temp, codec.getDictionary());
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                logger.trace("Dictionary {} already stored", file);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        savedDictionaries.add(codec.getName());
+    }
+
+    /**
+     * @param buffer Content of a compressed file.
+     * @return The decompressed payload.
+     */
+    private Payload decompress(MappedByteBuffer buffer) throws IOException {
+        int nameLength = buffer.get(1) & 0xff;
+        byte[] name = new byte[nameLength];
+        buffer.position(2);
+        buffer.get(name);
+        long size = buffer.getLong();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Compressed payload of " + size + " bytes is too large");
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        PayloadCodec codec = codec(new String(name, StandardCharsets.US_ASCII));
+        return Payload.of(codec.decompress(data, 0, data.length, (int) size));
+    }
+
+    private PayloadCodec codec(String name) throws IOException {
+        PayloadCodec codec = codecs.getCodec(name);
+        if (codec != null) {
+            return codec;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'z') && c != '-') {
+                throw new IOException("Invalid payload codec name " + name);
+            }
+        }
+        Path file = dictionaryFile(name);
+        return codecs.restore(name, Files.exists(file) ? Files.readAllBytes(file) : null);
+    }
+
+    private static boolean isKey(String key) {
+        if (key == null || key.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+        private int references;
+        private long lastUsed = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Items of a Map state read from a JSON Lines or CSV file on local disk. The file is memory mapped and cut into chunks
+ * of roughly {@code chunkSize} bytes that end on record boundaries, so a file of any size is processed with a bounded
+ * amount of heap: only the chunks being iterated are mapped, and a JSON Lines record is handed out as a lazy payload over
+ * the mapping without being copied or parsed.
+ *
+ * <p>Chunks are cut one at a time by {@link #nextChunk()}, which scans the records of the chunk to find its end, the
+ * records of a chunk are then read by whoever processes it. A CSV record may span lines if a field is quoted.</p>
+ */
+public final class ItemFile implements Closeable {
+
+    /**
+     * Default size of a chunk in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final int WINDOW_SIZE = 64 << 20;
+
+    /**
+     * Format of an item file.
+     */
+    public enum Format {
+        /**
+         * One JSON document per line.
+         */
+        JSONL,
+        /**
+         * Comma separated values, every record becomes a JSON object keyed by the column headers.
+         */
+        CSV
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final Format format;
+    private final long maxItems;
+    private final int chunkSize;
+    private List<String> headers;
+    private long position;
+    private long itemCount;
+    // scan window over the region around the position, remapped as the chunks are cut
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private ItemFile(Path path, FileChannel channel, Format format, List<String> headers, long maxItems, int chunkSize)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        this.format = format;
+        this.headers = headers;
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param path      File to read.
+     * @param format    Format of the file.
+     * @param headers   Column headers of a CSV file, null if they are in its first record. Ignored for JSON Lines.
+     * @param maxItems  Maximum number of items to read, 0 to read all of them.
+     * @param chunkSize Size of a chunk in bytes. A chunk holds at least one record, however large.
+     * @return Open item file, positioned at the first item.
+     * @throws IOException If the file cannot be opened or has no header record.
+     */
+    public static ItemFile open(Path path, Format format, List<String> headers, long maxItems, int chunkSize)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ItemFile file = new ItemFile(path, channel, format, headers, maxItems, chunkSize);
+            file.skipByteOrderMark();
+            if (format == Format.CSV && headers == null) {
+                file.readHeaders();
+            }
+            return file;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Column headers of a CSV file, null for JSON Lines.
+     */
+    public List<String> getHeaders() {
+        return format == Format.CSV ? headers : null;
+    }
+
+    /**
+     * Cuts the next chunk. Not thread safe, the chunks must be cut in order.
+     *
+     * @return The next chunk, or null if all items have been read.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public Chunk nextChunk() throws IOException {
+        long start = position;
+        long end = start;
+        int count = 0;
+        while (end < size && (maxItems == 0 || itemCount + count < maxItems) && (count == 0 || end - start < chunkSize)) {
+            long recordStart = end;
+            end = nextRecord(end);
+            if (!isBlank(recordStart, end)) {
+                count++;
+            }
+        }
+        position = end;
+        if (count == 0) {
+            return null;
+        }
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Record at byte %d of %s is larger than 2GB", start, path));
+        }
+        itemCount += count;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return new Chunk(start, buffer, count);
+    }
+
+    /**
+     * Closes the file. Chunks already cut stay readable.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (size >= 3 && byteAt(0) == (byte) 0xEF && byteAt(1) == (byte) 0xBB && byteAt(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    private void readHeaders() throws IOException {
+        while (position < size) {
+            long start = position;
+            position = nextRecord(start);
+            if (!isBlank(start, position)) {
+                ByteBuffer record = channel.map(FileChannel.MapMode.READ_ONLY, start, position - start);
+                headers = Collections.unmodifiableList(parseCsv(record, 0, trimLineEnd(record, 0, record.limit())));
+                return;
+            }
+        }
+        throw new IOException("CSV file " + path + " has no header record");
+    }
+
+    /**
+     * @return Offset just past the end of the record starting at the offset, including its line break.
+     */
+    private long nextRecord(long offset) throws IOException {
+        if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+            map(offset, WINDOW_SIZE);
+        }
+        while (true) {
+            int relative = (int) (offset - windowStart);
+            int end = recordEnd(window, relative, window.limit(), format);
+            if (end >= 0) {
+                return windowStart + end;
+            }
+            if (windowStart + window.limit() >= size) {
+                return size;
+            }
+            // the record does not fit in the rest of the window, map a larger one starting at the record
+            int remaining = window.limit() - relative;
+            if (remaining == Integer.MAX_VALUE) {
+                throw new IOException(String.format("Record at byte %d of %s is larger than 2GB", offset, path));
+            }
+            map(offset, (int) Math.min(Integer.MAX_VALUE, Math.max(WINDOW_SIZE, 2L * remaining)));
+        }
+    }
+
+    private void map(long offset, int length) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length, size - offset));
+    }
+
+    private boolean isBlank(long start, long end) throws IOException {
+        for (long offset = start; offset < end; offset++) {
+            if (!isWhitespace(byteAt(offset))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+            map(offset, WINDOW_SIZE);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    /**
+     * @return Index just past the line break ending the record that starts at the index, or -1 if the buffer ends first.
+     */
+    private static int recordEnd(ByteBuffer buffer, int start, int limit, Format format) {
+        boolean quoted = false;
+        for (int i = start; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' && !quoted) {
+                return i + 1;
+            } else if (b == '"' && format == Format.CSV) {
+                // an escaped quote toggles twice
+                quoted = !quoted;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimLineEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Splits a CSV record into its fields. Quoted fields may contain commas, line breaks and doubled quotes.
+     */
+    static List<String> parseCsv(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer record = buffer.duplicate();
+        record.position(start);
+        record.get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * A run of consecutive records of the file. The records are read sequentially by a single consumer.
+     */
+    public final class Chunk implements Iterator<Payload> {
+
+        private final long offset;
+        private final ByteBuffer buffer;
+        private final int count;
+        private int position;
+        private int remaining;
+
+        private Chunk(long offset, ByteBuffer buffer, int count) {
+            this.offset = offset;
+            this.buffer = buffer;
+            this.count = count;
+            this.remaining = count;
+        }
+
+        /**
+         * @return Number of items in the chunk.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * @return The next item, a lazy payload over the mapped record for JSON Lines or an object keyed by the column
+         *     headers for CSV.
+         * @throws StatesException with {@link ErrorCodes#RUNTIME} if a CSV record does not have a field per column.
+         */
+        @Override
+        public Payload next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                int start = position;
+                int end = recordEnd(buffer, start, buffer.limit(), format);
+                position = end < 0 ? buffer.limit() : end;
+                if (!isBlank(start, position)) {
+                    remaining--;
+                    return toPayload(start, position);
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private boolean isBlank(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (!isWhitespace(buffer.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Payload toPayload(int start, int end) {
+            end = trimLineEnd(buffer, start, end);
+            if (format == Format.JSONL) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(start);
+                record.limit(end);
+                return Payload.of(record);
+            }
+            List<String> fields = parseCsv(buffer, start, end);
+            if (fields.size() != headers.size()) {
+                throw new StatesException(ErrorCodes.RUNTIME,
+                                          String.format("CSV record at byte %d of %s has %d fields, expected %d.",
+                                                        offset + start, path, fields.size(), headers.size()));
+            }
+            ObjectNode item = JsonNodeFactory.instance.objectNode();
+            for (int i = 0; i < fields.size(); i++) {
+                item.put(headers.get(i), fields.get(i));
+            }
+            return Payload.of(item);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.DefinitePath;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Payload over raw UTF-8 JSON, either on the heap or in a memory mapped file. Definite paths are resolved by indexing
+ * the byte ranges of the children of each container on the way down, without building any tree, and the selected part
+ * is itself a lazy payload over the same buffer. The bytes are only parsed into a tree when a caller asks for one.
+ *
+ * <p>Indexes and the parsed tree are cached. Concurrent first accesses may compute them twice, which is harmless as they
+ * are derived from immutable bytes.</p>
+ */
+final class LazyPayload extends Payload {
+
+    /**
+     * The document, from position 0 to the limit. Never read through directly, only through duplicates, so it can be
+     * shared between threads.
+     */
+    private final ByteBuffer buffer;
+
+    private volatile JsonNode tree;
+    private volatile Index index;
+
+    LazyPayload(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        JsonNode parsed = tree;
+        if (parsed == null) {
+            try {
+                parsed = buffer.hasArray()
+                         ? MAPPER.readTree(buffer.array(), buffer.arrayOffset(), buffer.limit())
+                         : MAPPER.readTree(new ByteBufferBackedInputStream(buffer.duplicate()));
+            } catch (IOException e) {
+                throw invalidJson(e);
+            }
+            if (parsed == null || parsed.isMissingNode()) {
+                throw invalidJson(null);
+            }
+            tree = parsed;
+        }
+        return parsed;
+    }
+
+    @Override
+    public JsonNode read(CompiledPath path) {
+        if (tree == null && path instanceof DefinitePath) {
+            LazyPayload selected = walk((DefinitePath) path);
+            return selected == null ? null : selected.toJsonNode();
+        }
+        return path.isRoot() ? toJsonNode() : path.read(toJsonNode());
+    }
+
+    @Override
+    public Payload select(CompiledPath path) {
+        if (path.isRoot()) {
+            return this;
+        }
+        if (path instanceof DefinitePath) {
+            return walk((DefinitePath) path);
+        }
+        JsonNode selected = path.read(toJsonNode());
+        return selected == null ? null : new TreePayload(selected);
+    }
+
+    /**
+     * Streams the elements with a parser over the bytes, each one a lazy payload over its own range. Unlike
+     * {@link #select(CompiledPath)} with an index, no index of the array is built and the elements are not cached.
+     */
+    @Override
+    public Iterator<Payload> elements() {
+        if (tree != null) {
+            return super.elements();
+        }
+        final JsonParser parser;
+        try {
+            parser = createParser();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                return null;
+            }
+        } catch (IOException e) {
+            throw invalidJson(e);
+        }
+        return new Iterator<Payload>() {
+            private JsonToken next = advance();
+
+            private JsonToken advance() {
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.END_ARRAY || token == null) {
+                        parser.close();
+                    }
+                    return token;
+                } catch (IOException e) {
+                    throw invalidJson(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != JsonToken.END_ARRAY && next != null;
+            }
+
+            @Override
+            public Payload next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteBuffer slice = buffer.duplicate();
+                try {
+                    int start = (int) parser.currentTokenLocation().getByteOffset();
+                    parser.skipChildren();
+                    parser.finishToken();
+                    int end = (int) parser.currentLocation().getByteOffset();
+                    slice.limit(end);
+                    slice.position(start);
+                } catch (IOException e) {
+                    throw invalidJson(e);
+                }
+                next = advance();
+                return new LazyPayload(slice.slice());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public long size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public byte[] toBytes() {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.limit() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else {
+            Channels.newChannel(out).write(buffer.duplicate());
+        }
+    }
+
+    private LazyPayload walk(DefinitePath path) {
+        LazyPayload current = this;
+        for (int i = 0; i < path.getSegmentCount() && current != null; i++) {
+            current = current.index().child(path.getSegment(i));
+        }
+        return current;
+    }
+
+    private Index index() {
+        Index built = index;
+        if (built == null) {
+            try {
+                built = buildIndex();
+            } catch (IOException e) {
+                throw invalidJson(e);
+            }
+            index = built;
+        }
+        return built;
+    }
+
+    /**
+     * Scans the direct children of this container, skipping over their content. Offsets reported by the parser are
+     * relative to the start of the slice.
+     */
+    private Index buildIndex() throws IOException {
+        JsonParser parser = createParser();
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                Map<String, Integer> names = new HashMap<String, Integer>();
+                RangeList ranges = new RangeList();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    names.put(name, ranges.size());
+                    ranges.add(parser);
+                }
+                return new Index(names, ranges);
+            } else if (token == JsonToken.START_ARRAY) {
+                RangeList ranges = new RangeList();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    ranges.add(parser);
+                }
+                return new Index(null, ranges);
+            } else if (token == null) {
+                throw invalidJson(null);
+            }
+            // A scalar has no children, it is indexed like an empty object.
+            return new Index(Collections.<String, Integer>emptyMap(), new RangeList());
+        } finally {
+            parser.close();
+        }
+    }
+
+    private JsonParser createParser() throws IOException {
+        return buffer.hasArray()
+               ? MAPPER.getFactory().createParser(buffer.array(), buffer.arrayOffset(), buffer.limit())
+               : MAPPER.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    private StatesException invalidJson(Exception cause) {
+        return new StatesException(ErrorCodes.RUNTIME, "Payload is not valid JSON", cause);
+    }
+
+    /**
+     * Byte ranges of the children of a container, in document order.
+     */
+    private static final class RangeList {
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(JsonParser parser) throws IOException {
+            int start = (int) parser.currentTokenLocation().getByteOffset();
+            parser.skipChildren();
+            parser.finishToken();
+            int end = (int) parser.currentLocation().getByteOffset();
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+    }
+
+    /**
+     * Children of a container. Child payloads are created on first access and kept so their own indexes are reused.
+     */
+    private final class Index {
+
+        private final Map<String, Integer> names;
+        private final RangeList ranges;
+        private final LazyPayload[] children;
+
+        Index(Map<String, Integer> names, RangeList ranges) {
+            this.names = names;
+            this.ranges = ranges;
+            this.children = new LazyPayload[ranges.size()];
+        }
+
+        LazyPayload child(Object segment) {
+            int position;
+            if (segment instanceof String) {
+                if (names == null) {
+                    return null;
+                }
+                Integer found = names.get(segment);
+                if (found == null) {
+                    return null;
+                }
+                position = found;
+            } else {
+                if (names != null) {
+                    return null;
+                }
+                position = (Integer) segment;
+                if (position < 0) {
+                    position += ranges.size();
+                }
+                if (position < 0 || position >= ranges.size()) {
+                    return null;
+                }
+            }
+            LazyPayload child = children[position];
+            if (child == null) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.limit(ranges.ends[position]);
+                slice.position(ranges.starts[position]);
+                child = new LazyPayload(slice.slice());
+                children[position] = child;
+            }
+            return child;
+        }
+    }
+}
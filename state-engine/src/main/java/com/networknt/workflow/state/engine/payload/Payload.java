@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A JSON document flowing through an execution: the input and output of every state, the result of tasks and the data
+ * of history events. A payload is either backed by a Jackson tree or by the raw UTF-8 bytes it was received as, in which
+ * case only the parts that are actually looked at are parsed, see {@link #of(byte[])}.
+ *
+ * <p>Payloads are immutable. Neither the tree nor the bytes a payload was created from may be modified afterwards, they
+ * are shared between states, branches and executions without copying.</p>
+ */
+public abstract class Payload {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private volatile String digest;
+
+    /**
+     * @param node Document, null is treated as JSON null.
+     * @return Payload backed by the tree.
+     */
+    public static Payload of(JsonNode node) {
+        return new TreePayload(node == null ? NullNode.getInstance() : node);
+    }
+
+    /**
+     * Wraps raw JSON without parsing it. Paths are resolved by indexing the bytes on demand and only the selected
+     * subtrees are parsed. A payload that is never looked at is passed on as the original bytes.
+     *
+     * @param json UTF-8 encoded JSON document.
+     * @return Lazy payload over the bytes.
+     */
+    public static Payload of(byte[] json) {
+        return of(json, 0, json.length);
+    }
+
+    /**
+     * @param json   Buffer holding a UTF-8 encoded JSON document.
+     * @param offset Start of the document in the buffer.
+     * @param length Length of the document in bytes.
+     * @return Lazy payload over the bytes.
+     */
+    public static Payload of(byte[] json, int offset, int length) {
+        return new LazyPayload(ByteBuffer.wrap(json, offset, length).slice());
+    }
+
+    /**
+     * @param json Buffer holding a UTF-8 encoded JSON document between its position and limit, typically a memory
+     *             mapped file. The buffer itself is not modified.
+     * @return Lazy payload over the buffer.
+     */
+    public static Payload of(ByteBuffer json) {
+        return new LazyPayload(json.slice());
+    }
+
+    /**
+     * Assembles a JSON array from payloads without copying or parsing them, e.g. the outputs of the branches of a Parallel
+     * state. The array is used as is and must not be modified afterwards.
+     *
+     * @param elements Elements of the array.
+     * @return Payload of the array.
+     */
+    public static Payload array(Payload[] elements) {
+        return new ArrayPayload(Arrays.asList(elements));
+    }
+
+    /**
+     * Like {@link #array(Payload[])} but over a list, e.g. the outputs of the iterations of a Map state collected in a
+     * {@link PayloadList}. The list is used as is and must not be modified afterwards.
+     *
+     * @param elements Elements of the array.
+     * @return Payload of the array.
+     */
+    public static Payload array(List<Payload> elements) {
+        return new ArrayPayload(elements);
+    }
+
+    /**
+     * @return The whole document as a Jackson tree, parsed on first use if the payload is lazy.
+     * @throws com.networknt.workflow.state.engine.StatesException with
+     *     {@link com.networknt.workflow.state.model.ErrorCodes#RUNTIME} if the payload is not valid JSON.
+     */
+    public abstract JsonNode toJsonNode();
+
+    /**
+     * @param path Path to evaluate.
+     * @return Node selected by the path, see {@link CompiledPath#read(JsonNode)}, or null if it does not resolve.
+     */
+    public abstract JsonNode read(CompiledPath path);
+
+    /**
+     * Like {@link #read(CompiledPath)} but keeps the selected part as a payload, so a lazy payload is not parsed when the
+     * path is definite.
+     *
+     * @param path Path to evaluate.
+     * @return Payload selected by the path or null if it does not resolve.
+     */
+    public abstract Payload select(CompiledPath path);
+
+    /**
+     * Iterates over the elements of an array one at a time. A lazy payload scans its bytes as the iteration goes instead
+     * of indexing or parsing the whole array first, so the elements of a large array are never all held at once.
+     *
+     * @return The elements of the array, or null if the document is not an array.
+     */
+    public Iterator<Payload> elements() {
+        final JsonNode node = toJsonNode();
+        if (!node.isArray()) {
+            return null;
+        }
+        return new Iterator<Payload>() {
+            private final Iterator<JsonNode> elements = node.elements();
+
+            @Override
+            public boolean hasNext() {
+                return elements.hasNext();
+            }
+
+            @Override
+            public Payload next() {
+                return new TreePayload(elements.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return Size of the UTF-8 encoded document in bytes. A payload backed by a tree is serialized to find out.
+     */
+    public abstract long size();
+
+    /**
+     * @return {@link #size()} if it is known without serializing the document, otherwise -1.
+     */
+    long knownSize() {
+        return size();
+    }
+
+    /**
+     * @return The document as UTF-8 encoded JSON. The returned array may be shared and must not be modified.
+     */
+    public abstract byte[] toBytes();
+
+    /**
+     * @param out Stream to write the UTF-8 encoded JSON document to.
+     * @throws IOException If the stream cannot be written to.
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * The content address of the payload, used to store identical documents only once. Computed on first use by
+     * serializing the payload if needed.
+     *
+     * @return Hex encoded SHA-256 digest of the UTF-8 encoded document. Payloads with the same digest are byte for byte
+     *     identical.
+     */
+    public String digest() {
+        String computed = digest;
+        if (computed == null) {
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            try (OutputStream out = new DigestOutputStream(NullOutputStream.INSTANCE, sha256)) {
+                writeTo(out);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to digest payload", e);
+            }
+            byte[] hash = sha256.digest();
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+            }
+            computed = new String(hex);
+            digest = computed;
+        }
+        return computed;
+    }
+
+    /**
+     * @return Whether {@link #digest()} is known already, i.e. returns without serializing and hashing the document.
+     */
+    public boolean hasDigest() {
+        return digest != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Payload && toJsonNode().equals(((Payload) o).toJsonNode()));
+    }
+
+    @Override
+    public int hashCode() {
+        return toJsonNode().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonNode().toString();
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses payloads that are kept for a long time, i.e. files of a {@link FilePayloadStore} and the data of history
+ * events, see {@link CodecRegistry}. A codec may be primed with a dictionary of the fragments its payloads commonly
+ * contain, which makes even small documents compress well.
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return Unique name of the codec, stored with the compressed data. Codecs with a dictionary append an id of the
+     *     dictionary to the name of their family, e.g. {@code deflate-0123456789abcdef}. Only lower case letters, digits
+     *     and '-' are used.
+     */
+    String getName();
+
+    /**
+     * @return Dictionary the codec is primed with, or null if it has none. The array must not be modified.
+     */
+    byte[] getDictionary();
+
+    /**
+     * @param payload Payload to compress.
+     * @param out     Stream to write the compressed document to. The stream is not closed.
+     * @throws IOException If the stream cannot be written to.
+     */
+    void compress(Payload payload, OutputStream out) throws IOException;
+
+    /**
+     * @param data   Buffer holding data written by {@link #compress(Payload, OutputStream)}.
+     * @param offset Start of the compressed data in the buffer.
+     * @param length Length of the compressed data.
+     * @param size   Size of the document before compression.
+     * @return The UTF-8 encoded JSON document.
+     * @throws IOException If the data is corrupt.
+     */
+    byte[] decompress(byte[] data, int offset, int length, int size) throws IOException;
+
+    /**
+     * Creates the codecs of one family, e.g. when a codec trained by an earlier process is needed to read back its data.
+     */
+    interface Factory {
+
+        /**
+         * @return Name of the family, the name of the codecs without a dictionary.
+         */
+        String getFamily();
+
+        /**
+         * @param dictionary Dictionary to prime the codec with, null for none.
+         * @return New codec.
+         */
+        PayloadCodec create(byte[] dictionary);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List of payloads that grows one slot at a time and whose slots are filled in later, possibly by other threads, e.g.
+ * the outputs of the iterations of a Map state in the order of their items. The slots live in fixed size chunks, so
+ * growing the list never copies the payloads, and {@link Payload#array(java.util.List)} streams the finished list
+ * without copying it either.
+ *
+ * <p>Only one thread may add slots. Filled in slots become visible to other threads through whatever synchronization
+ * tells them the slots are done.</p>
+ */
+public final class PayloadList extends AbstractList<Payload> implements RandomAccess {
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Payload[][] chunks = new Payload[4][];
+    private volatile int size;
+
+    /**
+     * Appends an empty slot.
+     *
+     * @return Index of the new slot.
+     */
+    public int addSlot() {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        Payload[][] current = chunks;
+        if (chunk == current.length) {
+            // only the chunk references are copied, the chunks themselves are shared with the old directory
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new Payload[CHUNK_SIZE];
+        }
+        chunks = current;
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * @param index   Index of a slot returned by {@link #addSlot()}.
+     * @param payload Payload to put in the slot.
+     * @return The payload that was in the slot before.
+     */
+    @Override
+    public Payload set(int index, Payload payload) {
+        Payload[] chunk = chunk(index);
+        Payload previous = chunk[index & CHUNK_MASK];
+        chunk[index & CHUNK_MASK] = payload;
+        return previous;
+    }
+
+    @Override
+    public Payload get(int index) {
+        return chunk(index)[index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private Payload[] chunk(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        return chunks[index >>> CHUNK_BITS];
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+/**
+ * Keeps large payloads out of the heap. The engine hands every state input and output to {@link #offload(Payload)} and
+ * only the returned payload, typically a small {@link ReferencePayload}, travels through state transitions, Parallel
+ * branches and the execution history.
+ *
+ * <p>Stored payloads are content addressed by their {@link Payload#digest()}, so identical documents are kept once.
+ * Long lived holders of references, such as a history store, {@link #retain(String) retain} them so that the store can
+ * reclaim the payloads nobody refers to any more.</p>
+ */
+public interface PayloadStore {
+
+    /**
+     * @param payload Payload about to be passed on to the next state.
+     * @return The payload itself, or a reference to a stored copy of it if it is large enough to be worth offloading.
+     */
+    Payload offload(Payload payload);
+
+    /**
+     * Like {@link #offload(Payload)} but asks the store to keep the payload compressed. Stores that do not support
+     * compression ignore the codec.
+     *
+     * @param payload Payload about to be passed on to the next state.
+     * @param codec   Codec for the payloads of the execution, null to store the payload as is.
+     * @return The payload itself, or a reference to a stored copy of it if it is large enough to be worth offloading.
+     */
+    default Payload offload(Payload payload, PayloadCodec codec) {
+        return offload(payload);
+    }
+
+    /**
+     * @param key Key of a payload stored by {@link #offload(Payload)}, see {@link ReferencePayload#getKey()}.
+     * @return The stored payload, read lazily.
+     * @throws com.networknt.workflow.state.engine.StatesException with
+     *     {@link com.networknt.workflow.state.model.ErrorCodes#RUNTIME} if the payload is not in the store.
+     */
+    Payload load(String key);
+
+    /**
+     * Records one more holder of the stored payload.
+     *
+     * @param key Key of a stored payload.
+     */
+    void retain(String key);
+
+    /**
+     * Drops a holder recorded by {@link #retain(String)}. The payload may be reclaimed once it has no holder left.
+     *
+     * @param key Key of a stored payload.
+     */
+    void release(String key);
+}
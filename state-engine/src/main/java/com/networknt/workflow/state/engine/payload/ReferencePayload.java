@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * A payload that lives in a {@link PayloadStore} and is only identified by its key. The stored document is loaded the
+ * first time it is needed, everything else (passing it to the next state or to Parallel branches, recording it in the
+ * history) only copies the reference.
+ */
+public final class ReferencePayload extends Payload {
+
+    private final String key;
+    private final long size;
+    private final PayloadStore store;
+    private volatile Payload resolved;
+
+    /**
+     * @param key   Key of the payload in the store, i.e. its {@link Payload#digest()}.
+     * @param size  Size of the stored document in bytes.
+     * @param store Store holding the payload.
+     */
+    public ReferencePayload(String key, long size, PayloadStore store) {
+        this.key = key;
+        this.size = size;
+        this.store = store;
+    }
+
+    /**
+     * @return Key of the payload in its store.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * This reference keeps the loaded document once it is read. A holder that outlives the state reading it, such as a
+     * history, should keep a reference of its own instead.
+     *
+     * @return New reference to the same stored payload that has not loaded it.
+     */
+    public ReferencePayload unresolved() {
+        return new ReferencePayload(key, size, store);
+    }
+
+    private Payload resolve() {
+        Payload payload = resolved;
+        if (payload == null) {
+            payload = store.load(key);
+            resolved = payload;
+        }
+        return payload;
+    }
+
+    /**
+     * @return The key, stores are content addressed.
+     */
+    @Override
+    public String digest() {
+        return key;
+    }
+
+    @Override
+    public boolean hasDigest() {
+        return true;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        return resolve().toJsonNode();
+    }
+
+    @Override
+    public JsonNode read(CompiledPath path) {
+        return resolve().read(path);
+    }
+
+    @Override
+    public Payload select(CompiledPath path) {
+        return path.isRoot() ? this : resolve().select(path);
+    }
+
+    @Override
+    public Iterator<Payload> elements() {
+        return resolve().elements();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return resolve().toBytes();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        resolve().writeTo(out);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ReferencePayload && ((ReferencePayload) o).store == store) {
+            return key.equals(((ReferencePayload) o).key);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ReferencePayload{key=" + key + ", size=" + size + "}";
+    }
+}
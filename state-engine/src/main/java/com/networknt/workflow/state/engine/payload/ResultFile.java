@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JSON Lines file the outputs of the iterations of a Map state are written to instead of being kept in memory. Every
+ * chunk of an {@link ItemFile} writes its outputs to a part file of its own, so chunks processed concurrently never
+ * contend, and the parts are concatenated in the order of the chunks when the state completes, which keeps the outputs
+ * in the order of the items.
+ */
+public final class ResultFile implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultFile.class);
+
+    private final Path path;
+    private final String partPrefix;
+    private final List<Part> parts = new ArrayList<Part>();
+
+    /**
+     * @param path File the outputs are written to, replaced if it exists. The part files are created next to it, named
+     *             uniquely so that results written to the same file at the same time do not clash.
+     */
+    public ResultFile(Path path) {
+        this.path = path;
+        this.partPrefix = path.getFileName() + "." + UUID.randomUUID() + ".part";
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return A new part, placed after all parts created before it.
+     * @throws IOException If the part file cannot be created.
+     */
+    public synchronized Part newPart() throws IOException {
+        Part part = new Part(path.resolveSibling(partPrefix + parts.size()));
+        parts.add(part);
+        return part;
+    }
+
+    /**
+     * Concatenates the parts into the result file and deletes them. All parts must be complete.
+     *
+     * @return Number of outputs in the result file.
+     * @throws IOException If the result file cannot be written.
+     */
+    public synchronized long commit() throws IOException {
+        long count = 0;
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Part part : parts) {
+                part.close();
+                try (FileChannel in = FileChannel.open(part.path, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                count += part.count;
+            }
+        }
+        close();
+        logger.debug("Wrote {} results to {}", count, path);
+        return count;
+    }
+
+    /**
+     * Discards the parts, e.g. because an iteration failed. The result file is left untouched.
+     */
+    @Override
+    public synchronized void close() {
+        for (Part part : parts) {
+            try {
+                part.close();
+                Files.deleteIfExists(part.path);
+            } catch (IOException e) {
+                logger.warn("Unable to delete result part {}", part.path, e);
+            }
+        }
+        parts.clear();
+    }
+
+    /**
+     * Outputs of one chunk, written sequentially by a single writer.
+     */
+    public static final class Part {
+
+        private final Path path;
+        private final OutputStream out;
+        private long count;
+
+        private Part(Path path) throws IOException {
+            this.path = path;
+            this.out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE_NEW));
+        }
+
+        /**
+         * @param output Output to append as a line of its own.
+         * @throws IOException If the part file cannot be written, e.g. because the parts have been discarded.
+         */
+        public void write(Payload output) throws IOException {
+            output.writeTo(out);
+            out.write('\n');
+            count++;
+        }
+
+        /**
+         * Flushes the part file. Further writes fail.
+         *
+         * @throws IOException If the part file cannot be written.
+         */
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
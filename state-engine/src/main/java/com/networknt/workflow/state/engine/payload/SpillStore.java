@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the combined output of the branches of a Parallel state within a heap budget. Branch outputs that would exceed
+ * the budget are written to a temporary segment file which is memory mapped and read back lazily, so applying
+ * ResultPath or OutputPath to the combined output only parses what the paths select.
+ *
+ * <p>Unlike a {@link PayloadStore} the segments are private to one execution and never shared: the file is deleted as
+ * soon as it is mapped and the space is reclaimed when the mapping is garbage collected.</p>
+ */
+public class SpillStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillStore.class);
+
+    private final Path directory;
+    private final long memoryBudget;
+
+    /**
+     * @param directory    Directory the temporary segments are created in, created if it does not exist.
+     * @param memoryBudget Maximum number of bytes of branch output a single Parallel state keeps on the heap.
+     * @throws IOException If the directory cannot be created.
+     */
+    public SpillStore(Path directory, long memoryBudget) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return A new budget for the branches of one run of a Parallel state.
+     */
+    public Budget newBudget() {
+        return new Budget();
+    }
+
+    private Payload spill(Payload payload) {
+        try {
+            Path segment = Files.createTempFile(directory, "spill", ".json");
+            try {
+                try (OutputStream out = Files.newOutputStream(segment)) {
+                    payload.writeTo(out);
+                }
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    logger.debug("Spilled {} bytes of branch output to {}", buffer.limit(), segment);
+                    return Payload.of(buffer);
+                }
+            } finally {
+                try {
+                    Files.delete(segment);
+                } catch (IOException e) {
+                    // mapped files cannot be deleted on some platforms
+                    segment.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new StatesException(ErrorCodes.RUNTIME, "Unable to spill branch output: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Heap budget shared by the branches of one run of a Parallel state. Thread safe, branches complete concurrently.
+     */
+    public final class Budget {
+
+        private final AtomicLong used = new AtomicLong();
+
+        private Budget() {
+        }
+
+        /**
+         * @param output Output of a branch.
+         * @return The output itself if it fits in the remaining budget, otherwise a payload over a spilled copy of it.
+         */
+        public Payload admit(Payload output) {
+            if (output instanceof ReferencePayload) {
+                return output;
+            }
+            long size = output.size();
+            if (used.addAndGet(size) <= memoryBudget) {
+                return output;
+            }
+            used.addAndGet(-size);
+            return spill(output);
+        }
+    }
+}
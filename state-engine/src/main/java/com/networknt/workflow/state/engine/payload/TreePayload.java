@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Payload backed by a Jackson tree. The serialized form is computed once when first needed.
+ */
+final class TreePayload extends Payload {
+
+    private final JsonNode node;
+    private volatile byte[] bytes;
+
+    TreePayload(JsonNode node) {
+        this.node = node;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        return node;
+    }
+
+    @Override
+    public JsonNode read(CompiledPath path) {
+        return path.isRoot() ? node : path.read(node);
+    }
+
+    @Override
+    public Payload select(CompiledPath path) {
+        if (path.isRoot()) {
+            return this;
+        }
+        JsonNode selected = path.read(node);
+        return selected == null ? null : new TreePayload(selected);
+    }
+
+    @Override
+    public long size() {
+        return toBytes().length;
+    }
+
+    @Override
+    long knownSize() {
+        byte[] serialized = bytes;
+        return serialized == null ? -1 : serialized.length;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        byte[] serialized = bytes;
+        if (serialized == null) {
+            try {
+                serialized = MAPPER.writeValueAsBytes(node);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unable to serialize payload", e);
+            }
+            bytes = serialized;
+        }
+        return serialized;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(toBytes());
+    }
+}
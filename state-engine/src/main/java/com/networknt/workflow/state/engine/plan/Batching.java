@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.states.ItemBatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compiled {@link ItemBatcher} of a Map state. Groups the items into batches lazily, as the iterations pull them, so
+ * MaxConcurrency bounds the number of batches in flight the same way it bounds single items.
+ *
+ * <p>A batch is serialized straight from the items, e.g. the raw records of an item file, into the input document of
+ * its iteration; the items are neither parsed nor copied into a tree.</p>
+ */
+public final class Batching {
+
+    private static final byte[] BATCH_INPUT = "{\"BatchInput\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ITEMS = (",\"" + ItemBatcher.ITEMS + "\":[").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ITEMS_ONLY = ("{\"" + ItemBatcher.ITEMS + "\":[").getBytes(StandardCharsets.UTF_8);
+
+    private final int maxItems;
+    private final long maxBytes;
+    private final PayloadTemplate batchInput;
+
+    private Batching(int maxItems, long maxBytes, PayloadTemplate batchInput) {
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+        this.batchInput = batchInput;
+    }
+
+    /**
+     * @param itemBatcher ItemBatcher of the state, may be null.
+     * @return Compiled batching, null if the state has no ItemBatcher.
+     */
+    static Batching compile(ItemBatcher itemBatcher) {
+        if (itemBatcher == null) {
+            return null;
+        }
+        Integer maxItems = itemBatcher.getMaxItemsPerBatch();
+        Integer maxBytes = itemBatcher.getMaxInputBytesPerBatch();
+        return new Batching(maxItems == null ? Integer.MAX_VALUE : maxItems,
+                            maxBytes == null ? Long.MAX_VALUE : maxBytes,
+                            PayloadTemplate.compile(itemBatcher.getBatchInput()));
+    }
+
+    /**
+     * @return Maximum number of items in a batch, {@link Integer#MAX_VALUE} if only the size is limited.
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * @return Maximum size in bytes of the items in a batch, {@link Long#MAX_VALUE} if only the count is limited.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param input Effective input of the state.
+     * @param items Items of the state.
+     * @return The batches of the items, each the input document of one iteration.
+     */
+    public Iterator<Payload> batches(Payload input, Iterator<Payload> items) {
+        return new Batches(batchInput == null ? null : batchInput.apply(input), items);
+    }
+
+    private final class Batches implements Iterator<Payload> {
+
+        private final Payload batchInput;
+        private final Iterator<Payload> items;
+        private Payload pending;
+
+        private Batches(Payload batchInput, Iterator<Payload> items) {
+            this.batchInput = batchInput;
+            this.items = items;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null || items.hasNext();
+        }
+
+        @Override
+        public Payload next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                if (batchInput == null) {
+                    out.write(ITEMS_ONLY);
+                } else {
+                    out.write(BATCH_INPUT);
+                    batchInput.writeTo(out);
+                    out.write(ITEMS);
+                }
+                int count = 0;
+                long bytes = 0;
+                while (count < maxItems && (pending != null || items.hasNext())) {
+                    Payload item = pending == null ? items.next() : pending;
+                    pending = null;
+                    if (maxBytes != Long.MAX_VALUE) {
+                        long size = item.size();
+                        if (count > 0 && bytes + size > maxBytes) {
+                            // starts the next batch
+                            pending = item;
+                            break;
+                        }
+                        bytes += size;
+                    }
+                    if (count > 0) {
+                        out.write(',');
+                    }
+                    item.writeTo(out);
+                    count++;
+                }
+                out.write(']');
+                out.write('}');
+            } catch (IOException e) {
+                throw new StatesException(ErrorCodes.RUNTIME, "Unable to assemble batch: " + e.getMessage(), e);
+            }
+            return Payload.of(out.toByteArray());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.payload.Payload;
+
+import java.util.List;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.ChoiceState}.
+ */
+public final class ChoiceNode extends StateNode {
+
+    private final DataFlow dataFlow;
+    private final List<Rule> rules;
+    private final CompiledPath[] variables;
+    private final String defaultStateName;
+
+    ChoiceNode(String name, DataFlow dataFlow, List<Rule> rules, CompiledPath[] variables, String defaultStateName) {
+        super(name);
+        this.dataFlow = dataFlow;
+        this.rules = rules;
+        this.variables = variables;
+        this.defaultStateName = defaultStateName;
+    }
+
+    public DataFlow getDataFlow() {
+        return dataFlow;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return Number of distinct Variables tested by the rules, each resolved at most once per evaluation.
+     */
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @return Name of state to transition to if no rule matches, may be null.
+     */
+    public String getDefaultStateName() {
+        return defaultStateName;
+    }
+
+    /**
+     * Evaluates the rules in order against the effective input.
+     *
+     * @param input Effective input of the state.
+     * @return Name of the next state or null if no rule matched and there is no default.
+     */
+    public String choose(Payload input) {
+        int rule = chooseRule(input);
+        return rule < 0 ? defaultStateName : rules.get(rule).getNext();
+    }
+
+    /**
+     * Evaluates the rules in order against the effective input.
+     *
+     * @param input Effective input of the state.
+     * @return Index of the first rule that matched or -1 if none did.
+     */
+    public int chooseRule(Payload input) {
+        VariableSlots slots = new VariableSlots(input, variables);
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).getCondition().evaluate(slots)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evaluates the rules in order against a batch of effective inputs, e.g. of many executions that reached the state
+     * at the same time. Each rule is evaluated once over the columns of its Variables for all rows that no earlier rule
+     * matched yet.
+     *
+     * @param inputs Effective inputs of the state.
+     * @param errors Filled with the error of each input whose Variables could not be read, e.g. because it is not valid
+     *               JSON, the same size as the inputs. The next state of such an input is null.
+     * @return For each input the name of the next state or null if no rule matched and there is no default.
+     */
+    public String[] chooseAll(Payload[] inputs, StatesException[] errors) {
+        VariableColumns columns = new VariableColumns(inputs, variables);
+        String[] next = new String[inputs.length];
+        int undecided = inputs.length;
+        for (int i = 0; i < rules.size() && undecided > 0; i++) {
+            Rule rule = rules.get(i);
+            boolean[] matches = rule.getCondition().evaluate(columns);
+            for (int row = 0; row < next.length; row++) {
+                if (next[row] == null && matches[row]) {
+                    next[row] = rule.getNext();
+                    undecided--;
+                }
+            }
+        }
+        if (undecided > 0 && defaultStateName != null) {
+            for (int row = 0; row < next.length; row++) {
+                if (next[row] == null) {
+                    next[row] = defaultStateName;
+                }
+            }
+        }
+        for (int row = 0; row < next.length; row++) {
+            errors[row] = columns.getError(row);
+            if (errors[row] != null) {
+                next[row] = null;
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    /**
+     * A compiled {@link com.networknt.workflow.state.model.states.Choice}.
+     */
+    public static final class Rule {
+
+        private final CompiledCondition condition;
+        private final String next;
+
+        Rule(CompiledCondition condition, String next) {
+            this.condition = condition;
+            this.next = next;
+        }
+
+        public CompiledCondition getCondition() {
+            return condition;
+        }
+
+        public String getNext() {
+            return next;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+/**
+ * A choice rule condition compiled against the slot of its Variable and its typed expected value.
+ */
+public interface CompiledCondition {
+
+    /**
+     * @param variables Values of the Variables of the Choice state for the current evaluation.
+     * @return True if the condition holds for the input.
+     */
+    boolean evaluate(VariableSlots variables);
+
+    /**
+     * Evaluates the condition for a batch of inputs at once, column by column.
+     *
+     * @param columns Values of the Variables of the Choice state for the batch.
+     * @return New array, owned by the caller, holding for each row whether the condition holds.
+     */
+    boolean[] evaluate(VariableColumns columns);
+}
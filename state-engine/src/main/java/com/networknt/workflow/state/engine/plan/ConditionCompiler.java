@@ -0,0 +1,675 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.model.conditions.AndCondition;
+import com.networknt.workflow.state.model.conditions.BinaryCondition;
+import com.networknt.workflow.state.model.conditions.BinaryPathCondition;
+import com.networknt.workflow.state.model.conditions.BooleanEqualsCondition;
+import com.networknt.workflow.state.model.conditions.BooleanEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.Condition;
+import com.networknt.workflow.state.model.conditions.IsBooleanCondition;
+import com.networknt.workflow.state.model.conditions.IsNullCondition;
+import com.networknt.workflow.state.model.conditions.IsNumericCondition;
+import com.networknt.workflow.state.model.conditions.IsPresentCondition;
+import com.networknt.workflow.state.model.conditions.IsStringCondition;
+import com.networknt.workflow.state.model.conditions.IsTimestampCondition;
+import com.networknt.workflow.state.model.conditions.NotCondition;
+import com.networknt.workflow.state.model.conditions.NumericEqualsCondition;
+import com.networknt.workflow.state.model.conditions.NumericEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.OrCondition;
+import com.networknt.workflow.state.model.conditions.StringEqualsCondition;
+import com.networknt.workflow.state.model.conditions.StringEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringMatchesCondition;
+import com.networknt.workflow.state.model.conditions.TimestampEqualsCondition;
+import com.networknt.workflow.state.model.conditions.TimestampEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.WildcardPattern;
+import com.networknt.workflow.state.model.internal.Timestamps;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the {@link Condition} models of the choice rules of a Choice state into {@link CompiledCondition}s. Expected
+ * values are converted to their primitive form once, and Variables are compiled into {@link CompiledPath}s that are
+ * shared: every distinct Variable of the state gets a slot in {@link VariableSlots}, and all conditions testing it, in
+ * any rule and at any depth of And, Or and Not, read the slot instead of resolving the path again.
+ *
+ * <p>Every condition can also be evaluated over a batch of inputs from {@link VariableColumns}, leaf conditions then
+ * compare a whole primitive column against the expected value in a single loop and And, Or and Not combine the
+ * resulting masks.</p>
+ *
+ * <p>A compiler instance collects the Variables of one Choice state, use a new one per state.</p>
+ */
+public final class ConditionCompiler {
+
+    /**
+     * Result of comparing an actual value with the expected one.
+     */
+    enum Comparison {
+        EQ, GT, GTE, LT, LTE;
+
+        boolean test(int compared) {
+            switch (this) {
+                case EQ:
+                    return compared == 0;
+                case GT:
+                    return compared > 0;
+                case GTE:
+                    return compared >= 0;
+                case LT:
+                    return compared < 0;
+                default:
+                    return compared <= 0;
+            }
+        }
+    }
+
+    private final Map<String, Integer> slots = new HashMap<String, Integer>();
+    private final List<CompiledPath> variables = new ArrayList<CompiledPath>();
+
+    /**
+     * @param condition Condition model of a choice rule.
+     * @return Compiled condition, reading its Variables from the slots of this compiler.
+     */
+    public CompiledCondition compile(Condition condition) {
+        if (condition instanceof AndCondition) {
+            final CompiledCondition[] operands = compileAll(((AndCondition) condition).getConditions());
+            return new CompiledCondition() {
+                @Override
+                public boolean evaluate(VariableSlots variables) {
+                    for (CompiledCondition operand : operands) {
+                        if (!operand.evaluate(variables)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean[] evaluate(VariableColumns columns) {
+                    boolean[] result = operands[0].evaluate(columns);
+                    for (int i = 1; i < operands.length && any(result, true); i++) {
+                        boolean[] operand = operands[i].evaluate(columns);
+                        for (int row = 0; row < result.length; row++) {
+                            result[row] &= operand[row];
+                        }
+                    }
+                    return result;
+                }
+            };
+        } else if (condition instanceof OrCondition) {
+            final CompiledCondition[] operands = compileAll(((OrCondition) condition).getConditions());
+            return new CompiledCondition() {
+                @Override
+                public boolean evaluate(VariableSlots variables) {
+                    for (CompiledCondition operand : operands) {
+                        if (operand.evaluate(variables)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                @Override
+                public boolean[] evaluate(VariableColumns columns) {
+                    boolean[] result = operands[0].evaluate(columns);
+                    for (int i = 1; i < operands.length && any(result, false); i++) {
+                        boolean[] operand = operands[i].evaluate(columns);
+                        for (int row = 0; row < result.length; row++) {
+                            result[row] |= operand[row];
+                        }
+                    }
+                    return result;
+                }
+            };
+        } else if (condition instanceof NotCondition) {
+            final CompiledCondition operand = compile(((NotCondition) condition).getCondition());
+            return new CompiledCondition() {
+                @Override
+                public boolean evaluate(VariableSlots variables) {
+                    return !operand.evaluate(variables);
+                }
+
+                @Override
+                public boolean[] evaluate(VariableColumns columns) {
+                    boolean[] result = operand.evaluate(columns);
+                    for (int row = 0; row < result.length; row++) {
+                        result[row] = !result[row];
+                    }
+                    return result;
+                }
+            };
+        } else if (condition instanceof BinaryCondition) {
+            return compileBinary((BinaryCondition<?>) condition);
+        }
+        throw new IllegalArgumentException("Unsupported condition type: " + condition);
+    }
+
+    /**
+     * @return The distinct Variables of the conditions compiled so far, indexed by slot.
+     */
+    public CompiledPath[] getVariables() {
+        return variables.toArray(new CompiledPath[variables.size()]);
+    }
+
+    private int slot(String variable) {
+        Integer slot = slots.get(variable);
+        if (slot == null) {
+            slot = variables.size();
+            variables.add(PathCompiler.compile(variable));
+            slots.put(variable, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @return True if at least one row of the mask has the value, i.e. combining it with another operand can still
+     *     change the result.
+     */
+    private static boolean any(boolean[] mask, boolean value) {
+        for (boolean row : mask) {
+            if (row == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompiledCondition[] compileAll(List<Condition> conditions) {
+        CompiledCondition[] compiled = new CompiledCondition[conditions.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(conditions.get(i));
+        }
+        return compiled;
+    }
+
+    private CompiledCondition compileBinary(BinaryCondition<?> condition) {
+        int variable = slot(condition.getVariable());
+        if (condition instanceof StringEqualsCondition) {
+            return new StringCondition(variable, Comparison.EQ, (String) condition.getExpectedValue());
+        } else if (condition instanceof StringGreaterThanCondition) {
+            return new StringCondition(variable, Comparison.GT, (String) condition.getExpectedValue());
+        } else if (condition instanceof StringGreaterThanOrEqualCondition) {
+            return new StringCondition(variable, Comparison.GTE, (String) condition.getExpectedValue());
+        } else if (condition instanceof StringLessThanCondition) {
+            return new StringCondition(variable, Comparison.LT, (String) condition.getExpectedValue());
+        } else if (condition instanceof StringLessThanOrEqualCondition) {
+            return new StringCondition(variable, Comparison.LTE, (String) condition.getExpectedValue());
+        } else if (condition instanceof NumericEqualsCondition) {
+            return new NumericCondition(variable, Comparison.EQ, (String) condition.getExpectedValue());
+        } else if (condition instanceof NumericGreaterThanCondition) {
+            return new NumericCondition(variable, Comparison.GT, (String) condition.getExpectedValue());
+        } else if (condition instanceof NumericGreaterThanOrEqualCondition) {
+            return new NumericCondition(variable, Comparison.GTE, (String) condition.getExpectedValue());
+        } else if (condition instanceof NumericLessThanCondition) {
+            return new NumericCondition(variable, Comparison.LT, (String) condition.getExpectedValue());
+        } else if (condition instanceof NumericLessThanOrEqualCondition) {
+            return new NumericCondition(variable, Comparison.LTE, (String) condition.getExpectedValue());
+        } else if (condition instanceof TimestampEqualsCondition) {
+            return new TimestampCondition(variable, Comparison.EQ, (Date) condition.getExpectedValue());
+        } else if (condition instanceof TimestampGreaterThanCondition) {
+            return new TimestampCondition(variable, Comparison.GT, (Date) condition.getExpectedValue());
+        } else if (condition instanceof TimestampGreaterThanOrEqualCondition) {
+            return new TimestampCondition(variable, Comparison.GTE, (Date) condition.getExpectedValue());
+        } else if (condition instanceof TimestampLessThanCondition) {
+            return new TimestampCondition(variable, Comparison.LT, (Date) condition.getExpectedValue());
+        } else if (condition instanceof TimestampLessThanOrEqualCondition) {
+            return new TimestampCondition(variable, Comparison.LTE, (Date) condition.getExpectedValue());
+        } else if (condition instanceof BooleanEqualsCondition) {
+            return new BooleanCondition(variable, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof StringMatchesCondition) {
+            WildcardPattern pattern = ((StringMatchesCondition) condition).getPattern();
+            if (pattern == null) {
+                throw new IllegalArgumentException(((StringMatchesCondition) condition).getPatternError());
+            }
+            return new MatchesCondition(variable, pattern);
+        } else if (condition instanceof IsPresentCondition) {
+            return new TypeCondition(variable, TypeTest.PRESENT, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof IsNullCondition) {
+            return new TypeCondition(variable, TypeTest.NULL, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof IsNumericCondition) {
+            return new TypeCondition(variable, TypeTest.NUMERIC, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof IsStringCondition) {
+            return new TypeCondition(variable, TypeTest.STRING, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof IsBooleanCondition) {
+            return new TypeCondition(variable, TypeTest.BOOLEAN, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof IsTimestampCondition) {
+            return new TypeCondition(variable, TypeTest.TIMESTAMP, (Boolean) condition.getExpectedValue());
+        } else if (condition instanceof BinaryPathCondition) {
+            return compilePath(variable, (BinaryPathCondition) condition);
+        }
+        throw new IllegalArgumentException("Unsupported condition type: " + condition.getClass().getName());
+    }
+
+    /**
+     * The expected value of a path comparison is a second Variable, it shares the slots with all other Variables.
+     */
+    private CompiledCondition compilePath(int variable, BinaryPathCondition condition) {
+        int expected = slot(condition.getExpectedValue());
+        if (condition instanceof StringEqualsPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.STRING, Comparison.EQ);
+        } else if (condition instanceof StringGreaterThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.STRING, Comparison.GT);
+        } else if (condition instanceof StringGreaterThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.STRING, Comparison.GTE);
+        } else if (condition instanceof StringLessThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.STRING, Comparison.LT);
+        } else if (condition instanceof StringLessThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.STRING, Comparison.LTE);
+        } else if (condition instanceof NumericEqualsPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.NUMERIC, Comparison.EQ);
+        } else if (condition instanceof NumericGreaterThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.NUMERIC, Comparison.GT);
+        } else if (condition instanceof NumericGreaterThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.NUMERIC, Comparison.GTE);
+        } else if (condition instanceof NumericLessThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.NUMERIC, Comparison.LT);
+        } else if (condition instanceof NumericLessThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.NUMERIC, Comparison.LTE);
+        } else if (condition instanceof TimestampEqualsPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.TIMESTAMP, Comparison.EQ);
+        } else if (condition instanceof TimestampGreaterThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.TIMESTAMP, Comparison.GT);
+        } else if (condition instanceof TimestampGreaterThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.TIMESTAMP, Comparison.GTE);
+        } else if (condition instanceof TimestampLessThanPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.TIMESTAMP, Comparison.LT);
+        } else if (condition instanceof TimestampLessThanOrEqualPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.TIMESTAMP, Comparison.LTE);
+        } else if (condition instanceof BooleanEqualsPathCondition) {
+            return new PathCondition(variable, expected, TypeTest.BOOLEAN, Comparison.EQ);
+        }
+        throw new IllegalArgumentException("Unsupported condition type: " + condition.getClass().getName());
+    }
+
+    /**
+     * @return Epoch millis of the timestamp, or {@link Timestamps#INVALID} if the value is not a timestamp string.
+     */
+    static long timestamp(JsonNode value) {
+        if (value == null || !value.isTextual()) {
+            return Timestamps.INVALID;
+        }
+        return Timestamps.parseEpochMillis(value.textValue());
+    }
+
+    /**
+     * Type of value a condition works on.
+     */
+    enum TypeTest {
+        PRESENT, NULL, NUMERIC, STRING, BOOLEAN, TIMESTAMP;
+
+        boolean test(JsonNode actual) {
+            switch (this) {
+                case PRESENT:
+                    return actual != null;
+                case NULL:
+                    return actual != null && actual.isNull();
+                case NUMERIC:
+                    return actual != null && actual.isNumber();
+                case STRING:
+                    return actual != null && actual.isTextual();
+                case BOOLEAN:
+                    return actual != null && actual.isBoolean();
+                default:
+                    return timestamp(actual) != Timestamps.INVALID;
+            }
+        }
+    }
+
+    private static final class StringCondition implements CompiledCondition {
+        private final int variable;
+        private final Comparison comparison;
+        private final String expected;
+
+        StringCondition(int variable, Comparison comparison, String expected) {
+            this.variable = variable;
+            this.comparison = comparison;
+            this.expected = expected;
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            JsonNode actual = variables.get(variable);
+            return actual != null && actual.isTextual() && comparison.test(actual.textValue().compareTo(expected));
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            VariableColumns.StringColumn column = columns.strings(variable);
+            // Compare each distinct string once, rows then only look up their dictionary id.
+            boolean[] matches = new boolean[column.dictionary.length];
+            for (int id = 0; id < matches.length; id++) {
+                matches[id] = comparison.test(column.dictionary[id].compareTo(expected));
+            }
+            int[] ids = column.ids;
+            boolean[] result = new boolean[ids.length];
+            for (int row = 0; row < ids.length; row++) {
+                result[row] = ids[row] >= 0 && matches[ids[row]];
+            }
+            return result;
+        }
+    }
+
+    private static final class NumericCondition implements CompiledCondition {
+        private final int variable;
+        private final Comparison comparison;
+        private final double expected;
+
+        NumericCondition(int variable, Comparison comparison, String expected) {
+            this.variable = variable;
+            this.comparison = comparison;
+            this.expected = Double.parseDouble(expected);
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            JsonNode actual = variables.get(variable);
+            if (actual == null || !actual.isNumber()) {
+                return false;
+            }
+            double value = actual.doubleValue();
+            return comparison.test(value < expected ? -1 : (value > expected ? 1 : 0));
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            VariableColumns.NumberColumn column = columns.numbers(variable);
+            double[] values = column.values;
+            boolean[] present = column.present;
+            boolean[] result = new boolean[values.length];
+            // One branch free loop per comparison so the JIT can unroll and vectorize it.
+            switch (comparison) {
+                case EQ:
+                    for (int row = 0; row < values.length; row++) {
+                        result[row] = present[row] & values[row] == expected;
+                    }
+                    break;
+                case GT:
+                    for (int row = 0; row < values.length; row++) {
+                        result[row] = present[row] & values[row] > expected;
+                    }
+                    break;
+                case GTE:
+                    for (int row = 0; row < values.length; row++) {
+                        result[row] = present[row] & values[row] >= expected;
+                    }
+                    break;
+                case LT:
+                    for (int row = 0; row < values.length; row++) {
+                        result[row] = present[row] & values[row] < expected;
+                    }
+                    break;
+                default:
+                    for (int row = 0; row < values.length; row++) {
+                        result[row] = present[row] & values[row] <= expected;
+                    }
+                    break;
+            }
+            return result;
+        }
+    }
+
+    private static final class TimestampCondition implements CompiledCondition {
+        private final int variable;
+        private final Comparison comparison;
+        private final long expected;
+
+        TimestampCondition(int variable, Comparison comparison, Date expected) {
+            this.variable = variable;
+            this.comparison = comparison;
+            this.expected = expected.getTime();
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            long actualMillis = timestamp(variables.get(variable));
+            return actualMillis != Timestamps.INVALID && comparison.test(Long.compare(actualMillis, expected));
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            VariableColumns.TimestampColumn column = columns.timestamps(variable);
+            long[] millis = column.millis;
+            boolean[] present = column.present;
+            boolean[] result = new boolean[millis.length];
+            switch (comparison) {
+                case EQ:
+                    for (int row = 0; row < millis.length; row++) {
+                        result[row] = present[row] & millis[row] == expected;
+                    }
+                    break;
+                case GT:
+                    for (int row = 0; row < millis.length; row++) {
+                        result[row] = present[row] & millis[row] > expected;
+                    }
+                    break;
+                case GTE:
+                    for (int row = 0; row < millis.length; row++) {
+                        result[row] = present[row] & millis[row] >= expected;
+                    }
+                    break;
+                case LT:
+                    for (int row = 0; row < millis.length; row++) {
+                        result[row] = present[row] & millis[row] < expected;
+                    }
+                    break;
+                default:
+                    for (int row = 0; row < millis.length; row++) {
+                        result[row] = present[row] & millis[row] <= expected;
+                    }
+                    break;
+            }
+            return result;
+        }
+    }
+
+    private static final class MatchesCondition implements CompiledCondition {
+        private final int variable;
+        private final WildcardPattern pattern;
+
+        MatchesCondition(int variable, WildcardPattern pattern) {
+            this.variable = variable;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            JsonNode actual = variables.get(variable);
+            return actual != null && actual.isTextual() && pattern.matches(actual.textValue());
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            VariableColumns.StringColumn column = columns.strings(variable);
+            boolean[] matches = new boolean[column.dictionary.length];
+            for (int id = 0; id < matches.length; id++) {
+                matches[id] = pattern.matches(column.dictionary[id]);
+            }
+            int[] ids = column.ids;
+            boolean[] result = new boolean[ids.length];
+            for (int row = 0; row < ids.length; row++) {
+                result[row] = ids[row] >= 0 && matches[ids[row]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * IsPresent, IsNull, IsNumeric, IsString, IsBoolean and IsTimestamp. Except for IsPresent a Variable that selects
+     * nothing never satisfies the condition, whatever the expected value.
+     */
+    private static final class TypeCondition implements CompiledCondition {
+        private final int variable;
+        private final TypeTest test;
+        private final boolean expected;
+
+        TypeCondition(int variable, TypeTest test, boolean expected) {
+            this.variable = variable;
+            this.test = test;
+            this.expected = expected;
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            return holds(variables.get(variable));
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            JsonNode[] values = columns.values(variable);
+            boolean[] result = new boolean[values.length];
+            for (int row = 0; row < values.length; row++) {
+                result[row] = holds(values[row]);
+            }
+            return result;
+        }
+
+        private boolean holds(JsonNode actual) {
+            if (actual == null && test != TypeTest.PRESENT) {
+                return false;
+            }
+            return test.test(actual) == expected;
+        }
+    }
+
+    /**
+     * Comparison of two Variables, both must hold a value of the type of the comparison.
+     */
+    private static final class PathCondition implements CompiledCondition {
+        private final int variable;
+        private final int expected;
+        private final TypeTest type;
+        private final Comparison comparison;
+
+        PathCondition(int variable, int expected, TypeTest type, Comparison comparison) {
+            this.variable = variable;
+            this.expected = expected;
+            this.type = type;
+            this.comparison = comparison;
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            return holds(variables.get(variable), variables.get(expected));
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            if (type == TypeTest.TIMESTAMP) {
+                return evaluateTimestamps(columns);
+            }
+            JsonNode[] actual = columns.values(variable);
+            JsonNode[] expectedValues = columns.values(expected);
+            boolean[] result = new boolean[actual.length];
+            for (int row = 0; row < actual.length; row++) {
+                result[row] = holds(actual[row], expectedValues[row]);
+            }
+            return result;
+        }
+
+        private boolean[] evaluateTimestamps(VariableColumns columns) {
+            VariableColumns.TimestampColumn actual = columns.timestamps(variable);
+            VariableColumns.TimestampColumn expectedValues = columns.timestamps(expected);
+            boolean[] result = new boolean[actual.millis.length];
+            for (int row = 0; row < result.length; row++) {
+                result[row] = actual.present[row] & expectedValues.present[row]
+                        && comparison.test(Long.compare(actual.millis[row], expectedValues.millis[row]));
+            }
+            return result;
+        }
+
+        private boolean holds(JsonNode actual, JsonNode expectedValue) {
+            if (type == TypeTest.TIMESTAMP) {
+                long millis = timestamp(actual);
+                long expectedMillis = timestamp(expectedValue);
+                return millis != Timestamps.INVALID && expectedMillis != Timestamps.INVALID
+                        && comparison.test(Long.compare(millis, expectedMillis));
+            }
+            if (!type.test(actual) || !type.test(expectedValue)) {
+                return false;
+            }
+            switch (type) {
+                case STRING:
+                    return comparison.test(actual.textValue().compareTo(expectedValue.textValue()));
+                case NUMERIC:
+                    double value = actual.doubleValue();
+                    double other = expectedValue.doubleValue();
+                    return comparison.test(value < other ? -1 : (value > other ? 1 : 0));
+                default:
+                    return actual.booleanValue() == expectedValue.booleanValue();
+            }
+        }
+    }
+
+    private static final class BooleanCondition implements CompiledCondition {
+        private final int variable;
+        private final boolean expected;
+
+        BooleanCondition(int variable, boolean expected) {
+            this.variable = variable;
+            this.expected = expected;
+        }
+
+        @Override
+        public boolean evaluate(VariableSlots variables) {
+            JsonNode actual = variables.get(variable);
+            return actual != null && actual.isBoolean() && actual.booleanValue() == expected;
+        }
+
+        @Override
+        public boolean[] evaluate(VariableColumns columns) {
+            JsonNode[] values = columns.values(variable);
+            boolean[] result = new boolean[values.length];
+            for (int row = 0; row < values.length; row++) {
+                JsonNode actual = values[row];
+                result[row] = actual != null && actual.isBoolean() && actual.booleanValue() == expected;
+            }
+            return result;
+        }
+    }
+}
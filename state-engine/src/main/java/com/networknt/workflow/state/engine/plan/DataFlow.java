@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.DefinitePath;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+
+/**
+ * The InputPath, Parameters, ResultSelector, ResultPath and OutputPath of a single state, compiled once when the plan is
+ * built.
+ *
+ * @see <a href="https://states-language.net/spec.html#filters">https://states-language.net/spec.html#filters</a>
+ */
+public final class DataFlow {
+
+    /**
+     * Data flow of a state that does not declare any paths.
+     */
+    public static final DataFlow IDENTITY = new DataFlow(PathCompiler.ROOT, null, null, PathCompiler.ROOT,
+                                                         PathCompiler.ROOT);
+
+    private final CompiledPath inputPath;
+    private final PayloadTemplate parameters;
+    private final PayloadTemplate resultSelector;
+    private final DefinitePath resultPath;
+    private final CompiledPath outputPath;
+
+    private DataFlow(CompiledPath inputPath, PayloadTemplate parameters, PayloadTemplate resultSelector,
+                     DefinitePath resultPath, CompiledPath outputPath) {
+        this.inputPath = inputPath;
+        this.parameters = parameters;
+        this.resultSelector = resultSelector;
+        this.resultPath = resultPath;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * @param inputPath  InputPath of the state, may be null.
+     * @param resultPath ResultPath of the state, may be null.
+     * @param outputPath OutputPath of the state, may be null.
+     * @return Compiled data flow.
+     */
+    public static DataFlow of(String inputPath, String resultPath, String outputPath) {
+        return of(inputPath, null, null, resultPath, outputPath);
+    }
+
+    /**
+     * @param inputPath      InputPath of the state, may be null.
+     * @param parameters     Parameters template of the state, may be null.
+     * @param resultSelector ResultSelector template of the state, may be null.
+     * @param resultPath     ResultPath of the state, may be null.
+     * @param outputPath     OutputPath of the state, may be null.
+     * @return Compiled data flow.
+     */
+    public static DataFlow of(String inputPath, JsonNode parameters, JsonNode resultSelector, String resultPath,
+                              String outputPath) {
+        if (inputPath == null && parameters == null && resultSelector == null && resultPath == null
+                && outputPath == null) {
+            return IDENTITY;
+        }
+        return new DataFlow(PathCompiler.compile(inputPath),
+                            PayloadTemplate.compile(parameters),
+                            PayloadTemplate.compile(resultSelector),
+                            PathCompiler.compileReferencePath(resultPath),
+                            PathCompiler.compile(outputPath));
+    }
+
+    public CompiledPath getInputPath() {
+        return inputPath;
+    }
+
+    /**
+     * @return Compiled Parameters template, null if the state has none.
+     */
+    public PayloadTemplate getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return Compiled ResultSelector template, null if the state has none.
+     */
+    public PayloadTemplate getResultSelector() {
+        return resultSelector;
+    }
+
+    public DefinitePath getResultPath() {
+        return resultPath;
+    }
+
+    public CompiledPath getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * @param rawInput Raw input of the state.
+     * @return Effective input the state works on.
+     */
+    public Payload applyInputPath(Payload rawInput) {
+        return select(inputPath, rawInput);
+    }
+
+    /**
+     * @param input Input of the state after InputPath has been applied.
+     * @return Effective input the state works on, built from the Parameters template if the state has one.
+     */
+    public Payload applyParameters(Payload input) {
+        return parameters == null ? input : parameters.apply(input);
+    }
+
+    /**
+     * @param result Result produced by the state.
+     * @return The result reshaped by the ResultSelector template if the state has one.
+     */
+    public Payload applyResultSelector(Payload result) {
+        return resultSelector == null ? result : resultSelector.apply(result);
+    }
+
+    /**
+     * @param rawInput Raw input of the state.
+     * @param result   Result produced by the state.
+     * @return Combination of the raw input and the result as prescribed by ResultPath.
+     */
+    public Payload applyResultPath(Payload rawInput, Payload result) {
+        if (resultPath.isRoot()) {
+            return result;
+        }
+        return Payload.of(resultPath.write(rawInput.toJsonNode(), result.toJsonNode()));
+    }
+
+    /**
+     * @param output Output of the state after ResultPath has been applied.
+     * @return Raw input for the next state.
+     */
+    public Payload applyOutputPath(Payload output) {
+        return select(outputPath, output);
+    }
+
+    private static Payload select(CompiledPath path, Payload document) {
+        if (path.isRoot()) {
+            return document;
+        }
+        Payload selected = document.select(path);
+        if (selected == null) {
+            throw new StatesException(ErrorCodes.RUNTIME,
+                                      String.format("Path '%s' could not be found in the state input.", path.getPath()));
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.StateMachine;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+import com.networknt.workflow.state.model.states.Branch;
+import com.networknt.workflow.state.model.states.Choice;
+import com.networknt.workflow.state.model.states.ChoiceState;
+import com.networknt.workflow.state.model.states.MapState;
+import com.networknt.workflow.state.model.states.ParallelState;
+import com.networknt.workflow.state.model.states.PassState;
+import com.networknt.workflow.state.model.states.State;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Rewrites a {@link StateMachine} into a smaller equivalent one before it is compiled:
+ * <ul>
+ * <li>Choice rules that can never hold, e.g. an And of contradictory numeric ranges, are removed. A Choice state left
+ * with only its Default is bypassed.</li>
+ * <li>A Pass state with a constant Result that feeds a Choice state transitions straight to the state the Choice would
+ * pick.</li>
+ * <li>States no longer reachable from StartAt are removed.</li>
+ * </ul>
+ *
+ * <p>Only Choice states without InputPath and OutputPath are bypassed, so every remaining state sees the same input as
+ * before. An optimized execution records fewer states in its history but otherwise behaves the same. Branches of
+ * Parallel states and the Iterator of Map states are optimized on their own.</p>
+ */
+public final class DefinitionOptimizer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * State machines have identity equality so the cache entry goes away with the definition. A definition with nothing
+     * to optimize maps to {@link #UNCHANGED}, as a value referring to its own key would keep the entry alive forever.
+     */
+    private static final Map<StateMachine, Object> OPTIMIZED =
+            Collections.synchronizedMap(new WeakHashMap<StateMachine, Object>());
+
+    private static final Object UNCHANGED = new Object();
+
+    private DefinitionOptimizer() {
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @return Optimized state machine, the given instance itself if there was nothing to optimize. Shared by all callers
+     *     optimizing the same state machine instance.
+     */
+    public static StateMachine optimize(StateMachine stateMachine) {
+        Object cached = OPTIMIZED.get(stateMachine);
+        if (cached == null) {
+            ObjectNode definition;
+            try {
+                definition = (ObjectNode) MAPPER.readTree(stateMachine.toJson());
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read state machine definition", e);
+            }
+            cached = optimize(stateMachine.getStates(), definition)
+                     ? StateMachine.fromJson(definition.toString()).build() : UNCHANGED;
+            OPTIMIZED.put(stateMachine, cached);
+        }
+        return cached == UNCHANGED ? stateMachine : (StateMachine) cached;
+    }
+
+    /**
+     * @param states Model of the states of the scope, used to analyze conditions.
+     * @param scope  JSON of the scope, an object with StartAt and States, rewritten in place.
+     * @return True if anything changed.
+     */
+    private static boolean optimize(Map<String, State> states, ObjectNode scope) {
+        ObjectNode json = (ObjectNode) scope.get(PropertyNames.STATES);
+        boolean changed = false;
+        Map<String, String> bypassed = new HashMap<String, String>();
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            State state = entry.getValue();
+            ObjectNode stateJson = (ObjectNode) json.get(entry.getKey());
+            if (state instanceof ChoiceState) {
+                changed |= pruneRules(entry.getKey(), (ChoiceState) state, stateJson, bypassed);
+            } else if (state instanceof ParallelState) {
+                List<Branch> branches = ((ParallelState) state).getBranches();
+                for (int i = 0; i < branches.size(); i++) {
+                    changed |= optimize(branches.get(i).getStates(),
+                                        (ObjectNode) stateJson.get(PropertyNames.BRANCHES).get(i));
+                }
+            } else if (state instanceof MapState) {
+                changed |= optimize(((MapState) state).getIterator().getStates(),
+                                    (ObjectNode) stateJson.get(PropertyNames.ITERATOR));
+            }
+        }
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            if (entry.getValue() instanceof PassState) {
+                changed |= foldPass((PassState) entry.getValue(), (ObjectNode) json.get(entry.getKey()), states);
+            }
+        }
+        if (!bypassed.isEmpty()) {
+            changed |= retarget(scope, bypassed);
+        }
+        return removeUnreachable(scope) || changed;
+    }
+
+    /**
+     * Drops the rules that can never hold. A Choice state left without rules is not changed but recorded in
+     * {@code bypassed} if it passes its input on to its Default.
+     */
+    private static boolean pruneRules(String name, ChoiceState choiceState, ObjectNode json,
+                                      Map<String, String> bypassed) {
+        ArrayNode rules = (ArrayNode) json.get(PropertyNames.CHOICES);
+        ArrayNode live = rules.arrayNode();
+        List<Choice> choices = choiceState.getChoices();
+        for (int i = 0; i < choices.size(); i++) {
+            if (!Satisfiability.neverHolds(choices.get(i).getCondition())) {
+                live.add(rules.get(i));
+            }
+        }
+        if (live.size() == rules.size()) {
+            return false;
+        }
+        if (live.size() == 0) {
+            String defaultStateName = choiceState.getDefaultStateName();
+            if (defaultStateName != null && isPassThrough(choiceState)) {
+                bypassed.put(name, defaultStateName);
+            }
+            return false;
+        }
+        json.set(PropertyNames.CHOICES, live);
+        return true;
+    }
+
+    /**
+     * Points a Pass state with a constant output past the Choice states its output decides.
+     */
+    private static boolean foldPass(PassState passState, ObjectNode json, Map<String, State> states) {
+        JsonNode result = passState.getResultNode();
+        JsonNode next = json.get(PropertyNames.NEXT);
+        if (result == null || next == null || !isRoot(passState.getResultPath())) {
+            return false;
+        }
+        Payload output = Payload.of(result);
+        if (!isRoot(passState.getOutputPath())) {
+            output = output.select(PathCompiler.compile(passState.getOutputPath()));
+            if (output == null) {
+                return false;
+            }
+        }
+        String target = next.textValue();
+        Set<String> visited = new HashSet<String>();
+        while (visited.add(target)) {
+            State state = states.get(target);
+            if (!(state instanceof ChoiceState) || !isPassThrough((ChoiceState) state)) {
+                break;
+            }
+            String chosen = choose((ChoiceState) state, output);
+            if (chosen == null) {
+                break;
+            }
+            target = chosen;
+        }
+        if (target.equals(next.textValue())) {
+            return false;
+        }
+        json.put(PropertyNames.NEXT, target);
+        return true;
+    }
+
+    /**
+     * @return Name of the state the Choice state transitions to for the input, null if no rule matches and there is
+     *     no Default, or a condition is not supported.
+     */
+    private static String choose(ChoiceState choiceState, Payload input) {
+        ConditionCompiler compiler = new ConditionCompiler();
+        List<Choice> choices = choiceState.getChoices();
+        CompiledCondition[] conditions = new CompiledCondition[choices.size()];
+        try {
+            for (int i = 0; i < conditions.length; i++) {
+                conditions[i] = compiler.compile(choices.get(i).getCondition());
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        VariableSlots variables = new VariableSlots(input, compiler.getVariables());
+        for (int i = 0; i < conditions.length; i++) {
+            if (conditions[i].evaluate(variables)) {
+                return PlanCompiler.next(choices.get(i).getTransition());
+            }
+        }
+        return choiceState.getDefaultStateName();
+    }
+
+    /**
+     * Replaces every transition to a bypassed Choice state by one to the state it leads to. Choice states whose Defaults
+     * go round in a loop stay as they are.
+     *
+     * @return False if nothing could be bypassed.
+     */
+    private static boolean retarget(ObjectNode scope, Map<String, String> bypassed) {
+        Set<String> loops = new HashSet<String>();
+        for (String name : bypassed.keySet()) {
+            if (name.equals(resolve(name, bypassed))) {
+                loops.add(name);
+            }
+        }
+        bypassed.keySet().removeAll(loops);
+        if (bypassed.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : bypassed.entrySet()) {
+            entry.setValue(resolve(entry.getKey(), bypassed));
+        }
+        retarget(scope, PropertyNames.START_AT, bypassed);
+        Iterator<JsonNode> states = scope.get(PropertyNames.STATES).elements();
+        while (states.hasNext()) {
+            ObjectNode state = (ObjectNode) states.next();
+            retarget(state, PropertyNames.NEXT, bypassed);
+            retarget(state, PropertyNames.DEFAULT_STATE, bypassed);
+            for (String field : new String[]{PropertyNames.CHOICES, PropertyNames.CATCH}) {
+                JsonNode array = state.get(field);
+                if (array != null) {
+                    for (JsonNode element : array) {
+                        retarget((ObjectNode) element, PropertyNames.NEXT, bypassed);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The first state along the Defaults of bypassed Choice states that is not bypassed, or the first one seen
+     *     twice.
+     */
+    private static String resolve(String name, Map<String, String> bypassed) {
+        Set<String> visited = new HashSet<String>();
+        String target = name;
+        while (bypassed.containsKey(target) && visited.add(target)) {
+            target = bypassed.get(target);
+        }
+        return target;
+    }
+
+    private static void retarget(ObjectNode json, String field, Map<String, String> bypassed) {
+        JsonNode name = json.get(field);
+        if (name != null && bypassed.containsKey(name.textValue())) {
+            json.put(field, bypassed.get(name.textValue()));
+        }
+    }
+
+    /**
+     * @return True if any state was removed.
+     */
+    private static boolean removeUnreachable(ObjectNode scope) {
+        ObjectNode states = (ObjectNode) scope.get(PropertyNames.STATES);
+        Set<String> reachable = new HashSet<String>();
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.add(scope.get(PropertyNames.START_AT).textValue());
+        while (!pending.isEmpty()) {
+            String name = pending.poll();
+            JsonNode state = states.get(name);
+            if (state == null || !reachable.add(name)) {
+                continue;
+            }
+            addTarget(state, PropertyNames.NEXT, pending);
+            addTarget(state, PropertyNames.DEFAULT_STATE, pending);
+            for (String field : new String[]{PropertyNames.CHOICES, PropertyNames.CATCH}) {
+                JsonNode array = state.get(field);
+                if (array != null) {
+                    for (JsonNode element : array) {
+                        addTarget(element, PropertyNames.NEXT, pending);
+                    }
+                }
+            }
+        }
+        if (reachable.size() == states.size()) {
+            return false;
+        }
+        states.retain(reachable);
+        return true;
+    }
+
+    private static void addTarget(JsonNode json, String field, Deque<String> pending) {
+        JsonNode name = json.get(field);
+        if (name != null) {
+            pending.add(name.textValue());
+        }
+    }
+
+    private static boolean isPassThrough(ChoiceState choiceState) {
+        return isRoot(choiceState.getInputPath()) && isRoot(choiceState.getOutputPath());
+    }
+
+    private static boolean isRoot(String path) {
+        return path == null || "$".equals(path);
+    }
+}
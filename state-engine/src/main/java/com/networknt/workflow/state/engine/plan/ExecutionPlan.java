@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import java.util.Map;
+
+/**
+ * Compiled form of a {@link com.networknt.workflow.state.model.StateMachine} or a
+ * {@link com.networknt.workflow.state.model.states.Branch}. A plan is immutable and shared by all executions of the same
+ * definition, see {@link PlanCompiler#compile(com.networknt.workflow.state.model.StateMachine)}.
+ */
+public final class ExecutionPlan {
+
+    private final String startAt;
+    private final Map<String, StateNode> nodes;
+    private final Integer timeoutSeconds;
+
+    ExecutionPlan(String startAt, Map<String, StateNode> nodes, Integer timeoutSeconds) {
+        this.startAt = startAt;
+        this.nodes = nodes;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * @return Node of the state to start execution at.
+     */
+    public StateNode getStartNode() {
+        return nodes.get(startAt);
+    }
+
+    /**
+     * @param stateName Name of a state in this plan.
+     * @return Compiled node of the state.
+     * @throws IllegalArgumentException If there is no such state.
+     */
+    public StateNode getNode(String stateName) {
+        StateNode node = nodes.get(stateName);
+        if (node == null) {
+            throw new IllegalArgumentException(String.format("State %s does not exist.", stateName));
+        }
+        return node;
+    }
+
+    /**
+     * @return All nodes of the plan keyed by state name, in definition order.
+     */
+    public Map<String, StateNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return Timeout, in seconds, of the whole execution or null if there is none. Always null for branches.
+     */
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+}
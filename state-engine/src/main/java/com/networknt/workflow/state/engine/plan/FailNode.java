@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.FailState}.
+ */
+public final class FailNode extends StateNode {
+
+    private final String error;
+    private final String cause;
+
+    FailNode(String name, String error, String cause) {
+        super(name);
+        this.error = error;
+        this.cause = cause;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
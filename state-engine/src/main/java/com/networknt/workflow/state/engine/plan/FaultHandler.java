@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.DefinitePath;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.model.states.Catcher;
+import com.networknt.workflow.state.model.states.NextStateTransition;
+import com.networknt.workflow.state.model.states.Retrier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Retry and catch policy of a Task or Parallel state.
+ *
+ * @see <a href="https://states-language.net/spec.html#errors">https://states-language.net/spec.html#errors</a>
+ */
+public final class FaultHandler {
+
+    public static final FaultHandler NONE = new FaultHandler(Collections.<Retrier>emptyList(),
+                                                             Collections.<CatchClause>emptyList());
+
+    private static final int DEFAULT_INTERVAL_SECONDS = 1;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final double DEFAULT_BACKOFF_RATE = 2.0;
+
+    private final List<Retrier> retriers;
+    private final List<CatchClause> catchers;
+
+    private FaultHandler(List<Retrier> retriers, List<CatchClause> catchers) {
+        this.retriers = retriers;
+        this.catchers = catchers;
+    }
+
+    static FaultHandler of(List<Retrier> retriers, List<Catcher> catchers) {
+        if (retriers.isEmpty() && catchers.isEmpty()) {
+            return NONE;
+        }
+        List<CatchClause> clauses = new ArrayList<CatchClause>(catchers.size());
+        for (Catcher catcher : catchers) {
+            clauses.add(new CatchClause(catcher.getErrorEquals(),
+                                        PathCompiler.compileReferencePath(catcher.getResultPath()),
+                                        ((NextStateTransition) catcher.getTransition()).getNextStateName()));
+        }
+        return new FaultHandler(retriers, Collections.unmodifiableList(clauses));
+    }
+
+    /**
+     * @return Number of retriers, i.e. the size of the attempt counter array the caller must keep per state entry.
+     */
+    public int getRetrierCount() {
+        return retriers.size();
+    }
+
+    /**
+     * Finds the first retrier matching the error and consumes one of its attempts.
+     *
+     * @param error    Error raised by the state.
+     * @param attempts Attempts made so far per retrier, updated in place.
+     * @return Milliseconds to wait before retrying or -1 if the error must not be retried.
+     */
+    public long nextRetryDelayMillis(StatesException error, int[] attempts) {
+        for (int i = 0; i < retriers.size(); i++) {
+            Retrier retrier = retriers.get(i);
+            if (!error.matches(retrier.getErrorEquals())) {
+                continue;
+            }
+            int maxAttempts = retrier.getMaxAttempts() == null ? DEFAULT_MAX_ATTEMPTS : retrier.getMaxAttempts();
+            if (attempts[i] >= maxAttempts) {
+                return -1;
+            }
+            int interval = retrier.getIntervalSeconds() == null ? DEFAULT_INTERVAL_SECONDS : retrier.getIntervalSeconds();
+            double backoff = retrier.getBackoffRate() == null ? DEFAULT_BACKOFF_RATE : retrier.getBackoffRate();
+            long delay = (long) (interval * 1000L * Math.pow(backoff, attempts[i]));
+            attempts[i]++;
+            return delay;
+        }
+        return -1;
+    }
+
+    /**
+     * @param error Error raised by the state after retries have been exhausted.
+     * @return First catcher matching the error or null if the error is not caught.
+     */
+    public CatchClause findCatcher(StatesException error) {
+        for (CatchClause catcher : catchers) {
+            if (error.matches(catcher.getErrorEquals())) {
+                return catcher;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A compiled {@link Catcher}.
+     */
+    public static final class CatchClause {
+
+        private final List<String> errorEquals;
+        private final DefinitePath resultPath;
+        private final String next;
+
+        CatchClause(List<String> errorEquals, DefinitePath resultPath, String next) {
+            this.errorEquals = errorEquals;
+            this.resultPath = resultPath;
+            this.next = next;
+        }
+
+        public List<String> getErrorEquals() {
+            return errorEquals;
+        }
+
+        /**
+         * @return Where the error output is placed in the raw input of the state.
+         */
+        public DefinitePath getResultPath() {
+            return resultPath;
+        }
+
+        public String getNext() {
+            return next;
+        }
+    }
+}
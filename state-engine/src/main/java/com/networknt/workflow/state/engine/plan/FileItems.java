@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.ItemFile;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.ResultFile;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.states.ItemReader;
+import com.networknt.workflow.state.model.states.ReaderConfig;
+import com.networknt.workflow.state.model.states.ResultWriter;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compiled {@link ItemReader} and {@link ResultWriter} of a Map state whose items come from a file on local disk.
+ */
+public final class FileItems {
+
+    private final ItemFile.Format format;
+    private final List<String> headers;
+    private final long maxItems;
+    private final PayloadTemplate readerParameters;
+    private final PayloadTemplate writerParameters;
+
+    private FileItems(ItemFile.Format format, List<String> headers, long maxItems, PayloadTemplate readerParameters,
+                      PayloadTemplate writerParameters) {
+        this.format = format;
+        this.headers = headers;
+        this.maxItems = maxItems;
+        this.readerParameters = readerParameters;
+        this.writerParameters = writerParameters;
+    }
+
+    /**
+     * @param itemReader   ItemReader of the state, may be null.
+     * @param resultWriter ResultWriter of the state.
+     * @return Compiled reader and writer, null if the state has no ItemReader.
+     */
+    static FileItems compile(ItemReader itemReader, ResultWriter resultWriter) {
+        if (itemReader == null) {
+            return null;
+        }
+        ReaderConfig config = itemReader.getReaderConfig();
+        ItemFile.Format format = ItemFile.Format.valueOf(config.getInputType());
+        List<String> headers = ReaderConfig.GIVEN.equals(config.getCsvHeaderLocation()) ? config.getCsvHeaders() : null;
+        return new FileItems(format, headers,
+                             config.getMaxItems() == null ? 0 : config.getMaxItems(),
+                             PayloadTemplate.compile(itemReader.getParameters()),
+                             PayloadTemplate.compile(resultWriter.getParameters()));
+    }
+
+    public ItemFile.Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @param directory Absolute, normalized directory the path is resolved against.
+     * @param input     Effective input of the state.
+     * @param chunkSize Size of a chunk in bytes.
+     * @return The item file the parameters of the ItemReader point to, open.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ItemFile open(Path directory, Payload input, int chunkSize) throws IOException {
+        return ItemFile.open(resolve(directory, readerParameters, input, "ItemReader"), format, headers, maxItems,
+                             chunkSize);
+    }
+
+    /**
+     * @param directory Absolute, normalized directory the path is resolved against.
+     * @param input     Effective input of the state.
+     * @return The result file the parameters of the ResultWriter point to.
+     */
+    public ResultFile create(Path directory, Payload input) {
+        return new ResultFile(resolve(directory, writerParameters, input, "ResultWriter"));
+    }
+
+    private static Path resolve(Path directory, PayloadTemplate parameters, Payload input, String owner) {
+        JsonNode path = parameters.apply(input).toJsonNode().get(ItemReader.PATH);
+        if (path == null || !path.isTextual()) {
+            throw new StatesException(ErrorCodes.RUNTIME,
+                                      String.format("Parameters of the %s do not produce a textual %s.", owner,
+                                                    ItemReader.PATH));
+        }
+        Path resolved;
+        try {
+            resolved = directory.resolve(path.textValue()).normalize();
+        } catch (InvalidPathException e) {
+            resolved = null;
+        }
+        if (resolved == null || resolved.equals(directory) || !resolved.startsWith(directory)) {
+            throw new StatesException(ErrorCodes.RUNTIME,
+                                      String.format("%s '%s' of the %s is not a file in the item directory.",
+                                                    ItemReader.PATH, path.textValue(), owner));
+        }
+        return resolved;
+    }
+}
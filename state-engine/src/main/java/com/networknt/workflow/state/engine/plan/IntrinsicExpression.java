@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.intrinsics.Expression;
+import com.networknt.workflow.state.model.intrinsics.ExpressionVisitor;
+import com.networknt.workflow.state.model.intrinsics.FunctionCall;
+import com.networknt.workflow.state.model.intrinsics.IntrinsicFunction;
+import com.networknt.workflow.state.model.intrinsics.IntrinsicFunctionParser;
+import com.networknt.workflow.state.model.intrinsics.Literal;
+import com.networknt.workflow.state.model.intrinsics.PathReference;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An intrinsic function call compiled once when the plan is built. The syntax tree produced by
+ * {@link IntrinsicFunctionParser} is turned into a tree of operands: literals become constants, paths are compiled, and
+ * calls whose arguments are all constants are evaluated right away unless the function is random. Evaluating the
+ * expression only reads the paths from the input and applies the functions, the call is never parsed again.
+ *
+ * @see <a href="https://states-language.net/spec.html#appendix-b">https://states-language.net/spec.html#appendix-b</a>
+ */
+public final class IntrinsicExpression {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final int MAX_RANGE = 1000;
+
+    private final String text;
+    private final Operand root;
+
+    private IntrinsicExpression(String text, Operand root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /**
+     * @param text Intrinsic function call, e.g. {@code States.Format('Hello {}', $.name)}.
+     * @return Compiled expression.
+     * @throws IllegalArgumentException If the call is not valid.
+     */
+    public static IntrinsicExpression compile(String text) {
+        return new IntrinsicExpression(text, IntrinsicFunctionParser.parse(text).accept(new OperandCompiler()));
+    }
+
+    /**
+     * @return The call the expression was compiled from.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return True if the expression does not depend on its input and always yields the same value.
+     */
+    public boolean isConstant() {
+        return root instanceof Constant;
+    }
+
+    /**
+     * @param input Document the paths of the call are evaluated against.
+     * @return Result of the call. The node may be shared and must not be modified.
+     * @throws StatesException with {@link ErrorCodes#INTRINSIC_FAILURE} if a function can not be applied to its
+     *                         arguments, or with {@link ErrorCodes#RUNTIME} if a path does not resolve.
+     */
+    public JsonNode evaluate(Payload input) {
+        return root.evaluate(input);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private interface Operand {
+
+        JsonNode evaluate(Payload input);
+    }
+
+    private static final class Constant implements Operand {
+
+        private final JsonNode value;
+
+        private Constant(JsonNode value) {
+            this.value = value;
+        }
+
+        @Override
+        public JsonNode evaluate(Payload input) {
+            return value;
+        }
+    }
+
+    private static final class PathOperand implements Operand {
+
+        private final CompiledPath path;
+
+        private PathOperand(CompiledPath path) {
+            this.path = path;
+        }
+
+        @Override
+        public JsonNode evaluate(Payload input) {
+            Payload value = input.select(path);
+            if (value == null) {
+                throw new StatesException(ErrorCodes.RUNTIME,
+                                          String.format("Path '%s' could not be found in the input.", path.getPath()));
+            }
+            return value.toJsonNode();
+        }
+    }
+
+    private static final class Call implements Operand {
+
+        private final IntrinsicFunction function;
+        private final Operand[] arguments;
+        private final String format;
+
+        private Call(IntrinsicFunction function, Operand[] arguments, String format) {
+            this.function = function;
+            this.arguments = arguments;
+            this.format = format;
+        }
+
+        @Override
+        public JsonNode evaluate(Payload input) {
+            JsonNode[] values = new JsonNode[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].evaluate(input);
+            }
+            return apply(function, format, values);
+        }
+    }
+
+    /**
+     * Turns the syntax tree into operands, folding calls of constants.
+     */
+    private static final class OperandCompiler implements ExpressionVisitor<Operand> {
+
+        @Override
+        public Operand visit(Literal literal) {
+            return new Constant(literal.getValue());
+        }
+
+        @Override
+        public Operand visit(PathReference pathReference) {
+            return new PathOperand(PathCompiler.compile(pathReference.getPath()));
+        }
+
+        @Override
+        public Operand visit(FunctionCall functionCall) {
+            Operand[] arguments = new Operand[functionCall.getArguments().size()];
+            boolean constant = isDeterministic(functionCall);
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = functionCall.getArguments().get(i).accept(this);
+                constant &= arguments[i] instanceof Constant;
+            }
+            String format = null;
+            if (functionCall.getFunction() == IntrinsicFunction.FORMAT) {
+                format = ((Literal) functionCall.getArguments().get(0)).getRaw();
+            }
+            Call call = new Call(functionCall.getFunction(), arguments, format);
+            return constant ? new Constant(call.evaluate(null)) : call;
+        }
+
+        private static boolean isDeterministic(FunctionCall call) {
+            switch (call.getFunction()) {
+                case UUID:
+                    return false;
+                case MATH_RANDOM:
+                    return call.getArguments().size() == 3;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private static JsonNode apply(IntrinsicFunction function, String format, JsonNode[] args) {
+        switch (function) {
+            case FORMAT:
+                return format(format, args);
+            case STRING_TO_JSON:
+                try {
+                    return MAPPER.readTree(text(function, args, 0));
+                } catch (IOException e) {
+                    throw failure(function, "argument is not a JSON document");
+                }
+            case JSON_TO_STRING:
+                return TextNode.valueOf(args[0].toString());
+            case ARRAY:
+                return NODES.arrayNode().addAll(Arrays.asList(args));
+            case ARRAY_PARTITION: {
+                JsonNode array = array(function, args, 0);
+                int size = integer(function, args, 1);
+                if (size <= 0) {
+                    throw failure(function, "chunk size must be positive");
+                }
+                ArrayNode result = NODES.arrayNode();
+                ArrayNode chunk = null;
+                for (JsonNode element : array) {
+                    if (chunk == null || chunk.size() == size) {
+                        chunk = result.addArray();
+                    }
+                    chunk.add(element);
+                }
+                return result;
+            }
+            case ARRAY_CONTAINS:
+                for (JsonNode element : array(function, args, 0)) {
+                    if (element.equals(args[1])) {
+                        return BooleanNode.TRUE;
+                    }
+                }
+                return BooleanNode.FALSE;
+            case ARRAY_RANGE: {
+                int start = integer(function, args, 0);
+                int end = integer(function, args, 1);
+                int step = integer(function, args, 2);
+                if (step == 0) {
+                    throw failure(function, "step must not be 0");
+                }
+                ArrayNode result = NODES.arrayNode();
+                for (long i = start; step > 0 ? i <= end : i >= end; i += step) {
+                    if (result.size() == MAX_RANGE) {
+                        throw failure(function, "range has more than " + MAX_RANGE + " elements");
+                    }
+                    result.add((int) i);
+                }
+                return result;
+            }
+            case ARRAY_GET_ITEM: {
+                JsonNode array = array(function, args, 0);
+                int index = integer(function, args, 1);
+                if (index < 0 || index >= array.size()) {
+                    throw failure(function, String.format("index %d is out of bounds of an array of %d", index,
+                                                          array.size()));
+                }
+                return array.get(index);
+            }
+            case ARRAY_LENGTH:
+                return IntNode.valueOf(array(function, args, 0).size());
+            case ARRAY_UNIQUE: {
+                Set<JsonNode> unique = new LinkedHashSet<JsonNode>();
+                for (JsonNode element : array(function, args, 0)) {
+                    unique.add(element);
+                }
+                return NODES.arrayNode().addAll(unique);
+            }
+            case BASE64_ENCODE:
+                return TextNode.valueOf(Base64.getEncoder()
+                                              .encodeToString(text(function, args, 0).getBytes(StandardCharsets.UTF_8)));
+            case BASE64_DECODE:
+                try {
+                    return TextNode.valueOf(new String(Base64.getDecoder().decode(text(function, args, 0)),
+                                                       StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    throw failure(function, "argument is not Base64 encoded");
+                }
+            case HASH:
+                return hash(function, text(function, args, 0), text(function, args, 1));
+            case JSON_MERGE: {
+                if (!args[2].isBoolean()) {
+                    throw failure(function, "argument 3 must be a boolean");
+                }
+                ObjectNode result = object(function, args, 0).deepCopy();
+                merge(result, object(function, args, 1), args[2].booleanValue());
+                return result;
+            }
+            case MATH_RANDOM: {
+                int start = integer(function, args, 0);
+                int end = integer(function, args, 1);
+                if (end <= start) {
+                    throw failure(function, "end must be greater than start");
+                }
+                Random random = args.length == 3 ? new Random(integer(function, args, 2))
+                                                 : ThreadLocalRandom.current();
+                return IntNode.valueOf(start + random.nextInt(end - start));
+            }
+            case MATH_ADD:
+                return add(function, args);
+            case STRING_SPLIT: {
+                ArrayNode result = NODES.arrayNode();
+                StringTokenizer tokens = new StringTokenizer(text(function, args, 0), text(function, args, 1));
+                while (tokens.hasMoreTokens()) {
+                    result.add(tokens.nextToken());
+                }
+                return result;
+            }
+            case UUID:
+                return TextNode.valueOf(UUID.randomUUID().toString());
+            default:
+                throw new IllegalStateException("Unsupported intrinsic function " + function.getName());
+        }
+    }
+
+    /**
+     * Fills the placeholders of a template. The template is the raw string literal, escaped characters are taken
+     * literally and never start a placeholder.
+     */
+    private static JsonNode format(String template, JsonNode[] args) {
+        StringBuilder result = new StringBuilder(template.length() + 16 * args.length);
+        int next = 1;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '\\' && i + 1 < template.length()) {
+                result.append(template.charAt(++i));
+            } else if (c == '{' && i + 1 < template.length() && template.charAt(i + 1) == '}') {
+                JsonNode value = args[next++];
+                if (value.isContainerNode()) {
+                    throw failure(IntrinsicFunction.FORMAT, "argument " + next + " must not be an object or array");
+                }
+                result.append(value.isTextual() ? value.textValue() : value.toString());
+                i++;
+            } else {
+                result.append(c);
+            }
+        }
+        return TextNode.valueOf(result.toString());
+    }
+
+    private static JsonNode hash(IntrinsicFunction function, String data, String algorithm) {
+        final MessageDigest digest;
+        try {
+            switch (algorithm) {
+                case "MD5":
+                case "SHA-1":
+                case "SHA-256":
+                case "SHA-384":
+                case "SHA-512":
+                    digest = MessageDigest.getInstance(algorithm);
+                    break;
+                default:
+                    throw failure(function, "unsupported algorithm '" + algorithm + "'");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw failure(function, "unsupported algorithm '" + algorithm + "'");
+        }
+        byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return TextNode.valueOf(hex.toString());
+    }
+
+    private static void merge(ObjectNode target, JsonNode source, boolean deep) {
+        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode existing = target.get(field.getKey());
+            if (deep && existing != null && existing.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) existing, field.getValue(), true);
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    private static JsonNode add(IntrinsicFunction function, JsonNode[] args) {
+        for (int i = 0; i < 2; i++) {
+            if (!args[i].isNumber()) {
+                throw failure(function, "argument " + (i + 1) + " must be a number");
+            }
+        }
+        if (args[0].canConvertToExactIntegral() && args[1].canConvertToExactIntegral()
+                && args[0].canConvertToLong() && args[1].canConvertToLong()) {
+            long sum = args[0].longValue() + args[1].longValue();
+            return sum == (int) sum ? IntNode.valueOf((int) sum) : LongNode.valueOf(sum);
+        }
+        BigDecimal sum = args[0].decimalValue().add(args[1].decimalValue());
+        return DecimalNode.valueOf(sum);
+    }
+
+    private static String text(IntrinsicFunction function, JsonNode[] args, int index) {
+        if (!args[index].isTextual()) {
+            throw failure(function, "argument " + (index + 1) + " must be a string");
+        }
+        return args[index].textValue();
+    }
+
+    private static int integer(IntrinsicFunction function, JsonNode[] args, int index) {
+        JsonNode value = args[index];
+        if (!value.isNumber() || !value.canConvertToExactIntegral() || !value.canConvertToInt()) {
+            throw failure(function, "argument " + (index + 1) + " must be an integer");
+        }
+        return value.intValue();
+    }
+
+    private static JsonNode array(IntrinsicFunction function, JsonNode[] args, int index) {
+        if (!args[index].isArray()) {
+            throw failure(function, "argument " + (index + 1) + " must be an array");
+        }
+        return args[index];
+    }
+
+    private static ObjectNode object(IntrinsicFunction function, JsonNode[] args, int index) {
+        if (!args[index].isObject()) {
+            throw failure(function, "argument " + (index + 1) + " must be an object");
+        }
+        return (ObjectNode) args[index];
+    }
+
+    private static StatesException failure(IntrinsicFunction function, String message) {
+        return new StatesException(ErrorCodes.INTRINSIC_FAILURE, String.format("%s: %s", function.getName(), message));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.engine.path.CompiledPath;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.MapState}. The iterator is compiled into its own
+ * {@link ExecutionPlan}, shared by all iterations.
+ */
+public final class MapNode extends StateNode {
+
+    private final ExecutionPlan iterator;
+    private final CompiledPath itemsPath;
+    private final int maxConcurrency;
+    private final FileItems fileItems;
+    private final Batching batching;
+    private final DataFlow dataFlow;
+    private final FaultHandler faultHandler;
+    private final String next;
+
+    MapNode(String name, ExecutionPlan iterator, CompiledPath itemsPath, int maxConcurrency, FileItems fileItems,
+            Batching batching, DataFlow dataFlow, FaultHandler faultHandler, String next) {
+        super(name);
+        this.iterator = iterator;
+        this.itemsPath = itemsPath;
+        this.maxConcurrency = maxConcurrency;
+        this.fileItems = fileItems;
+        this.batching = batching;
+        this.dataFlow = dataFlow;
+        this.faultHandler = faultHandler;
+        this.next = next;
+    }
+
+    public ExecutionPlan getIterator() {
+        return iterator;
+    }
+
+    /**
+     * @return Path selecting the items from the effective input.
+     */
+    public CompiledPath getItemsPath() {
+        return itemsPath;
+    }
+
+    /**
+     * @return Maximum number of iterations running at the same time, 0 if there is no limit.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return Reader and writer of the files the items come from and the outputs go to, null if the items are selected
+     *     from the effective input.
+     */
+    public FileItems getFileItems() {
+        return fileItems;
+    }
+
+    /**
+     * @return Batching of the items, null if every iteration processes a single item.
+     */
+    public Batching getBatching() {
+        return batching;
+    }
+
+    public DataFlow getDataFlow() {
+        return dataFlow;
+    }
+
+    public FaultHandler getFaultHandler() {
+        return faultHandler;
+    }
+
+    /**
+     * @return Name of the next state or null if this state ends the execution.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
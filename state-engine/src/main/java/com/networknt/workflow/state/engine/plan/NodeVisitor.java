@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+/**
+ * Visitor for all the compiled {@link StateNode}s.
+ *
+ * @param <T> Return type of visit methods.
+ */
+public abstract class NodeVisitor<T> {
+
+    public T visit(ChoiceNode choiceNode) {
+        return null;
+    }
+
+    public T visit(FailNode failNode) {
+        return null;
+    }
+
+    public T visit(MapNode mapNode) {
+        return null;
+    }
+
+    public T visit(ParallelNode parallelNode) {
+        return null;
+    }
+
+    public T visit(PassNode passNode) {
+        return null;
+    }
+
+    public T visit(SucceedNode succeedNode) {
+        return null;
+    }
+
+    public T visit(TaskNode taskNode) {
+        return null;
+    }
+
+    public T visit(WaitNode waitNode) {
+        return null;
+    }
+
+}
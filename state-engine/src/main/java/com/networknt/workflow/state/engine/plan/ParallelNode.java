@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import java.util.List;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.ParallelState}. Each branch is compiled into its own
+ * {@link ExecutionPlan}.
+ */
+public final class ParallelNode extends StateNode {
+
+    private final List<ExecutionPlan> branches;
+    private final DataFlow dataFlow;
+    private final FaultHandler faultHandler;
+    private final String next;
+
+    ParallelNode(String name, List<ExecutionPlan> branches, DataFlow dataFlow, FaultHandler faultHandler, String next) {
+        super(name);
+        this.branches = branches;
+        this.dataFlow = dataFlow;
+        this.faultHandler = faultHandler;
+        this.next = next;
+    }
+
+    public List<ExecutionPlan> getBranches() {
+        return branches;
+    }
+
+    public DataFlow getDataFlow() {
+        return dataFlow;
+    }
+
+    public FaultHandler getFaultHandler() {
+        return faultHandler;
+    }
+
+    /**
+     * @return Name of the next state or null if this state ends the execution.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.engine.payload.Payload;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.PassState}. A Pass state followed by more Pass states
+ * links to the next of them, so that the whole chain can be run as one step, see {@link #getFusedNext()}.
+ */
+public final class PassNode extends StateNode {
+
+    private final DataFlow dataFlow;
+    private final byte[] result;
+    private final String next;
+    private final PassNode fusedNext;
+
+    PassNode(String name, DataFlow dataFlow, byte[] result, String next) {
+        this(name, dataFlow, result, next, null);
+    }
+
+    private PassNode(String name, DataFlow dataFlow, byte[] result, String next, PassNode fusedNext) {
+        super(name);
+        this.dataFlow = dataFlow;
+        this.result = result;
+        this.next = next;
+        this.fusedNext = fusedNext;
+    }
+
+    /**
+     * @param fusedNext Compiled next state of this one, or null to not fuse it.
+     * @return Copy of this node linked to the next one, or this node if there is nothing to link.
+     */
+    PassNode fuse(PassNode fusedNext) {
+        return fusedNext == null ? this : new PassNode(getName(), dataFlow, result, next, fusedNext);
+    }
+
+    public DataFlow getDataFlow() {
+        return dataFlow;
+    }
+
+    /**
+     * @return The constant result of the state or null if the effective input is passed through as the result. The
+     *     constant is serialized once when the plan is compiled, every call returns a new payload over those bytes that
+     *     parses a tree of its own only if one is needed, so modifying it does not affect other executions.
+     */
+    public Payload getResult() {
+        return result == null ? null : Payload.of(result);
+    }
+
+    /**
+     * @return Name of the next state or null if this state ends the execution.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    /**
+     * @return The next state if it is a Pass state run in the same step as this one, otherwise null. Following the links
+     *     gives the rest of the chain; every Pass state of a chain is linked once, however many states lead into it.
+     */
+    public PassNode getFusedNext() {
+        return fusedNext;
+    }
+
+    /**
+     * @param input Raw input of the state.
+     * @return Output of the state.
+     */
+    public Payload apply(Payload input) {
+        Payload effectiveInput = dataFlow.applyInputPath(input);
+        Payload stateResult = result == null ? dataFlow.applyParameters(effectiveInput) : Payload.of(result);
+        return dataFlow.applyOutputPath(dataFlow.applyResultPath(input, stateResult));
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.intrinsics.IntrinsicFunctionParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Parameters or ResultSelector template, compiled once when the plan is built. The template is serialized up front
+ * into the constant stretches of JSON between its {@code .$} fields, and the paths of those fields are compiled into
+ * slots. A field holding an intrinsic function call is compiled into an {@link IntrinsicExpression} instead. Applying
+ * the template writes the stretches with the values the slots select from the input in between, the template itself is
+ * not looked at again.
+ *
+ * <p>The values are written as they are, so values selected from a lazy payload are copied as raw bytes without being
+ * parsed. The result is a lazy payload over the filled in document.</p>
+ *
+ * @see <a href="https://states-language.net/spec.html#parameters">https://states-language.net/spec.html#parameters</a>
+ */
+public final class PayloadTemplate {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final byte[][] segments;
+    private final CompiledPath[] slots;
+    private final IntrinsicExpression[] functions;
+    private final String[] fields;
+    private final Payload constant;
+    private final int constantSize;
+
+    private PayloadTemplate(List<byte[]> segments, List<CompiledPath> slots, List<IntrinsicExpression> functions,
+                            List<String> fields) {
+        this.segments = segments.toArray(new byte[segments.size()][]);
+        this.slots = slots.toArray(new CompiledPath[slots.size()]);
+        this.functions = functions.toArray(new IntrinsicExpression[functions.size()]);
+        this.fields = fields.toArray(new String[fields.size()]);
+        this.constant = slots.isEmpty() ? Payload.of(this.segments[0]) : null;
+        int size = 0;
+        for (byte[] segment : this.segments) {
+            size += segment.length;
+        }
+        this.constantSize = size;
+    }
+
+    /**
+     * @param template Template of a state, may be null.
+     * @return Compiled template or null if there is none.
+     * @throws IllegalArgumentException If a {@code .$} field does not hold a valid path or intrinsic function call.
+     */
+    public static PayloadTemplate compile(JsonNode template) {
+        if (template == null) {
+            return null;
+        }
+        Compiler compiler = new Compiler();
+        try {
+            compiler.write(template);
+            return compiler.finish();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize template", e);
+        }
+    }
+
+    /**
+     * @return Number of {@code .$} fields filled in from the input each time the template is applied.
+     */
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    /**
+     * @param input Document the {@code .$} paths are evaluated against.
+     * @return The filled in template.
+     * @throws StatesException with {@link ErrorCodes#RUNTIME} if a path does not resolve, or with
+     *                         {@link ErrorCodes#INTRINSIC_FAILURE} if an intrinsic function fails.
+     */
+    public Payload apply(Payload input) {
+        if (constant != null) {
+            return constant;
+        }
+        Buffer out = new Buffer(constantSize + 64 * slots.length);
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                out.write(segments[i]);
+                if (functions[i] != null) {
+                    MAPPER.writeValue(out, functions[i].evaluate(input));
+                    continue;
+                }
+                Payload value = input.select(slots[i]);
+                if (value == null) {
+                    throw new StatesException(ErrorCodes.RUNTIME,
+                                              String.format("Path '%s' of field '%s' could not be found in the input.",
+                                                            slots[i].getPath(), fields[i]));
+                }
+                value.writeTo(out);
+            }
+            out.write(segments[slots.length]);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toPayload();
+    }
+
+    /**
+     * Serializes a template, cutting a new segment at every {@code .$} field.
+     */
+    private static final class Compiler {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final JsonGenerator generator;
+        private final List<byte[]> segments = new ArrayList<byte[]>();
+        private final List<CompiledPath> slots = new ArrayList<CompiledPath>();
+        private final List<IntrinsicExpression> functions = new ArrayList<IntrinsicExpression>();
+        private final List<String> fields = new ArrayList<String>();
+
+        private Compiler() {
+            try {
+                generator = MAPPER.createGenerator(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void write(JsonNode node) throws IOException {
+            if (node.isObject()) {
+                generator.writeStartObject();
+                Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, JsonNode> field = iterator.next();
+                    if (field.getKey().endsWith(".$")) {
+                        slot(field.getKey(), field.getValue());
+                    } else {
+                        generator.writeFieldName(field.getKey());
+                        write(field.getValue());
+                    }
+                }
+                generator.writeEndObject();
+            } else if (node.isArray()) {
+                generator.writeStartArray();
+                for (JsonNode element : node) {
+                    write(element);
+                }
+                generator.writeEndArray();
+            } else {
+                generator.writeTree(node);
+            }
+        }
+
+        private void slot(String field, JsonNode path) throws IOException {
+            if (!path.isTextual()) {
+                throw new IllegalArgumentException(String.format("The value of template field '%s' must be a path.", field));
+            }
+            String name = field.substring(0, field.length() - 2);
+            if (IntrinsicFunctionParser.isIntrinsicFunction(path.asText())) {
+                IntrinsicExpression function = IntrinsicExpression.compile(path.asText());
+                if (function.isConstant()) {
+                    generator.writeFieldName(name);
+                    generator.writeTree(function.evaluate(null));
+                    return;
+                }
+                cut(name);
+                slots.add(null);
+                functions.add(function);
+            } else {
+                cut(name);
+                slots.add(PathCompiler.compile(path.asText()));
+                functions.add(null);
+            }
+            fields.add(field);
+        }
+
+        private void cut(String name) throws IOException {
+            generator.writeFieldName(name);
+            // writes the colon and lets the generator place a comma before the next field, the value is filled in later
+            generator.writeRawValue("");
+            generator.flush();
+            segments.add(buffer.toByteArray());
+            buffer.reset();
+        }
+
+        private PayloadTemplate finish() throws IOException {
+            generator.close();
+            segments.add(buffer.toByteArray());
+            return new PayloadTemplate(segments, slots, functions, fields);
+        }
+    }
+
+    /**
+     * Hands its buffer to the payload instead of copying it.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer(int size) {
+            super(size);
+        }
+
+        private Payload toPayload() {
+            return Payload.of(buf, 0, count);
+        }
+    }
+}
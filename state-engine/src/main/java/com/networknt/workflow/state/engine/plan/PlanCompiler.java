@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.StateMachine;
+import com.networknt.workflow.state.model.states.Branch;
+import com.networknt.workflow.state.model.states.Choice;
+import com.networknt.workflow.state.model.states.ChoiceState;
+import com.networknt.workflow.state.model.states.FailState;
+import com.networknt.workflow.state.model.states.MapState;
+import com.networknt.workflow.state.model.states.NextStateTransition;
+import com.networknt.workflow.state.model.states.ParallelState;
+import com.networknt.workflow.state.model.states.PassState;
+import com.networknt.workflow.state.model.states.State;
+import com.networknt.workflow.state.model.states.StateVisitor;
+import com.networknt.workflow.state.model.states.SucceedState;
+import com.networknt.workflow.state.model.states.TaskState;
+import com.networknt.workflow.state.model.states.Transition;
+import com.networknt.workflow.state.model.states.WaitFor;
+import com.networknt.workflow.state.model.states.WaitForSeconds;
+import com.networknt.workflow.state.model.states.WaitForSecondsPath;
+import com.networknt.workflow.state.model.states.WaitForTimestamp;
+import com.networknt.workflow.state.model.states.WaitForTimestampPath;
+import com.networknt.workflow.state.model.states.WaitState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Compiles a {@link StateMachine} into an {@link ExecutionPlan}. Plans are cached per state machine instance so the paths
+ * and conditions of a definition are compiled once no matter how many executions it has.
+ */
+public final class PlanCompiler {
+
+    /**
+     * State machines have identity equality so the cache entry goes away with the definition.
+     */
+    private static final Map<StateMachine, ExecutionPlan> PLANS =
+            Collections.synchronizedMap(new WeakHashMap<StateMachine, ExecutionPlan>());
+
+    private PlanCompiler() {
+    }
+
+    /**
+     * @param stateMachine Validated state machine.
+     * @return Compiled plan, shared by all callers compiling the same state machine instance.
+     */
+    public static ExecutionPlan compile(StateMachine stateMachine) {
+        ExecutionPlan plan = PLANS.get(stateMachine);
+        if (plan == null) {
+            plan = compile(stateMachine.getStartAt(), stateMachine.getStates(), stateMachine.getTimeoutSeconds());
+            PLANS.put(stateMachine, plan);
+        }
+        return plan;
+    }
+
+    private static ExecutionPlan compile(String startAt, Map<String, State> states, Integer timeoutSeconds) {
+        Map<String, StateNode> nodes = new LinkedHashMap<String, StateNode>(states.size());
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            nodes.put(entry.getKey(), entry.getValue().accept(new NodeCompiler(entry.getKey())));
+        }
+        fusePassChains(nodes);
+        return new ExecutionPlan(startAt, Collections.unmodifiableMap(nodes), timeoutSeconds);
+    }
+
+    /**
+     * Links every Pass state that leads to another Pass state to the compiled node of that state, so that each chain
+     * is built once and shared by all of its entry points. A chain stops at the first state that is not a Pass state;
+     * a chain that comes back to one of its own states is cut at the state that closes the loop.
+     */
+    private static void fusePassChains(Map<String, StateNode> nodes) {
+        Map<String, PassNode> fused = new HashMap<String, PassNode>();
+        for (StateNode node : nodes.values()) {
+            if (!(node instanceof PassNode) || fused.containsKey(node.getName())) {
+                continue;
+            }
+            // Walk forward to the end of the chain or to a state fused already, then link the walked states backwards.
+            List<PassNode> walked = new ArrayList<PassNode>();
+            Set<String> onWalk = new HashSet<String>();
+            PassNode current = (PassNode) node;
+            PassNode fusedNext = null;
+            while (true) {
+                walked.add(current);
+                onWalk.add(current.getName());
+                StateNode successor = current.getNext() == null ? null : nodes.get(current.getNext());
+                if (!(successor instanceof PassNode) || onWalk.contains(successor.getName())) {
+                    break;
+                }
+                if (fused.containsKey(successor.getName())) {
+                    fusedNext = fused.get(successor.getName());
+                    break;
+                }
+                current = (PassNode) successor;
+            }
+            for (int i = walked.size() - 1; i >= 0; i--) {
+                fusedNext = walked.get(i).fuse(fusedNext);
+                fused.put(fusedNext.getName(), fusedNext);
+            }
+        }
+        nodes.putAll(fused);
+    }
+
+    static String next(Transition transition) {
+        return transition instanceof NextStateTransition ? ((NextStateTransition) transition).getNextStateName() : null;
+    }
+
+    private static final class NodeCompiler extends StateVisitor<StateNode> {
+
+        private final String name;
+
+        private NodeCompiler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public StateNode visit(ChoiceState choiceState) {
+            List<ChoiceNode.Rule> rules = new ArrayList<ChoiceNode.Rule>(choiceState.getChoices().size());
+            ConditionCompiler conditionCompiler = new ConditionCompiler();
+            for (Choice choice : choiceState.getChoices()) {
+                rules.add(new ChoiceNode.Rule(conditionCompiler.compile(choice.getCondition()),
+                                              next(choice.getTransition())));
+            }
+            return new ChoiceNode(name,
+                                  DataFlow.of(choiceState.getInputPath(), null, choiceState.getOutputPath()),
+                                  Collections.unmodifiableList(rules),
+                                  conditionCompiler.getVariables(),
+                                  choiceState.getDefaultStateName());
+        }
+
+        @Override
+        public StateNode visit(FailState failState) {
+            return new FailNode(name, failState.getError(), failState.getCause());
+        }
+
+        @Override
+        public StateNode visit(MapState mapState) {
+            Branch iterator = mapState.getIterator();
+            Integer maxConcurrency = mapState.getMaxConcurrency();
+            return new MapNode(name,
+                               compile(iterator.getStartAt(), iterator.getStates(), null),
+                               PathCompiler.compile(mapState.getItemsPath()),
+                               maxConcurrency == null ? 0 : maxConcurrency,
+                               FileItems.compile(mapState.getItemReader(), mapState.getResultWriter()),
+                               Batching.compile(mapState.getItemBatcher()),
+                               DataFlow.of(mapState.getInputPath(), null, mapState.getResultSelector(),
+                                           mapState.getResultPath(), mapState.getOutputPath()),
+                               FaultHandler.of(mapState.getRetriers(), mapState.getCatchers()),
+                               next(mapState.getTransition()));
+        }
+
+        @Override
+        public StateNode visit(ParallelState parallelState) {
+            List<ExecutionPlan> branches = new ArrayList<ExecutionPlan>(parallelState.getBranches().size());
+            for (Branch branch : parallelState.getBranches()) {
+                branches.add(compile(branch.getStartAt(), branch.getStates(), null));
+            }
+            return new ParallelNode(name,
+                                    Collections.unmodifiableList(branches),
+                                    DataFlow.of(parallelState.getInputPath(), parallelState.getParameters(),
+                                                parallelState.getResultSelector(), parallelState.getResultPath(),
+                                                parallelState.getOutputPath()),
+                                    FaultHandler.of(parallelState.getRetriers(), parallelState.getCatchers()),
+                                    next(parallelState.getTransition()));
+        }
+
+        @Override
+        public StateNode visit(PassState passState) {
+            // serialized so that neither a change to the definition's node nor to the output of one execution
+            // reaches the constant handed to the others
+            JsonNode result = passState.getResultNode();
+            return new PassNode(name,
+                                DataFlow.of(passState.getInputPath(), passState.getParameters(), null,
+                                            passState.getResultPath(), passState.getOutputPath()),
+                                result == null ? null : Payload.of(result).toBytes(),
+                                next(passState.getTransition()));
+        }
+
+        @Override
+        public StateNode visit(SucceedState succeedState) {
+            return new SucceedNode(name, DataFlow.of(succeedState.getInputPath(), null, succeedState.getOutputPath()));
+        }
+
+        @Override
+        public StateNode visit(TaskState taskState) {
+            return new TaskNode(name,
+                                taskState.getResource(),
+                                DataFlow.of(taskState.getInputPath(), taskState.getParameters(), taskState.getResultSelector(),
+                                            taskState.getResultPath(), taskState.getOutputPath()),
+                                FaultHandler.of(taskState.getRetriers(), taskState.getCatchers()),
+                                next(taskState.getTransition()));
+        }
+
+        @Override
+        public StateNode visit(WaitState waitState) {
+            WaitFor waitFor = waitState.getWaitFor();
+            long seconds = -1;
+            long timestamp = 0;
+            if (waitFor instanceof WaitForSeconds) {
+                seconds = ((WaitForSeconds) waitFor).getSeconds();
+            } else if (waitFor instanceof WaitForTimestamp) {
+                timestamp = ((WaitForTimestamp) waitFor).getTimestamp().getTime();
+            }
+            return new WaitNode(name,
+                                DataFlow.of(waitState.getInputPath(), null, waitState.getOutputPath()),
+                                seconds,
+                                timestamp,
+                                waitFor instanceof WaitForSecondsPath
+                                        ? PathCompiler.compile(((WaitForSecondsPath) waitFor).getSecondsPath()) : null,
+                                waitFor instanceof WaitForTimestampPath
+                                        ? PathCompiler.compile(((WaitForTimestampPath) waitFor).getTimestampPath()) : null,
+                                next(waitState.getTransition()));
+        }
+    }
+}
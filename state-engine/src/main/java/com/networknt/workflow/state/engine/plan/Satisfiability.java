@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.model.conditions.AndCondition;
+import com.networknt.workflow.state.model.conditions.BinaryCondition;
+import com.networknt.workflow.state.model.conditions.BinaryPathCondition;
+import com.networknt.workflow.state.model.conditions.BooleanEqualsCondition;
+import com.networknt.workflow.state.model.conditions.BooleanEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.Condition;
+import com.networknt.workflow.state.model.conditions.IsBooleanCondition;
+import com.networknt.workflow.state.model.conditions.IsNullCondition;
+import com.networknt.workflow.state.model.conditions.IsNumericCondition;
+import com.networknt.workflow.state.model.conditions.IsPresentCondition;
+import com.networknt.workflow.state.model.conditions.IsStringCondition;
+import com.networknt.workflow.state.model.conditions.IsTimestampCondition;
+import com.networknt.workflow.state.model.conditions.NumericEqualsCondition;
+import com.networknt.workflow.state.model.conditions.NumericEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.OrCondition;
+import com.networknt.workflow.state.model.conditions.StringEqualsCondition;
+import com.networknt.workflow.state.model.conditions.StringEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringMatchesCondition;
+import com.networknt.workflow.state.model.conditions.TimestampEqualsCondition;
+import com.networknt.workflow.state.model.conditions.TimestampEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanPathCondition;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds Choice rules that can never hold, whatever the input. An And is unsatisfiable if the constraints its operands
+ * put on a Variable contradict each other: disjoint ranges, e.g. {@code NumericGreaterThan 10} and
+ * {@code NumericLessThan 5}, or two kinds of value, e.g. {@code NumericEquals} and {@code IsString}. An Or is
+ * unsatisfiable if all of its operands are. Anything else is assumed to be satisfiable.
+ *
+ * <p>The constraints follow the semantics of {@link ConditionCompiler}: a comparison only holds for a Variable of the
+ * type it compares, and every condition but IsPresent fails for a Variable that selects nothing.</p>
+ */
+final class Satisfiability {
+
+    /**
+     * Kind of value a Variable selects. Timestamps are strings.
+     */
+    private enum Kind {
+        ABSENT, NULL, NUMBER, STRING, BOOLEAN
+    }
+
+    private Satisfiability() {
+    }
+
+    /**
+     * @param condition Condition of a Choice rule.
+     * @return True if the condition is false for every input, false if it may hold.
+     */
+    static boolean neverHolds(Condition condition) {
+        if (condition instanceof OrCondition) {
+            for (Condition operand : ((OrCondition) condition).getConditions()) {
+                if (!neverHolds(operand)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition instanceof AndCondition) {
+            List<Condition> operands = new ArrayList<Condition>();
+            if (flatten((AndCondition) condition, operands)) {
+                return true;
+            }
+            Map<String, Constraints> constraints = new HashMap<String, Constraints>();
+            for (Condition operand : operands) {
+                if (!constrain(operand, constraints)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the operands of nested Ands.
+     *
+     * @return True if one of the operands can never hold on its own.
+     */
+    private static boolean flatten(AndCondition condition, List<Condition> operands) {
+        for (Condition operand : condition.getConditions()) {
+            if (operand instanceof AndCondition) {
+                if (flatten((AndCondition) operand, operands)) {
+                    return true;
+                }
+            } else if (neverHolds(operand)) {
+                return true;
+            } else {
+                operands.add(operand);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return False if the operand contradicts the constraints collected so far.
+     */
+    private static boolean constrain(Condition condition, Map<String, Constraints> constraints) {
+        if (condition instanceof NumericEqualsCondition) {
+            return number(constraints, (NumericEqualsCondition) condition, Bound.EQ);
+        } else if (condition instanceof NumericGreaterThanCondition) {
+            return number(constraints, (NumericGreaterThanCondition) condition, Bound.GT);
+        } else if (condition instanceof NumericGreaterThanOrEqualCondition) {
+            return number(constraints, (NumericGreaterThanOrEqualCondition) condition, Bound.GTE);
+        } else if (condition instanceof NumericLessThanCondition) {
+            return number(constraints, (NumericLessThanCondition) condition, Bound.LT);
+        } else if (condition instanceof NumericLessThanOrEqualCondition) {
+            return number(constraints, (NumericLessThanOrEqualCondition) condition, Bound.LTE);
+        } else if (condition instanceof StringEqualsCondition) {
+            StringEqualsCondition equals = (StringEqualsCondition) condition;
+            return of(constraints, equals.getVariable()).string(equals.getExpectedValue(), Bound.EQ);
+        } else if (condition instanceof StringGreaterThanCondition) {
+            StringGreaterThanCondition greaterThan = (StringGreaterThanCondition) condition;
+            return of(constraints, greaterThan.getVariable()).string(greaterThan.getExpectedValue(), Bound.GT);
+        } else if (condition instanceof StringGreaterThanOrEqualCondition) {
+            StringGreaterThanOrEqualCondition greaterThan = (StringGreaterThanOrEqualCondition) condition;
+            return of(constraints, greaterThan.getVariable()).string(greaterThan.getExpectedValue(), Bound.GTE);
+        } else if (condition instanceof StringLessThanCondition) {
+            StringLessThanCondition lessThan = (StringLessThanCondition) condition;
+            return of(constraints, lessThan.getVariable()).string(lessThan.getExpectedValue(), Bound.LT);
+        } else if (condition instanceof StringLessThanOrEqualCondition) {
+            StringLessThanOrEqualCondition lessThan = (StringLessThanOrEqualCondition) condition;
+            return of(constraints, lessThan.getVariable()).string(lessThan.getExpectedValue(), Bound.LTE);
+        } else if (condition instanceof TimestampEqualsCondition) {
+            TimestampEqualsCondition equals = (TimestampEqualsCondition) condition;
+            return of(constraints, equals.getVariable()).timestamp(equals.getExpectedValue().getTime(), Bound.EQ);
+        } else if (condition instanceof TimestampGreaterThanCondition) {
+            TimestampGreaterThanCondition greaterThan = (TimestampGreaterThanCondition) condition;
+            return of(constraints, greaterThan.getVariable())
+                    .timestamp(greaterThan.getExpectedValue().getTime(), Bound.GT);
+        } else if (condition instanceof TimestampGreaterThanOrEqualCondition) {
+            TimestampGreaterThanOrEqualCondition greaterThan = (TimestampGreaterThanOrEqualCondition) condition;
+            return of(constraints, greaterThan.getVariable())
+                    .timestamp(greaterThan.getExpectedValue().getTime(), Bound.GTE);
+        } else if (condition instanceof TimestampLessThanCondition) {
+            TimestampLessThanCondition lessThan = (TimestampLessThanCondition) condition;
+            return of(constraints, lessThan.getVariable()).timestamp(lessThan.getExpectedValue().getTime(), Bound.LT);
+        } else if (condition instanceof TimestampLessThanOrEqualCondition) {
+            TimestampLessThanOrEqualCondition lessThan = (TimestampLessThanOrEqualCondition) condition;
+            return of(constraints, lessThan.getVariable()).timestamp(lessThan.getExpectedValue().getTime(), Bound.LTE);
+        } else if (condition instanceof BooleanEqualsCondition) {
+            BooleanEqualsCondition equals = (BooleanEqualsCondition) condition;
+            return of(constraints, equals.getVariable()).bool(equals.getExpectedValue());
+        } else if (condition instanceof StringMatchesCondition) {
+            return of(constraints, ((StringMatchesCondition) condition).getVariable()).require(Kind.STRING);
+        } else if (condition instanceof IsPresentCondition) {
+            IsPresentCondition isPresent = (IsPresentCondition) condition;
+            Constraints variable = of(constraints, isPresent.getVariable());
+            return isPresent.getExpectedValue() ? variable.exclude(Kind.ABSENT) : variable.require(Kind.ABSENT);
+        } else if (condition instanceof IsNullCondition) {
+            IsNullCondition isNull = (IsNullCondition) condition;
+            return typeTest(of(constraints, isNull.getVariable()), Kind.NULL, isNull.getExpectedValue());
+        } else if (condition instanceof IsNumericCondition) {
+            IsNumericCondition isNumeric = (IsNumericCondition) condition;
+            return typeTest(of(constraints, isNumeric.getVariable()), Kind.NUMBER, isNumeric.getExpectedValue());
+        } else if (condition instanceof IsStringCondition) {
+            IsStringCondition isString = (IsStringCondition) condition;
+            return typeTest(of(constraints, isString.getVariable()), Kind.STRING, isString.getExpectedValue());
+        } else if (condition instanceof IsBooleanCondition) {
+            IsBooleanCondition isBoolean = (IsBooleanCondition) condition;
+            return typeTest(of(constraints, isBoolean.getVariable()), Kind.BOOLEAN, isBoolean.getExpectedValue());
+        } else if (condition instanceof IsTimestampCondition) {
+            IsTimestampCondition isTimestamp = (IsTimestampCondition) condition;
+            Constraints variable = of(constraints, isTimestamp.getVariable());
+            // Not being a timestamp still allows any kind of value.
+            return isTimestamp.getExpectedValue() ? variable.require(Kind.STRING) : variable.exclude(Kind.ABSENT);
+        } else if (condition instanceof StringEqualsPathCondition
+                || condition instanceof StringGreaterThanPathCondition
+                || condition instanceof StringGreaterThanOrEqualPathCondition
+                || condition instanceof StringLessThanPathCondition
+                || condition instanceof StringLessThanOrEqualPathCondition
+                || condition instanceof TimestampEqualsPathCondition
+                || condition instanceof TimestampGreaterThanPathCondition
+                || condition instanceof TimestampGreaterThanOrEqualPathCondition
+                || condition instanceof TimestampLessThanPathCondition
+                || condition instanceof TimestampLessThanOrEqualPathCondition) {
+            return paths(constraints, (BinaryPathCondition) condition, Kind.STRING);
+        } else if (condition instanceof NumericEqualsPathCondition
+                || condition instanceof NumericGreaterThanPathCondition
+                || condition instanceof NumericGreaterThanOrEqualPathCondition
+                || condition instanceof NumericLessThanPathCondition
+                || condition instanceof NumericLessThanOrEqualPathCondition) {
+            return paths(constraints, (BinaryPathCondition) condition, Kind.NUMBER);
+        } else if (condition instanceof BooleanEqualsPathCondition) {
+            return paths(constraints, (BinaryPathCondition) condition, Kind.BOOLEAN);
+        }
+        return true;
+    }
+
+    private static Constraints of(Map<String, Constraints> constraints, String variable) {
+        Constraints result = constraints.get(variable);
+        if (result == null) {
+            result = new Constraints();
+            constraints.put(variable, result);
+        }
+        return result;
+    }
+
+    private static boolean number(Map<String, Constraints> constraints, BinaryCondition<String> condition, Bound bound) {
+        Constraints variable = of(constraints, condition.getVariable());
+        if (!variable.require(Kind.NUMBER)) {
+            return false;
+        }
+        double value;
+        try {
+            value = Double.parseDouble(condition.getExpectedValue());
+        } catch (RuntimeException e) {
+            return true;
+        }
+        // The engine compares with == and <, so -0.0 is the same value as 0.0 and NaN is never in range.
+        return Double.isNaN(value) || variable.numbers.restrict(value + 0.0, bound);
+    }
+
+    private static boolean typeTest(Constraints variable, Kind kind, boolean expected) {
+        return expected ? variable.require(kind) : variable.exclude(kind) && variable.exclude(Kind.ABSENT);
+    }
+
+    private static boolean paths(Map<String, Constraints> constraints, BinaryPathCondition condition, Kind kind) {
+        return of(constraints, condition.getVariable()).require(kind)
+                && of(constraints, condition.getExpectedValue()).require(kind);
+    }
+
+    /**
+     * Comparison an operand makes against its expected value.
+     */
+    private enum Bound {
+        EQ(true, true, true), GT(true, false, false), GTE(true, false, true), LT(false, true, false),
+        LTE(false, true, true);
+
+        private final boolean lower;
+        private final boolean upper;
+        private final boolean inclusive;
+
+        Bound(boolean lower, boolean upper, boolean inclusive) {
+            this.lower = lower;
+            this.upper = upper;
+            this.inclusive = inclusive;
+        }
+    }
+
+    /**
+     * Everything the operands of an And say about one Variable.
+     */
+    private static final class Constraints {
+        private Kind kind;
+        private final EnumSet<Kind> excluded = EnumSet.noneOf(Kind.class);
+        private final Range numbers = new Range();
+        private final Range strings = new Range();
+        private final Range timestamps = new Range();
+        private final Range booleans = new Range();
+
+        boolean require(Kind required) {
+            if ((kind != null && kind != required) || excluded.contains(required)) {
+                return false;
+            }
+            kind = required;
+            return true;
+        }
+
+        boolean exclude(Kind excludedKind) {
+            if (kind == excludedKind) {
+                return false;
+            }
+            excluded.add(excludedKind);
+            return true;
+        }
+
+        boolean string(String value, Bound bound) {
+            return require(Kind.STRING) && (value == null || strings.restrict(value, bound));
+        }
+
+        boolean timestamp(long millis, Bound bound) {
+            return require(Kind.STRING) && timestamps.restrict(millis, bound);
+        }
+
+        boolean bool(Boolean value) {
+            return require(Kind.BOOLEAN) && (value == null || booleans.restrict(value, Bound.EQ));
+        }
+    }
+
+    /**
+     * Interval of the values still possible, null bounds are open.
+     */
+    private static final class Range {
+        private Comparable<Object> lower;
+        private boolean lowerInclusive;
+        private Comparable<Object> upper;
+        private boolean upperInclusive;
+
+        /**
+         * @return False if the range became empty.
+         */
+        @SuppressWarnings("unchecked")
+        boolean restrict(Comparable<?> value, Bound bound) {
+            Comparable<Object> comparable = (Comparable<Object>) value;
+            if (bound.lower) {
+                int c = lower == null ? 1 : comparable.compareTo(lower);
+                if (c > 0 || (c == 0 && !bound.inclusive)) {
+                    lower = comparable;
+                    lowerInclusive = bound.inclusive;
+                }
+            }
+            if (bound.upper) {
+                int c = upper == null ? -1 : comparable.compareTo(upper);
+                if (c < 0 || (c == 0 && !bound.inclusive)) {
+                    upper = comparable;
+                    upperInclusive = bound.inclusive;
+                }
+            }
+            if (lower == null || upper == null) {
+                return true;
+            }
+            int c = lower.compareTo(upper);
+            return c < 0 || (c == 0 && lowerInclusive && upperInclusive);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+/**
+ * Compiled form of a {@link com.networknt.workflow.state.model.states.State}. Everything that can be derived from the
+ * definition alone (paths, conditions, retry policies, branch plans) is resolved once when the {@link ExecutionPlan} is
+ * built so that executing a state does no parsing.
+ */
+public abstract class StateNode {
+
+    private final String name;
+
+    protected StateNode(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return Name of the state in its state machine or branch.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public abstract <T> T accept(NodeVisitor<T> visitor);
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + name + "]";
+    }
+}
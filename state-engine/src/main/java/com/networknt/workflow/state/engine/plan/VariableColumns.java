@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.internal.Timestamps;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values of the Variables of a Choice state for a batch of inputs evaluated together, laid out in columns. Each distinct
+ * Variable is read once per input, and converted once per batch into the primitive column a condition asks for:
+ * doubles for numeric, epoch millis for timestamp and dictionary ids for string conditions. A row whose value is not of
+ * the type of the column is marked absent in the column's mask. Columns are built on first use so Variables only
+ * tested by rules that never run are never read. A row whose input cannot be read, e.g. because it is not valid JSON,
+ * is marked failed and absent in every column, so that it fails on its own and does not take the batch down with it.
+ * Not thread safe, an instance lives for one batch.
+ */
+public final class VariableColumns {
+
+    private final Payload[] inputs;
+    private final CompiledPath[] variables;
+    private final JsonNode[][] values;
+    private final NumberColumn[] numbers;
+    private final TimestampColumn[] timestamps;
+    private final StringColumn[] strings;
+    private StatesException[] errors;
+
+    /**
+     * @param inputs    Effective inputs of the Choice state, one per row.
+     * @param variables Distinct Variables of the state, indexed by slot.
+     */
+    public VariableColumns(Payload[] inputs, CompiledPath[] variables) {
+        this.inputs = inputs;
+        this.variables = variables;
+        this.values = new JsonNode[variables.length][];
+        this.numbers = new NumberColumn[variables.length];
+        this.timestamps = new TimestampColumn[variables.length];
+        this.strings = new StringColumn[variables.length];
+    }
+
+    /**
+     * @return Number of rows in the batch.
+     */
+    public int size() {
+        return inputs.length;
+    }
+
+    /**
+     * @param slot Slot of the Variable.
+     * @return Values the Variable selects from each input, null where it selects nothing.
+     */
+    public JsonNode[] values(int slot) {
+        JsonNode[] column = values[slot];
+        if (column == null) {
+            column = new JsonNode[inputs.length];
+            for (int i = 0; i < column.length; i++) {
+                if (errors != null && errors[i] != null) {
+                    continue;
+                }
+                try {
+                    column[i] = inputs[i].read(variables[slot]);
+                } catch (RuntimeException e) {
+                    if (errors == null) {
+                        errors = new StatesException[inputs.length];
+                    }
+                    errors[i] = StatesException.wrap(e);
+                }
+            }
+            values[slot] = column;
+        }
+        return column;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @return Error raised reading a Variable from the input of the row, null if all Variables read so far could be read.
+     */
+    public StatesException getError(int row) {
+        return errors == null ? null : errors[row];
+    }
+
+    /**
+     * @param slot Slot of the Variable.
+     * @return Numeric values of the Variable, rows that are not numbers are absent.
+     */
+    public NumberColumn numbers(int slot) {
+        NumberColumn column = numbers[slot];
+        if (column == null) {
+            JsonNode[] nodes = values(slot);
+            column = new NumberColumn(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                JsonNode node = nodes[i];
+                if (node != null && node.isNumber()) {
+                    column.values[i] = node.doubleValue();
+                    column.present[i] = true;
+                }
+            }
+            numbers[slot] = column;
+        }
+        return column;
+    }
+
+    /**
+     * @param slot Slot of the Variable.
+     * @return Timestamp values of the Variable in epoch millis, rows that are not valid timestamps are absent.
+     */
+    public TimestampColumn timestamps(int slot) {
+        TimestampColumn column = timestamps[slot];
+        if (column == null) {
+            JsonNode[] nodes = values(slot);
+            column = new TimestampColumn(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                long millis = ConditionCompiler.timestamp(nodes[i]);
+                if (millis != Timestamps.INVALID) {
+                    column.millis[i] = millis;
+                    column.present[i] = true;
+                }
+            }
+            timestamps[slot] = column;
+        }
+        return column;
+    }
+
+    /**
+     * @param slot Slot of the Variable.
+     * @return String values of the Variable as ids into a dictionary of the distinct strings of the column.
+     */
+    public StringColumn strings(int slot) {
+        StringColumn column = strings[slot];
+        if (column == null) {
+            JsonNode[] nodes = values(slot);
+            column = new StringColumn(nodes.length);
+            Map<String, Integer> ids = new HashMap<String, Integer>();
+            for (int i = 0; i < nodes.length; i++) {
+                JsonNode node = nodes[i];
+                if (node == null || !node.isTextual()) {
+                    column.ids[i] = -1;
+                    continue;
+                }
+                Integer id = ids.get(node.textValue());
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(node.textValue(), id);
+                }
+                column.ids[i] = id;
+            }
+            column.dictionary = new String[ids.size()];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                column.dictionary[entry.getValue()] = entry.getKey();
+            }
+            strings[slot] = column;
+        }
+        return column;
+    }
+
+    /**
+     * Column of doubles with a presence mask.
+     */
+    public static final class NumberColumn {
+
+        final double[] values;
+        final boolean[] present;
+
+        private NumberColumn(int size) {
+            this.values = new double[size];
+            this.present = new boolean[size];
+        }
+    }
+
+    /**
+     * Column of epoch millis with a presence mask.
+     */
+    public static final class TimestampColumn {
+
+        final long[] millis;
+        final boolean[] present;
+
+        private TimestampColumn(int size) {
+            this.millis = new long[size];
+            this.present = new boolean[size];
+        }
+    }
+
+    /**
+     * Dictionary encoded column of strings, the id of an absent row is -1.
+     */
+    public static final class StringColumn {
+
+        final int[] ids;
+        String[] dictionary;
+
+        private StringColumn(int size) {
+            this.ids = new int[size];
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.payload.Payload;
+
+/**
+ * Values of the Variables of a Choice state for a single evaluation of its rules. Each distinct Variable has a slot
+ * that is resolved against the input the first time a condition reads it and then shared by every other condition on
+ * the same Variable, so a path tested by many rules is read once. Slots of rules that are never reached are never
+ * resolved. Not thread safe, an instance lives for one evaluation.
+ */
+public final class VariableSlots {
+
+    private final Payload input;
+    private final CompiledPath[] variables;
+    private final JsonNode[] values;
+    private final boolean[] resolved;
+
+    /**
+     * @param input     Effective input of the Choice state.
+     * @param variables Distinct Variables of the state, indexed by slot.
+     */
+    public VariableSlots(Payload input, CompiledPath[] variables) {
+        this.input = input;
+        this.variables = variables;
+        this.values = new JsonNode[variables.length];
+        this.resolved = new boolean[variables.length];
+    }
+
+    /**
+     * @param slot Slot of the Variable.
+     * @return Value the Variable selects from the input, null if it selects nothing.
+     */
+    public JsonNode get(int slot) {
+        if (!resolved[slot]) {
+            values[slot] = input.read(variables[slot]);
+            resolved[slot] = true;
+        }
+        return values[slot];
+    }
+}
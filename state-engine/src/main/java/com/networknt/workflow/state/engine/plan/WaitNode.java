@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.CompiledPath;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.internal.Timestamps;
+
+/**
+ * Compiled {@link com.networknt.workflow.state.model.states.WaitState}. Exactly one of the wait strategies is set.
+ */
+public final class WaitNode extends StateNode {
+
+    private final DataFlow dataFlow;
+    private final long seconds;
+    private final long timestampMillis;
+    private final CompiledPath secondsPath;
+    private final CompiledPath timestampPath;
+    private final String next;
+
+    WaitNode(String name, DataFlow dataFlow, long seconds, long timestampMillis, CompiledPath secondsPath,
+             CompiledPath timestampPath, String next) {
+        super(name);
+        this.dataFlow = dataFlow;
+        this.seconds = seconds;
+        this.timestampMillis = timestampMillis;
+        this.secondsPath = secondsPath;
+        this.timestampPath = timestampPath;
+        this.next = next;
+    }
+
+    public DataFlow getDataFlow() {
+        return dataFlow;
+    }
+
+    /**
+     * @return Name of the next state or null if this state ends the execution.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    /**
+     * @param input       Effective input of the state, used by SecondsPath and TimestampPath.
+     * @param currentTime Current time in epoch millis.
+     * @return Number of milliseconds to wait, never negative.
+     */
+    public long delayMillis(Payload input, long currentTime) {
+        long delay;
+        if (secondsPath != null) {
+            JsonNode value = input.read(secondsPath);
+            if (value == null || !value.isNumber()) {
+                throw invalidPath(secondsPath);
+            }
+            delay = value.asLong() * 1000L;
+        } else if (timestampPath != null) {
+            long timestamp = ConditionCompiler.timestamp(input.read(timestampPath));
+            if (timestamp == Timestamps.INVALID) {
+                throw invalidPath(timestampPath);
+            }
+            delay = timestamp - currentTime;
+        } else if (seconds >= 0) {
+            delay = seconds * 1000L;
+        } else {
+            delay = timestampMillis - currentTime;
+        }
+        return Math.max(0L, delay);
+    }
+
+    private static StatesException invalidPath(CompiledPath path) {
+        return new StatesException(ErrorCodes.RUNTIME,
+                                   String.format("Path '%s' does not reference a valid wait value.", path.getPath()));
+    }
+
+    @Override
+    public <T> T accept(NodeVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.networknt.workflow.state.engine.history.HistoryEvent;
+import com.networknt.workflow.state.engine.history.HistoryStore;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.StateMachine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.branch;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.itemBatcher;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.mapState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+
+/**
+ * Measures the cost per item of a Map state as the batch size of its ItemBatcher varies, from one iteration per item
+ * to a few large batches. The iterator is a single Task that only counts the items it gets, so the numbers are
+ * dominated by the fixed cost of an iteration: scheduling its states, applying its paths and collecting its output. History events
+ * are dropped so that the store does not grow with the number of iterations. Not a unit test, run the main method
+ * manually, e.g. {@code java -cp <test classpath> com.networknt.workflow.state.engine.MapBatchingBenchmark [items]}.
+ */
+public class MapBatchingBenchmark {
+
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1000};
+
+    private static final HistoryStore DISCARD = new HistoryStore() {
+        @Override
+        public void append(String executionId, HistoryEvent event) {
+        }
+
+        @Override
+        public List<HistoryEvent> getEvents(String executionId) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void remove(String executionId) {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        StringBuilder items = new StringBuilder("[");
+        for (int i = 0; i < itemCount; i++) {
+            items.append(i == 0 ? "" : ",");
+            items.append("{\"id\":").append(i).append(",\"sku\":\"sku-").append(i).append("\"}");
+        }
+        Payload input = Payload.of(items.append(']').toString().getBytes(StandardCharsets.UTF_8));
+        TaskRegistry taskRegistry = new TaskRegistry().register("count", new TaskHandler() {
+            @Override
+            public JsonNode execute(JsonNode input) {
+                JsonNode batch = input.get("Items");
+                return new IntNode(batch == null ? 1 : batch.size());
+            }
+        });
+        StateMachineEngine engine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .historyStore(DISCARD)
+                .build();
+        try {
+            System.out.println(String.format("%d items, %d processors", itemCount,
+                                             Runtime.getRuntime().availableProcessors()));
+            for (int round = 0; round < 3; round++) {
+                for (int batchSize : BATCH_SIZES) {
+                    long start = System.nanoTime();
+                    engine.start(definition(batchSize), input).getOutputPayload(10, TimeUnit.MINUTES);
+                    long elapsed = System.nanoTime() - start;
+                    System.out.println(String.format("batch size %5d   %8d iterations   %8d ns/item",
+                                                     batchSize, (itemCount + batchSize - 1) / batchSize,
+                                                     elapsed / itemCount));
+                }
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static StateMachine definition(int batchSize) {
+        return stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemBatcher(batchSize == 1 ? null : itemBatcher().maxItemsPerBatch(batchSize))
+                        .iterator(branch().startAt("Count").state("Count", taskState()
+                                .resource("count")
+                                .transition(end())))
+                        .transition(end()))
+                .build();
+    }
+}
@@ -0,0 +1,964 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.history.HistoryEvent;
+import com.networknt.workflow.state.engine.history.InMemoryHistoryStore;
+import com.networknt.workflow.state.engine.payload.CodecRegistry;
+import com.networknt.workflow.state.engine.payload.CompressedPayload;
+import com.networknt.workflow.state.engine.payload.DeflateCodec;
+import com.networknt.workflow.state.engine.payload.FilePayloadStore;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.ReferencePayload;
+import com.networknt.workflow.state.engine.payload.SpillStore;
+import com.networknt.workflow.state.engine.plan.ExecutionPlan;
+import com.networknt.workflow.state.engine.plan.PassNode;
+import com.networknt.workflow.state.engine.plan.PlanCompiler;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import com.networknt.workflow.state.model.states.ReaderConfig;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.branch;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.catcher;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.failState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.itemBatcher;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.itemReader;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.mapState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.parallelState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.readerConfig;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.resultWriter;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.retrier;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StateMachineEngineTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TaskRegistry taskRegistry = new TaskRegistry()
+            .register("double", new TaskHandler() {
+                @Override
+                public JsonNode execute(JsonNode input) {
+                    return new IntNode(input.asInt() * 2);
+                }
+            });
+
+    private final StateMachineEngine engine = new StateMachineEngine(taskRegistry);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    private static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JsonNode run(StateMachine stateMachine, String input) throws Exception {
+        return engine.start(stateMachine, json(input)).getOutput(10, TimeUnit.SECONDS);
+    }
+
+    private JsonNode runWithItems(StateMachine stateMachine, String input) throws Exception {
+        StateMachineEngine itemEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .itemDirectory(folder.getRoot().toPath())
+                .build();
+        try {
+            return itemEngine.start(stateMachine, json(input)).getOutput(10, TimeUnit.SECONDS);
+        } finally {
+            itemEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void taskState_AppliesInputResultAndOutputPaths() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Double")
+                .state("Double", taskState()
+                        .resource("double")
+                        .inputPath("$.value")
+                        .resultPath("$.result.doubled")
+                        .outputPath("$.result")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"doubled\": 42}"), run(stateMachine, "{\"value\": 21}"));
+    }
+
+    @Test
+    public void taskState_AppliesParametersAndResultSelector() throws Exception {
+        taskRegistry.register("describe", new TaskHandler() {
+            @Override
+            public JsonNode execute(JsonNode input) {
+                return json("{\"echo\": " + input + ", \"status\": \"OK\"}");
+            }
+        });
+        StateMachine stateMachine = stateMachine()
+                .startAt("Describe")
+                .state("Describe", taskState()
+                        .resource("describe")
+                        .inputPath("$.order")
+                        .parameters("{\"orderId.$\": \"$.id\", \"mode\": \"express\"}")
+                        .resultSelector("{\"request.$\": \"$.echo\", \"status.$\": \"$.status\"}")
+                        .resultPath("$.result")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"order\": {\"id\": 7}, "
+                          + "\"result\": {\"request\": {\"orderId\": 7, \"mode\": \"express\"}, \"status\": \"OK\"}}"),
+                     run(stateMachine, "{\"order\": {\"id\": 7}}"));
+    }
+
+    @Test
+    public void passState_ParametersBuildTheResult() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState()
+                        .parameters("{\"copy.$\": \"$.x\", \"fixed\": [1, 2]}")
+                        .resultPath("$.p")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"x\": 1, \"p\": {\"copy\": 1, \"fixed\": [1, 2]}}"), run(stateMachine, "{\"x\": 1}"));
+    }
+
+    @Test
+    public void parallelState_AppliesParametersAndResultSelector() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Parallel")
+                .state("Parallel", parallelState()
+                        .branch(branch().startAt("A").state("A", succeedState()))
+                        .branch(branch().startAt("B").state("B", passState().inputPath("$.value").transition(end())))
+                        .parameters("{\"value.$\": \"$.items[1]\"}")
+                        .resultSelector("{\"first.$\": \"$[0]\", \"second.$\": \"$[1]\"}")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"first\": {\"value\": 2}, \"second\": 2}"), run(stateMachine, "{\"items\": [1, 2]}"));
+    }
+
+    @Test
+    public void taskState_ParametersPathMissing_FailsExecution() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Double")
+                .state("Double", taskState()
+                        .resource("double")
+                        .parameters("{\"value.$\": \"$.missing\"}")
+                        .transition(end()))
+                .build();
+        try {
+            run(stateMachine, "{\"value\": 1}");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+
+    @Test
+    public void passState_IntrinsicFunctionsBuildTheResult() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState()
+                        .parameters("{\"greeting.$\": \"States.Format('Hello {}, you have {} items', $.name, "
+                                    + "States.ArrayLength($.items))\", "
+                                    + "\"pairs.$\": \"States.ArrayPartition($.items, 2)\", "
+                                    + "\"fixed.$\": \"States.Array(1, 'two')\"}")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"greeting\": \"Hello Ann, you have 3 items\", \"pairs\": [[1, 2], [3]], "
+                          + "\"fixed\": [1, \"two\"]}"),
+                     run(stateMachine, "{\"name\": \"Ann\", \"items\": [1, 2, 3]}"));
+    }
+
+    @Test
+    public void taskState_IntrinsicFunctionFails_FailsExecution() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Double")
+                .state("Double", taskState()
+                        .resource("double")
+                        .parameters("{\"value.$\": \"States.StringToJson($.value)\"}")
+                        .transition(end()))
+                .build();
+        try {
+            run(stateMachine, "{\"value\": 1}");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.INTRINSIC_FAILURE, e.getError());
+        }
+    }
+
+    @Test
+    public void mapState_RunsIteratorForEachItemInOrder() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemsPath("$.items")
+                        .iterator(branch().startAt("Double").state("Double", taskState()
+                                .resource("double")
+                                .transition(end())))
+                        .resultPath("$.doubled")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"items\": [1, 2, 3, 4, 5], \"doubled\": [2, 4, 6, 8, 10]}"),
+                     run(stateMachine, "{\"items\": [1, 2, 3, 4, 5]}"));
+    }
+
+    @Test
+    public void mapState_MaxConcurrency_BoundsRunningIterations() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        taskRegistry.register("slow", new TaskHandler() {
+            @Override
+            public JsonNode execute(JsonNode input) throws Exception {
+                int now = running.incrementAndGet();
+                while (peak.get() < now && !peak.compareAndSet(peak.get(), now)) {
+                    // retry until the peak is at least what we saw
+                }
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return input;
+            }
+        });
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .maxConcurrency(2)
+                        .iterator(branch().startAt("Slow").state("Slow", taskState()
+                                .resource("slow")
+                                .transition(end())))
+                        .transition(end()))
+                .build();
+        StateMachineEngine engine = new StateMachineEngine(taskRegistry, Executors.newScheduledThreadPool(8),
+                                                           new InMemoryHistoryStore());
+        try {
+            assertEquals(json("[1, 2, 3, 4, 5, 6, 7, 8]"),
+                         engine.start(stateMachine, json("[1, 2, 3, 4, 5, 6, 7, 8]")).getOutput(10, TimeUnit.SECONDS));
+        } finally {
+            engine.shutdown();
+        }
+        assertTrue("peak was " + peak.get(), peak.get() <= 2);
+    }
+
+    @Test
+    public void mapState_RawInput_StreamsItemsAndAppliesResultSelector() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemsPath("$.orders")
+                        .iterator(branch().startAt("Id").state("Id", passState()
+                                .inputPath("$.id")
+                                .transition(end())))
+                        .resultSelector("{\"first.$\": \"$[0]\", \"count.$\": \"States.ArrayLength($)\"}")
+                        .transition(end()))
+                .build();
+        Payload input = Payload.of("{\"orders\": [{\"id\": \"a\"}, {\"id\": \"b\"}, {\"id\": \"c\"}]}"
+                                           .getBytes(StandardCharsets.UTF_8));
+        assertEquals(json("{\"first\": \"a\", \"count\": 3}"),
+                     engine.start(stateMachine, input).getOutput(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void mapState_EmptyArray_ProducesEmptyArray() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .iterator(branch().startAt("Done").state("Done", succeedState()))
+                        .transition(end()))
+                .build();
+        assertEquals(json("[]"), run(stateMachine, "[]"));
+    }
+
+    @Test
+    public void mapState_ItemsNotAnArray_FailsExecution() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemsPath("$.items")
+                        .iterator(branch().startAt("Done").state("Done", succeedState()))
+                        .transition(end()))
+                .build();
+        try {
+            run(stateMachine, "{\"items\": {\"a\": 1}}");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+
+    @Test
+    public void mapState_FailedIteration_IsCaught() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemsPath("$.items")
+                        .maxConcurrency(1)
+                        .iterator(branch()
+                                          .startAt("Check")
+                                          .state("Check", choiceState()
+                                                  .choice(choice().condition(gt("$", 2)).transition(next("Boom")))
+                                                  .defaultStateName("Ok"))
+                                          .state("Boom", failState().error("Too.Big").cause("item too big"))
+                                          .state("Ok", succeedState()))
+                        .catcher(catcher().errorEquals("Too.Big").resultPath("$.error").transition(next("Done")))
+                        .transition(end()))
+                .state("Done", succeedState())
+                .build();
+        JsonNode output = run(stateMachine, "{\"items\": [1, 2, 3, 4]}");
+        assertEquals("Too.Big", output.get("error").get("Error").asText());
+        assertEquals(json("[1, 2, 3, 4]"), output.get("items"));
+    }
+
+    @Test
+    public void mapState_ItemBatcher_RunsIteratorPerBatch() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemsPath("$.items")
+                        .maxConcurrency(2)
+                        .itemBatcher(itemBatcher().maxItemsPerBatch(2).batchInput("{\"factor.$\": \"$.factor\"}"))
+                        .iterator(branch().startAt("Describe").state("Describe", passState()
+                                .parameters("{\"factor.$\": \"$.BatchInput.factor\", "
+                                                    + "\"count.$\": \"States.ArrayLength($.Items)\"}")
+                                .transition(end())))
+                        .transition(end()))
+                .build();
+        assertEquals(json("[{\"factor\": 3, \"count\": 2}, {\"factor\": 3, \"count\": 2}, "
+                                  + "{\"factor\": 3, \"count\": 1}]"),
+                     run(stateMachine, "{\"factor\": 3, \"items\": [1, 2, 3, 4, 5]}"));
+    }
+
+    @Test
+    public void mapState_ItemReader_WritesResultsToFileInOrder() throws Exception {
+        Path source = folder.newFile("items.jsonl").toPath();
+        Path target = folder.getRoot().toPath().resolve("results.jsonl");
+        StringBuilder items = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            items.append(i).append('\n');
+            expected.add(String.valueOf(i * 2));
+        }
+        Files.write(source, items.toString().getBytes(StandardCharsets.UTF_8));
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .maxConcurrency(3)
+                        .itemReader(itemReader()
+                                            .readerConfig(readerConfig().inputType(ReaderConfig.JSONL))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(resultWriter().parameters("{\"Path.$\": \"$.target\"}"))
+                        .iterator(branch().startAt("Double").state("Double", taskState()
+                                .resource("double")
+                                .transition(end())))
+                        .resultPath("$.map")
+                        .transition(end()))
+                .build();
+        StateMachineEngine engine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .executor(Executors.newScheduledThreadPool(8))
+                .itemChunkSize(16)
+                .itemDirectory(folder.getRoot().toPath())
+                .build();
+        try {
+            JsonNode output = engine.start(stateMachine, json(String.format(
+                    "{\"source\": \"%s\", \"target\": \"%s\"}", source, target)))
+                    .getOutput(10, TimeUnit.SECONDS);
+            JsonNode details = output.get("map").get("ResultWriterDetails");
+            assertEquals(target.toString(), details.get("Path").asText());
+            assertEquals(100, details.get("ItemCount").asLong());
+        } finally {
+            engine.shutdown();
+        }
+        assertEquals(expected, Files.readAllLines(target, StandardCharsets.UTF_8));
+        assertEquals(2, Files.list(folder.getRoot().toPath()).count());
+    }
+
+    @Test
+    public void mapState_CsvItemReader_ReadsMaxItemsRecords() throws Exception {
+        Path source = folder.newFile("items.csv").toPath();
+        Path target = folder.getRoot().toPath().resolve("results.jsonl");
+        Files.write(source, "id,name\n1,\"Smith, John\"\n2,Jane\n3,Joe\n".getBytes(StandardCharsets.UTF_8));
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemReader(itemReader()
+                                            .readerConfig(readerConfig().inputType(ReaderConfig.CSV).maxItems(2))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(resultWriter().parameters("{\"Path.$\": \"$.target\"}"))
+                        .iterator(branch().startAt("Name").state("Name", passState()
+                                .inputPath("$.name")
+                                .transition(end())))
+                        .resultSelector("{\"count.$\": \"$.ResultWriterDetails.ItemCount\"}")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"count\": 2}"),
+                     runWithItems(stateMachine,
+                                  String.format("{\"source\": \"%s\", \"target\": \"%s\"}", source, target)));
+        assertEquals(Arrays.asList("\"Smith, John\"", "\"Jane\""), Files.readAllLines(target, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void mapState_ItemReaderWithItemBatcher_WritesOutputPerBatch() throws Exception {
+        Path source = folder.newFile("items.jsonl").toPath();
+        Path target = folder.getRoot().toPath().resolve("results.jsonl");
+        Files.write(source, "1\n2\n3\n4\n5\n".getBytes(StandardCharsets.UTF_8));
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemReader(itemReader()
+                                            .readerConfig(readerConfig().inputType(ReaderConfig.JSONL))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(resultWriter().parameters("{\"Path.$\": \"$.target\"}"))
+                        .itemBatcher(itemBatcher().maxItemsPerBatch(2))
+                        .iterator(branch().startAt("Items").state("Items", passState()
+                                .inputPath("$.Items")
+                                .transition(end())))
+                        .transition(end()))
+                .build();
+        runWithItems(stateMachine, String.format("{\"source\": \"%s\", \"target\": \"%s\"}", source, target));
+        assertEquals(Arrays.asList("[1,2]", "[3,4]", "[5]"), Files.readAllLines(target, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void mapState_ItemReaderFailedIteration_DiscardsResults() throws Exception {
+        Path source = folder.newFile("items.jsonl").toPath();
+        Path target = folder.getRoot().toPath().resolve("results.jsonl");
+        Files.write(source, "1\n2\n3\n4\n".getBytes(StandardCharsets.UTF_8));
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .maxConcurrency(1)
+                        .itemReader(itemReader()
+                                            .readerConfig(readerConfig().inputType(ReaderConfig.JSONL))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(resultWriter().parameters("{\"Path.$\": \"$.target\"}"))
+                        .iterator(branch()
+                                          .startAt("Check")
+                                          .state("Check", choiceState()
+                                                  .choice(choice().condition(gt("$", 2)).transition(next("Boom")))
+                                                  .defaultStateName("Ok"))
+                                          .state("Boom", failState().error("Too.Big").cause("item too big"))
+                                          .state("Ok", succeedState()))
+                        .catcher(catcher().errorEquals("Too.Big").resultPath("$.error").transition(next("Done")))
+                        .transition(end()))
+                .state("Done", succeedState())
+                .build();
+        JsonNode output = runWithItems(stateMachine, String.format("{\"source\": \"%s\", \"target\": \"%s\"}",
+                                                                   source, target));
+        assertEquals("Too.Big", output.get("error").get("Error").asText());
+        assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+    }
+
+    @Test
+    public void mapState_ItemReaderPathOutsideItemDirectory_FailsState() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Map")
+                .state("Map", mapState()
+                        .itemReader(itemReader()
+                                            .readerConfig(readerConfig().inputType(ReaderConfig.JSONL))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(resultWriter().parameters("{\"Path\": \"results.jsonl\"}"))
+                        .iterator(branch().startAt("Item").state("Item", passState().transition(end())))
+                        .transition(end()))
+                .build();
+        for (String source : Arrays.asList("../items.jsonl", "/etc/passwd", ".")) {
+            try {
+                runWithItems(stateMachine, "{\"source\": \"" + source + "\"}");
+                fail("Expected StatesException for " + source);
+            } catch (StatesException e) {
+                assertEquals(ErrorCodes.RUNTIME, e.getError());
+            }
+        }
+    }
+
+    @Test
+    public void passState_ResultIsPlacedAtResultPath() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState()
+                        .result("{\"b\": true}")
+                        .resultPath("$.a")
+                        .transition(end()))
+                .build();
+        assertEquals(json("{\"x\": 1, \"a\": {\"b\": true}}"), run(stateMachine, "{\"x\": 1}"));
+    }
+
+    @Test
+    public void passState_OutputModified_ResultUnchanged() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState().result("{\"b\": true}").transition(end()))
+                .build();
+        ((ObjectNode) engine.start(stateMachine, json("1")).getOutput(10, TimeUnit.SECONDS)).put("b", false);
+        assertEquals(json("{\"b\": true}"), engine.start(stateMachine, json("2")).getOutput(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void choiceState_TransitionsToMatchingChoice() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Choice")
+                .state("Choice", choiceState()
+                        .choice(choice().condition(gt("$.total", 100)).transition(next("Big")))
+                        .defaultStateName("Small"))
+                .state("Big", passState().result("\"big\"").transition(end()))
+                .state("Small", passState().result("\"small\"").transition(end()))
+                .build();
+        assertEquals(json("\"big\""), run(stateMachine, "{\"total\": 101}"));
+        assertEquals(json("\"small\""), run(stateMachine, "{\"total\": 100}"));
+    }
+
+    @Test
+    public void choiceBatching_RoutesConcurrentExecutionsTogether() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Choice")
+                .state("Choice", choiceState()
+                        .choice(choice().condition(gt("$.total", 100)).transition(next("Big")))
+                        .choice(choice().condition(eq("$.kind", "small")).transition(next("Small")))
+                        .defaultStateName("Other"))
+                .state("Big", passState().result("\"big\"").transition(end()))
+                .state("Small", passState().result("\"small\"").transition(end()))
+                .state("Other", passState().result("\"other\"").transition(end()))
+                .build();
+        StateMachineEngine batchingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .executor(Executors.newSingleThreadScheduledExecutor())
+                .choiceBatching(true)
+                .build();
+        try {
+            List<Execution> executions = new ArrayList<Execution>();
+            for (int i = 0; i < 100; i++) {
+                String kind = i % 3 == 0 ? "other" : "small";
+                executions.add(batchingEngine.start(stateMachine, json(
+                        String.format("{\"total\": %d, \"kind\": \"%s\"}", i * 2, kind))));
+            }
+            for (int i = 0; i < executions.size(); i++) {
+                String expected = i * 2 > 100 ? "\"big\"" : (i % 3 == 0 ? "\"other\"" : "\"small\"");
+                assertEquals(json(expected), executions.get(i).getOutput(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            batchingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void choiceBatching_InvalidInput_FailsOnlyThatExecution() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Choice")
+                .state("Choice", choiceState()
+                        .choice(choice().condition(eq("$.kind", "small")).transition(next("Small")))
+                        .defaultStateName("Other"))
+                .state("Small", passState().result("\"small\"").transition(end()))
+                .state("Other", passState().result("\"other\"").transition(end()))
+                .build();
+        StateMachineEngine batchingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .executor(Executors.newSingleThreadScheduledExecutor())
+                .choiceBatching(true)
+                .build();
+        try {
+            Execution valid = batchingEngine.start(stateMachine, json("{\"kind\": \"small\"}"));
+            Execution invalid = batchingEngine.start(
+                    stateMachine, Payload.of("{\"kind\": ".getBytes(StandardCharsets.UTF_8)));
+            Execution other = batchingEngine.start(stateMachine, json("{\"kind\": \"large\"}"));
+            assertEquals(json("\"small\""), valid.getOutput(10, TimeUnit.SECONDS));
+            assertEquals(json("\"other\""), other.getOutput(10, TimeUnit.SECONDS));
+            try {
+                invalid.getOutput(10, TimeUnit.SECONDS);
+                fail("Expected StatesException");
+            } catch (StatesException e) {
+                assertEquals(ErrorCodes.RUNTIME, e.getError());
+            }
+        } finally {
+            batchingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void optimizeDefinitions_ChoiceDecidedByPass_IsSkipped() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Init")
+                .state("Init", passState().result("{\"kind\": \"small\"}").transition(next("Choice")))
+                .state("Choice", choiceState()
+                        .choice(choice().condition(eq("$.kind", "small")).transition(next("Small")))
+                        .defaultStateName("Other"))
+                .state("Small", passState().result("\"small\"").transition(end()))
+                .state("Other", passState().result("\"other\"").transition(end()))
+                .build();
+        StateMachineEngine optimizingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .optimizeDefinitions(true)
+                .build();
+        try {
+            Execution execution = optimizingEngine.start(stateMachine, json("{}"));
+            assertEquals(json("\"small\""), execution.getOutput(10, TimeUnit.SECONDS));
+            for (HistoryEvent event : optimizingEngine.getHistory(execution.getId())) {
+                assertNotEquals("Choice", event.getStateName());
+            }
+        } finally {
+            optimizingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void passFusion_Chain_ProducesSameOutputAndHistory() throws Exception {
+        StateMachine stateMachine = passChain();
+        StateMachineEngine fusingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .passFusion(true)
+                .build();
+        try {
+            Execution fused = fusingEngine.start(stateMachine, json("{\"order\": {\"id\": 7}}"));
+            Execution plain = engine.start(stateMachine, json("{\"order\": {\"id\": 7}}"));
+            assertEquals(plain.getOutput(10, TimeUnit.SECONDS), fused.getOutput(10, TimeUnit.SECONDS));
+            assertEquals(json("{\"id\": 7, \"status\": \"new\", \"tag\": \"x\"}"),
+                         fused.getOutput(10, TimeUnit.SECONDS));
+            List<HistoryEvent> fusedHistory = fusingEngine.getHistory(fused.getId());
+            List<HistoryEvent> plainHistory = engine.getHistory(plain.getId());
+            assertEquals(plainHistory.size(), fusedHistory.size());
+            for (int i = 0; i < plainHistory.size(); i++) {
+                assertEquals(plainHistory.get(i).getType(), fusedHistory.get(i).getType());
+                assertEquals(plainHistory.get(i).getStateName(), fusedHistory.get(i).getStateName());
+                assertEquals(plainHistory.get(i).getData(), fusedHistory.get(i).getData());
+            }
+        } finally {
+            fusingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void passFusion_WithoutRecording_RecordsChainAsFirstState() throws Exception {
+        StateMachineEngine fusingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .passFusion(true)
+                .recordFusedStates(false)
+                .build();
+        try {
+            Execution execution = fusingEngine.start(passChain(), json("{\"order\": {\"id\": 7}}"));
+            execution.getOutput(10, TimeUnit.SECONDS);
+            List<HistoryEvent> history = fusingEngine.getHistory(execution.getId());
+            assertEquals(4, history.size());
+            assertEquals("Select", history.get(1).getStateName());
+            assertEquals(HistoryEvent.Type.STATE_EXITED, history.get(2).getType());
+            assertEquals("Select", history.get(2).getStateName());
+            assertEquals(json("{\"id\": 7, \"status\": \"new\", \"tag\": \"x\"}"),
+                         history.get(2).getData().toJsonNode());
+        } finally {
+            fusingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void passFusion_FailingStateInChain_FailsWithItsName() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("First")
+                .state("First", passState().transition(next("Second")))
+                .state("Second", passState().inputPath("$.missing").transition(end()))
+                .build();
+        StateMachineEngine fusingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .passFusion(true)
+                .build();
+        try {
+            Execution execution = fusingEngine.start(stateMachine, json("{}"));
+            try {
+                execution.getOutput(10, TimeUnit.SECONDS);
+                fail("Expected exception");
+            } catch (StatesException e) {
+                assertEquals(ErrorCodes.RUNTIME, e.getError());
+            }
+            List<HistoryEvent> history = fusingEngine.getHistory(execution.getId());
+            HistoryEvent failed = history.get(history.size() - 2);
+            assertEquals(HistoryEvent.Type.STATE_FAILED, failed.getType());
+            assertEquals("Second", failed.getStateName());
+        } finally {
+            fusingEngine.shutdown();
+        }
+    }
+
+    private static StateMachine passChain() {
+        return stateMachine()
+                .startAt("Select")
+                .state("Select", passState().inputPath("$.order").transition(next("Status")))
+                .state("Status", passState().result("\"new\"").resultPath("$.status").transition(next("Tag")))
+                .state("Tag", passState().result("\"x\"").resultPath("$.tag").transition(end()))
+                .build();
+    }
+
+    @Test
+    public void payloadTaskHandler_ReceivesUntouchedInputBytes() throws Exception {
+        taskRegistry.registerPayloadHandler("forward", new PayloadTaskHandler() {
+            @Override
+            public Payload execute(Payload input) {
+                return input;
+            }
+        });
+        StateMachine stateMachine = stateMachine()
+                .startAt("Choice")
+                .state("Choice", choiceState()
+                        .choice(choice().condition(gt("$.total", 100)).transition(next("Forward")))
+                        .defaultStateName("Done"))
+                .state("Forward", taskState().resource("forward").inputPath("$.body").transition(end()))
+                .state("Done", succeedState())
+                .build();
+        byte[] input = "{\"total\": 101, \"body\": {\"items\" : [1,2, 3]}}".getBytes(StandardCharsets.UTF_8);
+        Payload output = engine.start(stateMachine, Payload.of(input)).getOutputPayload(10, TimeUnit.SECONDS);
+        assertEquals("{\"items\" : [1,2, 3]}", new String(output.toBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void payloadStore_LargePayloadsTravelAsReferences() throws Exception {
+        StateMachineEngine offloadingEngine = new StateMachineEngine(
+                taskRegistry, Executors.newSingleThreadScheduledExecutor(), new InMemoryHistoryStore(),
+                new FilePayloadStore(folder.getRoot().toPath(), 32));
+        try {
+            StateMachine stateMachine = stateMachine()
+                    .startAt("Parallel")
+                    .state("Parallel", parallelState()
+                            .branch(branch().startAt("A").state("A", passState().outputPath("$.items[0]").transition(end())))
+                            .branch(branch().startAt("B").state("B", succeedState()))
+                            .transition(end()))
+                    .build();
+            String input = "{\"items\": [\"0123456789\", \"0123456789\", \"0123456789\"]}";
+            Execution execution = offloadingEngine.start(stateMachine, json(input));
+            assertEquals(json("[\"0123456789\", " + input + "]"), execution.getOutput(10, TimeUnit.SECONDS));
+            for (HistoryEvent event : offloadingEngine.getHistory(execution.getId())) {
+                if (event.getData() != null && event.getData().size() >= 32) {
+                    assertTrue(event.toString(), event.getData() instanceof ReferencePayload);
+                }
+            }
+        } finally {
+            offloadingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void codecRegistry_HistoryEventsAreCompressed() throws Exception {
+        StateMachineEngine compressingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .codecRegistry(new CodecRegistry(DeflateCodec.factory(Deflater.BEST_SPEED), 1, 1024, 16))
+                .build();
+        try {
+            StateMachine stateMachine = stateMachine()
+                    .startAt("Pass")
+                    .state("Pass", passState().transition(end()))
+                    .build();
+            String input = "[{\"status\": \"SHIPPED\"}, {\"status\": \"SHIPPED\"}]";
+            compressingEngine.start(stateMachine, json(input)).getOutput(10, TimeUnit.SECONDS);
+            Execution execution = compressingEngine.start(stateMachine, json(input));
+            assertEquals(json(input), execution.getOutput(10, TimeUnit.SECONDS));
+            List<HistoryEvent> history = compressingEngine.getHistory(execution.getId());
+            assertEquals(4, history.size());
+            for (HistoryEvent event : history) {
+                assertTrue(event.toString(), event.getData() instanceof CompressedPayload);
+                assertNotNull(((CompressedPayload) event.getData()).getCodec().getDictionary());
+                assertEquals(json(input), event.getData().toJsonNode());
+            }
+        } finally {
+            compressingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void spillStore_ParallelOutputsOverBudgetAreSpilled() throws Exception {
+        StateMachineEngine spillingEngine = StateMachineEngine.builder()
+                .taskRegistry(taskRegistry)
+                .spillStore(new SpillStore(folder.getRoot().toPath(), 8))
+                .build();
+        try {
+            StateMachine stateMachine = stateMachine()
+                    .startAt("Parallel")
+                    .state("Parallel", parallelState()
+                            .branch(branch().startAt("A").state("A", succeedState()))
+                            .branch(branch().startAt("B").state("B", succeedState()))
+                            .outputPath("$[1].items")
+                            .transition(end()))
+                    .build();
+            assertEquals(json("[1, 2, 3]"), spillingEngine.start(stateMachine, json("{\"items\": [1, 2, 3]}"))
+                    .getOutput(10, TimeUnit.SECONDS));
+        } finally {
+            spillingEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelState_OutputIsArrayOfBranchOutputs() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Parallel")
+                .state("Parallel", parallelState()
+                        .branch(branch().startAt("A").state("A", taskState().resource("double").transition(end())))
+                        .branch(branch().startAt("B").state("B", succeedState()))
+                        .transition(end()))
+                .build();
+        assertEquals(json("[4, 2]"), run(stateMachine, "2"));
+    }
+
+    @Test
+    public void start_ExecutionFinishes_CancelsTimeout() throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        StateMachineEngine engine = new StateMachineEngine(taskRegistry, executor, new InMemoryHistoryStore());
+        try {
+            StateMachine stateMachine = stateMachine()
+                    .timeoutSeconds(86400)
+                    .startAt("Double")
+                    .state("Double", taskState()
+                            .resource("double")
+                            .transition(end()))
+                    .build();
+            assertEquals(new IntNode(42), engine.start(stateMachine, json("21")).getOutput(10, TimeUnit.SECONDS));
+            assertTrue(executor.getQueue().isEmpty());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void taskState_RetriesThenCatchesError() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        taskRegistry.register("flaky", new TaskHandler() {
+            @Override
+            public JsonNode execute(JsonNode input) {
+                attempts.incrementAndGet();
+                throw new StatesException("Custom.Error", "Boom");
+            }
+        });
+        StateMachine stateMachine = stateMachine()
+                .startAt("Flaky")
+                .state("Flaky", taskState()
+                        .resource("flaky")
+                        .retrier(retrier().errorEquals("Custom.Error").intervalSeconds(1).maxAttempts(1))
+                        .catcher(catcher().catchAll().resultPath("$.error").transition(next("Done")))
+                        .transition(end()))
+                .state("Done", succeedState())
+                .build();
+        assertEquals(json("{\"a\": 1, \"error\": {\"Error\": \"Custom.Error\", \"Cause\": \"Boom\"}}"),
+                     run(stateMachine, "{\"a\": 1}"));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void failState_FailsExecution() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Fail")
+                .state("Fail", failState().error("Custom.Error").cause("Failed"))
+                .build();
+        Execution execution = engine.start(stateMachine, json("{}"));
+        try {
+            execution.getOutput(10, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals("Custom.Error", e.getError());
+        }
+        assertEquals(ExecutionStatus.FAILED, execution.getStatus());
+        List<HistoryEvent> history = engine.getHistory(execution.getId());
+        assertEquals(HistoryEvent.Type.EXECUTION_FAILED, history.get(history.size() - 1).getType());
+    }
+
+    @Test
+    public void inputPath_NotFound_FailsWithRuntimeError() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState().inputPath("$.missing").transition(end()))
+                .build();
+        try {
+            run(stateMachine, "{}");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+
+    @Test
+    public void compile_SameStateMachine_ReusesPlan() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState().transition(end()))
+                .build();
+        assertSame(PlanCompiler.compile(stateMachine), PlanCompiler.compile(stateMachine));
+    }
+
+    @Test
+    public void compile_PassChain_FusesSuccessorsUpToOtherState() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("A")
+                .state("A", passState().transition(next("B")))
+                .state("B", passState().transition(next("C")))
+                .state("C", succeedState())
+                .build();
+        ExecutionPlan plan = PlanCompiler.compile(stateMachine);
+        PassNode successor = ((PassNode) plan.getNode("A")).getFusedNext();
+        assertEquals("B", successor.getName());
+        assertNull(successor.getFusedNext());
+        assertNull(((PassNode) plan.getNode("B")).getFusedNext());
+    }
+
+    @Test
+    public void compile_PassChains_ShareFusedSuffix() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("A")
+                .state("A", passState().transition(next("C")))
+                .state("B", passState().transition(next("C")))
+                .state("C", passState().transition(next("D")))
+                .state("D", passState().transition(next("E")))
+                .state("E", succeedState())
+                .build();
+        ExecutionPlan plan = PlanCompiler.compile(stateMachine);
+        PassNode c = (PassNode) plan.getNode("C");
+        assertSame(c, ((PassNode) plan.getNode("A")).getFusedNext());
+        assertSame(c, ((PassNode) plan.getNode("B")).getFusedNext());
+        assertSame(plan.getNode("D"), c.getFusedNext());
+        assertNull(((PassNode) plan.getNode("D")).getFusedNext());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.networknt.workflow.state.engine.StateMachineEngine;
+import com.networknt.workflow.state.engine.TaskHandler;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.model.StateMachine;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+
+/**
+ * Compares an express program with the {@link StateMachineEngine} on a short request style state machine: a Choice
+ * routing on two fields, a Task and a Pass state. Not a unit test, run the main method manually with a warmed up JVM,
+ * e.g. {@code java -cp <test classpath> com.networknt.workflow.state.engine.express.ExpressBenchmark}.
+ */
+public class ExpressBenchmark {
+
+    private static final int ITERATIONS = 100000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        TaskRegistry taskRegistry = new TaskRegistry().register("double", new TaskHandler() {
+            @Override
+            public JsonNode execute(JsonNode input) {
+                return new IntNode(input.asInt() * 2);
+            }
+        });
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().transition(next("Double"))
+                                        .condition(eq("$.type", "bulk")))
+                        .choice(choice().transition(next("Label"))
+                                        .condition(gt("$.quantity", 100)))
+                        .defaultStateName("Label"))
+                .state("Double", taskState()
+                        .resource("double")
+                        .inputPath("$.quantity")
+                        .resultPath("$.quantity")
+                        .transition(next("Label")))
+                .state("Label", passState()
+                        .result("\"routed\"")
+                        .resultPath("$.label")
+                        .transition(next("Done")))
+                .state("Done", succeedState())
+                .build();
+        JsonNode input = JsonNodeFactory.instance.objectNode().put("type", "bulk").put("quantity", 21);
+
+        ExpressProgram program = ExpressCompiler.compile(stateMachine, taskRegistry);
+        StateMachineEngine engine = new StateMachineEngine(taskRegistry);
+        try {
+            for (int i = 0; i < 3; i++) {
+                long express = time(program, input);
+                long interpreted = time(engine, stateMachine, input);
+                System.out.println(String.format("express %8d ns/op   engine %8d ns/op",
+                                                 express / ITERATIONS, interpreted / ITERATIONS));
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static long time(ExpressProgram program, JsonNode input) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = program.run(input);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long time(StateMachineEngine engine, StateMachine stateMachine, JsonNode input) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = engine.start(stateMachine, input).getOutput(10, TimeUnit.SECONDS);
+        }
+        return System.nanoTime() - start;
+    }
+}
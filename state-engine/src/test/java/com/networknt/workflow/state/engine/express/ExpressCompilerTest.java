@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.StateMachineEngine;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.TaskHandler;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.failState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.lt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.seconds;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.waitState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ExpressCompilerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TaskRegistry taskRegistry = new TaskRegistry()
+            .register("double", new TaskHandler() {
+                @Override
+                public JsonNode execute(JsonNode input) {
+                    return new IntNode(input.asInt() * 2);
+                }
+            })
+            .register("increment", new TaskHandler() {
+                @Override
+                public JsonNode execute(JsonNode input) {
+                    ObjectNode output = input.deepCopy();
+                    return output.put("i", input.get("i").asInt() + 1);
+                }
+            });
+
+    private static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JsonNode runEngine(StateMachine stateMachine, JsonNode input) throws Exception {
+        StateMachineEngine engine = new StateMachineEngine(taskRegistry);
+        try {
+            return engine.start(stateMachine, input).getOutput(10, TimeUnit.SECONDS);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void run_ChoiceTaskAndPass_MatchesEngine() throws Exception {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .inputPath("$.order")
+                        .choice(choice().transition(next("Double"))
+                                        .condition(eq("$.type", "bulk")))
+                        .defaultStateName("Constant"))
+                .state("Double", taskState()
+                        .resource("double")
+                        .inputPath("$.quantity")
+                        .resultPath("$.quantity")
+                        .transition(next("Label")))
+                .state("Label", passState()
+                        .result("\"doubled\"")
+                        .resultPath("$.label")
+                        .transition(next("Done")))
+                .state("Constant", passState()
+                        .result("{\"quantity\": 1}")
+                        .transition(next("Done")))
+                .state("Done", succeedState())
+                .build();
+        ExpressProgram program = ExpressCompiler.compile(stateMachine, taskRegistry);
+
+        JsonNode bulk = json("{\"order\": {\"type\": \"bulk\", \"quantity\": 21}}");
+        assertEquals(json("{\"type\": \"bulk\", \"quantity\": 42, \"label\": \"doubled\"}"), program.run(bulk));
+        assertEquals(runEngine(stateMachine, bulk), program.run(bulk));
+
+        JsonNode single = json("{\"order\": {\"type\": \"single\", \"quantity\": 21}}");
+        assertEquals(json("{\"quantity\": 1}"), program.run(single));
+        assertEquals(runEngine(stateMachine, single), program.run(single));
+    }
+
+    @Test
+    public void run_LongLoop_DoesNotGrowTheStack() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Loop")
+                .state("Loop", choiceState()
+                        .choice(choice().transition(next("Increment"))
+                                        .condition(lt("$.i", 100000)))
+                        .defaultStateName("Done"))
+                .state("Increment", taskState()
+                        .resource("increment")
+                        .transition(next("Loop")))
+                .state("Done", succeedState())
+                .build();
+        ExpressProgram program = ExpressCompiler.compile(stateMachine, taskRegistry);
+        assertEquals(3, program.getStateCount());
+        assertEquals(json("{\"i\": 100000}"), program.run(json("{\"i\": 0}")));
+    }
+
+    @Test
+    public void run_FailState_ThrowsStatesException() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Fail")
+                .state("Fail", failState()
+                        .error("Custom.Error")
+                        .cause("Rejected"))
+                .build();
+        try {
+            ExpressCompiler.compile(stateMachine, taskRegistry).run(json("{}"));
+            fail("Expected StatesException");
+        } catch (StatesException e) {
+            assertEquals("Custom.Error", e.getError());
+            assertEquals("Rejected", e.getMessage());
+        }
+    }
+
+    @Test
+    public void run_UnregisteredResource_ThrowsTaskFailed() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Task")
+                .state("Task", taskState()
+                        .resource("unknown")
+                        .transition(end()))
+                .build();
+        try {
+            ExpressCompiler.compile(stateMachine, taskRegistry).run(json("{}"));
+            fail("Expected StatesException");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.TASK_FAILED, e.getError());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_WaitState_IsRejected() {
+        ExpressCompiler.compile(stateMachine()
+                                        .startAt("Wait")
+                                        .state("Wait", waitState()
+                                                .waitFor(seconds(1))
+                                                .transition(end()))
+                                        .build(), taskRegistry);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.TaskHandler;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.StateMachine;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.catcher;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.retrier;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ExpressExecutorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final TaskRegistry taskRegistry = new TaskRegistry()
+            .register("flaky", new TaskHandler() {
+                @Override
+                public JsonNode execute(JsonNode input) {
+                    if (attempts.incrementAndGet() < input.get("failures").asInt() + 1) {
+                        throw new StatesException("Custom.Error", "Boom");
+                    }
+                    return input;
+                }
+            });
+
+    private final ExpressExecutor executor = new ExpressExecutor(taskRegistry);
+
+    private static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static StateMachine flaky(int maxAttempts) {
+        return stateMachine()
+                .startAt("Flaky")
+                .state("Flaky", taskState()
+                        .resource("flaky")
+                        .retrier(retrier().errorEquals("Custom.Error").intervalSeconds(1).maxAttempts(maxAttempts))
+                        .catcher(catcher().catchAll().resultPath("$.error").transition(next("Done")))
+                        .transition(end()))
+                .state("Done", succeedState())
+                .build();
+    }
+
+    @Test
+    public void execute_RetriedTaskSucceeds_ReturnsTaskOutput() {
+        assertEquals(json("{\"failures\": 1}"), executor.execute(flaky(1), json("{\"failures\": 1}")));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void execute_RetriesExhausted_CatcherReceivesErrorOutput() {
+        assertEquals(json("{\"failures\": 5, \"error\": {\"Error\": \"Custom.Error\", \"Cause\": \"Boom\"}}"),
+                     executor.execute(flaky(1), json("{\"failures\": 5}")));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void execute_RetryBeyondTimeout_FailsWithTimeout() {
+        StateMachine stateMachine = stateMachine()
+                .timeoutSeconds(1)
+                .startAt("Flaky")
+                .state("Flaky", taskState()
+                        .resource("flaky")
+                        .retrier(retrier().errorEquals("Custom.Error").intervalSeconds(60).maxAttempts(1))
+                        .transition(end()))
+                .build();
+        try {
+            executor.execute(stateMachine, json("{\"failures\": 1}"));
+            fail("Expected StatesException");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.TIMEOUT, e.getError());
+        }
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void execute_ConstantPassOutputModified_ResultUnchanged() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Pass")
+                .state("Pass", passState().result("{\"k\": 42}").transition(end()))
+                .build();
+        ((ObjectNode) executor.execute(stateMachine, json("{}"))).put("k", 999);
+        assertEquals(json("{\"k\": 42}"), executor.execute(stateMachine, json("{}")));
+    }
+
+    @Test
+    public void compile_SameStateMachine_ReturnsCachedProgram() {
+        StateMachine stateMachine = flaky(1);
+        assertSame(executor.compile(stateMachine), executor.compile(stateMachine));
+    }
+}
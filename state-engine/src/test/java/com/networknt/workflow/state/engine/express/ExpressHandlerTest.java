@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.express;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.PayloadTaskHandler;
+import com.networknt.workflow.state.engine.TaskHandler;
+import com.networknt.workflow.state.engine.TaskRegistry;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.StateMachine;
+import io.undertow.Undertow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.failState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.taskState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ExpressHandlerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicReference<String> taskThread = new AtomicReference<String>();
+
+    private final TaskRegistry taskRegistry = new TaskRegistry()
+            .register("quote", new TaskHandler() {
+                @Override
+                public JsonNode execute(JsonNode input) {
+                    taskThread.set(Thread.currentThread().getName());
+                    return MAPPER.createObjectNode().put("price", input.get("quantity").asInt() * 10);
+                }
+            })
+            .registerPayloadHandler("broken", new PayloadTaskHandler() {
+                @Override
+                public Payload execute(Payload input) {
+                    return Payload.of("{\"price\": ".getBytes(StandardCharsets.UTF_8));
+                }
+            });
+
+    private Undertow server;
+    private int port;
+
+    @Before
+    public void setUp() {
+        StateMachine route = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().transition(next("Reject"))
+                                        .condition(eq("$.type", "blocked")))
+                        .defaultStateName("Accept"))
+                .state("Accept", passState()
+                        .transition(next("Done")))
+                .state("Reject", failState()
+                        .error("Order.Blocked")
+                        .cause("Order type is blocked"))
+                .state("Done", succeedState())
+                .build();
+        StateMachine quote = stateMachine()
+                .startAt("Quote")
+                .state("Quote", taskState()
+                        .resource("quote")
+                        .resultPath("$.quote")
+                        .transition(end()))
+                .build();
+        StateMachine echo = stateMachine()
+                .startAt("Echo")
+                .state("Echo", passState()
+                        .transition(end()))
+                .build();
+        StateMachine broken = stateMachine()
+                .startAt("Quote")
+                .state("Quote", taskState()
+                        .resource("broken")
+                        .resultPath("$.quote")
+                        .transition(end()))
+                .build();
+        ExpressHandler handler = ExpressHandler.builder()
+                .executor(new ExpressExecutor(taskRegistry))
+                .route("/route", route)
+                .route("/quote", quote)
+                .route("/echo", echo)
+                .route("/broken", broken)
+                .build();
+        server = Undertow.builder()
+                .addHttpListener(0, "localhost")
+                .setHandler(handler)
+                .build();
+        server.start();
+        port = ((InetSocketAddress) server.getListenerInfo().get(0).getAddress()).getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    private String post(String path, String body, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        OutputStream out = connection.getOutputStream();
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+        out.close();
+        assertEquals(expectedStatus, connection.getResponseCode());
+        InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            response.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void handleRequest_PassThrough_ReturnsRequestBody() throws Exception {
+        String body = "{\"type\": \"retail\",  \"quantity\": 2}";
+        assertEquals(body, post("/route", body, 200));
+    }
+
+    @Test
+    public void handleRequest_FailState_RespondsWithErrorOutput() throws Exception {
+        assertEquals(MAPPER.readTree("{\"Error\": \"Order.Blocked\", \"Cause\": \"Order type is blocked\"}"),
+                     MAPPER.readTree(post("/route", "{\"type\": \"blocked\"}", 500)));
+    }
+
+    @Test
+    public void handleRequest_TaskState_RunsOnWorkerThread() throws Exception {
+        assertEquals(MAPPER.readTree("{\"quantity\": 2, \"quote\": {\"price\": 20}}"),
+                     MAPPER.readTree(post("/quote", "{\"quantity\": 2}", 200)));
+        assertFalse(taskThread.get(), taskThread.get().contains("I/O"));
+    }
+
+    @Test
+    public void handleRequest_InvalidJson_RespondsWithBadRequest() throws Exception {
+        post("/route", "{\"type\": ", 400);
+    }
+
+    @Test
+    public void handleRequest_InvalidJsonNotReadByStates_RespondsWithBadRequest() throws Exception {
+        post("/echo", "{\"type\": ", 400);
+        post("/echo", "{} {}", 400);
+        post("/echo", " ", 400);
+    }
+
+    @Test
+    public void handleRequest_TaskReturnsInvalidJson_RespondsWithServerError() throws Exception {
+        post("/broken", "{\"quantity\": 2}", 500);
+    }
+
+    @Test
+    public void handleRequest_UnknownPath_RespondsWithNotFound() throws Exception {
+        post("/unknown", "{}", 404);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.payload.CodecRegistry;
+import com.networknt.workflow.state.engine.payload.CompressedPayload;
+import com.networknt.workflow.state.engine.payload.DeflateCodec;
+import com.networknt.workflow.state.engine.payload.FilePayloadStore;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.engine.payload.PayloadCodec;
+import com.networknt.workflow.state.engine.payload.ReferencePayload;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryHistoryStoreTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HistoryEvent started(Payload input) {
+        return new HistoryEvent(HistoryEvent.Type.EXECUTION_STARTED, null, System.currentTimeMillis(), input);
+    }
+
+    @Test
+    public void append_IdenticalPayloads_ShareOneInstance() throws IOException {
+        InMemoryHistoryStore store = new InMemoryHistoryStore(null, true);
+        store.append("a", started(Payload.of(MAPPER.readTree("{\"order\": 1}"))));
+        store.append("b", started(Payload.of("{\"order\":1}".getBytes(StandardCharsets.UTF_8))));
+        store.append("b", started(Payload.of(MAPPER.readTree("{\"order\": 2}"))));
+        assertSame(store.getEvents("a").get(0).getData(), store.getEvents("b").get(0).getData());
+        assertEquals(2, store.getPayloadCount());
+    }
+
+    @Test
+    public void append_WithoutDeduplication_DoesNotDigestPayloads() throws IOException {
+        InMemoryHistoryStore store = new InMemoryHistoryStore();
+        Payload input = Payload.of(MAPPER.readTree("{\"order\": 1}"));
+        store.append("a", started(input));
+        store.append("b", started(input));
+        assertFalse(input.hasDigest());
+        assertEquals(0, store.getPayloadCount());
+        store.remove("a");
+        assertEquals(1, store.getEvents("b").size());
+    }
+
+    @Test
+    public void append_DuplicatePayloadWithCodec_CompressedOnce() throws IOException {
+        final AtomicInteger compressions = new AtomicInteger();
+        final PayloadCodec deflate = new DeflateCodec(Deflater.BEST_SPEED, null);
+        PayloadCodec codec = new PayloadCodec() {
+            @Override
+            public String getName() {
+                return deflate.getName();
+            }
+
+            @Override
+            public byte[] getDictionary() {
+                return null;
+            }
+
+            @Override
+            public void compress(Payload payload, OutputStream out) throws IOException {
+                compressions.incrementAndGet();
+                deflate.compress(payload, out);
+            }
+
+            @Override
+            public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+                return deflate.decompress(data, offset, length, size);
+            }
+        };
+        CodecRegistry codecRegistry = new CodecRegistry(DeflateCodec.factory(Deflater.BEST_SPEED), 0, 0, 0);
+        InMemoryHistoryStore store = new InMemoryHistoryStore(null, true);
+        store.append("a", started(Payload.of(MAPPER.readTree("{\"order\": 1}"))), codecRegistry, codec);
+        store.append("b", started(Payload.of(MAPPER.readTree("{\"order\": 1}"))), codecRegistry, codec);
+        assertEquals(1, compressions.get());
+        assertTrue(store.getEvents("a").get(0).getData() instanceof CompressedPayload);
+        assertSame(store.getEvents("a").get(0).getData(), store.getEvents("b").get(0).getData());
+    }
+
+    @Test
+    public void remove_LastHistory_DropsPayloads() throws IOException {
+        InMemoryHistoryStore store = new InMemoryHistoryStore(null, true);
+        Payload input = Payload.of(MAPPER.readTree("{\"order\": 1}"));
+        store.append("a", started(input));
+        store.append("b", started(input));
+        store.remove("a");
+        assertEquals(1, store.getPayloadCount());
+        assertTrue(store.getEvents("a").isEmpty());
+        store.remove("b");
+        assertEquals(0, store.getPayloadCount());
+    }
+
+    @Test
+    public void append_ResolvedReference_KeepsUnresolvedReference() throws IOException {
+        final AtomicInteger loads = new AtomicInteger();
+        FilePayloadStore payloadStore = new FilePayloadStore(folder.getRoot().toPath(), 1) {
+            @Override
+            public Payload load(String key) {
+                loads.incrementAndGet();
+                return super.load(key);
+            }
+        };
+        InMemoryHistoryStore store = new InMemoryHistoryStore(payloadStore);
+        ReferencePayload reference = (ReferencePayload) payloadStore.offload(Payload.of(MAPPER.readTree("{\"order\": 1}")));
+        reference.toJsonNode();
+        store.append("a", started(reference));
+        Payload stored = store.getEvents("a").get(0).getData();
+        assertNotSame(reference, stored);
+        assertEquals(reference, stored);
+        stored.toJsonNode();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void remove_OffloadedPayload_ReleasedInPayloadStore() throws IOException {
+        FilePayloadStore payloadStore = new FilePayloadStore(folder.getRoot().toPath(), 1);
+        InMemoryHistoryStore store = new InMemoryHistoryStore(payloadStore);
+        ReferencePayload reference = (ReferencePayload) payloadStore.offload(Payload.of(MAPPER.readTree("{\"order\": 1}")));
+        store.append("a", started(reference));
+        store.append("b", started(reference));
+        assertEquals(1, payloadStore.getReferenceCount(reference.getKey()));
+        store.remove("a");
+        assertEquals(0, payloadStore.collectGarbage(0));
+        store.remove("b");
+        assertEquals(0, payloadStore.getReferenceCount(reference.getKey()));
+        assertEquals(1, payloadStore.collectGarbage(0));
+    }
+}
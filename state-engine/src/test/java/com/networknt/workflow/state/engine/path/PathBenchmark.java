@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+/**
+ * Compares the tree walking paths with the json-path library on the two hot spots of an execution: reading a Choice
+ * variable and extracting an InputPath. Not a unit test, run the main method manually with a warmed up JVM, e.g.
+ * {@code java -cp <test classpath> com.networknt.workflow.state.engine.path.PathBenchmark}.
+ */
+public class PathBenchmark {
+
+    private static final Configuration JSON_PATH = Configuration.builder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider())
+            .mappingProvider(new JacksonMappingProvider())
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    private static final int ITERATIONS = 200000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        JsonNode document = document(100);
+        run("Choice variable", "$.customer.address.zip", document);
+        run("InputPath extraction", "$.orders[*].sku", document);
+    }
+
+    private static void run(String name, String path, JsonNode document) {
+        CompiledPath compiled = PathCompiler.compile(path);
+        JsonPath jsonPath = JsonPath.compile(path);
+        for (int i = 0; i < 3; i++) {
+            long tree = time(compiled, document);
+            long library = time(jsonPath, document);
+            System.out.println(String.format("%-22s %-12s %8d ns/op   json-path %8d ns/op",
+                                             name, compiled.getClass().getSimpleName(),
+                                             tree / ITERATIONS, library / ITERATIONS));
+        }
+    }
+
+    private static long time(CompiledPath path, JsonNode document) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = path.read(document);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long time(JsonPath path, JsonNode document) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = path.read(document, JSON_PATH);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static JsonNode document(int orders) {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ObjectNode document = factory.objectNode();
+        document.putObject("customer").put("name", "Jane").putObject("address").put("zip", "10001");
+        ArrayNode array = document.putArray("orders");
+        for (int i = 0; i < orders; i++) {
+            array.addObject().put("sku", "SKU-" + i).put("quantity", i % 7).put("price", i * 1.5);
+        }
+        return document;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PathCompilerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void compile_NullPath_ReturnsRoot() {
+        assertTrue(PathCompiler.compile(null).isRoot());
+    }
+
+    @Test
+    public void compile_DefinitePath_UsesTreeWalk() {
+        CompiledPath path = PathCompiler.compile("$.order['line items'][1].sku");
+        assertTrue(path instanceof DefinitePath);
+        assertEquals(new TextNode("b"),
+                     path.read(json("{\"order\": {\"line items\": [{\"sku\": \"a\"}, {\"sku\": \"b\"}]}}")));
+    }
+
+    @Test
+    public void compile_IndefinitePath_UsesTreeWalk() {
+        CompiledPath path = PathCompiler.compile("$.items[*].id");
+        assertTrue(path instanceof TreePath);
+        assertFalse(path.isDefinite());
+        assertEquals(json("[1, 2]"), path.read(json("{\"items\": [{\"id\": 1}, {\"id\": 2}]}")));
+    }
+
+    @Test
+    public void compile_DeepScan_UsesJsonPathLibrary() {
+        CompiledPath path = PathCompiler.compile("$..id");
+        assertTrue(path instanceof JaywayPath);
+        assertEquals(json("[1, 2]"), path.read(json("{\"items\": [{\"id\": 1}, {\"id\": 2}]}")));
+    }
+
+    @Test
+    public void compile_FunctionCall_UsesJsonPathLibrary() {
+        CompiledPath path = PathCompiler.compile("$.items.length()");
+        assertTrue(path instanceof JaywayPath);
+        assertEquals(2, path.read(json("{\"items\": [1, 2]}")).asInt());
+    }
+
+    @Test
+    public void read_MissingField_ReturnsNull() {
+        assertNull(PathCompiler.compile("$.foo.bar").read(json("{\"foo\": {}}")));
+        assertNull(PathCompiler.compile("$.foo[3]").read(json("{\"foo\": [1]}")));
+        assertNull(PathCompiler.compile("$.foo.bar").read(json("{\"foo\": \"bar\"}")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_InvalidPath_ThrowsException() {
+        PathCompiler.compile("$.");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileReferencePath_IndefinitePath_ThrowsException() {
+        PathCompiler.compileReferencePath("$.items[*]");
+    }
+
+    @Test
+    public void write_CreatesIntermediateObjects_WithoutModifyingInput() {
+        JsonNode input = json("{\"a\": 1}");
+        JsonNode output = PathCompiler.compileReferencePath("$.b.c").write(input, new TextNode("x"));
+        assertEquals(json("{\"a\": 1, \"b\": {\"c\": \"x\"}}"), output);
+        assertEquals(json("{\"a\": 1}"), input);
+    }
+
+    @Test
+    public void write_SharesUntouchedSubtrees() {
+        JsonNode input = json("{\"big\": {\"items\": [1, 2, 3]}, \"result\": {\"status\": \"ok\", \"meta\": {\"a\": 1}}}");
+        JsonNode output = PathCompiler.compileReferencePath("$.result.orders").write(input, new TextNode("x"));
+        assertEquals(json("{\"big\": {\"items\": [1, 2, 3]}, "
+                          + "\"result\": {\"status\": \"ok\", \"meta\": {\"a\": 1}, \"orders\": \"x\"}}"), output);
+        assertSame(input.get("big"), output.get("big"));
+        assertSame(input.get("result").get("meta"), output.get("result").get("meta"));
+        assertNotSame(input.get("result"), output.get("result"));
+        assertFalse(input.get("result").has("orders"));
+    }
+
+    @Test
+    public void write_ArrayIndex_CopiesOnlyTheArraySpine() {
+        JsonNode input = json("{\"list\": [{\"a\": 1}, {\"b\": 2}]}");
+        JsonNode output = PathCompiler.compileReferencePath("$.list[1].c").write(input, new TextNode("x"));
+        assertEquals(json("{\"list\": [{\"a\": 1}, {\"b\": 2, \"c\": \"x\"}]}"), output);
+        assertSame(input.get("list").get(0), output.get("list").get(0));
+        assertEquals(json("{\"b\": 2}"), input.get("list").get(1));
+    }
+
+    @Test
+    public void write_RootPath_ReplacesDocument() {
+        assertEquals(new TextNode("x"), PathCompiler.ROOT.write(json("{\"a\": 1}"), new TextNode("x")));
+    }
+
+    @Test
+    public void write_ThroughScalar_ThrowsResultPathMatchFailure() {
+        try {
+            PathCompiler.compileReferencePath("$.a.b").write(json("{\"a\": 1}"), new TextNode("x"));
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RESULT_PATH_MATCH_FAILURE, e.getError());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TreePathTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Configuration JSON_PATH = Configuration.builder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider())
+            .mappingProvider(new JacksonMappingProvider())
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    private static final JsonNode STORE = json("{\"store\": {"
+                                               + "\"book\": ["
+                                               + "{\"category\": \"reference\", \"author\": \"Nigel Rees\", \"price\": 8.95},"
+                                               + "{\"category\": \"fiction\", \"author\": \"Evelyn Waugh\", \"price\": 12.99},"
+                                               + "{\"category\": \"fiction\", \"author\": \"Herman Melville\", \"isbn\": \"0-553-21311-3\", \"price\": 8},"
+                                               + "{\"category\": \"fiction\", \"author\": \"J. R. R. Tolkien\", \"isbn\": null, \"price\": 22.99, \"available\": true}"
+                                               + "],"
+                                               + "\"bicycle\": {\"color\": \"red\", \"price\": 19.95}"
+                                               + "},"
+                                               + "\"expensive\": 10}");
+
+    private static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void assertSameAsJsonPath(String path) {
+        TreePath treePath = TreePath.parse(path);
+        assertNotNull(path, treePath);
+        JsonNode expected = JsonPath.compile(path).read(STORE, JSON_PATH);
+        assertEquals(path, expected, treePath.read(STORE));
+    }
+
+    private static void assertRead(String expected, String path) {
+        TreePath treePath = TreePath.parse(path);
+        assertNotNull(path, treePath);
+        assertEquals(path, json(expected), treePath.read(STORE));
+    }
+
+    @Test
+    public void read_Wildcards_MatchJsonPath() {
+        assertSameAsJsonPath("$.store.book[*].author");
+        assertSameAsJsonPath("$.store.*");
+        assertSameAsJsonPath("$.store.*.price");
+        assertSameAsJsonPath("$['store']['book'][*]['category']");
+        assertSameAsJsonPath("$.store.book[*].isbn");
+        assertSameAsJsonPath("$.missing[*]");
+    }
+
+    /**
+     * json-path evaluates filters through json-smart, which is excluded from the build, so the expected values are spelled
+     * out here.
+     */
+    @Test
+    public void read_Filters_SelectMatchingElements() {
+        assertRead("[\"Nigel Rees\", \"Herman Melville\"]", "$.store.book[?(@.price < 10)].author");
+        assertRead("[8]", "$.store.book[?(@.price <= 8)].price");
+        assertRead("[\"Evelyn Waugh\", \"J. R. R. Tolkien\"]", "$.store.book[?(@.price >= 12.99)].author");
+        assertRead("[\"Evelyn Waugh\", \"J. R. R. Tolkien\"]",
+                   "$.store.book[?(@.category == 'fiction' && @.price > 10)].author");
+        assertRead("[\"Nigel Rees\", \"J. R. R. Tolkien\"]",
+                   "$.store.book[?(@.category != \"fiction\" || @.price > 20)].author");
+        assertRead("[\"Herman Melville\", \"J. R. R. Tolkien\"]", "$.store.book[?(@.isbn)].author");
+        assertRead("[\"Herman Melville\", \"J. R. R. Tolkien\"]",
+                   "$.store.book[?((@.price < 9 || @.price > 20) && @.isbn)].author");
+        assertRead("[\"J. R. R. Tolkien\"]", "$.store.book[?(@.available == true)].author");
+        assertRead("[\"J. R. R. Tolkien\"]", "$.store.book[?(@.isbn == null)].author");
+        assertRead("[\"Herman Melville\"]", "$.store.book[?(@.price == 8.0)].author");
+        assertRead("[8.95]", "$.store.book[?(@['category'] == 'reference')].price");
+        assertRead("[19.95]", "$.store.bicycle[?(@.color == 'red')].price");
+        assertRead("[]", "$.store.bicycle[?(@.color == 1)]");
+    }
+
+    @Test
+    public void parse_UnsupportedExpressions_ReturnsNull() {
+        assertNull(TreePath.parse("$..author"));
+        assertNull(TreePath.parse("$.store.book[0:2]"));
+        assertNull(TreePath.parse("$.store.book[0,1]"));
+        assertNull(TreePath.parse("$.store.book[?(@.author =~ /.*Rees/)]"));
+        assertNull(TreePath.parse("$.store.book[?(@.price < $.expensive)]"));
+        assertNull(TreePath.parse("$.store.book.length()"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.model.StateMachine;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CodecRegistryTest {
+
+    private static final String DOCUMENT = "{\"orderId\": \"o-%d\", \"status\": \"SHIPPED\", \"carrier\": \"UPS\"}";
+
+    private final CodecRegistry registry = new CodecRegistry(DeflateCodec.factory(Deflater.BEST_SPEED), 3, 1024, 32);
+
+    private static StateMachine newStateMachine() {
+        return stateMachine().startAt("Pass").state("Pass", passState().transition(end())).build();
+    }
+
+    private static Payload document(int i) {
+        return Payload.of(String.format(DOCUMENT, i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void codecFor_EnoughSamples_TrainsDictionary() {
+        StateMachine stateMachine = newStateMachine();
+        PayloadCodec untrained = registry.codecFor(stateMachine, document(1));
+        assertNull(untrained.getDictionary());
+        assertSame(untrained, registry.codecFor(stateMachine, document(2)));
+        PayloadCodec trained = registry.codecFor(stateMachine, document(3));
+        assertNotNull(trained.getDictionary());
+        assertSame(trained, registry.codecFor(stateMachine, document(4)));
+        assertSame(trained, registry.getCodec(trained.getName()));
+    }
+
+    @Test
+    public void codecFor_OtherStateMachine_IsTrainedSeparately() {
+        StateMachine stateMachine = newStateMachine();
+        for (int i = 0; i < 3; i++) {
+            registry.codecFor(stateMachine, document(i));
+        }
+        assertNull(registry.codecFor(newStateMachine(), document(0)).getDictionary());
+    }
+
+    @Test
+    public void compress_LargePayload_IsCompressed() {
+        PayloadCodec codec = registry.codecFor(newStateMachine(), document(1));
+        Payload compressed = registry.compress(document(1), codec);
+        assertTrue(compressed instanceof CompressedPayload);
+        assertEquals(document(1), compressed);
+        assertEquals(document(1).digest(), compressed.digest());
+        assertEquals(document(1).size(), compressed.size());
+    }
+
+    @Test
+    public void compress_SmallPayload_IsLeftAlone() {
+        Payload payload = Payload.of("{\"a\": 1}".getBytes(StandardCharsets.UTF_8));
+        assertSame(payload, registry.compress(payload, registry.codecFor(newStateMachine(), payload)));
+        assertSame(payload, registry.compress(payload, null));
+    }
+
+    @Test
+    public void restore_KnownDictionary_RecreatesCodec() throws IOException {
+        StateMachine stateMachine = newStateMachine();
+        PayloadCodec trained = null;
+        for (int i = 0; i < 3; i++) {
+            trained = registry.codecFor(stateMachine, document(i));
+        }
+        CodecRegistry other = new CodecRegistry();
+        assertNull(other.getCodec(trained.getName()));
+        PayloadCodec restored = other.restore(trained.getName(), trained.getDictionary());
+        assertNotSame(trained, restored);
+        assertEquals(trained.getName(), restored.getName());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trained.compress(document(5), out);
+        byte[] compressed = out.toByteArray();
+        assertEquals(document(5), Payload.of(restored.decompress(compressed, 0, compressed.length,
+                                                                 (int) document(5).size())));
+    }
+
+    @Test(expected = StatesException.class)
+    public void restore_UnknownFamily_Throws() {
+        registry.restore("lz4", null);
+    }
+
+    @Test(expected = StatesException.class)
+    public void restore_WrongDictionary_Throws() {
+        registry.restore("deflate-0123456789abcdef", "\"other\":".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Measures compression ratio and throughput of the payload codecs on the state machine documents of the state-model
+ * test fixtures, used as payloads as is and scaled up into arrays of numbered copies. Not a unit test, run the main
+ * method manually from the state-engine directory, e.g.
+ * {@code java -cp <test classpath> com.networknt.workflow.state.engine.payload.CompressionBenchmark [fixture directory]}.
+ */
+public class CompressionBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String FIXTURES = "../state-model/src/test/resources/resources/state_machines";
+
+    private static final int[] SCALES = {1, 10, 100};
+
+    private static final long BYTES_PER_RUN = 64L * 1024 * 1024;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : FIXTURES);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("No fixtures found in " + directory.getAbsolutePath());
+        }
+        List<JsonNode> fixtures = new ArrayList<JsonNode>();
+        for (File file : files) {
+            if (file.getName().endsWith(".json")) {
+                fixtures.add(MAPPER.readTree(file));
+            }
+        }
+        List<Payload> samples = new ArrayList<Payload>();
+        for (JsonNode fixture : fixtures) {
+            samples.add(Payload.of(MAPPER.writeValueAsBytes(fixture)));
+        }
+        byte[] dictionary = DictionaryTrainer.train(samples, CodecRegistry.DEFAULT_DICTIONARY_SIZE);
+        System.out.println(String.format("%d fixtures, dictionary of %d bytes", fixtures.size(), dictionary.length));
+        PayloadCodec[] codecs = {
+            new DeflateCodec(Deflater.BEST_SPEED, null),
+            new DeflateCodec(Deflater.BEST_SPEED, dictionary),
+            new DeflateCodec(Deflater.DEFAULT_COMPRESSION, dictionary)
+        };
+        String[] names = {"deflate-1", "deflate-1+dict", "deflate-6+dict"};
+        for (int scale : SCALES) {
+            List<Payload> payloads = new ArrayList<Payload>();
+            for (JsonNode fixture : fixtures) {
+                payloads.add(Payload.of(MAPPER.writeValueAsBytes(scale(fixture, scale))));
+            }
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < codecs.length; i++) {
+                    run(names[i] + " x" + scale, codecs[i], payloads);
+                }
+            }
+        }
+    }
+
+    private static void run(String name, PayloadCodec codec, List<Payload> payloads) throws IOException {
+        long raw = 0;
+        long compressed = 0;
+        List<byte[]> outputs = new ArrayList<byte[]>();
+        for (Payload payload : payloads) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.compress(payload, out);
+            outputs.add(out.toByteArray());
+            raw += payload.size();
+            compressed += out.size();
+        }
+        int repetitions = (int) Math.max(1, BYTES_PER_RUN / raw);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (Payload payload : payloads) {
+                out.reset();
+                codec.compress(payload, out);
+            }
+        }
+        long compressNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (int i = 0; i < payloads.size(); i++) {
+                byte[] data = outputs.get(i);
+                sink = codec.decompress(data, 0, data.length, (int) payloads.get(i).size());
+            }
+        }
+        long decompressNanos = System.nanoTime() - start;
+        double megabytes = (double) raw * repetitions / (1024 * 1024);
+        System.out.println(String.format("%-20s ratio %5.2f   compress %7.1f MB/s   decompress %7.1f MB/s",
+                                         name, (double) raw / compressed,
+                                         megabytes / (compressNanos / 1e9), megabytes / (decompressNanos / 1e9)));
+    }
+
+    /**
+     * @return Array of numbered copies of the document, like a batch of items flowing through an execution.
+     */
+    private static JsonNode scale(JsonNode document, int copies) {
+        if (copies == 1) {
+            return document;
+        }
+        ArrayNode array = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i < copies; i++) {
+            ObjectNode item = array.addObject();
+            item.put("index", i);
+            item.set("document", document);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeflateCodecTest {
+
+    private static final String DOCUMENT =
+            "{\"orderId\": \"o-1\", \"status\": \"SHIPPED\", \"customer\": {\"customerId\": \"c-9\", \"tier\": \"GOLD\"}}";
+
+    private static final byte[] DICTIONARY =
+            "\"customerId\":\"tier\":\"GOLD\"\"status\":\"SHIPPED\"\"orderId\":\"customer\":".getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] compress(PayloadCodec codec, String document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.compress(Payload.of(document.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void compress_WithoutDictionary_RoundTrips() throws IOException {
+        DeflateCodec codec = new DeflateCodec(Deflater.BEST_SPEED, null);
+        byte[] compressed = compress(codec, DOCUMENT);
+        byte[] document = codec.decompress(compressed, 0, compressed.length, DOCUMENT.length());
+        assertArrayEquals(DOCUMENT.getBytes(StandardCharsets.UTF_8), document);
+        assertEquals("deflate", codec.getName());
+        assertNull(codec.getDictionary());
+    }
+
+    @Test
+    public void compress_WithDictionary_RoundTripsSmaller() throws IOException {
+        DeflateCodec plain = new DeflateCodec(Deflater.BEST_SPEED, null);
+        DeflateCodec primed = new DeflateCodec(Deflater.BEST_SPEED, DICTIONARY);
+        byte[] compressed = compress(primed, DOCUMENT);
+        assertTrue(compressed.length < compress(plain, DOCUMENT).length);
+        assertArrayEquals(DOCUMENT.getBytes(StandardCharsets.UTF_8),
+                          primed.decompress(compressed, 0, compressed.length, DOCUMENT.length()));
+        assertTrue(primed.getName(), primed.getName().matches("deflate-[0-9a-f]{16}"));
+    }
+
+    @Test
+    public void compress_ReusedCodec_RoundTripsEveryDocument() throws IOException {
+        DeflateCodec codec = new DeflateCodec(Deflater.DEFAULT_COMPRESSION, DICTIONARY);
+        for (int i = 0; i < 5; i++) {
+            String document = "{\"orderId\": \"o-" + i + "\"}";
+            byte[] compressed = compress(codec, document);
+            assertEquals(document, new String(codec.decompress(compressed, 0, compressed.length, document.length()),
+                                              StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void decompress_CodecWithoutDictionary_Throws() throws IOException {
+        byte[] compressed = compress(new DeflateCodec(Deflater.BEST_SPEED, DICTIONARY), DOCUMENT);
+        try {
+            new DeflateCodec(Deflater.BEST_SPEED, null).decompress(compressed, 0, compressed.length, DOCUMENT.length());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("dictionary"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void decompress_WrongSize_Throws() throws IOException {
+        DeflateCodec codec = new DeflateCodec(Deflater.BEST_SPEED, null);
+        byte[] compressed = compress(codec, DOCUMENT);
+        codec.decompress(compressed, 0, compressed.length, DOCUMENT.length() - 1);
+    }
+
+    @Test
+    public void new_LongDictionary_KeepsItsEnd() {
+        byte[] dictionary = new byte[DeflateCodec.MAX_DICTIONARY_SIZE + 10];
+        dictionary[dictionary.length - 1] = 'x';
+        byte[] kept = new DeflateCodec(Deflater.BEST_SPEED, dictionary).getDictionary();
+        assertEquals(DeflateCodec.MAX_DICTIONARY_SIZE, kept.length);
+        assertEquals('x', kept[kept.length - 1]);
+    }
+}
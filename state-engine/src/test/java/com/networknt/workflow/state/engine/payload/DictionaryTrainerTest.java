@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryTrainerTest {
+
+    private static Payload payload(String json) {
+        return Payload.of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void train_RepeatedFragments_AreIncluded() {
+        String dictionary = new String(DictionaryTrainer.train(Arrays.asList(
+                payload("{\"status\": \"OPEN\", \"id\": \"a\"}"),
+                payload("{\"status\": \"OPEN\", \"id\": \"b\"}")), 1024), StandardCharsets.UTF_8);
+        assertTrue(dictionary, dictionary.contains("\"status\":"));
+        assertTrue(dictionary, dictionary.contains("\"OPEN\""));
+        assertTrue(dictionary, dictionary.contains("\"id\":"));
+        assertFalse(dictionary, dictionary.contains("\"a\""));
+    }
+
+    @Test
+    public void train_BestFragment_IsLast() {
+        String dictionary = new String(DictionaryTrainer.train(Collections.singletonList(
+                payload("[{\"x\": 1, \"description\": 2}, {\"x\": 3, \"description\": 4}]")), 1024),
+                StandardCharsets.UTF_8);
+        assertEquals("\"x\":\"description\":", dictionary);
+    }
+
+    @Test
+    public void train_MaxSize_IsRespected() {
+        byte[] dictionary = DictionaryTrainer.train(Collections.singletonList(
+                payload("[{\"x\": 1, \"description\": 2}, {\"x\": 3, \"description\": 4}]")), 10);
+        assertEquals("\"x\":", new String(dictionary, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void train_NothingInCommon_IsEmpty() {
+        assertEquals(0, DictionaryTrainer.train(Collections.singletonList(payload("{\"a\": \"b\"}")), 1024).length);
+    }
+}
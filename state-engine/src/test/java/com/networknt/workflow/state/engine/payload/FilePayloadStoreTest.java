@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FilePayloadStoreTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DOCUMENT = "{\"id\": 7, \"lines\": [{\"sku\": \"a\"}, {\"sku\": \"b\"}]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FilePayloadStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new FilePayloadStore(folder.getRoot().toPath().resolve("payloads"), 16);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            return files.filter(new Predicate<Path>() {
+                @Override
+                public boolean test(Path path) {
+                    return path.toString().endsWith(".json");
+                }
+            }).count();
+        }
+    }
+
+    @Test
+    public void offload_SmallPayload_ReturnsPayload() {
+        Payload payload = Payload.of(new IntNode(1));
+        assertSame(payload, store.offload(payload));
+    }
+
+    @Test
+    public void offload_LargePayload_ReturnsReferenceToFile() throws IOException {
+        byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        Payload reference = store.offload(Payload.of(bytes));
+        assertTrue(reference instanceof ReferencePayload);
+        assertEquals(bytes.length, reference.size());
+        assertArrayEquals(bytes, Files.readAllBytes(store.file(((ReferencePayload) reference).getKey())));
+        assertSame(reference, store.offload(reference));
+    }
+
+    @Test
+    public void offload_SameContent_StoredOnce() throws IOException {
+        ReferencePayload first = (ReferencePayload) store.offload(Payload.of(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+        ReferencePayload second = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree(DOCUMENT)));
+        ReferencePayload third = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree(DOCUMENT)));
+        assertEquals(second.getKey(), third.getKey());
+        assertEquals(first, Payload.of(MAPPER.readTree(DOCUMENT)));
+        // the raw document and its compact serialization differ byte wise
+        assertEquals(2, countFiles());
+    }
+
+    @Test
+    public void reference_ResolvesPathsAgainstMappedFile() throws IOException {
+        Payload reference = store.offload(Payload.of(MAPPER.readTree(DOCUMENT)));
+        assertEquals(MAPPER.readTree("\"b\""), reference.read(PathCompiler.compile("$.lines[1].sku")));
+        Payload lines = reference.select(PathCompiler.compile("$.lines"));
+        assertTrue(lines instanceof LazyPayload);
+        assertEquals(MAPPER.readTree("[{\"sku\": \"a\"}, {\"sku\": \"b\"}]"), lines.toJsonNode());
+        assertEquals(MAPPER.readTree(DOCUMENT), store.load(((ReferencePayload) reference).getKey()).toJsonNode());
+    }
+
+    @Test
+    public void collectGarbage_DeletesOnlyUnreferencedPayloads() throws IOException {
+        ReferencePayload kept = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree(DOCUMENT)));
+        ReferencePayload dropped = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree("{\"id\": 8, \"lines\": []}")));
+        store.retain(kept.getKey());
+        store.retain(dropped.getKey());
+        store.release(dropped.getKey());
+        assertEquals(0, store.collectGarbage(60000L));
+        assertEquals(1, store.collectGarbage(0));
+        assertTrue(Files.exists(store.file(kept.getKey())));
+        assertFalse(Files.exists(store.file(dropped.getKey())));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    public void offload_WithCodec_StoresCompressedFile() throws IOException {
+        PayloadCodec codec = new DeflateCodec(Deflater.BEST_SPEED, "\"sku\":".getBytes(StandardCharsets.UTF_8));
+        ReferencePayload reference = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree(DOCUMENT)), codec);
+        byte[] file = Files.readAllBytes(store.file(reference.getKey()));
+        assertEquals(0, file[0]);
+        assertTrue(Files.exists(store.dictionaryFile(codec.getName())));
+        assertEquals(MAPPER.readTree(DOCUMENT), store.load(reference.getKey()).toJsonNode());
+    }
+
+    @Test
+    public void load_CompressedFileOfOtherStore_RestoresCodecFromDictionary() throws IOException {
+        PayloadCodec codec = new DeflateCodec(Deflater.BEST_SPEED, "\"sku\":".getBytes(StandardCharsets.UTF_8));
+        ReferencePayload reference = (ReferencePayload) store.offload(Payload.of(MAPPER.readTree(DOCUMENT)), codec);
+        FilePayloadStore other = new FilePayloadStore(folder.getRoot().toPath().resolve("payloads"), 16);
+        assertEquals(MAPPER.readTree(DOCUMENT), other.load(reference.getKey()).toJsonNode());
+    }
+
+    @Test
+    public void load_InvalidKey_ThrowsRuntimeError() {
+        try {
+            store.load("../../etc/passwd");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.StatesException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ItemFileTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<List<JsonNode>> readChunks(ItemFile file) throws IOException {
+        List<List<JsonNode>> chunks = new ArrayList<List<JsonNode>>();
+        ItemFile.Chunk chunk;
+        while ((chunk = file.nextChunk()) != null) {
+            List<JsonNode> items = new ArrayList<JsonNode>();
+            while (chunk.hasNext()) {
+                items.add(chunk.next().toJsonNode());
+            }
+            assertEquals(chunk.getCount(), items.size());
+            chunks.add(items);
+        }
+        return chunks;
+    }
+
+    @Test
+    public void nextChunk_JsonLines_CutsChunksOnLineBoundaries() throws IOException {
+        Path path = write("{\"id\": 1}\n{\"id\": 2}\r\n\n{\"id\": 3}\n{\"id\": 4}");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.JSONL, null, 0, 20)) {
+            List<List<JsonNode>> chunks = readChunks(file);
+            assertEquals(2, chunks.size());
+            assertEquals(Arrays.asList(MAPPER.readTree("{\"id\": 1}"), MAPPER.readTree("{\"id\": 2}")), chunks.get(0));
+            assertEquals(Arrays.asList(MAPPER.readTree("{\"id\": 3}"), MAPPER.readTree("{\"id\": 4}")), chunks.get(1));
+            assertNull(file.nextChunk());
+        }
+    }
+
+    @Test
+    public void nextChunk_RecordLargerThanChunk_IsKeptWhole() throws IOException {
+        Path path = write("{\"text\": \"0123456789abcdefghij\"}\n{\"id\": 2}\n");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.JSONL, null, 0, 4)) {
+            List<List<JsonNode>> chunks = readChunks(file);
+            assertEquals(2, chunks.size());
+            assertEquals(MAPPER.readTree("{\"text\": \"0123456789abcdefghij\"}"), chunks.get(0).get(0));
+        }
+    }
+
+    @Test
+    public void nextChunk_MaxItems_StopsReading() throws IOException {
+        Path path = write("1\n2\n3\n4\n5\n");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.JSONL, null, 3, 4)) {
+            List<List<JsonNode>> chunks = readChunks(file);
+            assertEquals(2, chunks.size());
+            assertEquals(2, chunks.get(0).size());
+            assertEquals(1, chunks.get(1).size());
+            assertEquals(MAPPER.readTree("3"), chunks.get(1).get(0));
+        }
+    }
+
+    @Test
+    public void nextChunk_CsvWithHeaderRow_KeysFieldsByHeader() throws IOException {
+        Path path = write("\uFEFFid,name\n1,\"Smith, John\"\n2,\"line one\nline \"\"two\"\"\"\n");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.CSV, null, 0, 1)) {
+            assertEquals(Arrays.asList("id", "name"), file.getHeaders());
+            List<List<JsonNode>> chunks = readChunks(file);
+            assertEquals(2, chunks.size());
+            assertEquals(MAPPER.readTree("{\"id\": \"1\", \"name\": \"Smith, John\"}"), chunks.get(0).get(0));
+            assertEquals(MAPPER.readTree("{\"id\": \"2\", \"name\": \"line one\\nline \\\"two\\\"\"}"),
+                         chunks.get(1).get(0));
+        }
+    }
+
+    @Test
+    public void nextChunk_CsvWithGivenHeaders_ReadsFirstRowAsItem() throws IOException {
+        Path path = write("1,a\n2,b\n");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.CSV, Arrays.asList("id", "name"), 0, 1024)) {
+            List<List<JsonNode>> chunks = readChunks(file);
+            assertEquals(1, chunks.size());
+            assertEquals(MAPPER.readTree("[{\"id\": \"1\", \"name\": \"a\"}, {\"id\": \"2\", \"name\": \"b\"}]"),
+                         MAPPER.valueToTree(chunks.get(0)));
+        }
+    }
+
+    @Test(expected = StatesException.class)
+    public void next_CsvRecordWithMissingField_Fails() throws IOException {
+        Path path = write("id,name\n1\n");
+        try (ItemFile file = ItemFile.open(path, ItemFile.Format.CSV, null, 0, 1024)) {
+            file.nextChunk().next();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_CsvWithoutHeaderRow_Fails() throws IOException {
+        ItemFile.open(write("\n\n"), ItemFile.Format.CSV, null, 0, 1024);
+    }
+
+    @Test
+    public void commit_ConcatenatesPartsInOrderAndDeletesThem() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("results.jsonl");
+        ResultFile results = new ResultFile(path);
+        ResultFile.Part first = results.newPart();
+        ResultFile.Part second = results.newPart();
+        second.write(Payload.of(MAPPER.readTree("{\"b\": 2}")));
+        first.write(Payload.of("{\"a\": 1}".getBytes(StandardCharsets.UTF_8)));
+        second.write(Payload.of(MAPPER.readTree("3")));
+        assertEquals(3, results.commit());
+        assertEquals(Arrays.asList("{\"a\": 1}", "{\"b\":2}", "3"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+    }
+
+    @Test
+    public void newPart_SamePathTwice_PartsDoNotClash() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("results.jsonl");
+        ResultFile first = new ResultFile(path);
+        ResultFile second = new ResultFile(path);
+        first.newPart().write(Payload.of(MAPPER.readTree("1")));
+        second.newPart().write(Payload.of(MAPPER.readTree("2")));
+        assertEquals(1, first.commit());
+        assertEquals(Arrays.asList("1"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertEquals(1, second.commit());
+        assertEquals(Arrays.asList("2"), Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void close_DiscardsParts() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("results.jsonl");
+        ResultFile results = new ResultFile(path);
+        results.newPart().write(Payload.of(MAPPER.readTree("1")));
+        results.close();
+        assertFalse(Files.exists(path));
+        assertEquals(0, Files.list(folder.getRoot().toPath()).count());
+        assertTrue(Files.isDirectory(folder.getRoot().toPath()));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PayloadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DOCUMENT = "{\"order\": {\"id\": \"A-1\", \"lines\": [{\"sku\": \"x\", \"qty\": 2}, "
+                                           + "{\"sku\": \"y\\\"z\", \"qty\": -1.5e2}]}, \"customer\" : {\"vip\": true}}";
+
+    private static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Payload payload) {
+        return new String(payload.toBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void select_DefinitePath_ReturnsSliceOfOriginalBytes() {
+        Payload payload = Payload.of(utf8(DOCUMENT));
+        Payload lines = payload.select(PathCompiler.compile("$.order.lines"));
+        assertTrue(lines instanceof LazyPayload);
+        assertEquals("[{\"sku\": \"x\", \"qty\": 2}, {\"sku\": \"y\\\"z\", \"qty\": -1.5e2}]", text(lines));
+        assertEquals("{\"vip\": true}", text(payload.select(PathCompiler.compile("$['customer']"))));
+        assertEquals("-1.5e2", text(payload.select(PathCompiler.compile("$.order.lines[-1].qty"))));
+    }
+
+    @Test
+    public void read_DefinitePath_ParsesOnlySelectedValue() {
+        Payload payload = Payload.of(utf8(DOCUMENT));
+        assertEquals(new TextNode("y\"z"), payload.read(PathCompiler.compile("$.order.lines[1].sku")));
+        assertEquals(new IntNode(2), payload.read(PathCompiler.compile("$.order.lines[0].qty")));
+        assertNull(payload.read(PathCompiler.compile("$.order.missing")));
+        assertNull(payload.read(PathCompiler.compile("$.order.id.length")));
+        assertNull(payload.read(PathCompiler.compile("$.order.lines[2]")));
+        assertNull(payload.read(PathCompiler.compile("$.order[0]")));
+    }
+
+    @Test
+    public void read_IndefinitePath_ParsesDocument() throws IOException {
+        Payload payload = Payload.of(utf8(DOCUMENT));
+        assertEquals(MAPPER.readTree("[\"x\", \"y\\\"z\"]"), payload.read(PathCompiler.compile("$.order.lines[*].sku")));
+        assertEquals(MAPPER.readTree(DOCUMENT), payload.toJsonNode());
+    }
+
+    @Test
+    public void writeTo_UntouchedPayload_WritesOriginalBytes() throws IOException {
+        byte[] bytes = utf8("  " + DOCUMENT + "  ");
+        Payload payload = Payload.of(bytes, 2, bytes.length - 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        payload.writeTo(out);
+        assertArrayEquals(utf8(DOCUMENT), out.toByteArray());
+
+        byte[] whole = utf8(DOCUMENT);
+        assertSame(whole, Payload.of(whole).toBytes());
+    }
+
+    @Test
+    public void equals_ComparesDocuments() throws IOException {
+        JsonNode tree = MAPPER.readTree(DOCUMENT);
+        assertEquals(Payload.of(tree), Payload.of(utf8(DOCUMENT)));
+        assertEquals(tree, MAPPER.readTree(Payload.of(tree).toBytes()));
+    }
+
+    @Test
+    public void digest_SameBytes_SameDigest() throws IOException {
+        JsonNode tree = MAPPER.readTree(DOCUMENT);
+        String digest = Payload.of(tree).digest();
+        assertEquals(64, digest.length());
+        assertEquals(digest, Payload.of(MAPPER.writeValueAsBytes(tree)).digest());
+        assertNotEquals(digest, Payload.of(utf8(DOCUMENT)).digest());
+    }
+
+    @Test
+    public void array_StreamsElementsWithoutParsing() throws IOException {
+        Payload lazy = Payload.of(utf8(DOCUMENT));
+        Payload array = Payload.array(new Payload[]{Payload.of(new IntNode(1)), lazy, Payload.array(new Payload[0])});
+        String expected = "[1," + DOCUMENT + ",[]]";
+        assertEquals(expected, text(array));
+        assertEquals(utf8(expected).length, array.size());
+        assertEquals(MAPPER.readTree(expected), array.toJsonNode());
+        assertEquals(Payload.of(utf8(expected)).digest(), array.digest());
+    }
+
+    @Test
+    public void toBytes_ArrayOfTrees_DoesNotSizeElementsFirst() {
+        Payload tree = Payload.of(new IntNode(1));
+        Payload array = Payload.array(new Payload[]{tree, Payload.of(utf8("[2]"))});
+        assertEquals(-1, array.knownSize());
+        assertEquals("[1,[2]]", new String(array.toBytes(), StandardCharsets.UTF_8));
+        assertEquals(1, tree.knownSize());
+        assertEquals(7, array.knownSize());
+    }
+
+    @Test
+    public void array_DefinitePathSelectsElement() {
+        Payload lazy = Payload.of(utf8(DOCUMENT));
+        Payload array = Payload.array(new Payload[]{Payload.of(new IntNode(1)), lazy});
+        assertSame(lazy, array.select(PathCompiler.compile("$[1]")));
+        assertSame(lazy, array.select(PathCompiler.compile("$[-1]")));
+        assertEquals("{\"vip\": true}", text(array.select(PathCompiler.compile("$[1].customer"))));
+        assertEquals(new TextNode("A-1"), array.read(PathCompiler.compile("$[1].order.id")));
+        assertNull(array.select(PathCompiler.compile("$[2]")));
+        assertNull(array.read(PathCompiler.compile("$.order")));
+        assertEquals(MAPPER.createArrayNode().add(1), array.read(PathCompiler.compile("$[?(@ == 1)]")));
+    }
+
+    @Test
+    public void elements_LazyArray_StreamsSlicesOfOriginalBytes() {
+        Payload lines = Payload.of(utf8(DOCUMENT)).select(PathCompiler.compile("$.order.lines"));
+        Iterator<Payload> elements = lines.elements();
+        Payload first = elements.next();
+        assertTrue(first instanceof LazyPayload);
+        assertEquals("{\"sku\": \"x\", \"qty\": 2}", text(first));
+        assertEquals("{\"sku\": \"y\\\"z\", \"qty\": -1.5e2}", text(elements.next()));
+        assertFalse(elements.hasNext());
+        assertEquals("[]", collect(Payload.of(utf8(" [ ] ")).elements()));
+        assertEquals("[\"a\",1]", collect(Payload.of(utf8("[\"a\", 1]")).elements()));
+    }
+
+    @Test
+    public void elements_NotAnArray_ReturnsNull() {
+        assertNull(Payload.of(utf8(DOCUMENT)).elements());
+        assertNull(Payload.of(new IntNode(1)).elements());
+    }
+
+    @Test
+    public void elements_TreeAndAssembledArrays_AreIterated() throws IOException {
+        assertEquals("[1,{\"a\":2}]", collect(Payload.of(MAPPER.readTree("[1, {\"a\": 2}]")).elements()));
+        Payload lazy = Payload.of(utf8("{}"));
+        Iterator<Payload> elements = Payload.array(new Payload[]{lazy}).elements();
+        assertSame(lazy, elements.next());
+        assertFalse(elements.hasNext());
+    }
+
+    @Test
+    public void payloadList_GrowsAcrossChunksWithoutLosingSlots() {
+        PayloadList list = new PayloadList();
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(i, list.addSlot());
+        }
+        for (int i = 1999; i >= 0; i--) {
+            list.set(i, Payload.of(new IntNode(i)));
+        }
+        assertEquals(2000, list.size());
+        assertEquals(new IntNode(1234), list.get(1234).toJsonNode());
+        assertEquals(2000, Payload.array(list).toJsonNode().size());
+        try {
+            list.get(2000);
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private static String collect(Iterator<Payload> elements) {
+        StringBuilder text = new StringBuilder("[");
+        while (elements.hasNext()) {
+            if (text.length() > 1) {
+                text.append(',');
+            }
+            text.append(PayloadTest.text(elements.next()));
+        }
+        return text.append(']').toString();
+    }
+
+    @Test
+    public void toJsonNode_InvalidJson_ThrowsRuntimeError() {
+        try {
+            Payload.of(utf8("{\"a\": ")).select(PathCompiler.compile("$.a"));
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.path.PathCompiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpillStoreTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void admit_OverBudget_SpillsToMappedSegment() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("spill");
+        SpillStore.Budget budget = new SpillStore(directory, 20).newBudget();
+        Payload small = Payload.of(MAPPER.readTree("{\"a\": 1}"));
+        Payload large = Payload.of(MAPPER.readTree("{\"items\": [\"0123456789\", \"abcdef\"]}"));
+        assertSame(small, budget.admit(small));
+        Payload spilled = budget.admit(large);
+        assertNotSame(large, spilled);
+        assertTrue(spilled instanceof LazyPayload);
+        assertEquals(large, spilled);
+        assertEquals(MAPPER.readTree("\"abcdef\""), spilled.read(PathCompiler.compile("$.items[1]")));
+        assertEquals(0, Files.list(directory).count());
+        assertSame(small, budget.admit(small));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.states.ItemBatcher;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BatchingTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode json(String json) throws IOException {
+        return MAPPER.readTree(json);
+    }
+
+    private static List<JsonNode> batch(ItemBatcher.Builder itemBatcher, String input, String items)
+            throws IOException {
+        Iterator<Payload> elements = Payload.of(items.getBytes(StandardCharsets.UTF_8)).elements();
+        Iterator<Payload> batches = Batching.compile(itemBatcher.build())
+                .batches(Payload.of(json(input)), elements);
+        List<JsonNode> result = new ArrayList<JsonNode>();
+        while (batches.hasNext()) {
+            result.add(batches.next().toJsonNode());
+        }
+        return result;
+    }
+
+    @Test
+    public void compile_Null_ReturnsNull() {
+        assertNull(Batching.compile(null));
+    }
+
+    @Test
+    public void batches_MaxItems_GroupsItemsInOrder() throws IOException {
+        List<JsonNode> batches = batch(ItemBatcher.builder().maxItemsPerBatch(2), "{}", "[1, {\"a\": 2}, 3, 4, 5]");
+        assertEquals(3, batches.size());
+        assertEquals(json("{\"Items\": [1, {\"a\": 2}]}"), batches.get(0));
+        assertEquals(json("{\"Items\": [3, 4]}"), batches.get(1));
+        assertEquals(json("{\"Items\": [5]}"), batches.get(2));
+    }
+
+    @Test
+    public void batches_MaxBytes_ClosesBatchBeforeExceedingBudget() throws IOException {
+        List<JsonNode> batches = batch(ItemBatcher.builder().maxInputBytesPerBatch(10),
+                                       "{}", "[\"aaaa\", \"bb\", \"cccccccccccc\", 1]");
+        assertEquals(3, batches.size());
+        assertEquals(json("{\"Items\": [\"aaaa\", \"bb\"]}"), batches.get(0));
+        // an item larger than the budget is a batch of its own
+        assertEquals(json("{\"Items\": [\"cccccccccccc\"]}"), batches.get(1));
+        assertEquals(json("{\"Items\": [1]}"), batches.get(2));
+    }
+
+    @Test
+    public void batches_BatchInput_IsAppliedToStateInputOnce() throws IOException {
+        List<JsonNode> batches = batch(ItemBatcher.builder().maxItemsPerBatch(3).batchInput("{\"job.$\": \"$.id\"}"),
+                                       "{\"id\": \"j-1\"}", "[1, 2, 3, 4]");
+        assertEquals(json("{\"BatchInput\": {\"job\": \"j-1\"}, \"Items\": [1, 2, 3]}"), batches.get(0));
+        assertEquals(json("{\"BatchInput\": {\"job\": \"j-1\"}, \"Items\": [4]}"), batches.get(1));
+    }
+}
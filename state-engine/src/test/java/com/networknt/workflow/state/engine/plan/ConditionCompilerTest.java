@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.conditions.Condition;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.and;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gte;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isNull;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isNumeric;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isPresent;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isString;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isTimestamp;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.lt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.matches;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.not;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.numericLessThanPath;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.or;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.timestampEqualsPath;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.timestampLessThanPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionCompilerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Date DATE = new Date(1546300800000L);
+
+    private static Payload input(String json) throws IOException {
+        return Payload.of(MAPPER.readTree(json));
+    }
+
+    private static boolean evaluate(ConditionCompiler compiler, CompiledCondition condition, String json)
+            throws IOException {
+        return condition.evaluate(new VariableSlots(input(json), compiler.getVariables()));
+    }
+
+    @Test
+    public void compile_RepeatedVariables_SharesSlots() {
+        ConditionCompiler compiler = new ConditionCompiler();
+        compiler.compile(and(gt("$.amount", 10), lt("$.amount", 100)).build());
+        compiler.compile(or(eq("$.type", "retail"), not(eq("$.amount", 50))).build());
+        compiler.compile(eq("$.type", "wholesale").build());
+
+        assertEquals(2, compiler.getVariables().length);
+        assertEquals("$.amount", compiler.getVariables()[0].getPath());
+        assertEquals("$.type", compiler.getVariables()[1].getPath());
+    }
+
+    @Test
+    public void evaluate_SharedSlots_EvaluatesEachCondition() throws IOException {
+        ConditionCompiler compiler = new ConditionCompiler();
+        CompiledCondition range = compiler.compile(and(gt("$.amount", 10), lt("$.amount", 100)).build());
+        CompiledCondition retail = compiler.compile(or(eq("$.type", "retail"), not(eq("$.amount", 50))).build());
+
+        assertTrue(evaluate(compiler, range, "{\"amount\": 50, \"type\": \"wholesale\"}"));
+        assertFalse(evaluate(compiler, retail, "{\"amount\": 50, \"type\": \"wholesale\"}"));
+        assertFalse(evaluate(compiler, range, "{\"amount\": 150, \"type\": \"retail\"}"));
+        assertTrue(evaluate(compiler, retail, "{\"amount\": 150, \"type\": \"retail\"}"));
+    }
+
+    @Test
+    public void chooseAll_InvalidInput_FailsOnlyThatRow() throws IOException {
+        ChoiceNode choiceNode = (ChoiceNode) PlanCompiler.compile(stateMachine()
+                .startAt("Choice")
+                .state("Choice", choiceState()
+                        .choice(choice().condition(not(eq("$.type", "retail"))).transition(next("Other")))
+                        .defaultStateName("Retail"))
+                .state("Retail", succeedState())
+                .state("Other", succeedState())
+                .build()).getNode("Choice");
+        Payload[] inputs = {
+                input("{\"type\": \"retail\"}"),
+                Payload.of("{\"type\": ".getBytes(StandardCharsets.UTF_8)),
+                input("{\"type\": \"wholesale\"}")
+        };
+        StatesException[] errors = new StatesException[inputs.length];
+
+        String[] next = choiceNode.chooseAll(inputs, errors);
+
+        assertEquals("Retail", next[0]);
+        assertNull(next[1]);
+        assertEquals("Other", next[2]);
+        assertNull(errors[0]);
+        assertEquals(ErrorCodes.RUNTIME, errors[1].getError());
+        assertNull(errors[2]);
+    }
+
+    @Test
+    public void evaluateColumns_MatchesRowByRowEvaluation() throws IOException {
+        ConditionCompiler compiler = new ConditionCompiler();
+        CompiledCondition condition = compiler.compile(or(
+                and(gte("$.amount", 10), lt("$.amount", 100), not(eq("$.type", "retail"))),
+                gt("$.type", "x"),
+                eq("$.vip", true),
+                gt("$.since", DATE)).build());
+        String[] rows = {
+                "{\"amount\": 50, \"type\": \"wholesale\"}",
+                "{\"amount\": 50, \"type\": \"retail\"}",
+                "{\"amount\": 5, \"type\": \"zebra\"}",
+                "{\"amount\": \"50\", \"vip\": true}",
+                "{\"since\": \"2020-01-01T00:00:00Z\"}",
+                "{\"since\": \"not a timestamp\"}",
+                "{}"
+        };
+        Payload[] inputs = new Payload[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            inputs[i] = input(rows[i]);
+        }
+
+        boolean[] matches = condition.evaluate(new VariableColumns(inputs, compiler.getVariables()));
+
+        boolean[] expected = {true, false, true, true, true, false, false};
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(rows[i], expected[i], matches[i]);
+            assertEquals(rows[i], evaluate(compiler, condition, rows[i]), matches[i]);
+        }
+    }
+
+    @Test
+    public void evaluate_TypeAndPathConditions_MatchRowAndColumnEvaluation() throws IOException {
+        String[] rows = {
+                "{\"file\": \"log-1.txt\", \"price\": 5, \"budget\": 10, \"at\": \"2020-01-01T00:00:00Z\"}",
+                "{\"file\": \"log-1.csv\", \"price\": 15, \"budget\": 10, \"at\": null}",
+                "{\"file\": 7, \"price\": \"5\", \"budget\": 10}"
+        };
+        assertConditions(rows, matches("$.file", "log-*.txt"), true, false, false);
+        assertConditions(rows, numericLessThanPath("$.price", "$.budget"), true, false, false);
+        assertConditions(rows, isPresent("$.at", true), true, true, false);
+        assertConditions(rows, isPresent("$.at", false), false, false, true);
+        assertConditions(rows, isNull("$.at", true), false, true, false);
+        assertConditions(rows, isTimestamp("$.at", true), true, false, false);
+        assertConditions(rows, isString("$.file", false), false, false, true);
+        assertConditions(rows, isNumeric("$.price", true), true, true, false);
+    }
+
+    @Test
+    public void evaluate_TimestampPathCondition_ComparesAcrossOffsets() throws IOException {
+        String[] rows = {
+                "{\"start\": \"2016-03-14T01:59:00.123-08:00\", \"end\": \"2016-03-14T09:59:00.124Z\"}",
+                "{\"start\": \"2016-03-14T01:59:00.123-08:00\", \"end\": \"2016-03-14T09:59:00.123Z\"}",
+                "{\"start\": \"2016-02-30T00:00:00Z\", \"end\": \"2016-03-14T09:59:00Z\"}"
+        };
+        assertConditions(rows, timestampLessThanPath("$.start", "$.end"), true, false, false);
+        assertConditions(rows, timestampEqualsPath("$.start", "$.end"), false, true, false);
+    }
+
+    @Test
+    public void compile_PathCondition_SharesSlotsWithVariables() {
+        ConditionCompiler compiler = new ConditionCompiler();
+        compiler.compile(lt("$.budget", 100).build());
+        compiler.compile(numericLessThanPath("$.price", "$.budget").build());
+
+        assertEquals(2, compiler.getVariables().length);
+    }
+
+    private static void assertConditions(String[] rows, Condition.Builder builder, boolean... expected)
+            throws IOException {
+        ConditionCompiler compiler = new ConditionCompiler();
+        CompiledCondition condition = compiler.compile(builder.build());
+        Payload[] inputs = new Payload[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            // Raw bytes so values are read from the lazily indexed payload.
+            inputs[i] = Payload.of(rows[i].getBytes(StandardCharsets.UTF_8));
+        }
+        boolean[] columns = condition.evaluate(new VariableColumns(inputs, compiler.getVariables()));
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(rows[i], expected[i], evaluate(compiler, condition, rows[i]));
+            VariableSlots slots = new VariableSlots(inputs[i], compiler.getVariables());
+            assertEquals(rows[i], expected[i], condition.evaluate(slots));
+            assertEquals(rows[i], expected[i], columns[i]);
+        }
+    }
+
+    @Test
+    public void evaluate_MissingVariable_ReturnsFalse() throws IOException {
+        ConditionCompiler compiler = new ConditionCompiler();
+        Condition condition = eq("$.missing", true).build();
+
+        assertFalse(evaluate(compiler, compiler.compile(condition), "{\"amount\": 50}"));
+    }
+}
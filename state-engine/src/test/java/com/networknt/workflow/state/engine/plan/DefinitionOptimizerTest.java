@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.networknt.workflow.state.model.StateMachine;
+import com.networknt.workflow.state.model.states.ChoiceState;
+import com.networknt.workflow.state.model.states.NextStateTransition;
+import com.networknt.workflow.state.model.states.ParallelState;
+import com.networknt.workflow.state.model.states.PassState;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.networknt.workflow.state.model.StepFunctionBuilder.and;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.branch;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choice;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.choiceState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.end;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.gte;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isNumeric;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isPresent;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.isString;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.lt;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.lte;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.next;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.or;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.parallelState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.passState;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.stateMachine;
+import static com.networknt.workflow.state.model.StepFunctionBuilder.succeedState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DefinitionOptimizerTest {
+
+    @Test
+    public void optimize_PassResultFeedsChoice_TransitionsToChosenState() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Init")
+                .state("Init", passState().result("{\"mode\": \"fast\", \"size\": 3}").transition(next("Route")))
+                .state("Route", choiceState()
+                        .choice(choice().condition(gt("$.size", 10)).transition(next("Slow")))
+                        .choice(choice().condition(eq("$.mode", "fast")).transition(next("Fast")))
+                        .defaultStateName("Slow"))
+                .state("Fast", succeedState())
+                .state("Slow", succeedState())
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        assertEquals(new HashSet<String>(Arrays.asList("Init", "Fast")), optimized.getStates().keySet());
+        PassState init = (PassState) optimized.getStates().get("Init");
+        assertEquals("Fast", ((NextStateTransition) init.getTransition()).getNextStateName());
+    }
+
+    @Test
+    public void optimize_ChoiceReachedFromElsewhere_KeepsChoice() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().condition(eq("$.mode", "fast")).transition(next("Fast")))
+                        .defaultStateName("Init"))
+                .state("Init", passState().result("{\"mode\": \"fast\"}").transition(next("Route")))
+                .state("Fast", succeedState())
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        assertEquals(3, optimized.getStates().size());
+        PassState init = (PassState) optimized.getStates().get("Init");
+        assertEquals("Fast", ((NextStateTransition) init.getTransition()).getNextStateName());
+    }
+
+    @Test
+    public void optimize_ContradictoryRanges_RemovesRuleAndItsTarget() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().condition(and(gt("$.total", 10), lt("$.total", 5))).transition(next("A")))
+                        .choice(choice().condition(and(gte("$.total", 5), lte("$.total", 5))).transition(next("B")))
+                        .defaultStateName("C"))
+                .state("A", succeedState())
+                .state("B", succeedState())
+                .state("C", succeedState())
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        assertEquals(new HashSet<String>(Arrays.asList("Route", "B", "C")), optimized.getStates().keySet());
+        assertEquals(1, ((ChoiceState) optimized.getStates().get("Route")).getChoices().size());
+    }
+
+    @Test
+    public void optimize_AllRulesNeverHold_BypassesChoice() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().condition(and(isNumeric("$.id", true), isString("$.id", true)))
+                                        .transition(next("A")))
+                        .choice(choice().condition(or(and(eq("$.id", 1), isPresent("$.id", false)),
+                                                      and(eq("$.kind", "a"), eq("$.kind", "b"))))
+                                        .transition(next("A")))
+                        .defaultStateName("C"))
+                .state("A", succeedState())
+                .state("C", succeedState())
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        assertEquals("C", optimized.getStartAt());
+        assertEquals(new HashSet<String>(Arrays.asList("C")), optimized.getStates().keySet());
+    }
+
+    @Test
+    public void optimize_NothingToOptimize_DoesNotRetainDefinition() throws InterruptedException {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Done")
+                .state("Done", succeedState())
+                .build();
+        assertSame(stateMachine, DefinitionOptimizer.optimize(stateMachine));
+        assertSame(stateMachine, DefinitionOptimizer.optimize(stateMachine));
+
+        WeakReference<StateMachine> reference = new WeakReference<StateMachine>(stateMachine);
+        stateMachine = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void optimize_ChoiceWithOutputPath_IsNotBypassed() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Init")
+                .state("Init", passState().result("{\"mode\": \"fast\"}").transition(next("Route")))
+                .state("Route", choiceState()
+                        .outputPath("$.mode")
+                        .choice(choice().condition(eq("$.mode", "fast")).transition(next("Fast")))
+                        .defaultStateName("Fast"))
+                .state("Fast", succeedState())
+                .build();
+
+        assertSame(stateMachine, DefinitionOptimizer.optimize(stateMachine));
+    }
+
+    @Test
+    public void optimize_ParallelBranch_IsOptimizedOnItsOwn() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Parallel")
+                .state("Parallel", parallelState()
+                        .branch(branch()
+                                        .startAt("Init")
+                                        .state("Init", passState().result("{\"n\": 1}").transition(next("Route")))
+                                        .state("Route", choiceState()
+                                                .choice(choice().condition(eq("$.n", 1)).transition(next("One")))
+                                                .defaultStateName("Other"))
+                                        .state("One", succeedState())
+                                        .state("Other", succeedState()))
+                        .transition(end()))
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        ParallelState parallel = (ParallelState) optimized.getStates().get("Parallel");
+        assertEquals(new HashSet<String>(Arrays.asList("Init", "One")),
+                     parallel.getBranches().get(0).getStates().keySet());
+    }
+
+    @Test
+    public void optimize_SameStateMachine_ReturnsCachedResult() {
+        StateMachine stateMachine = stateMachine()
+                .startAt("Route")
+                .state("Route", choiceState()
+                        .choice(choice().condition(and(gt("$.total", 10), lt("$.total", 5))).transition(next("A")))
+                        .choice(choice().condition(eq("$.total", 1)).transition(next("C")))
+                        .defaultStateName("C"))
+                .state("A", succeedState())
+                .state("C", succeedState())
+                .build();
+
+        StateMachine optimized = DefinitionOptimizer.optimize(stateMachine);
+
+        assertFalse(optimized == stateMachine);
+        assertSame(optimized, DefinitionOptimizer.optimize(stateMachine));
+        assertTrue(optimized.getStates().containsKey("Route"));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IntrinsicExpressionTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String INPUT = "{\"name\": \"Ann\", \"items\": [1, 2, 2, 3], \"text\": \"a,b;c\", "
+            + "\"a\": {\"x\": 1, \"n\": {\"p\": 1}}, \"b\": {\"y\": 2, \"n\": {\"q\": 2}}, \"json\": \"{\\\"k\\\": [1]}\"}";
+
+    private static JsonNode json(String json) throws IOException {
+        return MAPPER.readTree(json);
+    }
+
+    private static JsonNode eval(String call) throws IOException {
+        return IntrinsicExpression.compile(call).evaluate(Payload.of(json(INPUT)));
+    }
+
+    @Test
+    public void format_FillsPlaceholders() throws IOException {
+        assertEquals("Hello Ann, {literal} 4 true null",
+                     eval("States.Format('Hello {}, \\{literal\\} {} {} {}', $.name, "
+                          + "States.ArrayLength($.items), true, null)").textValue());
+    }
+
+    @Test
+    public void format_ObjectArgument_FailsWithIntrinsicFailure() throws IOException {
+        assertFailure("States.Format('{}', $.a)");
+    }
+
+    @Test
+    public void jsonConversions_RoundTrip() throws IOException {
+        assertEquals(json("{\"k\": [1]}"), eval("States.StringToJson($.json)"));
+        assertEquals("{\"x\":1,\"n\":{\"p\":1}}", eval("States.JsonToString($.a)").textValue());
+        assertFailure("States.StringToJson('{')");
+        assertFailure("States.StringToJson($.items)");
+    }
+
+    @Test
+    public void arrayFunctions_Work() throws IOException {
+        assertEquals(json("[1, \"Ann\", [1, 2, 2, 3]]"), eval("States.Array(1, $.name, $.items)"));
+        assertEquals(json("[[1, 2, 2], [3]]"), eval("States.ArrayPartition($.items, 3)"));
+        assertTrue(eval("States.ArrayContains($.items, 3)").booleanValue());
+        assertFalse(eval("States.ArrayContains($.items, '3')").booleanValue());
+        assertEquals(json("[1, 3, 5]"), eval("States.ArrayRange(1, 6, 2)"));
+        assertEquals(json("[3, 2, 1]"), eval("States.ArrayRange(3, 1, -1)"));
+        assertEquals(json("2"), eval("States.ArrayGetItem($.items, 1)"));
+        assertEquals(json("4"), eval("States.ArrayLength($.items)"));
+        assertEquals(json("[1, 2, 3]"), eval("States.ArrayUnique($.items)"));
+    }
+
+    @Test
+    public void arrayFunctions_BadArguments_Fail() throws IOException {
+        assertFailure("States.ArrayPartition($.items, 0)");
+        assertFailure("States.ArrayRange(1, 5, 0)");
+        assertFailure("States.ArrayRange(0, 5000, 1)");
+        assertFailure("States.ArrayGetItem($.items, 4)");
+        assertFailure("States.ArrayLength($.name)");
+        assertFailure("States.ArrayGetItem($.items, 1.5)");
+    }
+
+    @Test
+    public void encodingFunctions_Work() throws IOException {
+        assertEquals("QW5u", eval("States.Base64Encode($.name)").textValue());
+        assertEquals("Ann", eval("States.Base64Decode('QW5u')").textValue());
+        assertEquals(64, eval("States.Hash($.name, 'SHA-256')").textValue().length());
+        assertEquals("5d41402abc4b2a76b9719d911017c592", eval("States.Hash('hello', 'MD5')").textValue());
+        assertFailure("States.Hash('hello', 'CRC32')");
+        assertFailure("States.Base64Decode('%%%')");
+    }
+
+    @Test
+    public void jsonMerge_ShallowAndDeep() throws IOException {
+        assertEquals(json("{\"x\": 1, \"y\": 2, \"n\": {\"q\": 2}}"), eval("States.JsonMerge($.a, $.b, false)"));
+        assertEquals(json("{\"x\": 1, \"y\": 2, \"n\": {\"p\": 1, \"q\": 2}}"),
+                     eval("States.JsonMerge($.a, $.b, true)"));
+        assertFailure("States.JsonMerge($.a, $.items, false)");
+    }
+
+    @Test
+    public void mathFunctions_Work() throws IOException {
+        assertEquals(json("5"), eval("States.MathAdd($.items[3], 2)"));
+        assertEquals(0.5, eval("States.MathAdd(1, -0.5)").doubleValue(), 0);
+        for (int i = 0; i < 20; i++) {
+            int value = eval("States.MathRandom(3, 5)").intValue();
+            assertTrue(value >= 3 && value < 5);
+        }
+        assertEquals(eval("States.MathRandom(0, 1000, 42)"), eval("States.MathRandom(0, 1000, 42)"));
+        assertFailure("States.MathAdd($.name, 1)");
+        assertFailure("States.MathRandom(5, 5)");
+    }
+
+    @Test
+    public void stringSplitAndUuid_Work() throws IOException {
+        assertEquals(json("[\"a\", \"b\", \"c\"]"), eval("States.StringSplit($.text, ',;')"));
+        assertNotEquals(eval("States.UUID()"), eval("States.UUID()"));
+        assertEquals(36, eval("States.UUID()").textValue().length());
+    }
+
+    @Test
+    public void compile_ConstantArguments_AreFolded() {
+        assertTrue(IntrinsicExpression.compile("States.ArrayLength(States.Array(1, 2))").isConstant());
+        assertTrue(IntrinsicExpression.compile("States.MathRandom(0, 10, 7)").isConstant());
+        assertFalse(IntrinsicExpression.compile("States.MathRandom(0, 10)").isConstant());
+        assertFalse(IntrinsicExpression.compile("States.Array(States.UUID())").isConstant());
+        assertFalse(IntrinsicExpression.compile("States.ArrayLength($.items)").isConstant());
+    }
+
+    @Test
+    public void evaluate_MissingPath_FailsWithRuntime() throws IOException {
+        try {
+            eval("States.ArrayLength($.missing)");
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+
+    private static void assertFailure(String call) throws IOException {
+        try {
+            eval(call);
+            fail("Expected " + call + " to fail");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.INTRINSIC_FAILURE, e.getError());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.engine.StatesException;
+import com.networknt.workflow.state.engine.payload.Payload;
+import com.networknt.workflow.state.model.ErrorCodes;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class PayloadTemplateTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String INPUT =
+            "{\"order\": {\"id\": \"o-1\", \"lines\": [{\"sku\": \"a\", \"qty\": 1}, {\"sku\": \"b\", \"qty\": 2}]}}";
+
+    private static JsonNode json(String json) throws IOException {
+        return MAPPER.readTree(json);
+    }
+
+    private static JsonNode apply(String template, String input) throws IOException {
+        return PayloadTemplate.compile(json(template)).apply(Payload.of(input.getBytes(StandardCharsets.UTF_8)))
+                .toJsonNode();
+    }
+
+    @Test
+    public void compile_Null_ReturnsNull() {
+        assertNull(PayloadTemplate.compile(null));
+    }
+
+    @Test
+    public void apply_NoSlots_ReturnsSharedConstant() throws IOException {
+        PayloadTemplate template = PayloadTemplate.compile(json("{\"a\": [1, {\"b\": null}]}"));
+        assertEquals(0, template.getSlotCount());
+        Payload first = template.apply(Payload.of(json("{}")));
+        assertSame(first, template.apply(Payload.of(json("{\"x\": 1}"))));
+        assertEquals(json("{\"a\": [1, {\"b\": null}]}"), first.toJsonNode());
+    }
+
+    @Test
+    public void apply_PathFields_AreFilledIn() throws IOException {
+        assertEquals(json("{\"id\": \"o-1\", \"mode\": \"express\", \"first\": {\"sku\": \"a\", \"qty\": 1}}"),
+                     apply("{\"id.$\": \"$.order.id\", \"mode\": \"express\", \"first.$\": \"$.order.lines[0]\"}",
+                           INPUT));
+    }
+
+    @Test
+    public void apply_IntrinsicFunctions_AreEvaluated() throws IOException {
+        PayloadTemplate template = PayloadTemplate.compile(json(
+                "{\"count.$\": \"States.ArrayLength($.order.lines)\", \"id\": 1, "
+                + "\"label.$\": \"States.Format('order {}', $.order.id)\"}"));
+        assertEquals(2, template.getSlotCount());
+        assertEquals(json("{\"count\": 2, \"id\": 1, \"label\": \"order o-1\"}"),
+                     template.apply(Payload.of(INPUT.getBytes(StandardCharsets.UTF_8))).toJsonNode());
+    }
+
+    @Test
+    public void apply_ConstantIntrinsicFunction_IsFoldedIntoTheTemplate() throws IOException {
+        PayloadTemplate template = PayloadTemplate.compile(json("{\"ids.$\": \"States.ArrayRange(1, 3, 1)\"}"));
+        assertEquals(0, template.getSlotCount());
+        assertEquals(json("{\"ids\": [1, 2, 3]}"), template.apply(Payload.of(json("{}"))).toJsonNode());
+    }
+
+    @Test
+    public void apply_NestedObjectsAndArrays_AreFilledIn() throws IOException {
+        assertEquals(json("{\"order\": {\"ids\": [{\"id\": \"o-1\", \"n\": 1}], \"count\": 2}}"),
+                     apply("{\"order\": {\"ids\": [{\"id.$\": \"$.order.id\", \"n\": 1}], \"count\": 2}}", INPUT));
+    }
+
+    @Test
+    public void apply_OnlySlots_AreSeparated() throws IOException {
+        assertEquals(json("{\"a\": \"o-1\", \"b\": 2, \"c\": [\"a\", \"b\"]}"),
+                     apply("{\"a.$\": \"$.order.id\", \"b.$\": \"$.order.lines[1].qty\", "
+                           + "\"c.$\": \"$.order.lines[*].sku\"}", INPUT));
+    }
+
+    @Test
+    public void apply_RootPath_EmbedsWholeInput() throws IOException {
+        assertEquals(json("{\"input\": " + INPUT + "}"), apply("{\"input.$\": \"$\"}", INPUT));
+    }
+
+    @Test
+    public void apply_MissingPath_ThrowsRuntimeError() throws IOException {
+        try {
+            apply("{\"a.$\": \"$.missing\"}", INPUT);
+            fail("Expected exception");
+        } catch (StatesException e) {
+            assertEquals(ErrorCodes.RUNTIME, e.getError());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_NonTextPath_Throws() throws IOException {
+        PayloadTemplate.compile(json("{\"a.$\": 1}"));
+    }
+}
@@ -56,6 +56,14 @@ public final class ErrorCodes {
      * A Choice state failed to find a match for the condition field extracted from its input.
      */
     public static final String NO_CHOICE_MATCHED = "States.NoChoiceMatched";
+    /**
+     * A path in a state's InputPath, OutputPath or Variable could not be applied to the state's input.
+     */
+    public static final String RUNTIME = "States.Runtime";
+    /**
+     * An intrinsic function in a state's Parameters or ResultSelector could not be applied to its arguments.
+     */
+    public static final String INTRINSIC_FAILURE = "States.IntrinsicFailure";
 
     private ErrorCodes() {
     }
@@ -15,6 +15,7 @@
 
 package com.networknt.workflow.state.model;
 
+import java.time.Instant;
 import java.util.Date;
 
 import com.networknt.workflow.state.model.conditions.NumericLessThanCondition;
@@ -38,15 +39,43 @@ import com.networknt.workflow.state.model.conditions.TimestampGreaterThanConditi
 import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualCondition;
 import com.networknt.workflow.state.model.conditions.TimestampLessThanCondition;
 import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualCondition;
+import com.networknt.workflow.state.model.conditions.BooleanEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.IsBooleanCondition;
+import com.networknt.workflow.state.model.conditions.IsNullCondition;
+import com.networknt.workflow.state.model.conditions.IsNumericCondition;
+import com.networknt.workflow.state.model.conditions.IsPresentCondition;
+import com.networknt.workflow.state.model.conditions.IsStringCondition;
+import com.networknt.workflow.state.model.conditions.IsTimestampCondition;
+import com.networknt.workflow.state.model.conditions.NumericEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.NumericLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.StringLessThanPathCondition;
+import com.networknt.workflow.state.model.conditions.StringMatchesCondition;
+import com.networknt.workflow.state.model.conditions.TimestampEqualsPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampGreaterThanPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanOrEqualPathCondition;
+import com.networknt.workflow.state.model.conditions.TimestampLessThanPathCondition;
 import com.networknt.workflow.state.model.states.Branch;
 import com.networknt.workflow.state.model.states.Catcher;
 import com.networknt.workflow.state.model.states.Choice;
 import com.networknt.workflow.state.model.states.ChoiceState;
 import com.networknt.workflow.state.model.states.EndTransition;
+import com.networknt.workflow.state.model.states.ItemBatcher;
+import com.networknt.workflow.state.model.states.ItemReader;
 import com.networknt.workflow.state.model.states.NextStateTransition;
+import com.networknt.workflow.state.model.states.MapState;
 import com.networknt.workflow.state.model.states.ParallelState;
 import com.networknt.workflow.state.model.states.PassState;
+import com.networknt.workflow.state.model.states.ReaderConfig;
 import com.networknt.workflow.state.model.states.Retrier;
+import com.networknt.workflow.state.model.states.ResultWriter;
 import com.networknt.workflow.state.model.states.SucceedState;
 import com.networknt.workflow.state.model.states.TaskState;
 import com.networknt.workflow.state.model.states.Transition;
@@ -88,6 +117,56 @@ public final class StepFunctionBuilder {
         return ParallelState.builder();
     }
 
+    /**
+     * State that runs the same steps for each element of an array in its input, with a bounded number of iterations
+     * running at the same time. The steps are configured with {@link MapState.Builder#iterator(Branch.Builder)}, e.g.
+     * {@code mapState().itemsPath("$.items").iterator(branch().startAt(...))}.
+     *
+     * @return Builder used to configure a {@link MapState}.
+     * @see <a href="https://states-language.net/spec.html#map-state">https://states-language.net/spec.html#map-state</a>
+     */
+    public static MapState.Builder mapState() {
+        return MapState.builder();
+    }
+
+    /**
+     * Reads the items of a {@link MapState} from a local JSON Lines or CSV file, e.g.
+     * {@code itemReader().readerConfig(readerConfig().inputType(ReaderConfig.CSV)).parameters("{\"Path.$\": \"$.file\"}")}.
+     *
+     * @return Builder used to configure an {@link ItemReader}.
+     */
+    public static ItemReader.Builder itemReader() {
+        return ItemReader.builder();
+    }
+
+    /**
+     * Format of the file read by an {@link ItemReader}.
+     *
+     * @return Builder used to configure a {@link ReaderConfig}.
+     */
+    public static ReaderConfig.Builder readerConfig() {
+        return ReaderConfig.builder();
+    }
+
+    /**
+     * Writes the iteration outputs of a {@link MapState} to a local JSON Lines file.
+     *
+     * @return Builder used to configure a {@link ResultWriter}.
+     */
+    public static ResultWriter.Builder resultWriter() {
+        return ResultWriter.builder();
+    }
+
+    /**
+     * Groups the items of a {@link MapState} into batches processed by a single iteration, e.g.
+     * {@code itemBatcher().maxItemsPerBatch(100).maxInputBytesPerBatch(256 * 1024)}.
+     *
+     * @return Builder used to configure an {@link ItemBatcher}.
+     */
+    public static ItemBatcher.Builder itemBatcher() {
+        return ItemBatcher.builder();
+    }
+
     /**
      * A single branch of parallel execution in a state machine. See {@link ParallelState}.
      *
@@ -191,7 +270,7 @@ public final class StepFunctionBuilder {
     }
 
     /**
-     * Catches an error from a {@link ParallelState} or a {@link TaskState} and transitions into the specified recovery state.
+     * Catches an error from a {@link MapState}, a {@link ParallelState} or a {@link TaskState} and transitions into the specified recovery state.
      * The
      * recovery state will receive the error output as input unless otherwise specified by a ResultPath.
      *
@@ -267,6 +346,17 @@ public final class StepFunctionBuilder {
         return TimestampEqualsCondition.builder().variable(variable).expectedValue(expectedValue);
     }
 
+    /**
+     * Same as {@link #eq(String, Date)} for an {@link Instant}, which is truncated to milliseconds.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The expected value for this condition.
+     * @return TimestampEqualsCondition.Builder
+     */
+    public static TimestampEqualsCondition.Builder eq(String variable, Instant expectedValue) {
+        return TimestampEqualsCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
     /**
      * Binary condition for String greater than comparison.
      *
@@ -319,6 +409,17 @@ public final class StepFunctionBuilder {
         return TimestampGreaterThanCondition.builder().variable(variable).expectedValue(expectedValue);
     }
 
+    /**
+     * Same as {@link #gt(String, Date)} for an {@link Instant}, which is truncated to milliseconds.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The expected value for this condition.
+     * @return TimestampGreaterThanCondition.Builder
+     */
+    public static TimestampGreaterThanCondition.Builder gt(String variable, Instant expectedValue) {
+        return TimestampGreaterThanCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
     /**
      * Binary condition for String greater than or equal to comparison.
      *
@@ -371,6 +472,17 @@ public final class StepFunctionBuilder {
         return TimestampGreaterThanOrEqualCondition.builder().variable(variable).expectedValue(expectedValue);
     }
 
+    /**
+     * Same as {@link #gte(String, Date)} for an {@link Instant}, which is truncated to milliseconds.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The expected value for this condition.
+     * @return TimestampGreaterThanOrEqualCondition.Builder
+     */
+    public static TimestampGreaterThanOrEqualCondition.Builder gte(String variable, Instant expectedValue) {
+        return TimestampGreaterThanOrEqualCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
     /**
      * Binary condition for String less than comparison.
      *
@@ -423,6 +535,17 @@ public final class StepFunctionBuilder {
         return TimestampLessThanCondition.builder().variable(variable).expectedValue(expectedValue);
     }
 
+    /**
+     * Same as {@link #lt(String, Date)} for an {@link Instant}, which is truncated to milliseconds.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The expected value for this condition.
+     * @return TimestampLessThanCondition.Builder
+     */
+    public static TimestampLessThanCondition.Builder lt(String variable, Instant expectedValue) {
+        return TimestampLessThanCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
     /**
      * Binary condition for String less than or equal to comparison.
      *
@@ -475,6 +598,317 @@ public final class StepFunctionBuilder {
         return TimestampLessThanOrEqualCondition.builder().variable(variable).expectedValue(expectedValue);
     }
 
+    /**
+     * Same as {@link #lte(String, Date)} for an {@link Instant}, which is truncated to milliseconds.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The expected value for this condition.
+     * @return TimestampLessThanOrEqualCondition.Builder
+     */
+    public static TimestampLessThanOrEqualCondition.Builder lte(String variable, Instant expectedValue) {
+        return TimestampLessThanOrEqualCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition matching a String against a wildcard pattern. "*" matches any run of characters, a backslash
+     * escapes a literal "*" or backslash. The pattern is compiled when the condition is built.
+     *
+     * @param variable The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param pattern  The wildcard pattern.
+     * @return StringMatchesCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringMatchesCondition.Builder matches(String variable, String pattern) {
+        return StringMatchesCondition.builder().variable(variable).expectedValue(pattern);
+    }
+
+    /**
+     * Binary condition for String equality comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return StringEqualsPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringEqualsPathCondition.Builder stringEqualsPath(String variable, String expectedValue) {
+        return StringEqualsPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for String greater than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return StringGreaterThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringGreaterThanPathCondition.Builder stringGreaterThanPath(String variable, String expectedValue) {
+        return StringGreaterThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for String greater than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return StringGreaterThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringGreaterThanOrEqualPathCondition.Builder stringGreaterThanEqualsPath(String variable, String expectedValue) {
+        return StringGreaterThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for String less than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return StringLessThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringLessThanPathCondition.Builder stringLessThanPath(String variable, String expectedValue) {
+        return StringLessThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for String less than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return StringLessThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static StringLessThanOrEqualPathCondition.Builder stringLessThanEqualsPath(String variable, String expectedValue) {
+        return StringLessThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Numeric equality comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return NumericEqualsPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static NumericEqualsPathCondition.Builder numericEqualsPath(String variable, String expectedValue) {
+        return NumericEqualsPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Numeric greater than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return NumericGreaterThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static NumericGreaterThanPathCondition.Builder numericGreaterThanPath(String variable, String expectedValue) {
+        return NumericGreaterThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Numeric greater than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return NumericGreaterThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static NumericGreaterThanOrEqualPathCondition.Builder numericGreaterThanEqualsPath(String variable, String expectedValue) {
+        return NumericGreaterThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Numeric less than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return NumericLessThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static NumericLessThanPathCondition.Builder numericLessThanPath(String variable, String expectedValue) {
+        return NumericLessThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Numeric less than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return NumericLessThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static NumericLessThanOrEqualPathCondition.Builder numericLessThanEqualsPath(String variable, String expectedValue) {
+        return NumericLessThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Timestamp equality comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return TimestampEqualsPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static TimestampEqualsPathCondition.Builder timestampEqualsPath(String variable, String expectedValue) {
+        return TimestampEqualsPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Timestamp greater than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return TimestampGreaterThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static TimestampGreaterThanPathCondition.Builder timestampGreaterThanPath(String variable, String expectedValue) {
+        return TimestampGreaterThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Timestamp greater than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return TimestampGreaterThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static TimestampGreaterThanOrEqualPathCondition.Builder timestampGreaterThanEqualsPath(String variable, String expectedValue) {
+        return TimestampGreaterThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Timestamp less than comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return TimestampLessThanPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static TimestampLessThanPathCondition.Builder timestampLessThanPath(String variable, String expectedValue) {
+        return TimestampLessThanPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Timestamp less than or equal to comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return TimestampLessThanOrEqualPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static TimestampLessThanOrEqualPathCondition.Builder timestampLessThanEqualsPath(String variable, String expectedValue) {
+        return TimestampLessThanOrEqualPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Binary condition for Boolean equality comparison with the value another path selects from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is used for the comparison.
+     * @param expectedValue The JSONPath expression that selects the expected value from the input document.
+     * @return BooleanEqualsPathCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static BooleanEqualsPathCondition.Builder booleanEqualsPath(String variable, String expectedValue) {
+        return BooleanEqualsPathCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects a value from the input.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsPresentCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsPresentCondition.Builder isPresent(String variable, boolean expectedValue) {
+        return IsPresentCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects a JSON null.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsNullCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsNullCondition.Builder isNull(String variable, boolean expectedValue) {
+        return IsNullCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects a number.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsNumericCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsNumericCondition.Builder isNumeric(String variable, boolean expectedValue) {
+        return IsNumericCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects a string.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsStringCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsStringCondition.Builder isString(String variable, boolean expectedValue) {
+        return IsStringCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects a boolean.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsBooleanCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsBooleanCondition.Builder isBoolean(String variable, boolean expectedValue) {
+        return IsBooleanCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
+    /**
+     * Condition testing whether the variable selects an ISO8601 timestamp string.
+     *
+     * @param variable      The JSONPath expression that determines which piece of the input document is tested.
+     * @param expectedValue True for the condition to hold if the test passes, false for it to hold if it fails.
+     * @return IsTimestampCondition.Builder
+     * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+     * @see Choice
+     */
+    public static IsTimestampCondition.Builder isTimestamp(String variable, boolean expectedValue) {
+        return IsTimestampCondition.builder().variable(variable).expectedValue(expectedValue);
+    }
+
     /**
      * Represents the logical NOT of a single condition. May be used in a {@link ChoiceState}.
      *
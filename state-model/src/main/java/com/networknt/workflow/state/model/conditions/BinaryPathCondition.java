@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+/**
+ * Binary condition whose expected value is not a literal but selected from the input document by a second path, e.g.
+ * {@code {"Variable": "$.price", "NumericLessThanPath": "$.budget"}}.
+ *
+ * <p>This interface should not be implemented outside of the SDK.</p>
+ */
+public interface BinaryPathCondition extends BinaryCondition<String> {
+
+    /**
+     * @return The JSONPath expression that selects the expected value from the input document.
+     */
+    @Override
+    String getExpectedValue();
+}
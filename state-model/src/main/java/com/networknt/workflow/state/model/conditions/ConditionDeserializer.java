@@ -18,70 +18,188 @@ package com.networknt.workflow.state.model.conditions;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Custom deserializer for a {@link Condition}.
+ *
+ * <p>The fields of a condition node are scanned once and each field name is looked up as an operator: the built-in
+ * operators through a string switch, which compiles to a jump on the hash of the name, others in a registry that
+ * {@link #register(String, Operator)} adds to. The first field that names an operator decides the condition, any other
+ * field, e.g. "Variable" or "Next", is left to the operator.</p>
  */
 public class ConditionDeserializer {
 
+    /**
+     * Operators registered on top of the built-in ones.
+     */
+    private static final ConcurrentMap<String, Operator> OPERATORS = new ConcurrentHashMap<String, Operator>();
+
+    /**
+     * Deserializes conditions of an operator that is not built in.
+     */
+    public interface Operator {
+
+        /**
+         * @param node         Condition node, holding the operator field and e.g. the "Variable" field.
+         * @param deserializer Deserializer for nested conditions.
+         * @return Builder for the condition.
+         */
+        Condition.Builder deserialize(JsonNode node, ConditionDeserializer deserializer);
+    }
+
+    /**
+     * Registers an operator so that conditions with a field of that name are deserialized by it.
+     *
+     * @param name     Field name of the operator, e.g. "StringEqualsIgnoreCase".
+     * @param operator Deserializer for conditions of the operator.
+     * @throws IllegalArgumentException If the name is the name of a built-in operator or of "Variable".
+     */
+    public static void register(String name, Operator operator) {
+        if (PropertyNames.VARIABLE.equals(name) || PropertyNames.AND.equals(name) || PropertyNames.OR.equals(name)
+                || PropertyNames.NOT.equals(name) || binaryBuilder(name) != null) {
+            throw new IllegalArgumentException("Operator " + name + " is built in and cannot be replaced");
+        }
+        OPERATORS.put(name, operator);
+    }
+
     public Condition.Builder deserializeCondition(JsonNode node) {
-        if (node.has(PropertyNames.VARIABLE)) {
-            if (node.has(PropertyNames.STRING_EQUALS)) {
-                return deserializeBinaryCondition(StringEqualsCondition.builder(), node);
-            } else if (node.has(PropertyNames.STRING_GREATER_THAN)) {
-                return deserializeBinaryCondition(StringGreaterThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.STRING_GREATER_THAN_EQUALS)) {
-                return deserializeBinaryCondition(StringGreaterThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.STRING_LESS_THAN)) {
-                return deserializeBinaryCondition(StringLessThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.STRING_LESS_THAN_EQUALS)) {
-                return deserializeBinaryCondition(StringLessThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.TIMESTAMP_EQUALS)) {
-                return deserializeBinaryCondition(TimestampEqualsCondition.builder(), node);
-            } else if (node.has(PropertyNames.TIMESTAMP_GREATER_THAN)) {
-                return deserializeBinaryCondition(TimestampGreaterThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.TIMESTAMP_GREATER_THAN_EQUALS)) {
-                return deserializeBinaryCondition(TimestampGreaterThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.TIMESTAMP_LESS_THAN)) {
-                return deserializeBinaryCondition(TimestampLessThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.TIMESTAMP_LESS_THAN_EQUALS)) {
-                return deserializeBinaryCondition(TimestampLessThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.NUMERIC_EQUALS)) {
-                return deserializeBinaryCondition(NumericEqualsCondition.builder(), node);
-            } else if (node.has(PropertyNames.NUMERIC_GREATER_THAN)) {
-                return deserializeBinaryCondition(NumericGreaterThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.NUMERIC_GREATER_THAN_EQUALS)) {
-                return deserializeBinaryCondition(NumericGreaterThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.NUMERIC_LESS_THAN)) {
-                return deserializeBinaryCondition(NumericLessThanCondition.builder(), node);
-            } else if (node.has(PropertyNames.NUMERIC_LESS_THAN_EQUALS)) {
-                return deserializeBinaryCondition(NumericLessThanOrEqualCondition.builder(), node);
-            } else if (node.has(PropertyNames.BOOLEAN_EQUALS)) {
-                return deserializeBinaryCondition(BooleanEqualsCondition.builder(), node);
+        Iterator<String> fieldNames = node.fieldNames();
+        while (fieldNames.hasNext()) {
+            Condition.Builder builder = deserializeOperator(fieldNames.next(), node);
+            if (builder != null) {
+                return builder;
             }
-        } else if (node.has(PropertyNames.AND)) {
-            AndCondition.Builder builder = AndCondition.builder();
-            for (JsonNode inner : node.get(PropertyNames.AND)) {
-                builder.condition(deserializeCondition(inner));
-            }
-            return builder;
-        } else if (node.has((PropertyNames.OR))) {
-            OrCondition.Builder builder = OrCondition.builder();
-            for (JsonNode inner : node.get(PropertyNames.OR)) {
-                builder.condition(deserializeCondition(inner));
-            }
-            return builder;
-        } else if (node.has((PropertyNames.NOT))) {
-            return NotCondition.builder()
-                               .condition(deserializeCondition(node.get(PropertyNames.NOT)));
         }
         throw new RuntimeException("Condition must be provided");
     }
 
+    /**
+     * @return Builder for the condition if the field names an operator, otherwise null.
+     */
+    private Condition.Builder deserializeOperator(String fieldName, JsonNode node) {
+        switch (fieldName) {
+            case PropertyNames.AND:
+                AndCondition.Builder and = AndCondition.builder();
+                for (JsonNode inner : node.get(PropertyNames.AND)) {
+                    and.condition(deserializeCondition(inner));
+                }
+                return and;
+            case PropertyNames.OR:
+                OrCondition.Builder or = OrCondition.builder();
+                for (JsonNode inner : node.get(PropertyNames.OR)) {
+                    or.condition(deserializeCondition(inner));
+                }
+                return or;
+            case PropertyNames.NOT:
+                return NotCondition.builder()
+                                   .condition(deserializeCondition(node.get(PropertyNames.NOT)));
+            default:
+                BinaryConditionBuilder builder = binaryBuilder(fieldName);
+                if (builder != null) {
+                    return deserializeBinaryCondition(builder, node);
+                }
+                Operator operator = OPERATORS.get(fieldName);
+                return operator == null ? null : operator.deserialize(node, this);
+        }
+    }
+
+    /**
+     * @return New builder for the binary condition of the operator, null if it is not a built-in binary operator.
+     */
+    private static BinaryConditionBuilder binaryBuilder(String operator) {
+        switch (operator) {
+            case PropertyNames.STRING_EQUALS:
+                return StringEqualsCondition.builder();
+            case PropertyNames.STRING_GREATER_THAN:
+                return StringGreaterThanCondition.builder();
+            case PropertyNames.STRING_GREATER_THAN_EQUALS:
+                return StringGreaterThanOrEqualCondition.builder();
+            case PropertyNames.STRING_LESS_THAN:
+                return StringLessThanCondition.builder();
+            case PropertyNames.STRING_LESS_THAN_EQUALS:
+                return StringLessThanOrEqualCondition.builder();
+            case PropertyNames.NUMERIC_EQUALS:
+                return NumericEqualsCondition.builder();
+            case PropertyNames.NUMERIC_GREATER_THAN:
+                return NumericGreaterThanCondition.builder();
+            case PropertyNames.NUMERIC_GREATER_THAN_EQUALS:
+                return NumericGreaterThanOrEqualCondition.builder();
+            case PropertyNames.NUMERIC_LESS_THAN:
+                return NumericLessThanCondition.builder();
+            case PropertyNames.NUMERIC_LESS_THAN_EQUALS:
+                return NumericLessThanOrEqualCondition.builder();
+            case PropertyNames.TIMESTAMP_EQUALS:
+                return TimestampEqualsCondition.builder();
+            case PropertyNames.TIMESTAMP_GREATER_THAN:
+                return TimestampGreaterThanCondition.builder();
+            case PropertyNames.TIMESTAMP_GREATER_THAN_EQUALS:
+                return TimestampGreaterThanOrEqualCondition.builder();
+            case PropertyNames.TIMESTAMP_LESS_THAN:
+                return TimestampLessThanCondition.builder();
+            case PropertyNames.TIMESTAMP_LESS_THAN_EQUALS:
+                return TimestampLessThanOrEqualCondition.builder();
+            case PropertyNames.BOOLEAN_EQUALS:
+                return BooleanEqualsCondition.builder();
+            case PropertyNames.STRING_MATCHES:
+                return StringMatchesCondition.builder();
+            case PropertyNames.STRING_EQUALS_PATH:
+                return StringEqualsPathCondition.builder();
+            case PropertyNames.STRING_GREATER_THAN_PATH:
+                return StringGreaterThanPathCondition.builder();
+            case PropertyNames.STRING_GREATER_THAN_EQUALS_PATH:
+                return StringGreaterThanOrEqualPathCondition.builder();
+            case PropertyNames.STRING_LESS_THAN_PATH:
+                return StringLessThanPathCondition.builder();
+            case PropertyNames.STRING_LESS_THAN_EQUALS_PATH:
+                return StringLessThanOrEqualPathCondition.builder();
+            case PropertyNames.NUMERIC_EQUALS_PATH:
+                return NumericEqualsPathCondition.builder();
+            case PropertyNames.NUMERIC_GREATER_THAN_PATH:
+                return NumericGreaterThanPathCondition.builder();
+            case PropertyNames.NUMERIC_GREATER_THAN_EQUALS_PATH:
+                return NumericGreaterThanOrEqualPathCondition.builder();
+            case PropertyNames.NUMERIC_LESS_THAN_PATH:
+                return NumericLessThanPathCondition.builder();
+            case PropertyNames.NUMERIC_LESS_THAN_EQUALS_PATH:
+                return NumericLessThanOrEqualPathCondition.builder();
+            case PropertyNames.TIMESTAMP_EQUALS_PATH:
+                return TimestampEqualsPathCondition.builder();
+            case PropertyNames.TIMESTAMP_GREATER_THAN_PATH:
+                return TimestampGreaterThanPathCondition.builder();
+            case PropertyNames.TIMESTAMP_GREATER_THAN_EQUALS_PATH:
+                return TimestampGreaterThanOrEqualPathCondition.builder();
+            case PropertyNames.TIMESTAMP_LESS_THAN_PATH:
+                return TimestampLessThanPathCondition.builder();
+            case PropertyNames.TIMESTAMP_LESS_THAN_EQUALS_PATH:
+                return TimestampLessThanOrEqualPathCondition.builder();
+            case PropertyNames.BOOLEAN_EQUALS_PATH:
+                return BooleanEqualsPathCondition.builder();
+            case PropertyNames.IS_PRESENT:
+                return IsPresentCondition.builder();
+            case PropertyNames.IS_NULL:
+                return IsNullCondition.builder();
+            case PropertyNames.IS_NUMERIC:
+                return IsNumericCondition.builder();
+            case PropertyNames.IS_STRING:
+                return IsStringCondition.builder();
+            case PropertyNames.IS_BOOLEAN:
+                return IsBooleanCondition.builder();
+            case PropertyNames.IS_TIMESTAMP:
+                return IsTimestampCondition.builder();
+            default:
+                return null;
+        }
+    }
+
     private Condition.Builder deserializeBinaryCondition(
             BinaryConditionBuilder builder,
             JsonNode node) {
+        JsonNode variable = node.get(PropertyNames.VARIABLE);
         return builder
-                .variable(node.get(PropertyNames.VARIABLE).asText())
+                .variable(variable == null ? null : variable.asText())
                 .expectedValue(node.get(builder.type()));
     }
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+import com.networknt.workflow.state.model.states.Choice;
+
+/**
+ * Unary condition testing whether the variable selects a value from the input.
+ *
+ * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+ * @see Choice
+ */
+public final class IsPresentCondition implements BinaryCondition<Boolean> {
+
+    @JsonProperty(PropertyNames.VARIABLE)
+    private final String variable;
+
+    @JsonProperty(PropertyNames.IS_PRESENT)
+    private final Boolean expectedValue;
+
+    private IsPresentCondition(Builder builder) {
+        this.variable = builder.variable;
+        this.expectedValue = builder.expectedValue;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link IsPresentCondition}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The JSONPath expression that determines which piece of the input document is tested.
+     */
+    @Override
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * @return True if the condition holds when the variable selects a value, false if it holds when it does not.
+     */
+    @Override
+    public Boolean getExpectedValue() {
+        return expectedValue;
+    }
+
+    /**
+     * Builder for a {@link IsPresentCondition}.
+     */
+    public static final class Builder extends BinaryConditionBuilder {
+
+        @JsonProperty(PropertyNames.VARIABLE)
+        private String variable;
+
+        @JsonProperty(PropertyNames.IS_PRESENT)
+        private Boolean expectedValue;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the JSONPath expression that determines which piece of the input document is tested.
+         *
+         * @param variable Reference path.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder variable(String variable) {
+            this.variable = variable;
+            return this;
+        }
+
+        /**
+         * Sets the expected value for this condition.
+         *
+         * @param expectedValue True to hold when the variable selects a value, false to hold when it does not.
+         * @return This object for method chaining.
+         */
+        public Builder expectedValue(boolean expectedValue) {
+            this.expectedValue = expectedValue;
+            return this;
+        }
+
+        @Override
+        BinaryConditionBuilder expectedValue(JsonNode expectedValue) {
+            return expectedValue(expectedValue.booleanValue());
+        }
+
+        @Override
+        String type() {
+            return PropertyNames.IS_PRESENT;
+        }
+
+        /**
+         * @return An immutable {@link IsPresentCondition} object.
+         */
+        @Override
+        public IsPresentCondition build() {
+            return new IsPresentCondition(this);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+import com.networknt.workflow.state.model.states.Choice;
+
+/**
+ * Binary condition for Numeric less than or equal to comparison with the value another path selects from the input.
+ *
+ * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+ * @see Choice
+ */
+public final class NumericLessThanOrEqualPathCondition implements BinaryPathCondition {
+
+    @JsonProperty(PropertyNames.VARIABLE)
+    private final String variable;
+
+    @JsonProperty(PropertyNames.NUMERIC_LESS_THAN_EQUALS_PATH)
+    private final String expectedValue;
+
+    private NumericLessThanOrEqualPathCondition(Builder builder) {
+        this.variable = builder.variable;
+        this.expectedValue = builder.expectedValue;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link NumericLessThanOrEqualPathCondition}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The JSONPath expression that determines which piece of the input document is used for the comparison.
+     */
+    @Override
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * @return The JSONPath expression that selects the expected value from the input document.
+     */
+    @Override
+    public String getExpectedValue() {
+        return expectedValue;
+    }
+
+    /**
+     * Builder for a {@link NumericLessThanOrEqualPathCondition}.
+     */
+    public static final class Builder extends BinaryStringConditionBuilder {
+
+        @JsonProperty(PropertyNames.VARIABLE)
+        private String variable;
+
+        @JsonProperty(PropertyNames.NUMERIC_LESS_THAN_EQUALS_PATH)
+        private String expectedValue;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the JSONPath expression that determines which piece of the input document is used for the comparison.
+         *
+         * @param variable Reference path.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder variable(String variable) {
+            this.variable = variable;
+            return this;
+        }
+
+        /**
+         * Sets the JSONPath expression that selects the expected value from the input document.
+         *
+         * @param expectedValue Reference path.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder expectedValue(String expectedValue) {
+            this.expectedValue = expectedValue;
+            return this;
+        }
+
+        @Override
+        String type() {
+            return PropertyNames.NUMERIC_LESS_THAN_EQUALS_PATH;
+        }
+
+        /**
+         * @return An immutable {@link NumericLessThanOrEqualPathCondition} object.
+         */
+        @Override
+        public NumericLessThanOrEqualPathCondition build() {
+            return new NumericLessThanOrEqualPathCondition(this);
+        }
+    }
+}
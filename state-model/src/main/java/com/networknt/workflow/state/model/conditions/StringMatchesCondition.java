@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+import com.networknt.workflow.state.model.states.Choice;
+
+/**
+ * Binary condition matching a String against a wildcard pattern, see {@link WildcardPattern}. The pattern is compiled
+ * when the condition is built.
+ *
+ * @see <a href="https://states-language.net/spec.html#choice-state">https://states-language.net/spec.html#choice-state</a>
+ * @see Choice
+ */
+public final class StringMatchesCondition implements BinaryCondition<String> {
+
+    @JsonProperty(PropertyNames.VARIABLE)
+    private final String variable;
+
+    @JsonProperty(PropertyNames.STRING_MATCHES)
+    private final String expectedValue;
+
+    private final WildcardPattern pattern;
+
+    private final String patternError;
+
+    private StringMatchesCondition(Builder builder) {
+        this.variable = builder.variable;
+        this.expectedValue = builder.expectedValue;
+        WildcardPattern compiled = null;
+        String error = null;
+        if (expectedValue != null) {
+            try {
+                compiled = WildcardPattern.compile(expectedValue);
+            } catch (IllegalArgumentException e) {
+                // Reported by the validator.
+                error = e.getMessage();
+            }
+        }
+        this.pattern = compiled;
+        this.patternError = error;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link StringMatchesCondition}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The JSONPath expression that determines which piece of the input document is used for the comparison.
+     */
+    @Override
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * @return The wildcard pattern as written.
+     */
+    @Override
+    public String getExpectedValue() {
+        return expectedValue;
+    }
+
+    /**
+     * @return The compiled pattern, null if the pattern is missing or invalid.
+     */
+    @JsonIgnore
+    public WildcardPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return Why the pattern could not be compiled, null if it is valid.
+     */
+    @JsonIgnore
+    public String getPatternError() {
+        return patternError;
+    }
+
+    /**
+     * Builder for a {@link StringMatchesCondition}.
+     */
+    public static final class Builder extends BinaryStringConditionBuilder {
+
+        @JsonProperty(PropertyNames.VARIABLE)
+        private String variable;
+
+        @JsonProperty(PropertyNames.STRING_MATCHES)
+        private String expectedValue;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the JSONPath expression that determines which piece of the input document is used for the comparison.
+         *
+         * @param variable Reference path.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder variable(String variable) {
+            this.variable = variable;
+            return this;
+        }
+
+        /**
+         * Sets the wildcard pattern, "*" matches any run of characters and a backslash escapes a literal "*" or
+         * backslash.
+         *
+         * @param expectedValue Wildcard pattern.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder expectedValue(String expectedValue) {
+            this.expectedValue = expectedValue;
+            return this;
+        }
+
+        @Override
+        String type() {
+            return PropertyNames.STRING_MATCHES;
+        }
+
+        /**
+         * @return An immutable {@link StringMatchesCondition} object.
+         */
+        @Override
+        public StringMatchesCondition build() {
+            return new StringMatchesCondition(this);
+        }
+    }
+}
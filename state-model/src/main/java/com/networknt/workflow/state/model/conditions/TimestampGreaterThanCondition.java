@@ -16,6 +16,7 @@
 package com.networknt.workflow.state.model.conditions;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
 import java.util.Date;
 
 import com.networknt.workflow.state.model.internal.PropertyNames;
@@ -101,6 +102,16 @@ public final class TimestampGreaterThanCondition implements BinaryCondition<Date
             return this;
         }
 
+        /**
+         * Sets the expected value for this condition, truncated to milliseconds.
+         *
+         * @param expectedValue Expected value.
+         * @return This object for method chaining.
+         */
+        public Builder expectedValue(Instant expectedValue) {
+            return expectedValue(expectedValue == null ? null : Date.from(expectedValue));
+        }
+
         @Override
         String type() {
             return PropertyNames.TIMESTAMP_GREATER_THAN;
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A StringMatches pattern compiled into a deterministic automaton. The pattern is matched against the whole string, an
+ * unescaped "*" matches any run of characters, a "*" or backslash escaped with a backslash matches itself.
+ *
+ * <p>The characters of the pattern's literals form the alphabet of the automaton, every other character falls into a
+ * single class. Matching walks the transition table once per character of the input, so it runs in linear time and
+ * does not allocate.</p>
+ *
+ * @see StringMatchesCondition
+ */
+public final class WildcardPattern {
+
+    /**
+     * Upper bound on the number of states, a guard against pathological patterns.
+     */
+    private static final int MAX_STATES = 4096;
+
+    private static final int DEAD = -1;
+
+    /**
+     * Marks a "*" among the tokens of a pattern, literals are char values and never negative.
+     */
+    private static final int STAR = -1;
+
+    private final String pattern;
+    private final char[] literals;
+    private final int[] asciiClasses;
+    private final int classCount;
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    private WildcardPattern(String pattern, char[] literals, int[] transitions, boolean[] accepting) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.classCount = literals.length + 1;
+        this.asciiClasses = new int[128];
+        for (char c = 0; c < 128; c++) {
+            asciiClasses[c] = classOf(c, literals);
+        }
+        this.transitions = transitions;
+        this.accepting = accepting;
+    }
+
+    /**
+     * @param pattern Wildcard pattern.
+     * @return Compiled pattern.
+     * @throws IllegalArgumentException If the pattern has an invalid escape sequence or is too complex.
+     */
+    public static WildcardPattern compile(String pattern) {
+        // Tokens of the pattern, a literal character or STAR.
+        List<Integer> tokens = new ArrayList<Integer>(pattern.length());
+        TreeSet<Character> alphabet = new TreeSet<Character>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                tokens.add(STAR);
+                continue;
+            }
+            if (c == '\\') {
+                char escaped = i + 1 < pattern.length() ? pattern.charAt(i + 1) : 0;
+                if (escaped != '*' && escaped != '\\') {
+                    throw new IllegalArgumentException(String.format(
+                            "Invalid escape sequence at index %d of wildcard pattern '%s', only \\* and \\\\ are "
+                            + "allowed", i, pattern));
+                }
+                c = pattern.charAt(++i);
+            }
+            tokens.add((int) c);
+            alphabet.add(c);
+        }
+        char[] literals = new char[alphabet.size()];
+        int index = 0;
+        for (Character c : alphabet) {
+            literals[index++] = c;
+        }
+        return new Builder(pattern, tokens, literals).build();
+    }
+
+    /**
+     * @return The pattern as written in the state machine.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return Number of states of the automaton.
+     */
+    public int getStateCount() {
+        return accepting.length;
+    }
+
+    /**
+     * @param value String to match.
+     * @return True if the whole string matches the pattern.
+     */
+    public boolean matches(String value) {
+        int state = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            int characterClass = c < 128 ? asciiClasses[c] : classOf(c, literals);
+            state = transitions[state * classCount + characterClass];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    /**
+     * @return Class of the character, 0 for characters that do not appear in the pattern.
+     */
+    private static int classOf(char c, char[] literals) {
+        int index = Arrays.binarySearch(literals, c);
+        return index < 0 ? 0 : index + 1;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Subset construction over the positions of the pattern: position i means the first i tokens have been matched.
+     */
+    private static final class Builder {
+
+        private final String pattern;
+        private final List<Integer> tokens;
+        private final char[] literals;
+        private final Map<BitSet, Integer> states = new HashMap<BitSet, Integer>();
+        private final List<BitSet> pending = new ArrayList<BitSet>();
+
+        private Builder(String pattern, List<Integer> tokens, char[] literals) {
+            this.pattern = pattern;
+            this.tokens = tokens;
+            this.literals = literals;
+        }
+
+        WildcardPattern build() {
+            int classCount = literals.length + 1;
+            BitSet start = new BitSet();
+            start.set(0);
+            state(closure(start));
+            int[] transitions = new int[16 * classCount];
+            for (int state = 0; state < pending.size(); state++) {
+                BitSet positions = pending.get(state);
+                if ((state + 1) * classCount > transitions.length) {
+                    transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                }
+                for (int characterClass = 0; characterClass < classCount; characterClass++) {
+                    BitSet next = step(positions, characterClass);
+                    transitions[state * classCount + characterClass] = next.isEmpty() ? DEAD : state(closure(next));
+                }
+            }
+            boolean[] accepting = new boolean[pending.size()];
+            for (int state = 0; state < accepting.length; state++) {
+                accepting[state] = pending.get(state).get(tokens.size());
+            }
+            return new WildcardPattern(pattern, literals,
+                                       Arrays.copyOf(transitions, accepting.length * classCount), accepting);
+        }
+
+        private int state(BitSet positions) {
+            Integer state = states.get(positions);
+            if (state == null) {
+                if (pending.size() == MAX_STATES) {
+                    throw new IllegalArgumentException("Wildcard pattern '" + pattern + "' is too complex");
+                }
+                state = pending.size();
+                states.put(positions, state);
+                pending.add(positions);
+            }
+            return state;
+        }
+
+        /**
+         * A "*" may match nothing, so reaching it also reaches the position after it.
+         */
+        private BitSet closure(BitSet positions) {
+            for (int i = positions.nextSetBit(0); i >= 0 && i < tokens.size(); i = positions.nextSetBit(i + 1)) {
+                if (tokens.get(i) == STAR) {
+                    positions.set(i + 1);
+                }
+            }
+            return positions;
+        }
+
+        private BitSet step(BitSet positions, int characterClass) {
+            BitSet next = new BitSet();
+            for (int i = positions.nextSetBit(0); i >= 0 && i < tokens.size(); i = positions.nextSetBit(i + 1)) {
+                int token = tokens.get(i);
+                if (token == STAR) {
+                    next.set(i);
+                } else if (characterClass > 0 && literals[characterClass - 1] == token) {
+                    next.set(i + 1);
+                }
+            }
+            return next;
+        }
+    }
+}
@@ -68,5 +68,16 @@ public interface Buildable<T> {
             }
             return Collections.unmodifiableList(builtList);
         }
+
+        /**
+         * Builds an optional {@link Buildable}.
+         *
+         * @param buildable {@link Buildable} to build, may be null.
+         * @param <T>       Type of object being built
+         * @return Built object or null if there is nothing to build.
+         */
+        public static <T> T build(Buildable<T> buildable) {
+            return buildable == null ? null : buildable.build();
+        }
     }
 }
@@ -23,11 +23,13 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Date;
 import com.networknt.utility.DateUtil;
 
 /**
  * Contains Jackson module for serializing dates to ISO8601 format per the <a href="https://states-language.net/spec.html#timestamps">spec</a>.
+ * Both {@link Date} and {@link Instant} are supported, parsing goes through {@link Timestamps}.
  */
 public class DateModule {
 
@@ -51,10 +53,36 @@ public class DateModule {
                 return fromJson(jsonParser.getValueAsString());
             }
         });
+        INSTANCE.addSerializer(Instant.class, new StdSerializer<Instant>(Instant.class) {
+            @Override
+            public void serialize(Instant instant,
+                                  JsonGenerator jsonGenerator,
+                                  SerializerProvider serializerProvider) throws
+                                                                         IOException {
+                jsonGenerator.writeString(DateUtil.formatIso8601Date(instant));
+            }
+        });
+        INSTANCE.addDeserializer(Instant.class, new StdDeserializer<Instant>(Instant.class) {
+            @Override
+            public Instant deserialize(JsonParser jsonParser,
+                                       DeserializationContext deserializationContext) throws IOException {
+
+                return Timestamps.parseInstant(jsonParser.getValueAsString());
+            }
+        });
     }
 
+    /**
+     * @param jsonText RFC3339 timestamp.
+     * @return The timestamp truncated to milliseconds.
+     * @throws IllegalArgumentException If the text is not a valid timestamp.
+     */
     public static Date fromJson(String jsonText) {
-        return Date.from(DateUtil.parseIso8601Date(jsonText));
+        long millis = Timestamps.parseEpochMillis(jsonText);
+        if (millis == Timestamps.INVALID) {
+            throw new IllegalArgumentException("Invalid RFC3339 timestamp: " + jsonText);
+        }
+        return new Date(millis);
     }
 
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.internal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Conversions of the free form JSON values of a state, e.g. the Result of a Pass state or the Parameters of a Task
+ * state, between POJOs, strings and trees.
+ */
+public final class JsonValues {
+
+    /**
+     * Disable Jackson specific features like annotations. Support only
+     * basic POJO serialization to limit our coupling to Jackson.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(MapperFeature.USE_ANNOTATIONS)
+            .disable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS)
+            .disable(MapperFeature.AUTO_DETECT_FIELDS);
+
+    private JsonValues() {
+    }
+
+    /**
+     * @param value POJO that can be serialized into JSON.
+     * @return The value as a tree.
+     */
+    public static JsonNode toTree(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    /**
+     * @param value        Tree to serialize.
+     * @param propertyName Name of the property the tree is the value of, for the error message.
+     * @return The tree as a JSON document.
+     */
+    public static String toString(JsonNode value, String propertyName) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize " + propertyName, e);
+        }
+    }
+
+    /**
+     * @param json         JSON document.
+     * @param propertyName Name of the property the document is the value of, for the error message.
+     * @return The document as a tree.
+     */
+    public static JsonNode parse(String json, String propertyName) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(propertyName + " must be a JSON document", e);
+        }
+    }
+}
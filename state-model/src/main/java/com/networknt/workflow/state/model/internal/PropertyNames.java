@@ -32,11 +32,28 @@ public class PropertyNames {
     public static final String INPUT_PATH = "InputPath";
     public static final String OUTPUT_PATH = "OutputPath";
     public static final String END = "End";
+    public static final String PARAMETERS = "Parameters";
+    public static final String RESULT_SELECTOR = "ResultSelector";
     // TaskState property names
     public static final String RESOURCE = "Resource";
     public static final String HEARTBEAT_SECONDS = "HeartbeatSeconds";
     // ParallelState property names
     public static final String BRANCHES = "Branches";
+    // MapState property names
+    public static final String ITERATOR = "Iterator";
+    public static final String ITEMS_PATH = "ItemsPath";
+    public static final String MAX_CONCURRENCY = "MaxConcurrency";
+    public static final String ITEM_READER = "ItemReader";
+    public static final String READER_CONFIG = "ReaderConfig";
+    public static final String INPUT_TYPE = "InputType";
+    public static final String CSV_HEADER_LOCATION = "CSVHeaderLocation";
+    public static final String CSV_HEADERS = "CSVHeaders";
+    public static final String MAX_ITEMS = "MaxItems";
+    public static final String RESULT_WRITER = "ResultWriter";
+    public static final String ITEM_BATCHER = "ItemBatcher";
+    public static final String MAX_ITEMS_PER_BATCH = "MaxItemsPerBatch";
+    public static final String MAX_INPUT_BYTES_PER_BATCH = "MaxInputBytesPerBatch";
+    public static final String BATCH_INPUT = "BatchInput";
     // FailState property names
     public static final String ERROR = "Error";
     public static final String CAUSE = "Cause";
@@ -77,6 +94,31 @@ public class PropertyNames {
     public static final String TIMESTAMP_LESS_THAN_EQUALS = "TimestampLessThanEquals";
     // Binary boolean condition property names
     public static final String BOOLEAN_EQUALS = "BooleanEquals";
+    public static final String STRING_MATCHES = "StringMatches";
+    // Binary condition property names comparing with the value of another path
+    public static final String STRING_EQUALS_PATH = "StringEqualsPath";
+    public static final String STRING_GREATER_THAN_PATH = "StringGreaterThanPath";
+    public static final String STRING_GREATER_THAN_EQUALS_PATH = "StringGreaterThanEqualsPath";
+    public static final String STRING_LESS_THAN_PATH = "StringLessThanPath";
+    public static final String STRING_LESS_THAN_EQUALS_PATH = "StringLessThanEqualsPath";
+    public static final String NUMERIC_EQUALS_PATH = "NumericEqualsPath";
+    public static final String NUMERIC_GREATER_THAN_PATH = "NumericGreaterThanPath";
+    public static final String NUMERIC_GREATER_THAN_EQUALS_PATH = "NumericGreaterThanEqualsPath";
+    public static final String NUMERIC_LESS_THAN_PATH = "NumericLessThanPath";
+    public static final String NUMERIC_LESS_THAN_EQUALS_PATH = "NumericLessThanEqualsPath";
+    public static final String TIMESTAMP_EQUALS_PATH = "TimestampEqualsPath";
+    public static final String TIMESTAMP_GREATER_THAN_PATH = "TimestampGreaterThanPath";
+    public static final String TIMESTAMP_GREATER_THAN_EQUALS_PATH = "TimestampGreaterThanEqualsPath";
+    public static final String TIMESTAMP_LESS_THAN_PATH = "TimestampLessThanPath";
+    public static final String TIMESTAMP_LESS_THAN_EQUALS_PATH = "TimestampLessThanEqualsPath";
+    public static final String BOOLEAN_EQUALS_PATH = "BooleanEqualsPath";
+    // Type test condition property names
+    public static final String IS_PRESENT = "IsPresent";
+    public static final String IS_NULL = "IsNull";
+    public static final String IS_NUMERIC = "IsNumeric";
+    public static final String IS_STRING = "IsString";
+    public static final String IS_BOOLEAN = "IsBoolean";
+    public static final String IS_TIMESTAMP = "IsTimestamp";
     // Composite conditions property names
     public static final String AND = "And";
     public static final String OR = "Or";
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.internal;
+
+import java.time.Instant;
+
+/**
+ * Allocation free parser for the RFC3339 profile of ISO 8601 that timestamps in the States Language must conform to,
+ * e.g. {@code 2016-03-14T01:59:00Z} or {@code 2016-03-14T01:59:00.123-08:00}. Hot paths like Choice rules and Wait
+ * states use the long returning methods, which report a malformed timestamp with {@link #INVALID} instead of throwing.
+ *
+ * <p>Accepted is exactly {@code YYYY-MM-DDTHH:MM:SS}, an optional fraction of one to nine digits and either {@code Z}
+ * or a {@code +HH:MM}/{@code -HH:MM} offset. {@code T} and {@code Z} may be lower case. Leap seconds are rejected, as
+ * java.time does.</p>
+ *
+ * @see <a href="https://states-language.net/spec.html#timestamps">https://states-language.net/spec.html#timestamps</a>
+ */
+public final class Timestamps {
+
+    /**
+     * Returned for text that is not a valid timestamp, or one that can not be represented in the requested unit.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private Timestamps() {
+    }
+
+    /**
+     * Epoch nanos only cover the years 1677 to 2262, timestamps outside of that range are {@link #INVALID}.
+     *
+     * @param text Timestamp text.
+     * @return Nanoseconds since the epoch, or {@link #INVALID}.
+     */
+    public static long parseEpochNanos(CharSequence text) {
+        return parse(text, NANOS_PER_SECOND);
+    }
+
+    /**
+     * Fractions below a millisecond are truncated towards the past, the same as {@link java.util.Date#from(Instant)}.
+     *
+     * @param text Timestamp text.
+     * @return Milliseconds since the epoch, or {@link #INVALID}.
+     */
+    public static long parseEpochMillis(CharSequence text) {
+        return parse(text, MILLIS_PER_SECOND);
+    }
+
+    /**
+     * @param text Timestamp text.
+     * @return The parsed instant.
+     * @throws IllegalArgumentException If the text is not a valid timestamp.
+     */
+    public static Instant parseInstant(CharSequence text) {
+        long seconds = epochSecond(text);
+        if (seconds == INVALID) {
+            throw new IllegalArgumentException("Invalid RFC3339 timestamp: " + text);
+        }
+        return Instant.ofEpochSecond(seconds, fraction(text, NANOS_PER_SECOND));
+    }
+
+    /**
+     * @param text Timestamp text, may be null.
+     * @return True if the text is a valid timestamp.
+     */
+    public static boolean isTimestamp(CharSequence text) {
+        return text != null && epochSecond(text) != INVALID;
+    }
+
+    private static long parse(CharSequence text, long unitsPerSecond) {
+        long seconds = text == null ? INVALID : epochSecond(text);
+        if (seconds == INVALID) {
+            return INVALID;
+        }
+        // One second of headroom on either side keeps the result clear of INVALID once the fraction is added.
+        if (seconds >= Long.MAX_VALUE / unitsPerSecond || seconds <= Long.MIN_VALUE / unitsPerSecond) {
+            return INVALID;
+        }
+        return seconds * unitsPerSecond + fraction(text, unitsPerSecond);
+    }
+
+    /**
+     * Validates the whole text.
+     *
+     * @return Whole seconds since the epoch in UTC, or {@link #INVALID}.
+     */
+    private static long epochSecond(CharSequence text) {
+        int length = text.length();
+        if (length < 20
+                || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || (text.charAt(10) != 'T' && text.charAt(10) != 't')
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        int position = 19;
+        if (text.charAt(position) == '.') {
+            int start = ++position;
+            while (position < length && isDigit(text.charAt(position))) {
+                position++;
+            }
+            if (position == start || position - start > 9) {
+                return INVALID;
+            }
+        }
+        int offset;
+        if (position == length - 1 && (text.charAt(position) == 'Z' || text.charAt(position) == 'z')) {
+            offset = 0;
+        } else if (position == length - 6 && text.charAt(position + 3) == ':') {
+            char sign = text.charAt(position);
+            int offsetHour = digits(text, position + 1, 2);
+            int offsetMinute = digits(text, position + 4, 2);
+            if ((sign != '+' && sign != '-') || offsetHour < 0 || offsetHour > 23
+                    || offsetMinute < 0 || offsetMinute > 59) {
+                return INVALID;
+            }
+            offset = (offsetHour * 60 + offsetMinute) * 60;
+            if (sign == '-') {
+                offset = -offset;
+            }
+        } else {
+            return INVALID;
+        }
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second - offset;
+    }
+
+    /**
+     * Only called on text {@link #epochSecond(CharSequence)} has accepted.
+     *
+     * @return The fraction of the second in the given unit, truncated.
+     */
+    private static long fraction(CharSequence text, long unitsPerSecond) {
+        if (text.charAt(19) != '.') {
+            return 0L;
+        }
+        long nanos = 0L;
+        long scale = NANOS_PER_SECOND;
+        for (int position = 20; position < text.length() && isDigit(text.charAt(position)); position++) {
+            scale /= 10;
+            nanos += (text.charAt(position) - '0') * scale;
+        }
+        return nanos / (NANOS_PER_SECOND / unitsPerSecond);
+    }
+
+    /**
+     * @return Value of the digits, or -1 if any of them is not a digit.
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Same arithmetic as {@link java.time.LocalDate#toEpochDay()}, restricted to the non negative years RFC3339 allows.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
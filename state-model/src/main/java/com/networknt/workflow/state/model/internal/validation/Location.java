@@ -23,6 +23,7 @@ enum Location {
     State,
     Choice,
     Branch,
+    Iterator,
     Catcher,
     Retrier,
     Unknown;
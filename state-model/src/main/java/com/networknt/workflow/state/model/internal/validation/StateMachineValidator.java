@@ -15,6 +15,7 @@
 
 package com.networknt.workflow.state.model.internal.validation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -23,8 +24,10 @@ import java.util.Map;
 import com.networknt.workflow.state.model.ErrorCodes;
 import com.networknt.workflow.state.model.StateMachine;
 import com.networknt.workflow.state.model.conditions.BinaryCondition;
+import com.networknt.workflow.state.model.conditions.BinaryPathCondition;
 import com.networknt.workflow.state.model.conditions.NAryCondition;
 import com.networknt.workflow.state.model.conditions.NotCondition;
+import com.networknt.workflow.state.model.conditions.StringMatchesCondition;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 import com.networknt.workflow.state.model.conditions.Condition;
 import com.networknt.workflow.state.model.states.Branch;
@@ -32,10 +35,15 @@ import com.networknt.workflow.state.model.states.Catcher;
 import com.networknt.workflow.state.model.states.Choice;
 import com.networknt.workflow.state.model.states.ChoiceState;
 import com.networknt.workflow.state.model.states.FailState;
+import com.networknt.workflow.state.model.states.ItemBatcher;
+import com.networknt.workflow.state.model.states.ItemReader;
 import com.networknt.workflow.state.model.states.NextStateTransition;
+import com.networknt.workflow.state.model.states.MapState;
 import com.networknt.workflow.state.model.states.ParallelState;
 import com.networknt.workflow.state.model.states.PassState;
+import com.networknt.workflow.state.model.states.ReaderConfig;
 import com.networknt.workflow.state.model.states.Retrier;
+import com.networknt.workflow.state.model.states.ResultWriter;
 import com.networknt.workflow.state.model.states.State;
 import com.networknt.workflow.state.model.states.StateVisitor;
 import com.networknt.workflow.state.model.states.SucceedState;
@@ -150,6 +158,9 @@ public class StateMachineValidator {
             if (state instanceof ParallelState) {
                 validateParallelState(stateContext, (ParallelState) state);
             }
+            if (state instanceof MapState) {
+                validateMapState(stateContext, (MapState) state);
+            }
             if (state.isTerminalState()) {
                 return true;
             } else if (state instanceof TransitionState) {
@@ -173,6 +184,14 @@ public class StateMachineValidator {
             }
         }
 
+        private void validateMapState(ValidationContext stateContext, MapState state) {
+            Branch iterator = state.getIterator();
+            new GraphValidator(stateContext.iterator(),
+                               Collections.<String, State>emptyMap(),
+                               iterator.getStartAt(),
+                               iterator.getStates()).validate();
+        }
+
         private boolean validateChoiceState(ValidationContext stateContext, ChoiceState choiceState) {
             final Map<String, State> merged = mergeParentVisited();
             boolean hasPathToTerminal = new GraphValidator(stateContext, merged, choiceState.getDefaultStateName(), states)
@@ -254,6 +273,14 @@ public class StateMachineValidator {
             context.assertStringNotEmpty(condition.getVariable(), PropertyNames.VARIABLE);
             context.assertIsValidJsonPath(condition.getVariable(), PropertyNames.VARIABLE);
             context.assertNotNull(condition.getExpectedValue(), "ExpectedValue");
+            if (condition instanceof BinaryPathCondition) {
+                context.assertIsValidJsonPath(((BinaryPathCondition) condition).getExpectedValue(), "ExpectedValue");
+            } else if (condition instanceof StringMatchesCondition) {
+                String patternError = ((StringMatchesCondition) condition).getPatternError();
+                if (patternError != null) {
+                    problemReporter.report(new Problem(context, patternError));
+                }
+            }
         }
 
         @Override
@@ -265,6 +292,9 @@ public class StateMachineValidator {
         @Override
         public Void visit(ParallelState parallelState) {
             currentContext.assertIsValidInputPath(parallelState.getInputPath());
+            currentContext.assertIsValidPayloadTemplate(parallelState.getParameters(), PropertyNames.PARAMETERS);
+            currentContext.assertIsValidPayloadTemplate(parallelState.getResultSelector(),
+                                                        PropertyNames.RESULT_SELECTOR);
             currentContext.assertIsValidOutputPath(parallelState.getOutputPath());
             currentContext.assertIsValidResultPath(parallelState.getResultPath());
             validateTransition(parallelState.getTransition());
@@ -288,9 +318,120 @@ public class StateMachineValidator {
             }
         }
 
+        @Override
+        public Void visit(MapState mapState) {
+            currentContext.assertIsValidInputPath(mapState.getInputPath());
+            currentContext.assertIsValidReferencePath(mapState.getItemsPath(), PropertyNames.ITEMS_PATH);
+            currentContext.assertIsNotNegativeIfPresent(mapState.getMaxConcurrency(), PropertyNames.MAX_CONCURRENCY);
+            currentContext.assertIsValidPayloadTemplate(mapState.getResultSelector(), PropertyNames.RESULT_SELECTOR);
+            currentContext.assertIsValidOutputPath(mapState.getOutputPath());
+            currentContext.assertIsValidResultPath(mapState.getResultPath());
+            validateTransition(mapState.getTransition());
+            validateRetriers(mapState.getRetriers());
+            validateCatchers(mapState.getCatchers());
+            validateIterator(mapState);
+            validateItemReader(mapState);
+            validateItemBatcher(mapState.getItemBatcher());
+            return null;
+        }
+
+        private void validateItemBatcher(ItemBatcher itemBatcher) {
+            if (itemBatcher == null) {
+                return;
+            }
+            if (itemBatcher.getMaxItemsPerBatch() == null && itemBatcher.getMaxInputBytesPerBatch() == null) {
+                problemReporter.report(new Problem(currentContext, String.format("%s requires %s or %s.",
+                                                                                 PropertyNames.ITEM_BATCHER,
+                                                                                 PropertyNames.MAX_ITEMS_PER_BATCH,
+                                                                                 PropertyNames.MAX_INPUT_BYTES_PER_BATCH)));
+            }
+            currentContext.assertIsPositiveIfPresent(itemBatcher.getMaxItemsPerBatch(),
+                                                     PropertyNames.MAX_ITEMS_PER_BATCH);
+            currentContext.assertIsPositiveIfPresent(itemBatcher.getMaxInputBytesPerBatch(),
+                                                     PropertyNames.MAX_INPUT_BYTES_PER_BATCH);
+            currentContext.assertIsValidPayloadTemplate(itemBatcher.getBatchInput(), PropertyNames.BATCH_INPUT);
+        }
+
+        private void validateItemReader(MapState mapState) {
+            ItemReader itemReader = mapState.getItemReader();
+            if (itemReader == null) {
+                if (mapState.getResultWriter() != null) {
+                    problemReporter.report(new Problem(currentContext, String.format("%s requires an %s.",
+                                                                                     PropertyNames.RESULT_WRITER,
+                                                                                     PropertyNames.ITEM_READER)));
+                }
+                return;
+            }
+            if (mapState.getItemsPath() != null) {
+                problemReporter.report(new Problem(currentContext, String.format("%s cannot be combined with %s.",
+                                                                                 PropertyNames.ITEMS_PATH,
+                                                                                 PropertyNames.ITEM_READER)));
+            }
+            assertHasPathParameter(itemReader.getParameters(), PropertyNames.ITEM_READER);
+            ReaderConfig readerConfig = itemReader.getReaderConfig();
+            currentContext.assertNotNull(readerConfig, PropertyNames.READER_CONFIG);
+            if (readerConfig != null) {
+                String inputType = readerConfig.getInputType();
+                currentContext.assertStringNotEmpty(inputType, PropertyNames.INPUT_TYPE);
+                if (inputType != null && !ReaderConfig.JSONL.equals(inputType) && !ReaderConfig.CSV.equals(inputType)) {
+                    problemReporter.report(new Problem(currentContext, String.format("%s must be %s or %s.",
+                                                                                     PropertyNames.INPUT_TYPE,
+                                                                                     ReaderConfig.JSONL,
+                                                                                     ReaderConfig.CSV)));
+                }
+                String headerLocation = readerConfig.getCsvHeaderLocation();
+                if (headerLocation != null && !ReaderConfig.FIRST_ROW.equals(headerLocation)
+                        && !ReaderConfig.GIVEN.equals(headerLocation)) {
+                    problemReporter.report(new Problem(currentContext, String.format("%s must be %s or %s.",
+                                                                                     PropertyNames.CSV_HEADER_LOCATION,
+                                                                                     ReaderConfig.FIRST_ROW,
+                                                                                     ReaderConfig.GIVEN)));
+                } else if (ReaderConfig.GIVEN.equals(headerLocation)) {
+                    currentContext.assertNotEmpty(readerConfig.getCsvHeaders(), PropertyNames.CSV_HEADERS);
+                }
+                currentContext.assertIsNotNegativeIfPresent(readerConfig.getMaxItems(), PropertyNames.MAX_ITEMS);
+            }
+            currentContext.assertNotNull(mapState.getResultWriter(), PropertyNames.RESULT_WRITER);
+            if (mapState.getResultWriter() != null) {
+                assertHasPathParameter(mapState.getResultWriter().getParameters(), PropertyNames.RESULT_WRITER);
+            }
+        }
+
+        /**
+         * The parameters of an {@link ItemReader} or {@link ResultWriter} must produce the location of the file.
+         */
+        private void assertHasPathParameter(JsonNode parameters, String propertyName) {
+            String propertyPath = propertyName + "." + PropertyNames.PARAMETERS;
+            currentContext.assertNotNull(parameters, propertyPath);
+            if (parameters == null) {
+                return;
+            }
+            currentContext.assertIsValidPayloadTemplate(parameters, propertyPath);
+            if (parameters.isObject() && !parameters.has(ItemReader.PATH) && !parameters.has(ItemReader.PATH + ".$")) {
+                problemReporter.report(new Problem(currentContext, String.format("%s must have a %s field.",
+                                                                                 propertyPath, ItemReader.PATH)));
+            }
+        }
+
+        private void validateIterator(MapState mapState) {
+            currentContext.assertNotNull(mapState.getIterator(), PropertyNames.ITERATOR);
+            if (mapState.getIterator() == null) {
+                return;
+            }
+            ValidationContext iteratorContext = currentContext.iterator();
+            Branch iterator = mapState.getIterator();
+            iteratorContext.assertNotEmpty(iterator.getStates(), PropertyNames.STATES);
+            validateStates(iteratorContext, iterator.getStates());
+            if (!iterator.getStates().containsKey(iterator.getStartAt())) {
+                problemReporter.report(new Problem(iteratorContext, String.format("%s references a non existent state.",
+                                                                                  PropertyNames.START_AT)));
+            }
+        }
+
         @Override
         public Void visit(PassState passState) {
             currentContext.assertIsValidInputPath(passState.getInputPath());
+            currentContext.assertIsValidPayloadTemplate(passState.getParameters(), PropertyNames.PARAMETERS);
             currentContext.assertIsValidOutputPath(passState.getOutputPath());
             currentContext.assertIsValidResultPath(passState.getResultPath());
             validateTransition(passState.getTransition());
@@ -307,6 +448,8 @@ public class StateMachineValidator {
         @Override
         public Void visit(TaskState taskState) {
             currentContext.assertIsValidInputPath(taskState.getInputPath());
+            currentContext.assertIsValidPayloadTemplate(taskState.getParameters(), PropertyNames.PARAMETERS);
+            currentContext.assertIsValidPayloadTemplate(taskState.getResultSelector(), PropertyNames.RESULT_SELECTOR);
             currentContext.assertIsValidOutputPath(taskState.getOutputPath());
             currentContext.assertIsValidResultPath(taskState.getResultPath());
             currentContext.assertIsPositiveIfPresent(taskState.getTimeoutSeconds(), PropertyNames.TIMEOUT_SECONDS);
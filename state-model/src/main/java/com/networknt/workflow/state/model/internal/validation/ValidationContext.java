@@ -15,13 +15,21 @@
 
 package com.networknt.workflow.state.model.internal.validation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
 import com.networknt.utility.CollectionUtil;
 import com.networknt.utility.StringUtil;
 import com.networknt.workflow.state.model.internal.PropertyNames;
+import com.networknt.workflow.state.model.intrinsics.Expression;
+import com.networknt.workflow.state.model.intrinsics.ExpressionVisitor;
+import com.networknt.workflow.state.model.intrinsics.FunctionCall;
+import com.networknt.workflow.state.model.intrinsics.IntrinsicFunctionParser;
+import com.networknt.workflow.state.model.intrinsics.Literal;
+import com.networknt.workflow.state.model.intrinsics.PathReference;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -217,6 +225,80 @@ final class ValidationContext {
         }
     }
 
+    /**
+     * Asserts that the template is a JSON object whose fields ending in ".$", at any depth, hold valid JsonPath
+     * expressions or intrinsic function calls.
+     *
+     * @param template     Template to validate, e.g. the Parameters of a state.
+     * @param propertyName Name of property.
+     */
+    public void assertIsValidPayloadTemplate(JsonNode template, String propertyName) {
+        if (template == null) {
+            return;
+        }
+        if (!template.isObject()) {
+            problemReporter.report(new Problem(this, String.format("%s must be a JSON object", propertyName)));
+            return;
+        }
+        assertIsValidTemplateNode(template, propertyName);
+    }
+
+    private void assertIsValidTemplateNode(JsonNode node, String propertyName) {
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                assertIsValidTemplateNode(element, propertyName);
+            }
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getKey().endsWith(".$")) {
+                    String fieldName = propertyName + "." + field.getKey();
+                    if (!field.getValue().isTextual()) {
+                        problemReporter.report(new Problem(this, String.format("%s must be a path", fieldName)));
+                    } else if (IntrinsicFunctionParser.isIntrinsicFunction(field.getValue().asText())) {
+                        assertIsValidIntrinsicFunction(field.getValue().asText(), fieldName);
+                    } else {
+                        assertIsValidJsonPath(field.getValue().asText(), fieldName);
+                    }
+                } else {
+                    assertIsValidTemplateNode(field.getValue(), propertyName);
+                }
+            }
+        }
+    }
+
+    private void assertIsValidIntrinsicFunction(String call, String propertyName) {
+        final FunctionCall function;
+        try {
+            function = IntrinsicFunctionParser.parse(call);
+        } catch (IllegalArgumentException e) {
+            problemReporter.report(new Problem(this, String.format("%s is not a valid intrinsic function: %s",
+                                                                   propertyName, e.getMessage())));
+            return;
+        }
+        function.accept(new ExpressionVisitor<Void>() {
+            @Override
+            public Void visit(Literal literal) {
+                return null;
+            }
+
+            @Override
+            public Void visit(PathReference pathReference) {
+                assertIsValidJsonPath(pathReference.getPath(), propertyName);
+                return null;
+            }
+
+            @Override
+            public Void visit(FunctionCall functionCall) {
+                for (Expression argument : functionCall.getArguments()) {
+                    argument.accept(this);
+                }
+                return null;
+            }
+        });
+    }
+
     /**
      * @param stateName Name of state.
      * @return State sub-context.
@@ -250,6 +332,16 @@ final class ValidationContext {
                 .build();
     }
 
+    /**
+     * @return Sub-context of the iterator of a map state.
+     */
+    public ValidationContext iterator() {
+        return newChildContext()
+                .identifier(PropertyNames.ITERATOR)
+                .location(Location.Iterator)
+                .build();
+    }
+
     /**
      * @param index Index of choice.
      * @return Choice sub-context.
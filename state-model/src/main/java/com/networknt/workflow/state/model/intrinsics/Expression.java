@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+/**
+ * Node of the syntax tree of an intrinsic function call, see {@link IntrinsicFunctionParser}.
+ */
+public abstract class Expression {
+
+    Expression() {
+    }
+
+    /**
+     * @param visitor Visitor to dispatch to.
+     * @param <T>     Result type of the visitor.
+     * @return Result of the visitor.
+     */
+    public abstract <T> T accept(ExpressionVisitor<T> visitor);
+}
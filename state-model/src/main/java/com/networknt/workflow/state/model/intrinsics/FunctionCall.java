@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A call of an intrinsic function, either the whole expression or an argument of another call.
+ */
+public final class FunctionCall extends Expression {
+
+    private final IntrinsicFunction function;
+    private final List<Expression> arguments;
+
+    FunctionCall(IntrinsicFunction function, List<Expression> arguments) {
+        this.function = function;
+        this.arguments = Collections.unmodifiableList(arguments);
+    }
+
+    public IntrinsicFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * @return Arguments of the call, in order.
+     */
+    public List<Expression> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(function.getName()).append('(');
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(arguments.get(i));
+        }
+        return text.append(')').toString();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The intrinsic functions that may be used in place of a path in the {@code .$} fields of Parameters and
+ * ResultSelector templates, with the number of arguments each of them takes.
+ *
+ * @see <a href="https://states-language.net/spec.html#appendix-b">https://states-language.net/spec.html#appendix-b</a>
+ */
+public enum IntrinsicFunction {
+
+    FORMAT("States.Format", 1, Integer.MAX_VALUE),
+    STRING_TO_JSON("States.StringToJson", 1, 1),
+    JSON_TO_STRING("States.JsonToString", 1, 1),
+    ARRAY("States.Array", 0, Integer.MAX_VALUE),
+    ARRAY_PARTITION("States.ArrayPartition", 2, 2),
+    ARRAY_CONTAINS("States.ArrayContains", 2, 2),
+    ARRAY_RANGE("States.ArrayRange", 3, 3),
+    ARRAY_GET_ITEM("States.ArrayGetItem", 2, 2),
+    ARRAY_LENGTH("States.ArrayLength", 1, 1),
+    ARRAY_UNIQUE("States.ArrayUnique", 1, 1),
+    BASE64_ENCODE("States.Base64Encode", 1, 1),
+    BASE64_DECODE("States.Base64Decode", 1, 1),
+    HASH("States.Hash", 2, 2),
+    JSON_MERGE("States.JsonMerge", 3, 3),
+    MATH_RANDOM("States.MathRandom", 2, 3),
+    MATH_ADD("States.MathAdd", 2, 2),
+    STRING_SPLIT("States.StringSplit", 2, 2),
+    UUID("States.UUID", 0, 0);
+
+    private static final Map<String, IntrinsicFunction> BY_NAME = new HashMap<String, IntrinsicFunction>();
+
+    static {
+        for (IntrinsicFunction function : values()) {
+            BY_NAME.put(function.name, function);
+        }
+    }
+
+    private final String name;
+    private final int minArguments;
+    private final int maxArguments;
+
+    IntrinsicFunction(String name, int minArguments, int maxArguments) {
+        this.name = name;
+        this.minArguments = minArguments;
+        this.maxArguments = maxArguments;
+    }
+
+    /**
+     * @param name Name of a function as used in a state machine, e.g. {@code States.Format}.
+     * @return The function or null if there is none of that name.
+     */
+    public static IntrinsicFunction forName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return Name of the function as used in a state machine.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getMinArguments() {
+        return minArguments;
+    }
+
+    public int getMaxArguments() {
+        return maxArguments;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses intrinsic function calls such as {@code States.Format('Hello {}', $.name)} into a tree of {@link Expression}s.
+ * The grammar is the one of the States Language: arguments are string literals in single quotes, numbers, booleans,
+ * null, paths starting with {@code $} or nested function calls. Within a string literal a backslash escapes the next
+ * character, so quotes, braces and backslashes can be written as {@code \'}, <code>\{</code>, <code>\}</code> and
+ * {@code \\}.
+ *
+ * <p>The number of arguments of every call is checked, as are the placeholders of a {@code States.Format} template.
+ * The types of arguments that come from paths are only known once the function is applied.</p>
+ *
+ * @see <a href="https://states-language.net/spec.html#appendix-b">https://states-language.net/spec.html#appendix-b</a>
+ */
+public final class IntrinsicFunctionParser {
+
+    private static final String PREFIX = "States.";
+
+    private final String text;
+    private int position;
+
+    private IntrinsicFunctionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param value Value of a {@code .$} field.
+     * @return True if the value is meant as an intrinsic function call rather than a path.
+     */
+    public static boolean isIntrinsicFunction(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    /**
+     * @param text Intrinsic function call.
+     * @return Syntax tree of the call.
+     * @throws IllegalArgumentException If the call is malformed, names an unknown function or passes the wrong number of
+     *                                  arguments.
+     */
+    public static FunctionCall parse(String text) {
+        IntrinsicFunctionParser parser = new IntrinsicFunctionParser(text);
+        parser.skipWhitespace();
+        FunctionCall call = parser.parseCall();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected '" + text.charAt(parser.position) + "' after the function call");
+        }
+        return call;
+    }
+
+    private FunctionCall parseCall() {
+        int start = position;
+        while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position))
+                || text.charAt(position) == '.')) {
+            position++;
+        }
+        String name = text.substring(start, position);
+        IntrinsicFunction function = IntrinsicFunction.forName(name);
+        if (function == null) {
+            position = start;
+            throw error("Unknown intrinsic function '" + name + "'");
+        }
+        skipWhitespace();
+        expect('(');
+        List<Expression> arguments = new ArrayList<Expression>();
+        skipWhitespace();
+        if (peek() != ')') {
+            do {
+                skipWhitespace();
+                arguments.add(parseArgument());
+                skipWhitespace();
+            } while (accept(','));
+        }
+        expect(')');
+        if (arguments.size() < function.getMinArguments() || arguments.size() > function.getMaxArguments()) {
+            position = start;
+            throw error(String.format("%s takes %s but was given %d", name, describeArity(function), arguments.size()));
+        }
+        if (function == IntrinsicFunction.FORMAT) {
+            checkFormat(start, arguments);
+        }
+        return new FunctionCall(function, arguments);
+    }
+
+    private Expression parseArgument() {
+        char c = peek();
+        if (c == '\'') {
+            return parseString();
+        }
+        if (c == '$') {
+            return parsePath();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return parseNumber();
+        }
+        if (text.startsWith(PREFIX, position)) {
+            return parseCall();
+        }
+        if (acceptWord("true")) {
+            return new Literal(BooleanNode.TRUE, null);
+        }
+        if (acceptWord("false")) {
+            return new Literal(BooleanNode.FALSE, null);
+        }
+        if (acceptWord("null")) {
+            return new Literal(NullNode.getInstance(), null);
+        }
+        throw error(c == 0 || c == ',' || c == ')' ? "Missing argument" : "Unexpected '" + c + "'");
+    }
+
+    private Literal parseString() {
+        int start = position;
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '\'') {
+                return new Literal(TextNode.valueOf(value.toString()), text.substring(start + 1, position - 1));
+            }
+            if (c == '\\') {
+                if (position == text.length()) {
+                    break;
+                }
+                c = text.charAt(position++);
+            }
+            value.append(c);
+        }
+        position = start;
+        throw error("Unterminated string literal");
+    }
+
+    private PathReference parsePath() {
+        int start = position;
+        int depth = 0;
+        boolean quoted = false;
+        char quote = 0;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (quoted) {
+                if (c == '\\') {
+                    position++;
+                } else if (c == quote) {
+                    quoted = false;
+                }
+            } else if (c == '\'' || c == '"') {
+                quoted = true;
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                break;
+            }
+            position++;
+        }
+        return new PathReference(text.substring(start, position).trim());
+    }
+
+    private Literal parseNumber() {
+        int start = position;
+        if (peek() == '-') {
+            position++;
+        }
+        while (position < text.length() && "0123456789.eE+-".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            BigDecimal value = new BigDecimal(number);
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                long longValue = value.longValueExact();
+                return new Literal(longValue == (int) longValue ? IntNode.valueOf((int) longValue)
+                                                                : LongNode.valueOf(longValue), null);
+            }
+            return new Literal(DecimalNode.valueOf(value), null);
+        } catch (ArithmeticException | NumberFormatException e) {
+            position = start;
+            throw error("Malformed number '" + number + "'");
+        }
+    }
+
+    private void checkFormat(int start, List<Expression> arguments) {
+        if (!(arguments.get(0) instanceof Literal) || ((Literal) arguments.get(0)).getRaw() == null) {
+            position = start;
+            throw error("The first argument of States.Format must be a string literal");
+        }
+        int placeholders = countPlaceholders(((Literal) arguments.get(0)).getRaw());
+        if (placeholders != arguments.size() - 1) {
+            position = start;
+            throw error(String.format("The template of States.Format has %d placeholders but %d values were given",
+                                      placeholders, arguments.size() - 1));
+        }
+    }
+
+    /**
+     * @param raw Text of a string literal with its escape sequences.
+     * @return Number of unescaped {@code {}} in it.
+     */
+    public static int countPlaceholders(String raw) {
+        int count = 0;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{' && i + 1 < raw.length() && raw.charAt(i + 1) == '}') {
+                count++;
+                i++;
+            }
+        }
+        return count;
+    }
+
+    private static String describeArity(IntrinsicFunction function) {
+        int min = function.getMinArguments();
+        int max = function.getMaxArguments();
+        if (min == max) {
+            return min == 1 ? "1 argument" : min + " arguments";
+        }
+        if (max == Integer.MAX_VALUE) {
+            return "at least " + min + (min == 1 ? " argument" : " arguments");
+        }
+        return min + " to " + max + " arguments";
+    }
+
+    private boolean acceptWord(String word) {
+        if (text.startsWith(word, position)) {
+            int end = position + word.length();
+            if (end == text.length() || !Character.isLetterOrDigit(text.charAt(end))) {
+                position = end;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean accept(char c) {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error(position == text.length() ? "Expected '" + c + "' but reached the end"
+                                                  : "Expected '" + c + "' but found '" + text.charAt(position) + "'");
+        }
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(String.format("%s at position %d of '%s'", message, position, text));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A string, number, boolean or null literal argument.
+ */
+public final class Literal extends Expression {
+
+    private final JsonNode value;
+    private final String raw;
+
+    Literal(JsonNode value, String raw) {
+        this.value = value;
+        this.raw = raw;
+    }
+
+    /**
+     * @return Value of the literal. The node is shared and must not be modified.
+     */
+    public JsonNode getValue() {
+        return value;
+    }
+
+    /**
+     * @return Text of a string literal as written between the quotes, with its escape sequences, or null if the literal
+     *     is not a string. {@code States.Format} needs it to tell an escaped brace from a placeholder.
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        return raw == null ? value.toString() : "'" + raw + "'";
+    }
+}
@@ -22,7 +22,8 @@ import com.networknt.workflow.state.model.internal.Buildable;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
 /**
- * A single branch of parallel execution in a state machine. See {@link ParallelState}.
+ * A single branch of parallel execution in a state machine, see {@link ParallelState}, or the iterator of a
+ * {@link MapState}.
  *
  * @see <a href="https://states-language.net/spec.html#parallel-state">https://states-language.net/spec.html#parallel-state</a>
  */
@@ -26,8 +26,9 @@ import com.networknt.workflow.state.model.ErrorCodes;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
 /**
- * Catches an error from a {@link ParallelState} or a {@link TaskState} and transitions into the specified recovery state. The
- * recovery state will receive the error output as input unless otherwise specified by a ResultPath.
+ * Catches an error from a {@link MapState}, a {@link ParallelState} or a {@link TaskState} and transitions into the
+ * specified recovery state. The recovery state will receive the error output as input unless otherwise specified by a
+ * ResultPath.
  *
  * @see <a href="https://states-language.net/spec.html#errors">https://states-language.net/spec.html#errors</a>
  */
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.states;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.JsonValues;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+
+/**
+ * Groups the items of a {@link MapState} into batches so that one iteration processes several items. The input of an
+ * iteration is then an object with the batch under “Items” and the result of the “BatchInput” template under
+ * “BatchInput”, and the iteration produces one output for the whole batch.
+ *
+ * <p>A batch is closed once it holds “MaxItemsPerBatch” items or adding the next item would exceed
+ * “MaxInputBytesPerBatch” bytes of serialized items. A batch always holds at least one item.</p>
+ */
+public final class ItemBatcher {
+
+    /**
+     * Field of the iteration input holding the items of the batch.
+     */
+    public static final String ITEMS = "Items";
+
+    @JsonProperty(PropertyNames.MAX_ITEMS_PER_BATCH)
+    private final Integer maxItemsPerBatch;
+
+    @JsonProperty(PropertyNames.MAX_INPUT_BYTES_PER_BATCH)
+    private final Integer maxInputBytesPerBatch;
+
+    @JsonProperty(PropertyNames.BATCH_INPUT)
+    private final JsonNode batchInput;
+
+    private ItemBatcher(Builder builder) {
+        this.maxItemsPerBatch = builder.maxItemsPerBatch;
+        this.maxInputBytesPerBatch = builder.maxInputBytesPerBatch;
+        this.batchInput = builder.batchInput;
+    }
+
+    /**
+     * @return Builder instance to construct an {@link ItemBatcher}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Maximum number of items in a batch, null if only the size of a batch is limited.
+     */
+    public Integer getMaxItemsPerBatch() {
+        return maxItemsPerBatch;
+    }
+
+    /**
+     * @return Maximum size in bytes of the items in a batch, null if only the number of items is limited.
+     */
+    public Integer getMaxInputBytesPerBatch() {
+        return maxInputBytesPerBatch;
+    }
+
+    /**
+     * @return Template applied to the effective input of the state that is passed to every batch, or null if there is
+     *     none.
+     */
+    public JsonNode getBatchInput() {
+        return batchInput;
+    }
+
+    /**
+     * Builder for an {@link ItemBatcher}.
+     */
+    public static final class Builder implements Buildable<ItemBatcher> {
+
+        @JsonProperty(PropertyNames.MAX_ITEMS_PER_BATCH)
+        private Integer maxItemsPerBatch;
+
+        @JsonProperty(PropertyNames.MAX_INPUT_BYTES_PER_BATCH)
+        private Integer maxInputBytesPerBatch;
+
+        @JsonProperty(PropertyNames.BATCH_INPUT)
+        private JsonNode batchInput;
+
+        private Builder() {
+        }
+
+        /**
+         * OPTIONAL. Maximum number of items in a batch. At least one of the limits is required.
+         *
+         * @param maxItemsPerBatch Number of items, must be positive.
+         * @return This object for method chaining.
+         */
+        public Builder maxItemsPerBatch(Integer maxItemsPerBatch) {
+            this.maxItemsPerBatch = maxItemsPerBatch;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Maximum size in bytes of the serialized items in a batch. An item larger than the limit forms a
+         * batch of its own. At least one of the limits is required.
+         *
+         * @param maxInputBytesPerBatch Size in bytes, must be positive.
+         * @return This object for method chaining.
+         */
+        public Builder maxInputBytesPerBatch(Integer maxInputBytesPerBatch) {
+            this.maxInputBytesPerBatch = maxInputBytesPerBatch;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Template applied once to the effective input of the state, its result is passed to every batch. A
+         * field whose name ends in “.$” is given the value its path selects from the input, all other fields are copied
+         * as is.
+         *
+         * @param batchInput POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder batchInput(Object batchInput) {
+            this.batchInput = JsonValues.toTree(batchInput);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Sets the “BatchInput” template, see {@link #batchInput(Object)}.
+         *
+         * @param batchInput JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder batchInput(String batchInput) {
+            this.batchInput = JsonValues.parse(batchInput, PropertyNames.BATCH_INPUT);
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link ItemBatcher} object.
+         */
+        @Override
+        public ItemBatcher build() {
+            return new ItemBatcher(this);
+        }
+    }
+}
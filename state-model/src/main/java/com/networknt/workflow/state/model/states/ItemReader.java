@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.states;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.JsonValues;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+
+/**
+ * Makes a {@link MapState} read its items from a local file instead of its input, for item sources too large to be
+ * passed between states. The “Parameters” template is applied to the effective input of the state and must produce a
+ * “Path” field with the location of the file.
+ */
+public final class ItemReader {
+
+    /**
+     * Field of the parameters holding the location of the file.
+     */
+    public static final String PATH = "Path";
+
+    @JsonProperty(PropertyNames.READER_CONFIG)
+    private final ReaderConfig readerConfig;
+
+    @JsonProperty(PropertyNames.PARAMETERS)
+    private final JsonNode parameters;
+
+    private ItemReader(Builder builder) {
+        this.readerConfig = Buildable.Utils.build(builder.readerConfig);
+        this.parameters = builder.parameters;
+    }
+
+    /**
+     * @return Builder instance to construct an {@link ItemReader}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Format of the file.
+     */
+    public ReaderConfig getReaderConfig() {
+        return readerConfig;
+    }
+
+    /**
+     * @return Template producing the location of the file.
+     */
+    public JsonNode getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Builder for an {@link ItemReader}.
+     */
+    public static final class Builder implements Buildable<ItemReader> {
+
+        @JsonProperty(PropertyNames.READER_CONFIG)
+        private ReaderConfig.Builder readerConfig;
+
+        @JsonProperty(PropertyNames.PARAMETERS)
+        private JsonNode parameters;
+
+        private Builder() {
+        }
+
+        /**
+         * REQUIRED. Sets the format of the file.
+         *
+         * @param readerConfig Instance of {@link ReaderConfig.Builder}.
+         * @return This object for method chaining.
+         */
+        public Builder readerConfig(ReaderConfig.Builder readerConfig) {
+            this.readerConfig = readerConfig;
+            return this;
+        }
+
+        /**
+         * REQUIRED. Template producing the location of the file, e.g. {@code {"Path.$": "$.file"}}.
+         *
+         * @param parameters POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(Object parameters) {
+            this.parameters = JsonValues.toTree(parameters);
+            return this;
+        }
+
+        /**
+         * REQUIRED. Sets the template producing the location of the file, see {@link #parameters(Object)}.
+         *
+         * @param parameters JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(String parameters) {
+            this.parameters = JsonValues.parse(parameters, PropertyNames.PARAMETERS);
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link ItemReader} object.
+         */
+        @Override
+        public ItemReader build() {
+            return new ItemReader(this);
+        }
+    }
+}
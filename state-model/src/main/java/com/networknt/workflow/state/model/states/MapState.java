@@ -0,0 +1,502 @@
+/*
+ * Copyright 2010-2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.states;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.JsonValues;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+
+/**
+ * State that runs the same set of steps for each element of an array in the input. The “ItemsPath” selects the array, and
+ * the interpreter executes the “Iterator” once for every element, with the element as the input, running at most
+ * “MaxConcurrency” iterations at the same time. The result of the state is the array of iteration outputs, in the order of
+ * the elements.
+ *
+ * <p>For item sources too large to be passed between states, an “ItemReader” reads the items from a local file instead,
+ * and a “ResultWriter” writes the outputs to a local file rather than collecting them into the result. An
+ * “ItemBatcher” groups the items so that every iteration processes a batch of them.</p>
+ *
+ * @see <a href="https://states-language.net/spec.html#map-state">https://states-language.net/spec.html#map-state</a>
+ */
+public final class MapState extends TransitionState {
+
+    @JsonProperty(PropertyNames.COMMENT)
+    private final String comment;
+
+    @JsonProperty(PropertyNames.ITERATOR)
+    private final Branch iterator;
+
+    @JsonProperty(PropertyNames.ITEMS_PATH)
+    private final String itemsPath;
+
+    @JsonProperty(PropertyNames.MAX_CONCURRENCY)
+    private final Integer maxConcurrency;
+
+    @JsonProperty(PropertyNames.ITEM_READER)
+    private final ItemReader itemReader;
+
+    @JsonProperty(PropertyNames.RESULT_WRITER)
+    private final ResultWriter resultWriter;
+
+    @JsonProperty(PropertyNames.ITEM_BATCHER)
+    private final ItemBatcher itemBatcher;
+
+    @JsonProperty(PropertyNames.INPUT_PATH)
+    private final String inputPath;
+
+    @JsonProperty(PropertyNames.RESULT_SELECTOR)
+    private final JsonNode resultSelector;
+
+    @JsonProperty(PropertyNames.RESULT_PATH)
+    private final String resultPath;
+
+    @JsonProperty(PropertyNames.OUTPUT_PATH)
+    private final String outputPath;
+
+    @JsonUnwrapped
+    private final Transition transition;
+
+    @JsonProperty(PropertyNames.RETRY)
+    private final List<Retrier> retriers;
+
+    @JsonProperty(PropertyNames.CATCH)
+    private final List<Catcher> catchers;
+
+    private MapState(Builder builder) {
+        this.comment = builder.comment;
+        this.iterator = Buildable.Utils.build(builder.iterator);
+        this.itemsPath = builder.itemsPath;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.itemReader = Buildable.Utils.build(builder.itemReader);
+        this.resultWriter = Buildable.Utils.build(builder.resultWriter);
+        this.itemBatcher = Buildable.Utils.build(builder.itemBatcher);
+        this.inputPath = builder.inputPath;
+        this.resultSelector = builder.resultSelector;
+        this.resultPath = builder.resultPath;
+        this.outputPath = builder.outputPath;
+        this.transition = builder.transition.build();
+        this.retriers = Buildable.Utils.build(builder.retriers);
+        this.catchers = Buildable.Utils.build(builder.catchers);
+    }
+
+    /**
+     * @return Builder instance to construct a {@link MapState}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Type identifier of {@link MapState}.
+     */
+    @Override
+    public String getType() {
+        return "Map";
+    }
+
+    /**
+     * @return The transition that will occur when all iterations have executed successfully.
+     */
+    @Override
+    public Transition getTransition() {
+        return transition;
+    }
+
+    /**
+     * @return Human readable description for the state.
+     */
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * @return The steps executed for each item.
+     */
+    public Branch getIterator() {
+        return iterator;
+    }
+
+    /**
+     * @return Path selecting the array of items from the effective input, null if the effective input is the array.
+     */
+    public String getItemsPath() {
+        return itemsPath;
+    }
+
+    /**
+     * @return Maximum number of iterations running at the same time, null or 0 if there is no limit.
+     */
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return Reader of the file the items come from, null if the items are selected from the effective input.
+     */
+    public ItemReader getItemReader() {
+        return itemReader;
+    }
+
+    /**
+     * @return Writer of the file the iteration outputs go to, null if they are collected into the result.
+     */
+    public ResultWriter getResultWriter() {
+        return resultWriter;
+    }
+
+    /**
+     * @return Batching of the items, null if every iteration processes a single item.
+     */
+    public ItemBatcher getItemBatcher() {
+        return itemBatcher;
+    }
+
+    /**
+     * @return The input path expression that may optionally transform the input to this state.
+     */
+    public String getInputPath() {
+        return inputPath;
+    }
+
+    /**
+     * @return Template the result of the state is reshaped with before ResultPath is applied, or null if the state has
+     *     none. See {@link Builder#resultSelector(Object)}.
+     */
+    public JsonNode getResultSelector() {
+        return resultSelector;
+    }
+
+    /**
+     * @return The result path expression that may optionally combine or replace the state's raw input with it's result.
+     */
+    public String getResultPath() {
+        return resultPath;
+    }
+
+    /**
+     * @return The output path expression that may optionally transform the output to this state.
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * @return The list of {@link Retrier}s for this state.
+     */
+    public List<Retrier> getRetriers() {
+        return retriers;
+    }
+
+    /**
+     * @return The list of {@link Catcher}s for this state.
+     */
+    public List<Catcher> getCatchers() {
+        return catchers;
+    }
+
+    @Override
+    public <T> T accept(StateVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    /**
+     * Builder for a {@link MapState}.
+     */
+    public static final class Builder extends TransitionStateBuilder {
+
+        @JsonProperty(PropertyNames.COMMENT)
+        private String comment;
+
+        @JsonProperty(PropertyNames.ITERATOR)
+        private Branch.Builder iterator;
+
+        @JsonProperty(PropertyNames.ITEMS_PATH)
+        private String itemsPath;
+
+        @JsonProperty(PropertyNames.MAX_CONCURRENCY)
+        private Integer maxConcurrency;
+
+        @JsonProperty(PropertyNames.ITEM_READER)
+        private ItemReader.Builder itemReader;
+
+        @JsonProperty(PropertyNames.RESULT_WRITER)
+        private ResultWriter.Builder resultWriter;
+
+        @JsonProperty(PropertyNames.ITEM_BATCHER)
+        private ItemBatcher.Builder itemBatcher;
+
+        @JsonProperty(PropertyNames.INPUT_PATH)
+        private String inputPath;
+
+        @JsonProperty(PropertyNames.RESULT_SELECTOR)
+        private JsonNode resultSelector;
+
+        @JsonProperty(PropertyNames.RESULT_PATH)
+        private String resultPath;
+
+        @JsonProperty(PropertyNames.OUTPUT_PATH)
+        private String outputPath;
+
+        private Transition.Builder transition = Transition.NULL_BUILDER;
+
+        @JsonProperty(PropertyNames.RETRY)
+        private List<Retrier.Builder> retriers = new ArrayList<Retrier.Builder>();
+
+        @JsonProperty(PropertyNames.CATCH)
+        private List<Catcher.Builder> catchers = new ArrayList<Catcher.Builder>();
+
+        private Builder() {
+        }
+
+        /**
+         * OPTIONAL. Human readable description for the state.
+         *
+         * @param comment New comment.
+         * @return This object for method chaining.
+         */
+        public Builder comment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        /**
+         * REQUIRED. Sets the steps executed for each item. The iterator is a complete state machine of its own, its states
+         * may only transition to each other.
+         *
+         * @param iteratorBuilder Instance of {@link Branch.Builder}. Note that the {@link Branch} object is not built until
+         *                        the {@link MapState} is built so any modifications on the state model will be reflected in
+         *                        this object.
+         * @return This object for method chaining.
+         */
+        public Builder iterator(Branch.Builder iteratorBuilder) {
+            this.iterator = iteratorBuilder;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “ItemsPath” MUST be a Reference Path, which is applied to the effective input of the state
+         * and selects the array to iterate over. If not provided then the effective input must be the array.
+         *
+         * @param itemsPath New path value.
+         * @return This object for method chaining.
+         */
+        public Builder itemsPath(String itemsPath) {
+            this.itemsPath = itemsPath;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Upper bound on the number of iterations running at the same time. If not provided, or 0, the iterations
+         * are run as concurrently as possible.
+         *
+         * @param maxConcurrency Maximum number of concurrent iterations, must not be negative.
+         * @return This object for method chaining.
+         */
+        public Builder maxConcurrency(Integer maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Reads the items from a local file instead of selecting them from the effective input, see
+         * {@link ItemReader}. Requires a {@link #resultWriter(ResultWriter.Builder)}.
+         *
+         * @param itemReader Instance of {@link ItemReader.Builder}.
+         * @return This object for method chaining.
+         */
+        public Builder itemReader(ItemReader.Builder itemReader) {
+            this.itemReader = itemReader;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Writes the iteration outputs to a local file instead of collecting them into the result, see
+         * {@link ResultWriter}. The result of the state is then an object describing the file. Only valid together with an
+         * {@link #itemReader(ItemReader.Builder)}.
+         *
+         * @param resultWriter Instance of {@link ResultWriter.Builder}.
+         * @return This object for method chaining.
+         */
+        public Builder resultWriter(ResultWriter.Builder resultWriter) {
+            this.resultWriter = resultWriter;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Groups the items into batches, see {@link ItemBatcher}. Every iteration then processes a batch and the
+         * result has an output per batch rather than per item.
+         *
+         * @param itemBatcher Instance of {@link ItemBatcher.Builder}.
+         * @return This object for method chaining.
+         */
+        public Builder itemBatcher(ItemBatcher.Builder itemBatcher) {
+            this.itemBatcher = itemBatcher;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “InputPath” MUST be a Path, which is applied to a State’s raw input to select some or all of
+         * it;
+         * that selection is used by the state. If not provided then the whole output from the previous state is used as input to
+         * this state.
+         *
+         * @param inputPath New path value.
+         * @return This object for method chaining.
+         */
+        public Builder inputPath(String inputPath) {
+            this.inputPath = inputPath;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “ResultSelector” is a template the array of iteration outputs is reshaped with before ResultPath is
+         * applied. A field whose name ends in “.$” is given the value its path selects from the result, all other fields
+         * are copied as is.
+         *
+         * @param resultSelector POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder resultSelector(Object resultSelector) {
+            this.resultSelector = JsonValues.toTree(resultSelector);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Sets the “ResultSelector” template, see {@link #resultSelector(Object)}.
+         *
+         * @param resultSelector JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder resultSelector(String resultSelector) {
+            this.resultSelector = JsonValues.parse(resultSelector, PropertyNames.RESULT_SELECTOR);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “ResultPath” MUST be a Reference Path, which specifies the combination with or replacement of
+         * the state’s result with its raw input. If not provided then the output completely replaces the input.
+         *
+         * @param resultPath New path value.
+         * @return This object for method chaining.
+         */
+        public Builder resultPath(String resultPath) {
+            this.resultPath = resultPath;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “OutputPath” MUST be a path, which is applied to the state’s output after the application of
+         * ResultPath, leading in the generation of the raw input for the next state. If not provided then the whole output is
+         * used.
+         *
+         * @param outputPath New path value.
+         * @return This object for method chaining.
+         */
+        public Builder outputPath(String outputPath) {
+            this.outputPath = outputPath;
+            return this;
+        }
+
+        /**
+         * REQUIRED. Sets the transition that will occur when all iterations of this map state have executed
+         * successfully.
+         *
+         * @param builder New transition.
+         * @return This object for method chaining.
+         */
+        @Override
+        public Builder transition(Transition.Builder builder) {
+            this.transition = builder;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Adds the {@link Retrier}s to this states retries. If a single iteration fails then the entire map state is
+         * considered failed and eligible for retry.
+         *
+         * @param retrierBuilders Instances of {@link Retrier.Builder}. Note that the {@link
+         *                        Retrier} object is not built until the {@link MapState} is built so any modifications on
+         *                        the state model will be reflected in this object.
+         * @return This object for method chaining.
+         */
+        public Builder retriers(Retrier.Builder... retrierBuilders) {
+            for (Retrier.Builder retrierBuilder : retrierBuilders) {
+                retrier(retrierBuilder);
+            }
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Adds the {@link Retrier} to this states retries. If a single iteration fails then the entire map state is
+         * considered failed and eligible for retry.
+         *
+         * @param retrierBuilder Instance of {@link Retrier.Builder}. Note that the {@link
+         *                       Retrier} object is not built until the {@link MapState} is built so any modifications on
+         *                       the
+         *                       state model will be reflected in this object.
+         * @return This object for method chaining.
+         */
+        public Builder retrier(Retrier.Builder retrierBuilder) {
+            this.retriers.add(retrierBuilder);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Adds the {@link Catcher}s to this states catchers.  If a single iteration fails then the entire map state
+         * is considered failed and eligible to be caught.
+         *
+         * @param catcherBuilders Instances of {@link Catcher.Builder}. Note that the {@link
+         *                        Catcher} object is not built until the {@link MapState} is built so any modifications on
+         *                        the state model will be reflected in this object.
+         * @return This object for method chaining.
+         */
+        public Builder catchers(Catcher.Builder... catcherBuilders) {
+            for (Catcher.Builder catcherBuilder : catcherBuilders) {
+                catcher(catcherBuilder);
+            }
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Adds the {@link Catcher} to this states catchers.  If a single iteration fails then the entire map state
+         * is considered failed and eligible to be caught.
+         *
+         * @param catcherBuilder Instance of {@link Catcher.Builder}. Note that the {@link
+         *                       Catcher} object is not built until the {@link MapState} is built so any modifications on
+         *                       the
+         *                       state model will be reflected in this object.
+         * @return This object for method chaining.
+         */
+        public Builder catcher(Catcher.Builder catcherBuilder) {
+            this.catchers.add(catcherBuilder);
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link MapState} object.
+         */
+        @Override
+        public MapState build() {
+            return new MapState(this);
+        }
+    }
+}
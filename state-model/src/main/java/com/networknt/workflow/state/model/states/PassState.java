@@ -18,14 +18,10 @@ package com.networknt.workflow.state.model.states;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.model.internal.JsonValues;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
-import java.io.IOException;
-
 /**
  * The Pass State simply passes its input to its output, performing no work. Pass States are useful when constructing and
  * debugging state machines.
@@ -37,15 +33,6 @@ import java.io.IOException;
  */
 public final class PassState extends TransitionState {
 
-    /**
-     * Disable Jackson specific features like annotations. Support only
-     * basic POJO serialization to limit our coupling to Jackson.
-     */
-    private static final ObjectMapper MAPPER = new ObjectMapper()
-            .disable(MapperFeature.USE_ANNOTATIONS)
-            .disable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS)
-            .disable(MapperFeature.AUTO_DETECT_FIELDS);
-
     @JsonProperty(PropertyNames.COMMENT)
     private final String comment;
 
@@ -55,6 +42,9 @@ public final class PassState extends TransitionState {
     @JsonProperty(PropertyNames.INPUT_PATH)
     private final String inputPath;
 
+    @JsonProperty(PropertyNames.PARAMETERS)
+    private final JsonNode parameters;
+
     @JsonProperty(PropertyNames.OUTPUT_PATH)
     private final String outputPath;
 
@@ -68,6 +58,7 @@ public final class PassState extends TransitionState {
         this.comment = builder.comment;
         this.result = builder.result;
         this.inputPath = builder.inputPath;
+        this.parameters = builder.parameters;
         this.outputPath = builder.outputPath;
         this.resultPath = builder.resultPath;
         this.transition = builder.transition.build();
@@ -96,15 +87,21 @@ public final class PassState extends TransitionState {
     }
 
     /**
-     * @return String containing JSON document of the state's "virtual" result.
+     * @return String containing JSON document of the state's "virtual" result. The document is serialized on every call,
+     *     use {@link #getResultNode()} to avoid that.
      */
     @JsonIgnore
     public String getResult() {
-        try {
-            return result == null ? null : MAPPER.writeValueAsString(result);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Could not serialize result", e);
-        }
+        return result == null ? null : JsonValues.toString(result, PropertyNames.RESULT);
+    }
+
+    /**
+     * @return JSON document of the state's "virtual" result, or null if there is none. The node is shared with this state
+     *     and must not be modified.
+     */
+    @JsonIgnore
+    public JsonNode getResultNode() {
+        return result;
     }
 
     /**
@@ -114,6 +111,14 @@ public final class PassState extends TransitionState {
         return inputPath;
     }
 
+    /**
+     * @return Template the effective input of the state is built from, or null if the state has none. See
+     *     {@link Builder#parameters(Object)}.
+     */
+    public JsonNode getParameters() {
+        return parameters;
+    }
+
     /**
      * @return The output path expression that may optionally transform the output to this state.
      */
@@ -155,6 +160,9 @@ public final class PassState extends TransitionState {
         @JsonProperty(PropertyNames.INPUT_PATH)
         private String inputPath;
 
+        @JsonProperty(PropertyNames.PARAMETERS)
+        private JsonNode parameters;
+
         @JsonProperty(PropertyNames.OUTPUT_PATH)
         private String outputPath;
 
@@ -184,7 +192,7 @@ public final class PassState extends TransitionState {
          * @return This object for method chaining.
          */
         public Builder result(Object result) {
-            this.result = MAPPER.valueToTree(result);
+            this.result = JsonValues.toTree(result);
             return this;
         }
 
@@ -195,11 +203,7 @@ public final class PassState extends TransitionState {
          * @return This object for method chaining.
          */
         public Builder result(String result) {
-            try {
-                this.result = MAPPER.readTree(result);
-            } catch (IOException e) {
-                throw new RuntimeException("Result must be a JSON document", e);
-            }
+            this.result = JsonValues.parse(result, PropertyNames.RESULT);
             return this;
         }
 
@@ -217,6 +221,30 @@ public final class PassState extends TransitionState {
             return this;
         }
 
+        /**
+         * OPTIONAL. The value of “Parameters” is a template the effective input of the state is built from, applied after
+         * InputPath. A field whose name ends in “.$” is given the value its path selects from the input, e.g.
+         * {@code {"orderId.$": "$.order.id"}}, all other fields are copied as is.
+         *
+         * @param parameters POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(Object parameters) {
+            this.parameters = JsonValues.toTree(parameters);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Sets the “Parameters” template, see {@link #parameters(Object)}.
+         *
+         * @param parameters JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(String parameters) {
+            this.parameters = JsonValues.parse(parameters, PropertyNames.PARAMETERS);
+            return this;
+        }
+
         /**
          * OPTIONAL. The value of “OutputPath” MUST be a path, which is applied to the state’s output after the application of
          * ResultPath,
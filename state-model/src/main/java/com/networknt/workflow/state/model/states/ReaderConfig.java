@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.states;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+
+/**
+ * Describes the format of the file an {@link ItemReader} reads the items of a {@link MapState} from.
+ */
+public final class ReaderConfig {
+
+    /**
+     * One JSON document per line.
+     */
+    public static final String JSONL = "JSONL";
+
+    /**
+     * Comma separated values, every record becomes a JSON object keyed by the column headers.
+     */
+    public static final String CSV = "CSV";
+
+    /**
+     * The column headers of a CSV file are in its first record.
+     */
+    public static final String FIRST_ROW = "FIRST_ROW";
+
+    /**
+     * The column headers of a CSV file are given by {@link #getCsvHeaders()}.
+     */
+    public static final String GIVEN = "GIVEN";
+
+    @JsonProperty(PropertyNames.INPUT_TYPE)
+    private final String inputType;
+
+    @JsonProperty(PropertyNames.CSV_HEADER_LOCATION)
+    private final String csvHeaderLocation;
+
+    @JsonProperty(PropertyNames.CSV_HEADERS)
+    private final List<String> csvHeaders;
+
+    @JsonProperty(PropertyNames.MAX_ITEMS)
+    private final Integer maxItems;
+
+    private ReaderConfig(Builder builder) {
+        this.inputType = builder.inputType;
+        this.csvHeaderLocation = builder.csvHeaderLocation;
+        this.csvHeaders = Collections.unmodifiableList(new ArrayList<String>(builder.csvHeaders));
+        this.maxItems = builder.maxItems;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link ReaderConfig}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Format of the file, {@link #JSONL} or {@link #CSV}.
+     */
+    public String getInputType() {
+        return inputType;
+    }
+
+    /**
+     * @return Where the column headers of a CSV file come from, {@link #FIRST_ROW} or {@link #GIVEN}. Null means
+     *     {@link #FIRST_ROW}.
+     */
+    public String getCsvHeaderLocation() {
+        return csvHeaderLocation;
+    }
+
+    /**
+     * @return Column headers of a CSV file if the header location is {@link #GIVEN}.
+     */
+    public List<String> getCsvHeaders() {
+        return csvHeaders;
+    }
+
+    /**
+     * @return Maximum number of items read from the file, null or 0 if all of them are read.
+     */
+    public Integer getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Builder for a {@link ReaderConfig}.
+     */
+    public static final class Builder implements Buildable<ReaderConfig> {
+
+        @JsonProperty(PropertyNames.INPUT_TYPE)
+        private String inputType;
+
+        @JsonProperty(PropertyNames.CSV_HEADER_LOCATION)
+        private String csvHeaderLocation;
+
+        @JsonProperty(PropertyNames.CSV_HEADERS)
+        private List<String> csvHeaders = new ArrayList<String>();
+
+        @JsonProperty(PropertyNames.MAX_ITEMS)
+        private Integer maxItems;
+
+        private Builder() {
+        }
+
+        /**
+         * REQUIRED. Format of the file, {@link ReaderConfig#JSONL} or {@link ReaderConfig#CSV}.
+         *
+         * @param inputType Input type.
+         * @return This object for method chaining.
+         */
+        public Builder inputType(String inputType) {
+            this.inputType = inputType;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Where the column headers of a CSV file come from, {@link ReaderConfig#FIRST_ROW} if not provided.
+         *
+         * @param csvHeaderLocation Header location.
+         * @return This object for method chaining.
+         */
+        public Builder csvHeaderLocation(String csvHeaderLocation) {
+            this.csvHeaderLocation = csvHeaderLocation;
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Adds column headers of a CSV file, required if the header location is {@link ReaderConfig#GIVEN}.
+         *
+         * @param csvHeaders Column headers in the order of the columns.
+         * @return This object for method chaining.
+         */
+        public Builder csvHeaders(String... csvHeaders) {
+            Collections.addAll(this.csvHeaders, csvHeaders);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Stops reading after the given number of items. If not provided, or 0, all items are read.
+         *
+         * @param maxItems Maximum number of items, must not be negative.
+         * @return This object for method chaining.
+         */
+        public Builder maxItems(Integer maxItems) {
+            this.maxItems = maxItems;
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link ReaderConfig} object.
+         */
+        @Override
+        public ReaderConfig build() {
+            return new ReaderConfig(this);
+        }
+    }
+}
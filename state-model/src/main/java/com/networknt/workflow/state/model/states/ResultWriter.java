@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.states;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.JsonValues;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+
+/**
+ * Makes a {@link MapState} write the outputs of its iterations to a local file, one JSON document per line in the order
+ * of the items, instead of collecting them into its result. The “Parameters” template is applied to the effective input
+ * of the state and must produce a “Path” field with the location of the file.
+ */
+public final class ResultWriter {
+
+    /**
+     * Field of the parameters holding the location of the file.
+     */
+    public static final String PATH = "Path";
+
+    @JsonProperty(PropertyNames.PARAMETERS)
+    private final JsonNode parameters;
+
+    private ResultWriter(Builder builder) {
+        this.parameters = builder.parameters;
+    }
+
+    /**
+     * @return Builder instance to construct a {@link ResultWriter}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Template producing the location of the file.
+     */
+    public JsonNode getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Builder for a {@link ResultWriter}.
+     */
+    public static final class Builder implements Buildable<ResultWriter> {
+
+        @JsonProperty(PropertyNames.PARAMETERS)
+        private JsonNode parameters;
+
+        private Builder() {
+        }
+
+        /**
+         * REQUIRED. Template producing the location of the file, e.g. {@code {"Path.$": "$.output"}}.
+         *
+         * @param parameters POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(Object parameters) {
+            this.parameters = JsonValues.toTree(parameters);
+            return this;
+        }
+
+        /**
+         * REQUIRED. Sets the template producing the location of the file, see {@link #parameters(Object)}.
+         *
+         * @param parameters JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(String parameters) {
+            this.parameters = JsonValues.parse(parameters, PropertyNames.PARAMETERS);
+            return this;
+        }
+
+        /**
+         * @return An immutable {@link ResultWriter} object.
+         */
+        @Override
+        public ResultWriter build() {
+            return new ResultWriter(this);
+        }
+    }
+}
@@ -41,6 +41,11 @@ public interface State {
      */
     String FAIL = "Fail";
 
+    /**
+     * Type identifier for a {@link MapState}.
+     */
+    String MAP = "Map";
+
     /**
      * Type identifier for a {@link ParallelState}.
      */
@@ -87,6 +92,7 @@ public interface State {
     @JsonSubTypes({
                            @JsonSubTypes.Type(value = ChoiceState.Builder.class, name = CHOICE),
                            @JsonSubTypes.Type(value = FailState.Builder.class, name = FAIL),
+                           @JsonSubTypes.Type(value = MapState.Builder.class, name = MAP),
                            @JsonSubTypes.Type(value = ParallelState.Builder.class, name = PARALLEL),
                            @JsonSubTypes.Type(value = PassState.Builder.class, name = PASS),
                            @JsonSubTypes.Type(value = SucceedState.Builder.class, name = SUCCEED),
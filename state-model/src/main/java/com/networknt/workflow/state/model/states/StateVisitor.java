@@ -30,6 +30,10 @@ public abstract class StateVisitor<T> {
         return null;
     }
 
+    public T visit(MapState mapState) {
+        return null;
+    }
+
     public T visit(ParallelState parallelState) {
         return null;
     }
@@ -17,10 +17,12 @@ package com.networknt.workflow.state.model.states;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.JsonNode;
 import java.util.ArrayList;
 import java.util.List;
 import com.networknt.workflow.state.model.ErrorCodes;
 import com.networknt.workflow.state.model.internal.Buildable;
+import com.networknt.workflow.state.model.internal.JsonValues;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
 /**
@@ -38,6 +40,12 @@ public final class TaskState extends TransitionState {
     @JsonProperty(PropertyNames.INPUT_PATH)
     private final String inputPath;
 
+    @JsonProperty(PropertyNames.PARAMETERS)
+    private final JsonNode parameters;
+
+    @JsonProperty(PropertyNames.RESULT_SELECTOR)
+    private final JsonNode resultSelector;
+
     @JsonProperty(PropertyNames.RESULT_PATH)
     private final String resultPath;
 
@@ -65,6 +73,8 @@ public final class TaskState extends TransitionState {
     private TaskState(Builder builder) {
         this.resource = builder.resource;
         this.inputPath = builder.inputPath;
+        this.parameters = builder.parameters;
+        this.resultSelector = builder.resultSelector;
         this.resultPath = builder.resultPath;
         this.outputPath = builder.outputPath;
         this.comment = builder.comment;
@@ -104,6 +114,22 @@ public final class TaskState extends TransitionState {
         return inputPath;
     }
 
+    /**
+     * @return Template the effective input of the state is built from, or null if the state has none. See
+     *     {@link Builder#parameters(Object)}.
+     */
+    public JsonNode getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return Template the result of the state is reshaped with before ResultPath is applied, or null if the state has
+     *     none. See {@link Builder#resultSelector(Object)}.
+     */
+    public JsonNode getResultSelector() {
+        return resultSelector;
+    }
+
     /**
      * @return The result path expression that may optionally combine or replace the state's raw input with it's result.
      */
@@ -179,6 +205,10 @@ public final class TaskState extends TransitionState {
         private String resource;
         @JsonProperty(PropertyNames.INPUT_PATH)
         private String inputPath;
+        @JsonProperty(PropertyNames.PARAMETERS)
+        private JsonNode parameters;
+        @JsonProperty(PropertyNames.RESULT_SELECTOR)
+        private JsonNode resultSelector;
         @JsonProperty(PropertyNames.RESULT_PATH)
         private String resultPath;
         @JsonProperty(PropertyNames.OUTPUT_PATH)
@@ -220,6 +250,54 @@ public final class TaskState extends TransitionState {
             return this;
         }
 
+        /**
+         * OPTIONAL. The value of “Parameters” is a template the effective input of the state is built from, applied after
+         * InputPath. A field whose name ends in “.$” is given the value its path selects from the input, e.g.
+         * {@code {"orderId.$": "$.order.id"}}, all other fields are copied as is.
+         *
+         * @param parameters POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(Object parameters) {
+            this.parameters = JsonValues.toTree(parameters);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Sets the “Parameters” template, see {@link #parameters(Object)}.
+         *
+         * @param parameters JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder parameters(String parameters) {
+            this.parameters = JsonValues.parse(parameters, PropertyNames.PARAMETERS);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. The value of “ResultSelector” is a template the output of the task is reshaped with before ResultPath is
+         * applied. A field whose name ends in “.$” is given the value its path selects from the result, all other fields
+         * are copied as is.
+         *
+         * @param resultSelector POJO that will be serialized into the JSON template.
+         * @return This object for method chaining.
+         */
+        public Builder resultSelector(Object resultSelector) {
+            this.resultSelector = JsonValues.toTree(resultSelector);
+            return this;
+        }
+
+        /**
+         * OPTIONAL. Sets the “ResultSelector” template, see {@link #resultSelector(Object)}.
+         *
+         * @param resultSelector JSON template represented as a string.
+         * @return This object for method chaining.
+         */
+        public Builder resultSelector(String resultSelector) {
+            this.resultSelector = JsonValues.parse(resultSelector, PropertyNames.RESULT_SELECTOR);
+            return this;
+        }
+
         /**
          * OPTIONAL. The value of “ResultPath” MUST be a Reference Path, which specifies the combination with or replacement of
          * the state’s result with its raw input. If not provided then the output completely replaces the input.
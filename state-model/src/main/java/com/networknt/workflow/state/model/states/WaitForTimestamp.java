@@ -16,6 +16,7 @@
 package com.networknt.workflow.state.model.states;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
 import java.util.Date;
 import com.networknt.workflow.state.model.internal.PropertyNames;
 
@@ -69,6 +70,17 @@ public final class WaitForTimestamp implements WaitFor {
             return this;
         }
 
+        /**
+         * REQUIRED. Sets the instant that this state should wait until before proceeding, truncated to milliseconds.
+         *
+         * @param timestamp Instant to wait until.
+         * @return This object for method chaining.
+         */
+        public Builder timestamp(Instant timestamp) {
+            this.timestamp = timestamp == null ? null : Date.from(timestamp);
+            return this;
+        }
+
         /**
          * @return An immutable {@link WaitForTimestamp} object.
          */
@@ -51,6 +51,17 @@ public class PassStateTest {
         assertNull(newPassState().build().getResult());
     }
 
+    @Test
+    public void getResultNode_ResultCreatedFromString_ReturnsTree() throws IOException {
+        final String strResult = "{\"Foo\": [1, 2]}";
+        assertEquals(MAPPER.readTree(strResult), newPassState().result(strResult).build().getResultNode());
+    }
+
+    @Test
+    public void getResultNode_NullResult_ReturnsNull() {
+        assertNull(newPassState().build().getResultNode());
+    }
+
     @Test(expected = Exception.class)
     public void setResult_MalformedJson_ThrowsException() {
         newPassState().result("{").build().getResult();
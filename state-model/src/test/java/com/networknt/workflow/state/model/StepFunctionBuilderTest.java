@@ -24,7 +24,9 @@ import static com.networknt.workflow.state.model.StepFunctionBuilder.lte;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.model.states.ReaderConfig;
 import java.io.IOException;
+import java.util.Collections;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import org.junit.Test;
@@ -78,6 +80,25 @@ public class StepFunctionBuilderTest {
         assertStateMachine(stateMachine, "TaskStateWithEnd.json");
     }
 
+    @Test
+    public void taskStateWithParameters() {
+        final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
+                .startAt("InitialState")
+                .state("InitialState", StepFunctionBuilder.taskState()
+                        .resource("resource-arn")
+                        .parameters("{\"orderId.$\": \"$.order.id\", \"mode\": \"express\", "
+                                    + "\"lines\": [{\"sku.$\": \"$.order.sku\"}]}")
+                        .resultSelector("{\"status.$\": \"$.status\"}")
+                        .resultPath("$.result")
+                        .transition(StepFunctionBuilder.next("Pass")))
+                .state("Pass", StepFunctionBuilder.passState()
+                        .parameters(Collections.singletonMap("status.$", "$.result.status"))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+
+        assertStateMachine(stateMachine, "TaskStateWithParameters.json");
+    }
+
     @Test
     public void singleTaskStateWithRetries() {
         final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
@@ -392,6 +413,47 @@ public class StepFunctionBuilderTest {
         assertStateMachine(stateMachine, "ChoiceStateWithAllPrimitiveCondition.json");
     }
 
+    @Test
+    public void choiceStateWithTypeAndPathConditions() {
+        final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
+                .startAt("InitialState")
+                .state("InitialState", StepFunctionBuilder.choiceState()
+                        .defaultStateName("DefaultState")
+                        .choice(StepFunctionBuilder.choice().transition(StepFunctionBuilder.next("NextState"))
+                                        .condition(StepFunctionBuilder.and(
+                                                StepFunctionBuilder.matches("$.file", "log-*.txt"),
+                                                StepFunctionBuilder.isPresent("$.optional", true),
+                                                StepFunctionBuilder.isNull("$.optional", false),
+                                                StepFunctionBuilder.isNumeric("$.number", true),
+                                                StepFunctionBuilder.isString("$.string", true),
+                                                StepFunctionBuilder.isBoolean("$.boolean", true),
+                                                StepFunctionBuilder.isTimestamp("$.timestamp", true),
+                                                StepFunctionBuilder.stringEqualsPath("$.string", "$.other.string"),
+                                                StepFunctionBuilder.stringGreaterThanPath("$.string", "$.other.string"),
+                                                StepFunctionBuilder.stringGreaterThanEqualsPath("$.string", "$.other.string"),
+                                                StepFunctionBuilder.stringLessThanPath("$.string", "$.other.string"),
+                                                StepFunctionBuilder.stringLessThanEqualsPath("$.string", "$.other.string"),
+                                                StepFunctionBuilder.numericEqualsPath("$.number", "$.other.number"),
+                                                StepFunctionBuilder.numericGreaterThanPath("$.number", "$.other.number"),
+                                                StepFunctionBuilder.numericGreaterThanEqualsPath("$.number", "$.other.number"),
+                                                StepFunctionBuilder.numericLessThanPath("$.number", "$.other.number"),
+                                                StepFunctionBuilder.numericLessThanEqualsPath("$.number", "$.other.number"),
+                                                StepFunctionBuilder.timestampEqualsPath("$.timestamp", "$.other.timestamp"),
+                                                StepFunctionBuilder.timestampGreaterThanPath("$.timestamp", "$.other.timestamp"),
+                                                StepFunctionBuilder.timestampGreaterThanEqualsPath("$.timestamp",
+                                                                                                   "$.other.timestamp"),
+                                                StepFunctionBuilder.timestampLessThanPath("$.timestamp", "$.other.timestamp"),
+                                                StepFunctionBuilder.timestampLessThanEqualsPath("$.timestamp",
+                                                                                                "$.other.timestamp"),
+                                                StepFunctionBuilder.booleanEqualsPath("$.boolean", "$.other.boolean")
+                                                      ))))
+                .state("NextState", StepFunctionBuilder.succeedState())
+                .state("DefaultState", StepFunctionBuilder.succeedState())
+                .build();
+
+        assertStateMachine(stateMachine, "ChoiceStateWithTypeAndPathConditions.json");
+    }
+
     @Test
     public void simpleParallelState() {
         final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
@@ -418,6 +480,62 @@ public class StepFunctionBuilderTest {
         assertStateMachine(stateMachine, "SimpleParallelState.json");
     }
 
+    @Test
+    public void mapStateWithCatchers() {
+        final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
+                .startAt("InitialState")
+                .state("InitialState", StepFunctionBuilder.mapState()
+                        .comment("My map state")
+                        .inputPath("$.input")
+                        .itemsPath("$.items")
+                        .maxConcurrency(2)
+                        .resultSelector("{\"first.$\": \"$[0]\"}")
+                        .resultPath("$.result")
+                        .transition(StepFunctionBuilder.next("NextState"))
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("Double")
+                                          .state("Double", StepFunctionBuilder.taskState()
+                                                  .resource("double")
+                                                  .transition(StepFunctionBuilder.end())))
+                        .catcher(StepFunctionBuilder.catcher()
+                                         .catchAll()
+                                         .transition(StepFunctionBuilder.next("NextState"))))
+                .state("NextState", StepFunctionBuilder.succeedState())
+                .build();
+
+        assertStateMachine(stateMachine, "MapStateWithCatchers.json");
+    }
+
+    @Test
+    public void mapStateWithItemReaderAndBatcher() {
+        final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
+                .startAt("InitialState")
+                .state("InitialState", StepFunctionBuilder.mapState()
+                        .maxConcurrency(4)
+                        .itemReader(StepFunctionBuilder.itemReader()
+                                            .readerConfig(StepFunctionBuilder.readerConfig()
+                                                                  .inputType(ReaderConfig.CSV)
+                                                                  .csvHeaderLocation(ReaderConfig.GIVEN)
+                                                                  .csvHeaders("id", "name")
+                                                                  .maxItems(1000))
+                                            .parameters("{\"Path.$\": \"$.source\"}"))
+                        .resultWriter(StepFunctionBuilder.resultWriter()
+                                              .parameters("{\"Path.$\": \"$.target\"}"))
+                        .itemBatcher(StepFunctionBuilder.itemBatcher()
+                                             .maxItemsPerBatch(100)
+                                             .maxInputBytesPerBatch(262144)
+                                             .batchInput("{\"jobId.$\": \"$.jobId\"}"))
+                        .transition(StepFunctionBuilder.end())
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("Process")
+                                          .state("Process", StepFunctionBuilder.taskState()
+                                                  .resource("process")
+                                                  .transition(StepFunctionBuilder.end()))))
+                .build();
+
+        assertStateMachine(stateMachine, "MapStateWithItemReader.json");
+    }
+
     @Test
     public void parallelStateWithRetriers() {
         final StateMachine stateMachine = StepFunctionBuilder.stateMachine()
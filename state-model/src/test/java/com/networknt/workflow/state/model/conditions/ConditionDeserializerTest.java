@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.workflow.state.model.StepFunctionBuilder;
+import com.networknt.workflow.state.model.internal.PropertyNames;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionDeserializerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ConditionDeserializer deserializer = new ConditionDeserializer();
+
+    private Condition deserialize(String json) throws IOException {
+        return deserializer.deserializeCondition(MAPPER.readTree(json)).build();
+    }
+
+    @Test
+    public void deserializeCondition_OperatorAfterOtherFields_IsFound() throws IOException {
+        Condition condition = deserialize("{\"Next\": \"Done\", \"Variable\": \"$.a\", \"NumericLessThan\": 5}");
+
+        assertTrue(condition instanceof NumericLessThanCondition);
+        assertEquals("$.a", ((NumericLessThanCondition) condition).getVariable());
+        assertEquals("5", ((NumericLessThanCondition) condition).getExpectedValue());
+    }
+
+    @Test
+    public void deserializeCondition_NestedConditions_AreDeserialized() throws IOException {
+        Condition condition = deserialize("{\"And\": [{\"Variable\": \"$.a\", \"IsPresent\": true},"
+                                          + " {\"Not\": {\"Variable\": \"$.b\", \"StringMatches\": \"x*\"}}]}");
+
+        AndCondition and = (AndCondition) condition;
+        assertTrue(and.getConditions().get(0) instanceof IsPresentCondition);
+        assertTrue(((NotCondition) and.getConditions().get(1)).getCondition() instanceof StringMatchesCondition);
+    }
+
+    @Test
+    public void deserializeCondition_RegisteredOperator_IsUsed() throws IOException {
+        ConditionDeserializer.register("HasValue", new ConditionDeserializer.Operator() {
+            @Override
+            public Condition.Builder deserialize(JsonNode node, ConditionDeserializer deserializer) {
+                return StepFunctionBuilder.isNull(node.get(PropertyNames.VARIABLE).asText(),
+                                                  !node.get("HasValue").booleanValue());
+            }
+        });
+
+        Condition condition = deserialize("{\"Variable\": \"$.a\", \"HasValue\": true}");
+
+        assertTrue(condition instanceof IsNullCondition);
+        assertEquals(false, ((IsNullCondition) condition).getExpectedValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void register_BuiltInOperator_Throws() {
+        ConditionDeserializer.register(PropertyNames.STRING_EQUALS, new ConditionDeserializer.Operator() {
+            @Override
+            public Condition.Builder deserialize(JsonNode node, ConditionDeserializer deserializer) {
+                return null;
+            }
+        });
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeCondition_NoOperator_Throws() throws IOException {
+        deserialize("{\"Variable\": \"$.a\", \"Next\": \"Done\"}");
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.conditions;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WildcardPatternTest {
+
+    @Test
+    public void matches_NoWildcard_MatchesWholeString() {
+        WildcardPattern pattern = WildcardPattern.compile("log.txt");
+        assertTrue(pattern.matches("log.txt"));
+        assertFalse(pattern.matches("log.txt.gz"));
+        assertFalse(pattern.matches("log"));
+        assertFalse(pattern.matches(""));
+    }
+
+    @Test
+    public void matches_Wildcards_MatchAnyRun() {
+        WildcardPattern pattern = WildcardPattern.compile("*.log.*");
+        assertTrue(pattern.matches("app.log.1"));
+        assertTrue(pattern.matches(".log."));
+        assertTrue(pattern.matches("a.log.log.b"));
+        assertFalse(pattern.matches("app.log"));
+        assertTrue(WildcardPattern.compile("*").matches(""));
+        assertTrue(WildcardPattern.compile("**").matches("anything"));
+    }
+
+    @Test
+    public void matches_OverlappingPrefix_Backtracks() {
+        WildcardPattern pattern = WildcardPattern.compile("*aab");
+        assertTrue(pattern.matches("aaab"));
+        assertTrue(pattern.matches("abaab"));
+        assertFalse(pattern.matches("aaba"));
+    }
+
+    @Test
+    public void matches_EscapedStarAndBackslash_MatchLiterally() {
+        WildcardPattern pattern = WildcardPattern.compile("a\\*b\\\\*");
+        assertTrue(pattern.matches("a*b\\"));
+        assertTrue(pattern.matches("a*b\\tail"));
+        assertFalse(pattern.matches("axb\\"));
+    }
+
+    @Test
+    public void matches_NonAsciiCharacters_MatchedByClass() {
+        WildcardPattern pattern = WildcardPattern.compile("café-*");
+        assertTrue(pattern.matches("café-中文"));
+        assertFalse(pattern.matches("cafe-1"));
+    }
+
+    @Test
+    public void compile_Segments_StateCountStaysSmall() {
+        WildcardPattern pattern = WildcardPattern.compile("*a*b*c");
+        assertTrue(pattern.getStateCount() <= "*a*b*c".length());
+        assertTrue(pattern.matches("xxaxxbxxc"));
+        assertFalse(pattern.matches("xxbxxaxxc"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_TrailingBackslash_Throws() {
+        WildcardPattern.compile("abc\\");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_UnknownEscape_Throws() {
+        WildcardPattern.compile("\\d");
+    }
+}
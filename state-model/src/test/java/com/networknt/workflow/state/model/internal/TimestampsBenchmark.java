@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.internal;
+
+import com.networknt.utility.DateUtil;
+
+/**
+ * Compares {@link Timestamps} with {@link DateUtil}, which the timestamp conditions and Wait states used to parse
+ * with. Not a unit test, run the main method manually with a warmed up JVM, e.g.
+ * {@code java -cp <test classpath> com.networknt.workflow.state.model.internal.TimestampsBenchmark}.
+ */
+public class TimestampsBenchmark {
+
+    private static final String[] TIMESTAMPS = {
+            "2016-03-14T01:59:00Z",
+            "2016-03-14T01:59:00.123Z",
+            "2016-03-14T01:59:00.123-08:00",
+            "2024-02-29T23:59:59.999999999+05:30"
+    };
+
+    private static final int ITERATIONS = 1000000;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        for (int i = 0; i < 3; i++) {
+            long parser = timeTimestamps();
+            long dateUtil = timeDateUtil();
+            System.out.println(String.format("Timestamps %6d ns/op   DateUtil %6d ns/op",
+                                             parser / ITERATIONS, dateUtil / ITERATIONS));
+        }
+    }
+
+    private static long timeTimestamps() {
+        long start = System.nanoTime();
+        long sum = 0L;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += Timestamps.parseEpochMillis(TIMESTAMPS[i & 3]);
+        }
+        sink = sum;
+        return System.nanoTime() - start;
+    }
+
+    private static long timeDateUtil() {
+        long start = System.nanoTime();
+        long sum = 0L;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += DateUtil.parseIso8601Date(TIMESTAMPS[i & 3]).toEpochMilli();
+        }
+        sink = sum;
+        return System.nanoTime() - start;
+    }
+}
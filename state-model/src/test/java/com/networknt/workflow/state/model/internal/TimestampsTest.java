@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.internal;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimestampsTest {
+
+    @Test
+    public void parseEpochMillis_Offsets_MatchJavaTime() {
+        assertParsed("2016-03-14T01:59:00Z");
+        assertParsed("2016-03-14T01:59:00.123Z");
+        assertParsed("2016-03-14T01:59:00.123-08:00");
+        assertParsed("2016-03-14T01:59:00.5+05:30");
+        assertParsed("0000-01-01T00:00:00Z");
+        assertParsed("9999-12-31T23:59:59.999999999Z");
+        assertParsed("1969-12-31T23:59:59.999Z");
+    }
+
+    @Test
+    public void parseEpochMillis_RandomTimestamps_MatchJavaTime() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            OffsetDateTime time = OffsetDateTime.ofInstant(
+                    Instant.ofEpochSecond(random.nextInt(), random.nextInt(1000000000)),
+                    ZoneOffset.ofTotalSeconds((random.nextInt(36) - 18) * 900));
+            assertParsed(time.toString());
+        }
+    }
+
+    @Test
+    public void parseEpochNanos_Fraction_KeepsSubMillisecondDigits() {
+        assertEquals(1457920740123456789L, Timestamps.parseEpochNanos("2016-03-14T01:59:00.123456789Z"));
+        assertEquals(1457920740100000000L, Timestamps.parseEpochNanos("2016-03-14t01:59:00.1z"));
+        assertEquals(-1L, Timestamps.parseEpochNanos("1969-12-31T23:59:59.999999999Z"));
+    }
+
+    @Test
+    public void parseEpochNanos_OutsideLongRange_ReturnsInvalid() {
+        assertEquals(Timestamps.INVALID, Timestamps.parseEpochNanos("9999-12-31T23:59:59Z"));
+        assertEquals(253402300799000L, Timestamps.parseEpochMillis("9999-12-31T23:59:59Z"));
+    }
+
+    @Test
+    public void parseEpochMillis_LeapYears_ValidatesDayOfMonth() {
+        assertTrue(Timestamps.isTimestamp("2016-02-29T00:00:00Z"));
+        assertTrue(Timestamps.isTimestamp("2000-02-29T00:00:00Z"));
+        assertFalse(Timestamps.isTimestamp("1900-02-29T00:00:00Z"));
+        assertFalse(Timestamps.isTimestamp("2016-04-31T00:00:00Z"));
+    }
+
+    @Test
+    public void parseEpochMillis_Malformed_ReturnsInvalid() {
+        String[] malformed = {
+                null,
+                "",
+                "2016-03-14",
+                "2016-03-14T01:59:00",
+                "2016-03-14 01:59:00Z",
+                "2016-03-14T24:00:00Z",
+                "2016-03-14T01:60:00Z",
+                "2016-03-14T01:59:60Z",
+                "2016-13-14T01:59:00Z",
+                "2016-00-14T01:59:00Z",
+                "2016-03-00T01:59:00Z",
+                "2016-03-14T01:59:00.Z",
+                "2016-03-14T01:59:00.1234567890Z",
+                "2016-03-14T01:59:00+0800",
+                "2016-03-14T01:59:00+08:00:00",
+                "2016-03-14T01:59:00*08:00",
+                "2016-03-14T01:59:00+24:00",
+                "2016-03-14T01:59:00ZZ",
+                "+2016-03-14T01:59:00Z",
+                "2016-3-14T01:59:00Z"
+        };
+        for (String text : malformed) {
+            assertEquals(text, Timestamps.INVALID, Timestamps.parseEpochMillis(text));
+            assertEquals(text, Timestamps.INVALID, Timestamps.parseEpochNanos(text));
+            assertFalse(text, Timestamps.isTimestamp(text));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInstant_Malformed_ThrowsException() {
+        Timestamps.parseInstant("2016-03-14T01:59:00");
+    }
+
+    private static void assertParsed(String text) {
+        Instant expected = OffsetDateTime.parse(text).toInstant();
+        assertEquals(text, expected, Timestamps.parseInstant(text));
+        assertEquals(text, expected.toEpochMilli(), Timestamps.parseEpochMillis(text));
+    }
+}
@@ -20,6 +20,7 @@ import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
 import com.networknt.workflow.state.model.StepFunctionBuilder;
 import org.junit.Test;
 import com.networknt.workflow.state.model.states.Catcher;
+import com.networknt.workflow.state.model.states.MapState;
 import com.networknt.workflow.state.model.states.ParallelState;
 import com.networknt.workflow.state.model.states.PassState;
 import com.networknt.workflow.state.model.states.TaskState;
@@ -249,4 +250,109 @@ public class PathValidationTest {
     private Catcher.Builder validCatcher(String catcherTransition) {
         return StepFunctionBuilder.catcher().transition(StepFunctionBuilder.next(catcherTransition)).catchAll();
     }
+
+    @Test(expected = ValidationException.class)
+    public void taskState_ParametersWithInvalidPath_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Task")
+                .state("Task", StepFunctionBuilder.taskState()
+                        .resource("arn")
+                        .parameters("{\"nested\": {\"foo.$\": \"$.\"}}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void taskState_ResultSelectorWithNonTextPath_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Task")
+                .state("Task", StepFunctionBuilder.taskState()
+                        .resource("arn")
+                        .resultSelector("{\"foo.$\": 1}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void passState_ParametersNotAnObject_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Pass")
+                .state("Pass", StepFunctionBuilder.passState()
+                        .parameters("[1, 2]")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test
+    public void parallelState_ValidTemplates_IsValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Parallel")
+                .state("Parallel", StepFunctionBuilder.parallelState()
+                        .branch(StepFunctionBuilder.branch()
+                                        .startAt("Succeed")
+                                        .state("Succeed", StepFunctionBuilder.succeedState()))
+                        .parameters("{\"items.$\": \"$.items[*].id\", \"fixed\": [{\"a.$\": \"$.a\"}]}")
+                        .resultSelector("{\"first.$\": \"$[0]\"}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test
+    public void passState_ParametersWithIntrinsicFunctions_IsValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Pass")
+                .state("Pass", StepFunctionBuilder.passState()
+                        .parameters("{\"greeting.$\": \"States.Format('Hello {}', $.name)\", "
+                                    + "\"ids.$\": \"States.Array($.a, States.ArrayLength($.items))\"}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void taskState_ParametersWithUnknownIntrinsicFunction_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Task")
+                .state("Task", StepFunctionBuilder.taskState()
+                        .resource("arn")
+                        .parameters("{\"foo.$\": \"States.Frobnicate($.a)\"}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void taskState_ResultSelectorWithInvalidIntrinsicFunctionPath_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Task")
+                .state("Task", StepFunctionBuilder.taskState()
+                        .resource("arn")
+                        .resultSelector("{\"foo.$\": \"States.JsonToString($.)\"}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void passState_ParametersWithFormatPlaceholderMismatch_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Pass")
+                .state("Pass", StepFunctionBuilder.passState()
+                        .parameters("{\"foo.$\": \"States.Format('{} and {}', $.a)\"}")
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapState_InvalidItemsPath_ThrowsException() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Map")
+                .state("Map", validMapState().itemsPath("$.items[*]"))
+                .build();
+    }
+
+    private MapState.Builder validMapState() {
+        return StepFunctionBuilder.mapState()
+                .iterator(StepFunctionBuilder.branch()
+                                  .startAt("Succeed")
+                                  .state("Succeed", StepFunctionBuilder.succeedState()))
+                .transition(StepFunctionBuilder.end());
+    }
 }
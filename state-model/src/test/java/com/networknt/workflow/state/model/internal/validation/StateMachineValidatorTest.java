@@ -20,7 +20,11 @@ import static com.networknt.workflow.state.model.StepFunctionBuilder.eq;
 import com.networknt.workflow.state.model.StepFunctionBuilder;
 import org.junit.Test;
 import com.networknt.workflow.state.model.ErrorCodes;
+import com.networknt.workflow.state.model.conditions.Condition;
 import com.networknt.workflow.state.model.conditions.NotCondition;
+import com.networknt.workflow.state.model.states.ItemBatcher;
+import com.networknt.workflow.state.model.states.ReaderConfig;
+import com.networknt.workflow.state.model.states.ResultWriter;
 
 public class StateMachineValidatorTest {
 
@@ -573,6 +577,31 @@ public class StateMachineValidatorTest {
                 .build();
     }
 
+    @Test
+    public void validWildcardPattern_StringMatchesCondition_IsValid() {
+        choiceStateWithCondition(StepFunctionBuilder.matches("$.file", "log-*.txt"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void invalidEscapeInPattern_StringMatchesCondition_IsNotValid() {
+        choiceStateWithCondition(StepFunctionBuilder.matches("$.file", "log-\\d.txt"));
+    }
+
+    @Test
+    public void validExpectedPath_NumericLessThanPathCondition_IsValid() {
+        choiceStateWithCondition(StepFunctionBuilder.numericLessThanPath("$.price", "$.budget"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void invalidExpectedPath_NumericLessThanPathCondition_IsNotValid() {
+        choiceStateWithCondition(StepFunctionBuilder.numericLessThanPath("$.price", "$."));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void missingVariable_IsPresentCondition_IsNotValid() {
+        choiceStateWithCondition(StepFunctionBuilder.isPresent(null, true));
+    }
+
     @Test(expected = ValidationException.class)
     public void noConditionsInAnd_IsNotValid() {
         StepFunctionBuilder.stateMachine()
@@ -671,4 +700,173 @@ public class StateMachineValidatorTest {
                                          .transition(StepFunctionBuilder.next("NoSuchState"))))
                 .build();
     }
+
+    @Test
+    public void mapStateWithIterator_IsValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .itemsPath("$.items")
+                        .maxConcurrency(0)
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("InitialIteratorState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithNoIterator_IsNotValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateIteratorStartAtStateInvalid_IsNotValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("NoSuchState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateNegativeMaxConcurrency_IsNotValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .maxConcurrency(-1)
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("InitialIteratorState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateIteratorWithCycle_IsNotValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("One")
+                                          .state("One", StepFunctionBuilder.passState()
+                                                  .transition(StepFunctionBuilder.next("Two")))
+                                          .state("Two", StepFunctionBuilder.passState()
+                                                  .transition(StepFunctionBuilder.next("One"))))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test
+    public void mapStateWithItemReader_IsValid() {
+        mapStateWithItemReader(StepFunctionBuilder.readerConfig().inputType(ReaderConfig.JSONL),
+                               "{\"Path.$\": \"$.source\"}",
+                               StepFunctionBuilder.resultWriter().parameters("{\"Path\": \"/tmp/results.jsonl\"}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithItemReaderAndNoResultWriter_IsNotValid() {
+        mapStateWithItemReader(StepFunctionBuilder.readerConfig().inputType(ReaderConfig.JSONL),
+                               "{\"Path.$\": \"$.source\"}", null);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithUnknownInputType_IsNotValid() {
+        mapStateWithItemReader(StepFunctionBuilder.readerConfig().inputType("XML"),
+                               "{\"Path.$\": \"$.source\"}",
+                               StepFunctionBuilder.resultWriter().parameters("{\"Path.$\": \"$.target\"}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithGivenHeaderLocationAndNoHeaders_IsNotValid() {
+        mapStateWithItemReader(StepFunctionBuilder.readerConfig()
+                                       .inputType(ReaderConfig.CSV)
+                                       .csvHeaderLocation(ReaderConfig.GIVEN),
+                               "{\"Path.$\": \"$.source\"}",
+                               StepFunctionBuilder.resultWriter().parameters("{\"Path.$\": \"$.target\"}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithItemReaderWithoutPath_IsNotValid() {
+        mapStateWithItemReader(StepFunctionBuilder.readerConfig().inputType(ReaderConfig.JSONL),
+                               "{\"File.$\": \"$.source\"}",
+                               StepFunctionBuilder.resultWriter().parameters("{\"Path.$\": \"$.target\"}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithResultWriterAndNoItemReader_IsNotValid() {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .resultWriter(StepFunctionBuilder.resultWriter().parameters("{\"Path.$\": \"$.target\"}"))
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("InitialIteratorState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    @Test
+    public void mapStateWithItemBatcher_IsValid() {
+        mapStateWithItemBatcher(StepFunctionBuilder.itemBatcher()
+                                        .maxInputBytesPerBatch(1024)
+                                        .batchInput("{\"jobId.$\": \"$.jobId\"}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithItemBatcherWithoutLimits_IsNotValid() {
+        mapStateWithItemBatcher(StepFunctionBuilder.itemBatcher().batchInput("{\"jobId\": 1}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void mapStateWithZeroMaxItemsPerBatch_IsNotValid() {
+        mapStateWithItemBatcher(StepFunctionBuilder.itemBatcher().maxItemsPerBatch(0));
+    }
+
+    private void choiceStateWithCondition(Condition.Builder condition) {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.choiceState()
+                        .choice(StepFunctionBuilder.choice()
+                                        .condition(condition)
+                                        .transition(StepFunctionBuilder.next("Terminal")))
+                        .defaultStateName("Terminal"))
+                .state("Terminal", StepFunctionBuilder.succeedState())
+                .build();
+    }
+
+    private void mapStateWithItemBatcher(ItemBatcher.Builder itemBatcher) {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .itemBatcher(itemBatcher)
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("InitialIteratorState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
+
+    private void mapStateWithItemReader(ReaderConfig.Builder readerConfig, String parameters,
+                                        ResultWriter.Builder resultWriter) {
+        StepFunctionBuilder.stateMachine()
+                .startAt("Initial")
+                .state("Initial", StepFunctionBuilder.mapState()
+                        .itemReader(StepFunctionBuilder.itemReader()
+                                            .readerConfig(readerConfig)
+                                            .parameters(parameters))
+                        .resultWriter(resultWriter)
+                        .iterator(StepFunctionBuilder.branch()
+                                          .startAt("InitialIteratorState")
+                                          .state("InitialIteratorState", StepFunctionBuilder.succeedState()))
+                        .transition(StepFunctionBuilder.end()))
+                .build();
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Network New Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.networknt.workflow.state.model.intrinsics;
+
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IntrinsicFunctionParserTest {
+
+    @Test
+    public void isIntrinsicFunction_PathOrCall_TellsThemApart() {
+        assertTrue(IntrinsicFunctionParser.isIntrinsicFunction("States.UUID()"));
+        assertFalse(IntrinsicFunctionParser.isIntrinsicFunction("$.States"));
+        assertFalse(IntrinsicFunctionParser.isIntrinsicFunction(null));
+    }
+
+    @Test
+    public void parse_Format_KeepsRawTemplate() {
+        FunctionCall call = IntrinsicFunctionParser.parse("States.Format('Hello \\'{}\\' \\{x\\}', $.name)");
+        assertEquals(IntrinsicFunction.FORMAT, call.getFunction());
+        Literal template = (Literal) call.getArguments().get(0);
+        assertEquals("Hello '{}' {x}", template.getValue().textValue());
+        assertEquals("Hello \\'{}\\' \\{x\\}", template.getRaw());
+        assertEquals("$.name", ((PathReference) call.getArguments().get(1)).getPath());
+    }
+
+    @Test
+    public void parse_LiteralsOfAllTypes_AreTyped() {
+        FunctionCall call = IntrinsicFunctionParser.parse("States.Array(1, -2.5, true, false, null, 'x')");
+        assertEquals(IntNode.valueOf(1), ((Literal) call.getArguments().get(0)).getValue());
+        assertEquals(new BigDecimal("-2.5"), ((Literal) call.getArguments().get(1)).getValue().decimalValue());
+        assertEquals(BooleanNode.TRUE, ((Literal) call.getArguments().get(2)).getValue());
+        assertEquals(BooleanNode.FALSE, ((Literal) call.getArguments().get(3)).getValue());
+        assertEquals(NullNode.getInstance(), ((Literal) call.getArguments().get(4)).getValue());
+        assertNull(((Literal) call.getArguments().get(0)).getRaw());
+        assertEquals("x", ((Literal) call.getArguments().get(5)).getRaw());
+    }
+
+    @Test
+    public void parse_PathWithBracketsAndCommas_EndsAtArgumentSeparator() {
+        FunctionCall call = IntrinsicFunctionParser.parse("States.ArrayGetItem($.items['a,b'][0], 1)");
+        assertEquals("$.items['a,b'][0]", ((PathReference) call.getArguments().get(0)).getPath());
+        assertEquals(IntNode.valueOf(1), ((Literal) call.getArguments().get(1)).getValue());
+    }
+
+    @Test
+    public void parse_NestedCalls_BuildTree() {
+        FunctionCall call = IntrinsicFunctionParser.parse(
+                "States.Format('{} items', States.ArrayLength(States.Array($.a, $.b)))");
+        FunctionCall length = (FunctionCall) call.getArguments().get(1);
+        assertEquals(IntrinsicFunction.ARRAY_LENGTH, length.getFunction());
+        assertEquals(2, ((FunctionCall) length.getArguments().get(0)).getArguments().size());
+        assertEquals("States.Format('{} items', States.ArrayLength(States.Array($.a, $.b)))", call.toString());
+    }
+
+    @Test
+    public void parse_NoArguments_IsAllowed() {
+        assertTrue(IntrinsicFunctionParser.parse("States.UUID( )").getArguments().isEmpty());
+        assertTrue(IntrinsicFunctionParser.parse("States.Array()").getArguments().isEmpty());
+    }
+
+    @Test
+    public void parse_WrongArity_Fails() {
+        assertFails("States.ArrayLength($.a, $.b)", "takes 1 argument");
+        assertFails("States.MathRandom(1)", "takes 2 to 3 arguments");
+        assertFails("States.UUID(1)", "takes 0 arguments");
+    }
+
+    @Test
+    public void parse_FormatPlaceholderMismatch_Fails() {
+        assertFails("States.Format('{} {}', $.a)", "has 2 placeholders but 1 values");
+        assertFails("States.Format($.template, $.a)", "must be a string literal");
+    }
+
+    @Test
+    public void parse_Malformed_ReportsPosition() {
+        assertFails("States.Nope()", "Unknown intrinsic function 'States.Nope' at position 0");
+        assertFails("States.Array('a'", "Expected ')' but reached the end");
+        assertFails("States.Array('a) ", "Unterminated string literal at position 13");
+        assertFails("States.Array(1,)", "Missing argument");
+        assertFails("States.Array(1) x", "Unexpected 'x'");
+        assertFails("States.Array(1.2.3)", "Malformed number '1.2.3'");
+    }
+
+    private static void assertFails(String text, String message) {
+        try {
+            IntrinsicFunctionParser.parse(text);
+            fail("Expected " + text + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}